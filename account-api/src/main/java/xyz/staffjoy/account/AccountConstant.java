@@ -6,6 +6,9 @@ package xyz.staffjoy.account;
 public class AccountConstant {
     public static final String SERVICE_NAME = "account-service";
 
+    //批量获取账户一次最多的用户数
+    public static final int MAX_GET_ACCOUNTS = 500;
+
     // Notifications template
     //通知模板
     public static final String RESET_PASSWORD_TMPL = "<div>We received a request to reset the password on your account. To do so, click the below link. If you did not request this change, no action is needed. <br/> <a href=\"%s\">%s</a></div>";
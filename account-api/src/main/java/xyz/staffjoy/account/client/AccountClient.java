@@ -37,6 +37,11 @@ public interface AccountClient {
     ListAccountResponse listAccounts(@RequestHeader(AuthConstant.AUTHORIZATION_HEADER) String authz,
                                      @RequestParam int offset, @RequestParam @Min(0) int limit);
 
+    //按续页令牌获取账户列表，cursor为上一页返回的nextCursor，第一页传null
+    @GetMapping(path = "/list")
+    ListAccountResponse listAccounts(@RequestHeader(AuthConstant.AUTHORIZATION_HEADER) String authz,
+                                     @RequestParam(required = false) String cursor, @RequestParam @Min(0) int limit);
+
     //获取或创建(如不存在)客户
     // GetOrCreate is for internal use by other APIs to match a user based on their phonenumber or email.
     @PostMapping(path = "/get_or_create")
@@ -47,6 +52,12 @@ public interface AccountClient {
     @GetMapping(path = "/get")
     GenericAccountResponse getAccount(@RequestHeader(AuthConstant.AUTHORIZATION_HEADER) String authz,
                                       @RequestParam @NotBlank String userId);
+
+    //批量获取账户，不存在的用户不在结果中
+    @PostMapping(path = "/get_accounts")
+    ListAccountResponse getAccounts(@RequestHeader(AuthConstant.AUTHORIZATION_HEADER) String authz,
+                                    @RequestBody @Valid GetAccountsRequest request);
+
     //更新账户
     @PutMapping(path = "/update")
     GenericAccountResponse updateAccount(@RequestHeader(AuthConstant.AUTHORIZATION_HEADER) String authz,
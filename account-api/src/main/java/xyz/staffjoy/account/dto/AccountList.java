@@ -18,4 +18,6 @@ public class AccountList {
     private List<AccountDto> accounts;
     private int limit;
     private int offset;
+    // 还有下一页时返回，作为下次请求的cursor
+    private String nextCursor;
 }
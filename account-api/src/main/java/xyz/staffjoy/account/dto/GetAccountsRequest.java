@@ -0,0 +1,24 @@
+package xyz.staffjoy.account.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import xyz.staffjoy.account.AccountConstant;
+
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.Size;
+import java.util.List;
+
+/**
+ * 批量获取账户
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class GetAccountsRequest {
+    @NotEmpty
+    @Size(max = AccountConstant.MAX_GET_ACCOUNTS)
+    private List<String> userIds;
+}
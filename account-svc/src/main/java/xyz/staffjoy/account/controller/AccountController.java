@@ -21,6 +21,7 @@ import xyz.staffjoy.common.validation.PhoneNumber;
 import javax.validation.Valid;
 import javax.validation.constraints.Min;
 import javax.validation.constraints.NotBlank;
+import java.util.List;
 
 
 @RestController
@@ -82,8 +83,12 @@ public class AccountController {
     @Authorize(value = {
             AuthConstant.AUTHORIZATION_SUPPORT_USER
     })
-    public ListAccountResponse listAccounts(@RequestParam int offset, @RequestParam @Min(0) int limit) {
-        AccountList accountList = accountService.list(offset, limit);
+    public ListAccountResponse listAccounts(@RequestParam(defaultValue = "0") int offset,
+                                            @RequestParam @Min(0) int limit,
+                                            @RequestParam(required = false) String cursor) {
+        // 带cursor时按续页令牌翻页
+        AccountList accountList = StringUtils.isEmpty(cursor) ? accountService.list(offset, limit)
+                : accountService.list(cursor, limit);
         ListAccountResponse listAccountResponse = new ListAccountResponse(accountList);
         return listAccountResponse;
     }
@@ -112,6 +117,29 @@ public class AccountController {
         return genericAccountResponse;
     }
 
+    //通过userid批量获取账户信息，只对内部服务开放
+    @PostMapping(path = "/get_accounts")
+    @Authorize(value = {
+            AuthConstant.AUTHORIZATION_WWW_SERVICE,
+            AuthConstant.AUTHORIZATION_ACCOUNT_SERVICE,
+            AuthConstant.AUTHORIZATION_COMPANY_SERVICE,
+            AuthConstant.AUTHORIZATION_WHOAMI_SERVICE,
+            AuthConstant.AUTHORIZATION_BOT_SERVICE,
+            AuthConstant.AUTHORIZATION_SUPPORT_USER,
+            AuthConstant.AUTHORIZATION_SUPERPOWERS_SERVICE
+    })
+    public ListAccountResponse getAccounts(@RequestBody @Valid GetAccountsRequest request) {
+        //环境鉴权
+        this.validateEnv();
+
+        List<AccountDto> accountDtoList = accountService.getAccounts(request.getUserIds());
+        AccountList accountList = AccountList.builder()
+                .accounts(accountDtoList)
+                .limit(accountDtoList.size())
+                .build();
+        return new ListAccountResponse(accountList);
+    }
+
     //更新用户信息
     @PutMapping(path = "/update")
     @Authorize(value = {
@@ -0,0 +1,38 @@
+package xyz.staffjoy.account.mapper;
+
+import xyz.staffjoy.account.dto.AccountDto;
+import xyz.staffjoy.account.model.Account;
+
+/**
+ * Account与AccountDto之间的转换
+ */
+public final class AccountMapper {
+
+    private AccountMapper() {}
+
+    public static AccountDto toDto(Account account) {
+        return AccountDto.builder()
+                .id(account.getId())
+                .name(account.getName())
+                .email(account.getEmail())
+                .confirmedAndActive(account.isConfirmedAndActive())
+                .memberSince(account.getMemberSince())
+                .support(account.isSupport())
+                .phoneNumber(account.getPhoneNumber())
+                .photoUrl(account.getPhotoUrl())
+                .build();
+    }
+
+    public static Account toModel(AccountDto accountDto) {
+        return Account.builder()
+                .id(accountDto.getId())
+                .name(accountDto.getName())
+                .email(accountDto.getEmail())
+                .confirmedAndActive(accountDto.isConfirmedAndActive())
+                .memberSince(accountDto.getMemberSince())
+                .support(accountDto.isSupport())
+                .phoneNumber(accountDto.getPhoneNumber())
+                .photoUrl(accountDto.getPhotoUrl())
+                .build();
+    }
+}
@@ -1,5 +1,6 @@
 package xyz.staffjoy.account.repo;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
@@ -8,11 +9,21 @@ import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 import xyz.staffjoy.account.model.Account;
 
+import java.util.Collection;
+import java.util.List;
+
 @Repository
 public interface AccountRepo extends JpaRepository<Account, String> {
 
     Account findAccountById(String id);
 
+    List<Account> findAccountsByIdIn(Collection<String> ids);
+
+    // 返回List而不是Page，不会额外执行count查询
+    List<Account> findAllByOrderByIdAsc(Pageable pageable);
+
+    List<Account> findByIdGreaterThanOrderByIdAsc(String cursorId, Pageable pageable);
+
     Account findAccountByEmail(String email);
 
     Account findAccountByPhoneNumber(String phoneNumber);
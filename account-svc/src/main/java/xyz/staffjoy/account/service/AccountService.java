@@ -3,15 +3,13 @@ package xyz.staffjoy.account.service;
 import com.github.structlog4j.ILogger;
 import com.github.structlog4j.SLoggerFactory;
 import lombok.RequiredArgsConstructor;
-import org.modelmapper.ModelMapper;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 import xyz.staffjoy.account.AccountConstant;
 import xyz.staffjoy.account.dto.AccountDto;
+import xyz.staffjoy.account.mapper.AccountMapper;
 import xyz.staffjoy.account.model.Account;
 import xyz.staffjoy.account.model.AccountSecret;
 import xyz.staffjoy.account.props.AppProps;
@@ -20,6 +18,7 @@ import xyz.staffjoy.account.repo.AccountRepo;
 import xyz.staffjoy.account.repo.AccountSecretRepo;
 import xyz.staffjoy.account.service.helper.ServiceHelper;
 import xyz.staffjoy.common.api.BaseResponse;
+import xyz.staffjoy.common.api.PageCursor;
 import xyz.staffjoy.common.api.ResultCode;
 import xyz.staffjoy.common.auditlog.LogEntry;
 import xyz.staffjoy.common.auth.AuthConstant;
@@ -62,8 +61,6 @@ public class AccountService {
     //org.springframework.security.crypto
     private final PasswordEncoder passwordEncoder;
 
-    private final ModelMapper modelMapper;
-
     @PersistenceContext
     private EntityManager entityManager;
 
@@ -185,6 +182,7 @@ public class AccountService {
 
     /**
      * 获取账户信息列表
+     * 按主键排序，offset为页号，不执行count查询
      * @param offset
      * @param limit
      * @return
@@ -195,15 +193,39 @@ public class AccountService {
         }
 
         //分页请求
-        Pageable pageRequest = PageRequest.of(offset, limit);
-        Page<Account> accountPage = accountRepo.findAll(pageRequest);
-        List<AccountDto> accountDtoList = accountPage.getContent().stream().map(account -> convertToDto(account)).collect(toList());
+        List<Account> accounts = accountRepo.findAllByOrderByIdAsc(PageRequest.of(offset, limit));
+        return convertToAccountList(accounts, offset, limit);
+    }
+
+    /**
+     * 获取账户信息列表
+     * 从续页令牌之后按主键继续扫描，深翻页的代价与第一页相同
+     * @param cursor 上一页返回的nextCursor，为空时从头开始
+     * @param limit
+     * @return
+     */
+    public AccountList list(String cursor, int limit) {
+        if (limit <= 0) {
+            limit = 10;
+        }
+
+        String cursorId = StringUtils.isEmpty(cursor) ? "" : PageCursor.decode(cursor, 1)[0];
+        List<Account> accounts = accountRepo.findByIdGreaterThanOrderByIdAsc(cursorId, PageRequest.of(0, limit));
+        return convertToAccountList(accounts, 0, limit);
+    }
 
-        return AccountList.builder()
+    private AccountList convertToAccountList(List<Account> accounts, int offset, int limit) {
+        List<AccountDto> accountDtoList = accounts.stream().map(account -> convertToDto(account)).collect(toList());
+
+        AccountList accountList = AccountList.builder()
                 .limit(limit)
                 .offset(offset)
                 .accounts(accountDtoList)
                 .build();
+        if (accounts.size() == limit) {
+            accountList.setNextCursor(PageCursor.encode(accounts.get(accounts.size() - 1).getId()));
+        }
+        return accountList;
     }
 
     /**
@@ -219,6 +241,18 @@ public class AccountService {
         return this.convertToDto(account);
     }
 
+    /**
+     * 通过userid批量获取用户信息，一次IN查询，不存在的用户不在结果中
+     * @param userIds
+     * @return
+     */
+    public List<AccountDto> getAccounts(List<String> userIds) {
+        List<String> distinctIds = userIds.stream().distinct().collect(toList());
+        return accountRepo.findAccountsByIdIn(distinctIds).stream()
+                .map(account -> convertToDto(account))
+                .collect(toList());
+    }
+
     /**
      * 更新账户信息
      * @param newAccountDto
@@ -294,6 +328,8 @@ public class AccountService {
 
         //同步用户信息到客服云服务上
         serviceHelper.syncUserAsync(newAccount.getId());
+        //员工目录项缓存失效
+        serviceHelper.evictDirectoryCacheAsync(newAccount.getId());
 
         //审计日志 依赖第三方包
         LogEntry auditLog = LogEntry.builder()
@@ -449,6 +485,8 @@ public class AccountService {
 
         //同步用户信息到客服云服务上
         serviceHelper.syncUserAsync(userId);
+        //员工目录项缓存失效
+        serviceHelper.evictDirectoryCacheAsync(userId);
 
         //审计日志
         LogEntry auditLog = LogEntry.builder()
@@ -563,12 +601,12 @@ public class AccountService {
 
     //DTM转化到DTO
     private AccountDto convertToDto(Account account) {
-        return modelMapper.map(account, AccountDto.class);
+        return AccountMapper.toDto(account);
     }
 
     //DTO转化到DMO
     private Account convertToModel(AccountDto accountDto) {
-        return modelMapper.map(accountDto, Account.class);
+        return AccountMapper.toModel(accountDto);
     }
 
     /**
@@ -167,6 +167,27 @@ public class ServiceHelper {
         this.syncUserWithIntercom(user, account.getId());
     }
 
+    /**
+     * 账户信息变化后，通知company服务清除该用户的员工目录项缓存
+     * 采取异步的形式
+     * @param userId
+     */
+    @Async(AppConfig.ASYNC_EXECUTOR_NAME)
+    public void evictDirectoryCacheAsync(String userId) {
+        BaseResponse baseResponse = null;
+        try {
+            baseResponse = companyClient.evictAccountFromDirectory(AuthConstant.AUTHORIZATION_ACCOUNT_SERVICE, userId);
+        } catch (Exception ex) {
+            String errMsg = "could not evict directory cache";
+            handleException(logger, ex, errMsg);
+            throw new ServiceException(errMsg, ex);
+        }
+        if (!baseResponse.isSuccess()) {
+            handleError(logger, baseResponse.getMessage());
+            throw new ServiceException(baseResponse.getMessage());
+        }
+    }
+
     /**
      * 同步用户信息到云客服系统
      * @param user
@@ -29,6 +29,8 @@ import xyz.staffjoy.mail.client.MailClient;
 import xyz.staffjoy.mail.dto.EmailRequest;
 
 import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
@@ -568,6 +570,53 @@ public class AccountControllerTest {
         assertThat(accountDto).isEqualTo(gotAccountDto);
     }
 
+    @Test
+    public void testGetAccounts() {
+        // arrange mock
+        when(mailClient.send(any(EmailRequest.class))).thenReturn(BaseResponse.builder().message("email sent").build());
+
+        // create two accounts
+        CreateAccountRequest createAccountRequest = CreateAccountRequest.builder()
+                .name("testAccount001")
+                .email("test001@staffjoy.xyz")
+                .phoneNumber("18001801236")
+                .build();
+        GenericAccountResponse genericAccountResponse = accountClient.createAccount(AuthConstant.AUTHORIZATION_WWW_SERVICE, createAccountRequest);
+        assertThat(genericAccountResponse.isSuccess()).isTrue();
+        AccountDto accountDto1 = genericAccountResponse.getAccount();
+
+        createAccountRequest = CreateAccountRequest.builder()
+                .name("testAccount002")
+                .email("test002@staffjoy.xyz")
+                .phoneNumber("18001801237")
+                .build();
+        genericAccountResponse = accountClient.createAccount(AuthConstant.AUTHORIZATION_WWW_SERVICE, createAccountRequest);
+        assertThat(genericAccountResponse.isSuccess()).isTrue();
+        AccountDto accountDto2 = genericAccountResponse.getAccount();
+
+        // duplicated and unknown ids
+        GetAccountsRequest getAccountsRequest = GetAccountsRequest.builder()
+                .userIds(Arrays.asList(accountDto1.getId(), accountDto2.getId(), accountDto1.getId(), "unknown"))
+                .build();
+
+        // authenticated user not allowed
+        ListAccountResponse listAccountResponse = accountClient.getAccounts(AuthConstant.AUTHORIZATION_AUTHENTICATED_USER, getAccountsRequest);
+        log.info(listAccountResponse.toString());
+        assertThat(listAccountResponse.isSuccess()).isFalse();
+
+        // get accounts success
+        listAccountResponse = accountClient.getAccounts(AuthConstant.AUTHORIZATION_COMPANY_SERVICE, getAccountsRequest);
+        log.info(listAccountResponse.toString());
+        assertThat(listAccountResponse.isSuccess()).isTrue();
+        assertThat(listAccountResponse.getAccountList().getAccounts()).containsExactlyInAnyOrder(accountDto1, accountDto2);
+
+        // empty request
+        listAccountResponse = accountClient.getAccounts(AuthConstant.AUTHORIZATION_COMPANY_SERVICE, new GetAccountsRequest(Collections.emptyList()));
+        log.info(listAccountResponse.toString());
+        assertThat(listAccountResponse.isSuccess()).isFalse();
+        assertThat(listAccountResponse.getCode()).isEqualTo(ResultCode.PARAM_VALID_ERROR);
+    }
+
     @Test
     public void testListAccounts() {
         // arrange mock
@@ -639,6 +688,31 @@ public class AccountControllerTest {
         assertThat(accountList.getAccounts()).hasSize(1);
         assertThat(accountList.getLimit()).isEqualTo(2);
         assertThat(accountList.getOffset()).isEqualTo(1);
+
+        // page by cursor and verify
+        listAccountResponse = accountClient.listAccounts(AuthConstant.AUTHORIZATION_SUPPORT_USER, null, 2);
+        log.info(listAccountResponse.toString());
+        assertThat(listAccountResponse.isSuccess()).isTrue();
+        accountList = listAccountResponse.getAccountList();
+        assertThat(accountList.getAccounts()).hasSize(2);
+        assertThat(accountList.getNextCursor()).isNotNull();
+        String firstId = accountList.getAccounts().get(0).getId();
+        String secondId = accountList.getAccounts().get(1).getId();
+        assertThat(secondId).isGreaterThan(firstId);
+
+        listAccountResponse = accountClient.listAccounts(AuthConstant.AUTHORIZATION_SUPPORT_USER, accountList.getNextCursor(), 2);
+        log.info(listAccountResponse.toString());
+        assertThat(listAccountResponse.isSuccess()).isTrue();
+        accountList = listAccountResponse.getAccountList();
+        assertThat(accountList.getAccounts()).hasSize(1);
+        assertThat(accountList.getAccounts().get(0).getId()).isGreaterThan(secondId);
+        assertThat(accountList.getNextCursor()).isNull();
+
+        // invalid cursor
+        listAccountResponse = accountClient.listAccounts(AuthConstant.AUTHORIZATION_SUPPORT_USER, "not*a*cursor", 2);
+        log.info(listAccountResponse.toString());
+        assertThat(listAccountResponse.isSuccess()).isFalse();
+        assertThat(listAccountResponse.getCode()).isEqualTo(ResultCode.PARAM_VALID_ERROR);
     }
 
     @Test
@@ -0,0 +1,35 @@
+package xyz.staffjoy.account.mapper;
+
+import org.junit.Test;
+import org.modelmapper.ModelMapper;
+import xyz.staffjoy.account.dto.AccountDto;
+import xyz.staffjoy.account.model.Account;
+
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AccountMapperTest {
+
+    @Test
+    public void testEquivalentToModelMapper() {
+        ModelMapper modelMapper = new ModelMapper();
+
+        Account account = Account.builder().id("123456")
+                .name("testAccount")
+                .email("test@staffjoy.net")
+                .memberSince(Instant.now())
+                .confirmedAndActive(true)
+                .photoUrl("https://staffjoy.xyz/photo/test.png")
+                .phoneNumber("18001801266")
+                .support(false)
+                .build();
+
+        AccountDto accountDto = AccountMapper.toDto(account);
+        assertThat(accountDto).isEqualTo(modelMapper.map(account, AccountDto.class));
+        assertThat(AccountMapper.toModel(accountDto)).isEqualTo(modelMapper.map(accountDto, Account.class));
+
+        Account empty = Account.builder().id("654321").build();
+        assertThat(AccountMapper.toDto(empty)).isEqualTo(modelMapper.map(empty, AccountDto.class));
+    }
+}
@@ -14,6 +14,8 @@ import org.springframework.test.context.junit4.SpringRunner;
 import xyz.staffjoy.account.model.AccountSecret;
 
 import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
 import java.time.ZoneId;
 
 import static org.junit.Assert.*;
@@ -60,6 +62,18 @@ public class AccountRepoTest {
         assertEquals(newAccount, foundAccount);
     }
 
+    @Test
+    public void findAccountsByIdIn() {
+        accountRepo.save(newAccount);
+        assertEquals(1, accountRepo.count());
+        List<Account> foundAccounts = accountRepo.findAccountsByIdIn(Arrays.asList(newAccount.getId(), "notexisting"));
+        assertEquals(1, foundAccounts.size());
+        assertEquals(newAccount, foundAccounts.get(0));
+
+        foundAccounts = accountRepo.findAccountsByIdIn(Arrays.asList("notexisting"));
+        assertTrue(foundAccounts.isEmpty());
+    }
+
     @Test
     public void findAccountByEmail() {
         // not existing
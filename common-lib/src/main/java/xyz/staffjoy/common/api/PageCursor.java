@@ -0,0 +1,42 @@
+package xyz.staffjoy.common.api;
+
+import xyz.staffjoy.common.error.ServiceException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * 键集分页(keyset pagination)的续页令牌
+ * 令牌是上一页最后一行排序键的不透明编码，客户端原样带回，服务端从该键之后继续扫描
+ */
+public final class PageCursor {
+
+    private static final char SEPARATOR = '\n';
+
+    private PageCursor() {}
+
+    public static String encode(String... keys) {
+        String joined = String.join(String.valueOf(SEPARATOR), keys);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(joined.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 解码续页令牌
+     * @param cursor
+     * @param keyCount 排序键的个数
+     * @return
+     */
+    public static String[] decode(String cursor, int keyCount) {
+        String[] keys;
+        try {
+            keys = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8)
+                    .split(String.valueOf(SEPARATOR), -1);
+        } catch (IllegalArgumentException ex) {
+            throw new ServiceException(ResultCode.PARAM_VALID_ERROR, "invalid page cursor");
+        }
+        if (keys.length != keyCount) {
+            throw new ServiceException(ResultCode.PARAM_VALID_ERROR, "invalid page cursor");
+        }
+        return keys;
+    }
+}
@@ -29,6 +29,9 @@ public enum ResultCode {
 
     REQ_REJECT(HttpServletResponse.SC_FORBIDDEN, "Request Rejected"),
 
+    // HttpServletResponse没有429的常量
+    TOO_MANY_REQUESTS(429, "Too Many Requests"),
+
     INTERNAL_SERVER_ERROR(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Internal Server Error"),
 
     PARAM_MISS(HttpServletResponse.SC_BAD_REQUEST, "Missing Required Parameter"),
@@ -37,7 +40,9 @@ public enum ResultCode {
 
     PARAM_BIND_ERROR(HttpServletResponse.SC_BAD_REQUEST, "Parameter Binding Error"),
 
-    PARAM_VALID_ERROR(HttpServletResponse.SC_BAD_REQUEST, "Parameter Validation Error");
+    PARAM_VALID_ERROR(HttpServletResponse.SC_BAD_REQUEST, "Parameter Validation Error"),
+
+    DEADLINE_EXCEEDED(HttpServletResponse.SC_GATEWAY_TIMEOUT, "Deadline Exceeded");
 
     final int code;
 
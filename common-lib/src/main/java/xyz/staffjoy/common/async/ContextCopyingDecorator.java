@@ -3,6 +3,7 @@ package xyz.staffjoy.common.async;
 import org.springframework.core.task.TaskDecorator;
 import org.springframework.web.context.request.RequestAttributes;
 import org.springframework.web.context.request.RequestContextHolder;
+import xyz.staffjoy.common.deadline.DeadlineContext;
 
 
 /**
@@ -19,8 +20,11 @@ public class ContextCopyingDecorator implements TaskDecorator {
         return () -> {
             try {
                 RequestContextHolder.setRequestAttributes(context);
+                // fire-and-forget work outlives the request, its deadline does not apply here
+                DeadlineContext.setDetached(true);
                 runnable.run();
             } finally {
+                DeadlineContext.setDetached(false);
                 RequestContextHolder.resetRequestAttributes();
             }
         };
@@ -3,10 +3,12 @@ package xyz.staffjoy.common.auth;
 import feign.RequestInterceptor;
 import feign.RequestTemplate;
 import org.springframework.util.StringUtils;
+import xyz.staffjoy.common.deadline.DeadlineContext;
+import xyz.staffjoy.common.deadline.DeadlineExceededException;
 
 /**
  * Feign interceptor，for passing auth info to backend
- * Feign客户端传递用户认证信息
+ * Feign客户端传递用户认证信息和剩余的时间预算
  *
  * @author bobo
  */
@@ -18,5 +20,14 @@ public class FeignRequestHeaderInterceptor implements RequestInterceptor {//继
         if (!StringUtils.isEmpty(userId)) {
             requestTemplate.header(AuthConstant.CURRENT_USER_HEADER, userId);
         }
+        //传递剩余的时间预算，截止时间已过就不再调用下游服务
+        Long remainingMillis = DeadlineContext.getRemainingMillis();
+        if (remainingMillis != null) {
+            if (remainingMillis <= 0) {
+                DeadlineContext.recordExpired("feign");
+                throw new DeadlineExceededException("Deadline exceeded before calling " + requestTemplate.url());
+            }
+            requestTemplate.header(DeadlineContext.DEADLINE_HEADER, String.valueOf(remainingMillis));
+        }
     }
 }
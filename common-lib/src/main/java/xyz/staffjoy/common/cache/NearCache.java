@@ -0,0 +1,281 @@
+package xyz.staffjoy.common.cache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import static java.lang.System.nanoTime;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * 进程内的近端缓存
+ * 容量有上限(LRU淘汰)，每个条目有TTL兜底，同一个key并发未命中时只有一个线程加载(single-flight)，
+ * 加载期间同一个key发生的失效会丢弃加载结果，避免把失效前读到的旧值写回缓存，其它key的失效不影响
+ * @param <K>
+ * @param <V>
+ */
+public class NearCache<K, V> {
+
+    public static final String METRIC_PREFIX = "staffjoy.cache";
+    // 最多记住的按条件失效的次数，更早的按整体失效处理
+    private static final int MAX_PREDICATE_INVALIDATIONS = 64;
+
+    private final String name;
+    private final int maxSize;
+    private final long ttlNanos;
+    // guarded by itself, access order for LRU eviction
+    private final LinkedHashMap<K, Entry<V>> entries;
+    private final ConcurrentMap<K, CompletableFuture<V>> loading = new ConcurrentHashMap<>();
+    // bumped by every invalidation, stamps are taken from it
+    private final AtomicLong sequence = new AtomicLong();
+    // all guarded by entries: per key stamp of the last invalidation, oldest first
+    private final LinkedHashMap<K, Long> invalidatedKeys = new LinkedHashMap<>();
+    private final ArrayDeque<PredicateInvalidation<K>> invalidatedPredicates = new ArrayDeque<>();
+    // loads stamped before the floor are dropped, raised when tombstones are forgotten
+    private long floor;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public NearCache(String name, int maxSize, long ttlMillis) {
+        this(name, maxSize, ttlMillis, Metrics.globalRegistry);
+    }
+
+    public NearCache(String name, int maxSize, long ttlMillis, MeterRegistry registry) {
+        this.name = name;
+        this.maxSize = maxSize;
+        this.ttlNanos = MILLISECONDS.toNanos(ttlMillis);
+        this.entries = new LinkedHashMap<K, Entry<V>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                if (size() > NearCache.this.maxSize) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+        registerMetrics(registry);
+    }
+
+    /**
+     * 读取缓存，未命中时用loader加载，加载抛出的异常不缓存
+     * @param key
+     * @param loader
+     * @return
+     */
+    public V get(K key, Function<K, V> loader) {
+        V value = getIfPresent(key);
+        if (value != null) {
+            return value;
+        }
+
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> inFlight = loading.putIfAbsent(key, future);
+        if (inFlight != null) {
+            return join(inFlight);
+        }
+        long stamp = sequence.get();
+        try {
+            value = loader.apply(key);
+            put(key, value, stamp);
+            future.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(key, future);
+        }
+    }
+
+    /**
+     * 只读缓存，过期的条目视为未命中
+     * @param key
+     * @return
+     */
+    public V getIfPresent(K key) {
+        synchronized (entries) {
+            Entry<V> entry = entries.get(key);
+            if (entry != null && entry.expiresAt - nanoTime() > 0) {
+                hits.incrementAndGet();
+                return entry.value;
+            }
+            if (entry != null) {
+                entries.remove(key);
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * 加载前取得的戳记，配合put使用
+     * @return
+     */
+    public long stamp() {
+        return sequence.get();
+    }
+
+    /**
+     * 写入在stamp之后加载的值，期间这个key有过失效则丢弃
+     * @param key
+     * @param value
+     * @param stamp
+     */
+    public void put(K key, V value, long stamp) {
+        if (value == null) {
+            return;
+        }
+        synchronized (entries) {
+            if (!isInvalidatedSince(key, stamp)) {
+                entries.put(key, new Entry<>(value, nanoTime() + ttlNanos));
+            }
+        }
+    }
+
+    public void invalidate(K key) {
+        synchronized (entries) {
+            long stamp = sequence.incrementAndGet();
+            invalidatedKeys.remove(key);
+            invalidatedKeys.put(key, stamp);
+            if (invalidatedKeys.size() > maxSize) {
+                // forget the oldest tombstone, loads older than it are dropped as a whole
+                Iterator<Map.Entry<K, Long>> eldest = invalidatedKeys.entrySet().iterator();
+                floor = Math.max(floor, eldest.next().getValue());
+                eldest.remove();
+            }
+            entries.remove(key);
+        }
+        loading.remove(key);
+    }
+
+    public void invalidateIf(Predicate<K> predicate) {
+        synchronized (entries) {
+            invalidatedPredicates.addLast(new PredicateInvalidation<>(predicate, sequence.incrementAndGet()));
+            if (invalidatedPredicates.size() > MAX_PREDICATE_INVALIDATIONS) {
+                floor = Math.max(floor, invalidatedPredicates.removeFirst().stamp);
+            }
+            Iterator<K> iterator = entries.keySet().iterator();
+            while (iterator.hasNext()) {
+                if (predicate.test(iterator.next())) {
+                    iterator.remove();
+                }
+            }
+        }
+        loading.keySet().removeIf(predicate);
+    }
+
+    public void invalidateAll() {
+        synchronized (entries) {
+            floor = sequence.incrementAndGet();
+            invalidatedKeys.clear();
+            invalidatedPredicates.clear();
+            entries.clear();
+        }
+        loading.clear();
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public double getHitRate() {
+        long total = hits.get() + misses.get();
+        return total == 0 ? 0.0 : (double) hits.get() / total;
+    }
+
+    // guarded by entries
+    private boolean isInvalidatedSince(K key, long stamp) {
+        if (stamp < floor) {
+            return true;
+        }
+        Long invalidated = invalidatedKeys.get(key);
+        if (invalidated != null && invalidated > stamp) {
+            return true;
+        }
+        for (PredicateInvalidation<K> invalidation : invalidatedPredicates) {
+            if (invalidation.stamp > stamp && invalidation.predicate.test(key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private V join(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    private void registerMetrics(MeterRegistry registry) {
+        FunctionCounter.builder(METRIC_PREFIX + ".gets", hits, AtomicLong::get)
+                .tag("cache", name).tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder(METRIC_PREFIX + ".gets", misses, AtomicLong::get)
+                .tag("cache", name).tag("result", "miss")
+                .register(registry);
+        FunctionCounter.builder(METRIC_PREFIX + ".evictions", evictions, AtomicLong::get)
+                .tag("cache", name)
+                .register(registry);
+        Gauge.builder(METRIC_PREFIX + ".size", this, NearCache::size)
+                .tag("cache", name)
+                .register(registry);
+        Gauge.builder(METRIC_PREFIX + ".hit_ratio", this, NearCache::getHitRate)
+                .tag("cache", name)
+                .register(registry);
+    }
+
+    private static class PredicateInvalidation<K> {
+        private final Predicate<K> predicate;
+        private final long stamp;
+
+        PredicateInvalidation(Predicate<K> predicate, long stamp) {
+            this.predicate = predicate;
+            this.stamp = stamp;
+        }
+    }
+
+    private static class Entry<V> {
+        private final V value;
+        private final long expiresAt;
+
+        Entry(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
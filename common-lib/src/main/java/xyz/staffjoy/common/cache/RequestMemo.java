@@ -0,0 +1,79 @@
+package xyz.staffjoy.common.cache;
+
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * 请求范围内的备忘录
+ * 同一个请求内对同一个key的重复查询只执行一次，请求结束后随请求属性一起丢弃，
+ * 不在请求上下文中(如定时任务)时直接执行loader
+ */
+public final class RequestMemo {
+
+    private static final String ATTRIBUTE_PREFIX = RequestMemo.class.getName() + ".";
+
+    private RequestMemo() {}
+
+    /**
+     * 读取备忘的值，没有时用loader加载，null不备忘
+     * @param namespace
+     * @param key
+     * @param loader
+     * @param <T>
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T get(String namespace, String key, Supplier<T> loader) {
+        Map<String, Object> memo = memo(namespace, true);
+        if (memo == null) {
+            return loader.get();
+        }
+        T value = (T) memo.get(key);
+        if (value == null) {
+            value = loader.get();
+            if (value != null) {
+                memo.put(key, value);
+            }
+        }
+        return value;
+    }
+
+    public static void remove(String namespace, String key) {
+        Map<String, Object> memo = memo(namespace, false);
+        if (memo != null) {
+            memo.remove(key);
+        }
+    }
+
+    public static void clear(String namespace) {
+        Map<String, Object> memo = memo(namespace, false);
+        if (memo != null) {
+            memo.clear();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> memo(String namespace, boolean create) {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return null;
+        }
+        String name = ATTRIBUTE_PREFIX + namespace;
+        try {
+            Map<String, Object> memo = (Map<String, Object>) attributes.getAttribute(name, RequestAttributes.SCOPE_REQUEST);
+            if (memo == null && create) {
+                // 异步任务会复制请求上下文，可能并发访问
+                memo = new ConcurrentHashMap<>();
+                attributes.setAttribute(name, memo, RequestAttributes.SCOPE_REQUEST);
+            }
+            return memo;
+        } catch (IllegalStateException ex) {
+            // 请求已结束，异步任务中不再备忘
+            return null;
+        }
+    }
+}
@@ -15,6 +15,7 @@ import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 import xyz.staffjoy.common.auth.AuthorizeInterceptor;
 import xyz.staffjoy.common.auth.FeignRequestHeaderInterceptor;
+import xyz.staffjoy.common.deadline.DeadlineInterceptor;
 import xyz.staffjoy.common.env.EnvConfig;
 
 import javax.annotation.PostConstruct;
@@ -62,6 +63,8 @@ public class StaffjoyConfig implements WebMvcConfigurer {
 
     @Override
     public void addInterceptors(InterceptorRegistry registry) {
+        //注册截止时间截获器，截止时间已过的请求不再处理
+        registry.addInterceptor(new DeadlineInterceptor());
         //注册服务间调用授权截获器
         registry.addInterceptor(new AuthorizeInterceptor());
     }
@@ -0,0 +1,89 @@
+package xyz.staffjoy.common.deadline;
+
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.concurrent.TimeUnit;
+
+import static java.lang.System.nanoTime;
+
+/**
+ * 请求截止时间上下文
+ * 网关在转发时把剩余的时间预算(毫秒)放在请求头中，服务收到请求时换算成本地的截止时间，放在请求属性里，
+ * Feign调用下游服务时再把剩余的时间预算传下去
+ * 异步任务是发出即不管的，比请求活得久，ContextCopyingDecorator让它们不受请求截止时间的限制
+ */
+public class DeadlineContext {
+
+    // remaining time budget in milliseconds, relative so clock skew between hosts does not matter
+    public static final String DEADLINE_HEADER = "faraday-deadline-remaining-ms";
+    // expired work is counted per stage: request, feign
+    public static final String EXPIRED_COUNTER = "staffjoy.deadline.expired";
+
+    static final String DEADLINE_ATTRIBUTE = DeadlineContext.class.getName() + ".deadline";
+
+    // set on async task threads, which still carry the request attributes but not its deadline
+    private static final ThreadLocal<Boolean> detached = new ThreadLocal<>();
+
+    /**
+     * 根据请求头中的剩余时间设置当前请求的截止时间
+     * @param remainingMillis
+     */
+    public static void start(long remainingMillis) {
+        RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+        if (requestAttributes instanceof ServletRequestAttributes) {
+            ((ServletRequestAttributes) requestAttributes).getRequest().setAttribute(DEADLINE_ATTRIBUTE,
+                    nanoTime() + TimeUnit.MILLISECONDS.toNanos(remainingMillis));
+        }
+    }
+
+    /**
+     * 当前的截止时间(System.nanoTime)
+     * @return 没有截止时间时返回null
+     */
+    public static Long getDeadlineNanos() {
+        if (Boolean.TRUE.equals(detached.get())) {
+            return null;
+        }
+        RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+        if (requestAttributes instanceof ServletRequestAttributes) {
+            return (Long) ((ServletRequestAttributes) requestAttributes).getRequest().getAttribute(DEADLINE_ATTRIBUTE);
+        }
+        return null;
+    }
+
+    /**
+     * 当前剩余的时间
+     * @return 没有截止时间时返回null
+     */
+    public static Long getRemainingMillis() {
+        Long deadline = getDeadlineNanos();
+        return deadline == null ? null : TimeUnit.NANOSECONDS.toMillis(deadline - nanoTime());
+    }
+
+    public static boolean isExpired(Long deadlineNanos) {
+        return deadlineNanos != null && deadlineNanos - nanoTime() <= 0;
+    }
+
+    /**
+     * 当前线程上的工作不受请求截止时间的限制，用于异步任务
+     * @param value
+     */
+    public static void setDetached(boolean value) {
+        if (value) {
+            detached.set(Boolean.TRUE);
+        } else {
+            detached.remove();
+        }
+    }
+
+    /**
+     * 记录一次因为截止时间已过而放弃的工作
+     * @param stage
+     */
+    public static void recordExpired(String stage) {
+        Metrics.counter(EXPIRED_COUNTER, "stage", stage).increment();
+    }
+}
@@ -0,0 +1,15 @@
+package xyz.staffjoy.common.deadline;
+
+import xyz.staffjoy.common.api.ResultCode;
+import xyz.staffjoy.common.error.ServiceException;
+
+/**
+ * 请求的截止时间已过，调用方已经不再等待结果
+ */
+public class DeadlineExceededException extends ServiceException {
+    private static final long serialVersionUID = 4726385739285913542L;
+
+    public DeadlineExceededException(String message) {
+        super(ResultCode.DEADLINE_EXCEEDED, message);
+    }
+}
@@ -0,0 +1,33 @@
+package xyz.staffjoy.common.deadline;
+
+import org.springframework.util.StringUtils;
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * 截止时间截获器
+ * 请求在队列里等待的时候截止时间已过，就不再处理
+ */
+public class DeadlineInterceptor extends HandlerInterceptorAdapter {
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        String remaining = request.getHeader(DeadlineContext.DEADLINE_HEADER);
+        if (StringUtils.isEmpty(remaining)) {
+            return true; // not called through faraday
+        }
+        long remainingMillis;
+        try {
+            remainingMillis = Long.parseLong(remaining.trim());
+        } catch (NumberFormatException e) {
+            return true;
+        }
+        if (remainingMillis <= 0) {
+            DeadlineContext.recordExpired("request");
+            throw new DeadlineExceededException("Deadline exceeded before handling " + request.getRequestURI());
+        }
+        DeadlineContext.start(remainingMillis);
+        return true;
+    }
+}
@@ -17,6 +17,7 @@ import org.springframework.web.servlet.NoHandlerFoundException;
 import xyz.staffjoy.common.api.BaseResponse;
 import xyz.staffjoy.common.api.ResultCode;
 import xyz.staffjoy.common.auth.PermissionDeniedException;
+import xyz.staffjoy.common.deadline.DeadlineExceededException;
 
 import javax.validation.ConstraintViolation;
 import javax.validation.ConstraintViolationException;
@@ -132,6 +133,16 @@ public class GlobalExceptionTranslator {
                 .build();
     }
 
+    @ExceptionHandler(DeadlineExceededException.class)
+    public BaseResponse handleError(DeadlineExceededException e) {
+        logger.warn("Deadline Exceeded", "message", e.getMessage());
+        return BaseResponse
+                .builder()
+                .code(e.getResultCode())
+                .message(e.getMessage())
+                .build();
+    }
+
     @ExceptionHandler(ServiceException.class)//该项目中定义的异常
     public BaseResponse handleError(ServiceException e) {
         logger.error("Service Exception", e);
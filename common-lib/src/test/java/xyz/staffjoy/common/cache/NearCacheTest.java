@@ -0,0 +1,149 @@
+package xyz.staffjoy.common.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class NearCacheTest {
+
+    private NearCache<String, String> newCache(int maxSize, long ttlMillis) {
+        return new NearCache<>("test", maxSize, ttlMillis, new SimpleMeterRegistry());
+    }
+
+    @Test
+    public void testLoadOnceAndHit() {
+        NearCache<String, String> cache = newCache(10, 60000);
+        AtomicInteger loads = new AtomicInteger();
+
+        assertThat(cache.get("a", key -> key + loads.incrementAndGet())).isEqualTo("a1");
+        assertThat(cache.get("a", key -> key + loads.incrementAndGet())).isEqualTo("a1");
+        assertThat(loads.get()).isEqualTo(1);
+        assertThat(cache.getHits()).isEqualTo(1);
+        assertThat(cache.getMisses()).isEqualTo(1);
+    }
+
+    @Test
+    public void testSingleFlight() throws Exception {
+        NearCache<String, String> cache = newCache(10, 60000);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        Future<String> first = executor.submit(() -> cache.get("a", key -> {
+            loads.incrementAndGet();
+            loading.countDown();
+            await(release);
+            return "loaded";
+        }));
+        loading.await(5, TimeUnit.SECONDS);
+        Future<String> second = executor.submit(() -> cache.get("a", key -> {
+            loads.incrementAndGet();
+            return "other";
+        }));
+        Thread.sleep(50);
+        release.countDown();
+
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("loaded");
+        assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo("loaded");
+        assertThat(loads.get()).isEqualTo(1);
+        executor.shutdown();
+    }
+
+    @Test
+    public void testInvalidationDropsStaleLoad() {
+        NearCache<String, String> cache = newCache(10, 60000);
+
+        long stamp = cache.stamp();
+        cache.invalidate("a");
+        cache.put("a", "stale", stamp);
+        assertThat(cache.getIfPresent("a")).isNull();
+
+        cache.put("a", "fresh", cache.stamp());
+        assertThat(cache.getIfPresent("a")).isEqualTo("fresh");
+
+        cache.put("b/u1", "b", cache.stamp());
+        cache.invalidateIf(key -> key.endsWith("/u1"));
+        assertThat(cache.getIfPresent("b/u1")).isNull();
+        assertThat(cache.getIfPresent("a")).isEqualTo("fresh");
+    }
+
+    @Test
+    public void testInvalidationKeepsLoadsOfOtherKeys() {
+        NearCache<String, String> cache = newCache(2, 60000);
+
+        long stamp = cache.stamp();
+        cache.invalidate("b");
+        cache.invalidateIf(key -> key.startsWith("x"));
+        cache.put("a", "a", stamp);
+        cache.put("x1", "stale", stamp);
+        assertThat(cache.getIfPresent("a")).isEqualTo("a");
+        assertThat(cache.getIfPresent("x1")).isNull();
+
+        // once the tombstone of a key is forgotten, older loads are dropped as a whole
+        stamp = cache.stamp();
+        cache.invalidate("p");
+        cache.invalidate("q");
+        cache.invalidate("r");
+        cache.put("p", "stale", stamp);
+        assertThat(cache.getIfPresent("p")).isNull();
+
+        stamp = cache.stamp();
+        cache.invalidateAll();
+        cache.put("a", "stale", stamp);
+        assertThat(cache.getIfPresent("a")).isNull();
+    }
+
+    @Test
+    public void testLruBound() {
+        NearCache<String, String> cache = newCache(2, 60000);
+
+        cache.put("a", "a", cache.stamp());
+        cache.put("b", "b", cache.stamp());
+        // touch a, so b is the eldest
+        cache.getIfPresent("a");
+        cache.put("c", "c", cache.stamp());
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.getIfPresent("a")).isEqualTo("a");
+        assertThat(cache.getIfPresent("b")).isNull();
+    }
+
+    @Test
+    public void testExpire() throws Exception {
+        NearCache<String, String> cache = newCache(10, 1);
+
+        cache.put("a", "a", cache.stamp());
+        Thread.sleep(5);
+        assertThat(cache.getIfPresent("a")).isNull();
+        assertThat(cache.size()).isEqualTo(0);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testLoadFailureNotCached() {
+        NearCache<String, String> cache = newCache(10, 60000);
+        try {
+            cache.get("a", key -> {
+                throw new IllegalStateException("boom");
+            });
+        } finally {
+            assertThat(cache.size()).isEqualTo(0);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package xyz.staffjoy.common.cache;
+
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RequestMemoTest {
+
+    @After
+    public void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    public void testMemoWithinRequest() {
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+        AtomicInteger loads = new AtomicInteger();
+
+        assertThat(RequestMemo.get("team", "T1", () -> "team" + loads.incrementAndGet())).isEqualTo("team1");
+        assertThat(RequestMemo.get("team", "T1", () -> "team" + loads.incrementAndGet())).isEqualTo("team1");
+        assertThat(RequestMemo.get("company", "T1", () -> "company" + loads.incrementAndGet())).isEqualTo("company2");
+
+        RequestMemo.remove("team", "T1");
+        assertThat(RequestMemo.get("team", "T1", () -> "team" + loads.incrementAndGet())).isEqualTo("team3");
+
+        // a new request starts with an empty memo
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+        assertThat(RequestMemo.get("team", "T1", () -> "team" + loads.incrementAndGet())).isEqualTo("team4");
+    }
+
+    @Test
+    public void testNoMemoOutsideRequest() {
+        AtomicInteger loads = new AtomicInteger();
+
+        assertThat(RequestMemo.get("team", "T1", loads::incrementAndGet)).isEqualTo(1);
+        assertThat(RequestMemo.get("team", "T1", loads::incrementAndGet)).isEqualTo(2);
+    }
+}
@@ -0,0 +1,92 @@
+package xyz.staffjoy.common.deadline;
+
+import feign.RequestTemplate;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import xyz.staffjoy.common.async.ContextCopyingDecorator;
+import xyz.staffjoy.common.auth.FeignRequestHeaderInterceptor;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DeadlineContextTest {
+
+    @Rule
+    public ExpectedException expectedException = ExpectedException.none();
+
+    private MockHttpServletRequest request;
+
+    @Before
+    public void setUp() {
+        request = new MockHttpServletRequest("GET", "/v1/company/get");
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+    }
+
+    @After
+    public void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    public void testPropagateRemainingBudget() throws Exception {
+        request.addHeader(DeadlineContext.DEADLINE_HEADER, "5000");
+        assertThat(new DeadlineInterceptor().preHandle(request, new MockHttpServletResponse(), null)).isTrue();
+
+        RequestTemplate requestTemplate = new RequestTemplate();
+        new FeignRequestHeaderInterceptor().apply(requestTemplate);
+        long remaining = Long.parseLong(requestTemplate.headers().get(DeadlineContext.DEADLINE_HEADER).iterator().next());
+        assertThat(remaining).isBetween(1L, 5000L);
+    }
+
+    @Test
+    public void testNoDeadlineWithoutHeader() throws Exception {
+        assertThat(new DeadlineInterceptor().preHandle(request, new MockHttpServletResponse(), null)).isTrue();
+
+        RequestTemplate requestTemplate = new RequestTemplate();
+        new FeignRequestHeaderInterceptor().apply(requestTemplate);
+        assertThat(requestTemplate.headers()).doesNotContainKey(DeadlineContext.DEADLINE_HEADER);
+    }
+
+    @Test
+    public void testRejectExpiredRequest() throws Exception {
+        request.addHeader(DeadlineContext.DEADLINE_HEADER, "0");
+
+        expectedException.expect(DeadlineExceededException.class);
+        new DeadlineInterceptor().preHandle(request, new MockHttpServletResponse(), null);
+    }
+
+    @Test
+    public void testRunAsyncTaskAfterDeadline() throws Exception {
+        request.addHeader(DeadlineContext.DEADLINE_HEADER, "1");
+        new DeadlineInterceptor().preHandle(request, new MockHttpServletResponse(), null);
+
+        AtomicBoolean ran = new AtomicBoolean();
+        RequestTemplate requestTemplate = new RequestTemplate();
+        Runnable task = new ContextCopyingDecorator().decorate(() -> {
+            new FeignRequestHeaderInterceptor().apply(requestTemplate);
+            ran.set(true);
+        });
+        Thread.sleep(5);
+        task.run();
+        assertThat(ran.get()).isTrue();
+        assertThat(requestTemplate.headers()).doesNotContainKey(DeadlineContext.DEADLINE_HEADER);
+    }
+
+    @Test
+    public void testAbortExpiredFeignCall() throws Exception {
+        request.addHeader(DeadlineContext.DEADLINE_HEADER, "1");
+        new DeadlineInterceptor().preHandle(request, new MockHttpServletResponse(), null);
+        Thread.sleep(5);
+
+        expectedException.expect(DeadlineExceededException.class);
+        new FeignRequestHeaderInterceptor().apply(new RequestTemplate());
+    }
+}
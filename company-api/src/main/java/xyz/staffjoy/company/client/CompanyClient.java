@@ -1,5 +1,6 @@
 package xyz.staffjoy.company.client;
 
+import feign.Response;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
@@ -23,6 +24,11 @@ public interface CompanyClient {
     ListCompanyResponse listCompanies(@RequestHeader(AuthConstant.AUTHORIZATION_HEADER) String authz,
                                       @RequestParam int offset, @RequestParam int limit);
 
+    //按续页令牌获取公司列表，cursor为上一页返回的nextCursor，第一页传null
+    @GetMapping(path = "/list")
+    ListCompanyResponse listCompanies(@RequestHeader(AuthConstant.AUTHORIZATION_HEADER) String authz,
+                                      @RequestParam(required = false) String cursor, @RequestParam int limit);
+
     //通过id获取公司
     @GetMapping(path= "/get")
     GenericCompanyResponse getCompany(@RequestHeader(AuthConstant.AUTHORIZATION_HEADER) String authz,
@@ -70,6 +76,11 @@ public interface CompanyClient {
     ListDirectoryResponse listDirectories(@RequestHeader(AuthConstant.AUTHORIZATION_HEADER) String authz,
                                           @RequestParam String companyId, @RequestParam int offset, @RequestParam int limit);
 
+    //按续页令牌列出员工目录项，cursor为上一页返回的nextCursor，第一页传null
+    @GetMapping(path = "/directory/list")
+    ListDirectoryResponse listDirectories(@RequestHeader(AuthConstant.AUTHORIZATION_HEADER) String authz,
+                                          @RequestParam String companyId, @RequestParam(required = false) String cursor, @RequestParam int limit);
+
     //通过公司id和用户id查询某员工目录项
     @GetMapping(path = "/directory/get")
     GenericDirectoryResponse getDirectoryEntry(@RequestHeader(AuthConstant.AUTHORIZATION_HEADER) String authz,
@@ -85,6 +96,11 @@ public interface CompanyClient {
     GetAssociationResponse getAssociations(@RequestHeader(AuthConstant.AUTHORIZATION_HEADER) String authz,
                                            @RequestParam String companyId, @RequestParam int offset, @RequestParam int limit);
 
+    //账户信息变化后，清除该用户的员工目录项缓存
+    @PostMapping(path = "/directory/evict_account")
+    BaseResponse evictAccountFromDirectory(@RequestHeader(AuthConstant.AUTHORIZATION_HEADER) String authz,
+                                           @RequestParam String userId);
+
     // WorkerDto Apis 雇员Worker服务接口模型
 
     //列出某公司id和团队id下的所有雇员目录项
@@ -159,6 +175,14 @@ public interface CompanyClient {
     @PostMapping(path = "/shift/create")
     GenericShiftResponse createShift(@RequestHeader(AuthConstant.AUTHORIZATION_HEADER) String authz, @RequestBody @Validated CreateShiftRequest request);
 
+    //在某公司下批量创建班次，全部成功或全部失败
+    @PostMapping(path = "/shift/bulk_create")
+    GenericShiftListResponse bulkCreateShifts(@RequestHeader(AuthConstant.AUTHORIZATION_HEADER) String authz, @RequestBody @Validated BulkCreateShiftsRequest request);
+
+    //检查一批拟排班次与已有班次及相互之间的时间冲突
+    @PostMapping(path = "/shift/check_conflicts")
+    ListShiftConflictResponse checkShiftConflicts(@RequestHeader(AuthConstant.AUTHORIZATION_HEADER) String authz, @RequestBody @Validated ShiftConflictRequest request);
+
     //通过公司/团队/雇员id和时间范围等信息查询对应班次
     @PostMapping(path = "/shift/list_worker_shifts")
     GenericShiftListResponse listWorkerShifts(@RequestHeader(AuthConstant.AUTHORIZATION_HEADER) String authz, @RequestBody @Validated WorkerShiftListRequest request);
@@ -167,6 +191,10 @@ public interface CompanyClient {
     @PostMapping(path = "/shift/list_shifts")
     GenericShiftListResponse listShifts(@RequestHeader(AuthConstant.AUTHORIZATION_HEADER) String authz, @RequestBody @Validated ShiftListRequest request);
 
+    //按时间范围流式导出公司或团队的班次，格式为ndjson或csv
+    @PostMapping(path = "/shift/export")
+    Response exportShifts(@RequestHeader(AuthConstant.AUTHORIZATION_HEADER) String authz, @RequestBody @Validated ShiftExportRequest request);
+
     //批量发布班次
     @PostMapping(path = "/shift/bulk_publish")
     GenericShiftListResponse bulkPublishShifts(@RequestHeader(AuthConstant.AUTHORIZATION_HEADER) String authz, @RequestBody @Validated BulkPublishShiftsRequest request);
@@ -182,4 +210,18 @@ public interface CompanyClient {
     //删除某个班次
     @DeleteMapping(path = "/shift/delete")
     BaseResponse deleteShift(@RequestHeader(AuthConstant.AUTHORIZATION_HEADER) String authz, @RequestParam String shiftId, @RequestParam String teamId, @RequestParam String companyId);
+
+    // Internal Apis 内部运营接口
+
+    //增长图：每周排班人数和当前在班人数
+    @GetMapping(path = "/internal/growth_graph")
+    GenericGrowthGraphResponse getGrowthGraph(@RequestHeader(AuthConstant.AUTHORIZATION_HEADER) String authz);
+
+    //从班次表全量重建每周排班汇总
+    @PostMapping(path = "/internal/rebuild_shift_rollups")
+    GenericShiftRollupResponse rebuildShiftRollups(@RequestHeader(AuthConstant.AUTHORIZATION_HEADER) String authz);
+
+    //检查每周排班汇总与班次表是否一致
+    @GetMapping(path = "/internal/check_shift_rollups")
+    GenericShiftRollupResponse checkShiftRollups(@RequestHeader(AuthConstant.AUTHORIZATION_HEADER) String authz);
 }
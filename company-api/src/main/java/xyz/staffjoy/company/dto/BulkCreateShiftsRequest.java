@@ -0,0 +1,35 @@
+package xyz.staffjoy.company.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.Size;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 批量创建班次，全部成功或全部失败：
+ * 任意一个班次校验不通过时整批拒绝，错误信息带上第一个出错班次的下标(shifts[i])，
+ * 校验通过后在同一个事务里插入，插入失败整批回滚
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BulkCreateShiftsRequest {
+    public static final int MAX_SHIFTS = 500;
+
+    @NotBlank
+    private String companyId;
+    // 每个班次的companyId必须与外层一致
+    @NotEmpty
+    @Size(max = MAX_SHIFTS)
+    @Valid
+    @Builder.Default
+    private List<CreateShiftRequest> shifts = new ArrayList<>();
+}
@@ -15,4 +15,6 @@ public class CompanyList {
     private List<CompanyDto> companies;
     private int limit;
     private int offset;
+    // 还有下一页时返回，作为下次请求的cursor
+    private String nextCursor;
 }
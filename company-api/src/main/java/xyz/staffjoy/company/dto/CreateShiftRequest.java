@@ -17,7 +17,8 @@ import java.util.concurrent.TimeUnit;
 @Builder
 public class CreateShiftRequest {
 
-    static final long MAX_SHIFT_DURATION = TimeUnit.HOURS.toMillis(23);
+    // 下面的@AssertTrue方法不是getter，Bean Validation不会执行，由company服务在创建和修改时显式校验
+    public static final long MAX_SHIFT_DURATION = TimeUnit.HOURS.toMillis(23);
 
     @NotBlank
     private String companyId;
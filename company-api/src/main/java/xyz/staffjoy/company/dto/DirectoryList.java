@@ -14,4 +14,6 @@ public class DirectoryList {
     private List<DirectoryEntryDto> accounts = new ArrayList<DirectoryEntryDto>();
     private int limit;
     private int offset;
+    // 还有下一页时返回，作为下次请求的cursor
+    private String nextCursor;
 }
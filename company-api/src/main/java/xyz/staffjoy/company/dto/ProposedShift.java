@@ -0,0 +1,27 @@
+package xyz.staffjoy.company.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+import java.time.Instant;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ProposedShift {
+    // 调整已有班次时传入其id，检查时不与原班次比较
+    private String id;
+    @NotBlank
+    private String teamId;
+    @Builder.Default
+    private String userId = "";
+    @NotNull
+    private Instant start;
+    @NotNull
+    private Instant stop;
+}
@@ -0,0 +1,21 @@
+package xyz.staffjoy.company.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 一个班次冲突，index为请求中班次的下标
+ * 与已有班次冲突时conflictingShiftId非空，与请求中另一个班次冲突时conflictingIndex非空
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ShiftConflictDto {
+    private int index;
+    private String userId;
+    private Integer conflictingIndex;
+    private String conflictingShiftId;
+}
@@ -0,0 +1,18 @@
+package xyz.staffjoy.company.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ShiftConflictList {
+    @Builder.Default
+    private List<ShiftConflictDto> conflicts = new ArrayList<>();
+}
@@ -0,0 +1,29 @@
+package xyz.staffjoy.company.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.Size;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ShiftConflictRequest {
+    public static final int MAX_SHIFTS = 2000;
+
+    @NotBlank
+    private String companyId;
+    @NotEmpty
+    @Size(max = MAX_SHIFTS)
+    @Valid
+    @Builder.Default
+    private List<ProposedShift> shifts = new ArrayList<>();
+}
@@ -0,0 +1,40 @@
+package xyz.staffjoy.company.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.AssertTrue;
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Pattern;
+import java.time.Instant;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ShiftExportRequest {
+    public static final String FORMAT_NDJSON = "ndjson";
+    public static final String FORMAT_CSV = "csv";
+
+    @NotBlank
+    private String companyId;
+    // 为空时导出整个公司的班次
+    private String teamId;
+    @NotNull
+    private Instant shiftStartAfter;
+    @NotNull
+    private Instant shiftStartBefore;
+    @NotBlank
+    @Pattern(regexp = FORMAT_NDJSON + "|" + FORMAT_CSV)
+    @Builder.Default
+    private String format = FORMAT_NDJSON;
+
+    @AssertTrue(message = "shift_start_after must be before shift_start_before")
+    private boolean correctAfterAndBefore() {
+        long duration = shiftStartAfter.toEpochMilli() - shiftStartBefore.toEpochMilli();
+        return duration < 0;
+    }
+}
@@ -15,4 +15,6 @@ public class ShiftList {
     private List<ShiftDto> shifts = new ArrayList<>();
     private Instant shiftStartAfter;
     private Instant shiftStartBefore;
+    // 还有下一页时返回，作为下次请求的cursor
+    private String nextCursor;
 }
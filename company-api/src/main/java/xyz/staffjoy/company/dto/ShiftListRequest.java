@@ -7,6 +7,7 @@ import lombok.NoArgsConstructor;
 import java.time.Instant;
 
 import javax.validation.constraints.AssertTrue;
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
 
@@ -25,6 +26,11 @@ public class ShiftListRequest {
     private Instant shiftStartAfter;
     @NotNull
     private Instant shiftStartBefore;
+    // 每页条数，0表示不分页
+    @Min(0)
+    private int limit;
+    // 上一页返回的nextCursor
+    private String cursor;
 
     @AssertTrue(message = "shift_start_after must be before shift_start_before")
     private boolean correctAfterAndBefore() {
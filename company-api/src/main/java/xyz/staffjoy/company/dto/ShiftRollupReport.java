@@ -0,0 +1,22 @@
+package xyz.staffjoy.company.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ShiftRollupReport {
+    private int weeks;
+    private int users;
+    private int mismatchCount;
+    // 最多返回前100条
+    @Builder.Default
+    private List<String> mismatches = new ArrayList<>();
+}
@@ -4,6 +4,7 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
 import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import xyz.staffjoy.common.async.ContextCopyingDecorator;
 import xyz.staffjoy.common.config.StaffjoyRestConfig;
@@ -12,6 +13,7 @@ import java.util.concurrent.Executor;
 
 @Configuration
 @EnableAsync
+@EnableScheduling
 @Import(value = {StaffjoyRestConfig.class})
 @SuppressWarnings(value = "Duplicates")
 public class AppConfig {
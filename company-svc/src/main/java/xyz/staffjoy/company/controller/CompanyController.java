@@ -1,6 +1,7 @@
 package xyz.staffjoy.company.controller;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.util.StringUtils;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 import xyz.staffjoy.common.auth.AuthConstant;
@@ -43,9 +44,12 @@ public class CompanyController {
     //获取现有公司列表 内部使用
     @GetMapping(path = "/list")
     @Authorize(value = {AuthConstant.AUTHORIZATION_SUPPORT_USER})
-    public ListCompanyResponse listCompanies(@RequestParam int offset, @RequestParam int limit) {
-        ////获取现有公司列表 内部使用
-        CompanyList companyList = companyService.listCompanies(offset, limit);
+    public ListCompanyResponse listCompanies(@RequestParam(defaultValue = "0") int offset,
+                                             @RequestParam int limit,
+                                             @RequestParam(required = false) String cursor) {
+        ////获取现有公司列表 内部使用，带cursor时按续页令牌翻页
+        CompanyList companyList = StringUtils.isEmpty(cursor) ? companyService.listCompanies(offset, limit)
+                : companyService.listCompanies(cursor, limit);
         return new ListCompanyResponse(companyList);
     }
 
@@ -1,8 +1,10 @@
 package xyz.staffjoy.company.controller;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.util.StringUtils;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import xyz.staffjoy.common.api.BaseResponse;
 import xyz.staffjoy.common.auth.AuthConstant;
 import xyz.staffjoy.common.auth.AuthContext;
 import xyz.staffjoy.common.auth.Authorize;
@@ -41,11 +43,14 @@ public class DirectoryController {
     })
     public ListDirectoryResponse listDirectories(@RequestParam String companyId,
                                                  @RequestParam(defaultValue = "0") int offset,
-                                                 @RequestParam(defaultValue = "0") int limit) {
+                                                 @RequestParam(defaultValue = "0") int limit,
+                                                 @RequestParam(required = false) String cursor) {
         if (AuthConstant.AUTHORIZATION_AUTHENTICATED_USER.equals(AuthContext.getAuthz()))  {
             permissionService.checkPermissionCompanyAdmin(companyId);
         }
-        DirectoryList directoryList = directoryService.listDirectory(companyId, offset, limit);
+        // 带cursor时按续页令牌翻页
+        DirectoryList directoryList = StringUtils.isEmpty(cursor) ? directoryService.listDirectory(companyId, offset, limit)
+                : directoryService.listDirectory(companyId, cursor, limit);
         return new ListDirectoryResponse(directoryList);
     }
 
@@ -94,4 +99,14 @@ public class DirectoryController {
         AssociationList associationList = directoryService.getAssociations(companyId, offset, limit);
         return new GetAssociationResponse(associationList);
     }
+
+    @PostMapping(path = "/evict_account")
+    @Authorize(value = {
+            AuthConstant.AUTHORIZATION_ACCOUNT_SERVICE,
+            AuthConstant.AUTHORIZATION_SUPPORT_USER
+    })
+    public BaseResponse evictAccountFromDirectory(@RequestParam String userId) {
+        directoryService.evictAccount(userId);
+        return BaseResponse.builder().message("directory cache evicted").build();
+    }
 }
@@ -0,0 +1,48 @@
+package xyz.staffjoy.company.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+import xyz.staffjoy.common.auth.AuthConstant;
+import xyz.staffjoy.common.auth.Authorize;
+import xyz.staffjoy.company.dto.*;
+import xyz.staffjoy.company.service.InternalService;
+import xyz.staffjoy.company.service.ShiftRollupService;
+
+@RestController
+@RequestMapping("/v1/company/internal")
+@Validated
+public class InternalController {
+    @Autowired
+    InternalService internalService;
+
+    @Autowired
+    ShiftRollupService shiftRollupService;
+
+    @GetMapping(path = "/growth_graph")
+    @Authorize(value = {
+            AuthConstant.AUTHORIZATION_SUPPORT_USER
+    })
+    public GenericGrowthGraphResponse getGrowthGraph() {
+        GrowthGraphResponse growthGraph = internalService.getGrowthGraph();
+        return new GenericGrowthGraphResponse(growthGraph);
+    }
+
+    @PostMapping(path = "/rebuild_shift_rollups")
+    @Authorize(value = {
+            AuthConstant.AUTHORIZATION_SUPPORT_USER
+    })
+    public GenericShiftRollupResponse rebuildShiftRollups() {
+        ShiftRollupReport report = shiftRollupService.rebuild();
+        return new GenericShiftRollupResponse(report);
+    }
+
+    @GetMapping(path = "/check_shift_rollups")
+    @Authorize(value = {
+            AuthConstant.AUTHORIZATION_SUPPORT_USER
+    })
+    public GenericShiftRollupResponse checkShiftRollups() {
+        ShiftRollupReport report = shiftRollupService.check();
+        return new GenericShiftRollupResponse(report);
+    }
+}
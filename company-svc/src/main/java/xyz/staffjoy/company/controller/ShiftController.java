@@ -4,13 +4,20 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 import xyz.staffjoy.common.api.BaseResponse;
+import xyz.staffjoy.common.api.ResultCode;
 import xyz.staffjoy.common.auth.AuthConstant;
 import xyz.staffjoy.common.auth.AuthContext;
 import xyz.staffjoy.common.auth.Authorize;
+import xyz.staffjoy.common.error.ServiceException;
 import xyz.staffjoy.company.dto.*;
 import xyz.staffjoy.company.service.PermissionService;
+import xyz.staffjoy.company.service.ShiftConflictService;
+import xyz.staffjoy.company.service.ShiftExportService;
 import xyz.staffjoy.company.service.ShiftService;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
 @RestController
 @RequestMapping("/v1/company/shift")
 @Validated
@@ -21,6 +28,12 @@ public class ShiftController {
     @Autowired
     PermissionService permissionService;
 
+    @Autowired
+    ShiftExportService shiftExportService;
+
+    @Autowired
+    ShiftConflictService shiftConflictService;
+
     @PostMapping(path = "/create")
     @Authorize(value = {
             AuthConstant.AUTHORIZATION_AUTHENTICATED_USER,
@@ -36,6 +49,36 @@ public class ShiftController {
         return new GenericShiftResponse(shiftDto);
     }
 
+    @PostMapping(path = "/bulk_create")
+    @Authorize(value = {
+            AuthConstant.AUTHORIZATION_AUTHENTICATED_USER,
+            AuthConstant.AUTHORIZATION_SUPPORT_USER
+    })
+    public GenericShiftListResponse bulkCreateShifts(@RequestBody @Validated BulkCreateShiftsRequest request) {
+        if (AuthConstant.AUTHORIZATION_AUTHENTICATED_USER.equals(AuthContext.getAuthz())) {
+            permissionService.checkPermissionCompanyAdmin(request.getCompanyId());
+        }
+
+        ShiftList shiftList = this.shiftService.bulkCreateShifts(request);
+
+        return new GenericShiftListResponse(shiftList);
+    }
+
+    @PostMapping(path = "/check_conflicts")
+    @Authorize(value = {
+            AuthConstant.AUTHORIZATION_AUTHENTICATED_USER,
+            AuthConstant.AUTHORIZATION_SUPPORT_USER
+    })
+    public ListShiftConflictResponse checkShiftConflicts(@RequestBody @Validated ShiftConflictRequest request) {
+        if (AuthConstant.AUTHORIZATION_AUTHENTICATED_USER.equals(AuthContext.getAuthz())) {
+            permissionService.checkPermissionCompanyAdmin(request.getCompanyId());
+        }
+
+        ShiftConflictList shiftConflictList = this.shiftConflictService.checkConflicts(request);
+
+        return new ListShiftConflictResponse(shiftConflictList);
+    }
+
     @PostMapping(path = "/list_worker_shifts")
     @Authorize(value = {
             AuthConstant.AUTHORIZATION_AUTHENTICATED_USER,
@@ -69,6 +112,34 @@ public class ShiftController {
         return new GenericShiftListResponse(shiftList);
     }
 
+    // 直接写响应流，不包装成BaseResponse
+    @PostMapping(path = "/export")
+    @Authorize(value = {
+            AuthConstant.AUTHORIZATION_AUTHENTICATED_USER,
+            AuthConstant.AUTHORIZATION_SUPPORT_USER
+    })
+    public void exportShifts(@RequestBody @Validated ShiftExportRequest request, HttpServletResponse response) throws IOException {
+        if (AuthConstant.AUTHORIZATION_AUTHENTICATED_USER.equals(AuthContext.getAuthz())) {
+            permissionService.checkPermissionCompanyAdmin(request.getCompanyId());
+        }
+        shiftExportService.validate(request);
+
+        if (!shiftExportService.tryAcquire()) {
+            // 错误响应仍是BaseResponse，状态码改为429，方便调用方稍后重试
+            response.setStatus(ResultCode.TOO_MANY_REQUESTS.getCode());
+            throw new ServiceException(ResultCode.TOO_MANY_REQUESTS, "too many shift exports in progress, retry later");
+        }
+        try {
+            boolean csv = ShiftExportRequest.FORMAT_CSV.equals(request.getFormat());
+            response.setContentType(csv ? "text/csv;charset=UTF-8" : "application/x-ndjson;charset=UTF-8");
+            response.setHeader("Content-Disposition",
+                    String.format("attachment; filename=\"shifts-%s.%s\"", request.getCompanyId(), request.getFormat()));
+            shiftExportService.exportShifts(request, response.getOutputStream());
+        } finally {
+            shiftExportService.release();
+        }
+    }
+
     @PostMapping(path = "/bulk_publish")
     @Authorize(value = {
             AuthConstant.AUTHORIZATION_AUTHENTICATED_USER,
@@ -0,0 +1,32 @@
+package xyz.staffjoy.company.mapper;
+
+import xyz.staffjoy.company.dto.CompanyDto;
+import xyz.staffjoy.company.model.Company;
+
+/**
+ * Company与CompanyDto之间的转换
+ */
+public final class CompanyMapper {
+
+    private CompanyMapper() {}
+
+    public static CompanyDto toDto(Company company) {
+        return CompanyDto.builder()
+                .id(company.getId())
+                .name(company.getName())
+                .archived(company.isArchived())
+                .defaultTimezone(company.getDefaultTimezone())
+                .defaultDayWeekStarts(company.getDefaultDayWeekStarts())
+                .build();
+    }
+
+    public static Company toModel(CompanyDto companyDto) {
+        return Company.builder()
+                .id(companyDto.getId())
+                .name(companyDto.getName())
+                .archived(companyDto.isArchived())
+                .defaultTimezone(companyDto.getDefaultTimezone())
+                .defaultDayWeekStarts(companyDto.getDefaultDayWeekStarts())
+                .build();
+    }
+}
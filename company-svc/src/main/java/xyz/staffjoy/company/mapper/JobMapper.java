@@ -0,0 +1,33 @@
+package xyz.staffjoy.company.mapper;
+
+import xyz.staffjoy.company.dto.JobDto;
+import xyz.staffjoy.company.model.Job;
+
+/**
+ * Job与JobDto之间的转换
+ * companyId不在job表中，由调用方设置
+ */
+public final class JobMapper {
+
+    private JobMapper() {}
+
+    public static JobDto toDto(Job job) {
+        return JobDto.builder()
+                .id(job.getId())
+                .teamId(job.getTeamId())
+                .name(job.getName())
+                .archived(job.isArchived())
+                .color(job.getColor())
+                .build();
+    }
+
+    public static Job toModel(JobDto jobDto) {
+        return Job.builder()
+                .id(jobDto.getId())
+                .teamId(jobDto.getTeamId())
+                .name(jobDto.getName())
+                .archived(jobDto.isArchived())
+                .color(jobDto.getColor())
+                .build();
+    }
+}
@@ -0,0 +1,37 @@
+package xyz.staffjoy.company.mapper;
+
+import xyz.staffjoy.company.dto.ShiftDto;
+import xyz.staffjoy.company.model.Shift;
+
+/**
+ * Shift与ShiftDto之间的转换
+ * companyId不在shift表中，由调用方设置
+ */
+public final class ShiftMapper {
+
+    private ShiftMapper() {}
+
+    public static ShiftDto toDto(Shift shift) {
+        return ShiftDto.builder()
+                .id(shift.getId())
+                .teamId(shift.getTeamId())
+                .start(shift.getStart())
+                .stop(shift.getStop())
+                .userId(shift.getUserId())
+                .jobId(shift.getJobId())
+                .published(shift.isPublished())
+                .build();
+    }
+
+    public static Shift toModel(ShiftDto shiftDto) {
+        return Shift.builder()
+                .id(shiftDto.getId())
+                .teamId(shiftDto.getTeamId())
+                .start(shiftDto.getStart())
+                .stop(shiftDto.getStop())
+                .userId(shiftDto.getUserId())
+                .jobId(shiftDto.getJobId())
+                .published(shiftDto.isPublished())
+                .build();
+    }
+}
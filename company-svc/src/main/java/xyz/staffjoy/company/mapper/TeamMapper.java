@@ -0,0 +1,48 @@
+package xyz.staffjoy.company.mapper;
+
+import xyz.staffjoy.company.dto.TeamDto;
+import xyz.staffjoy.company.model.Team;
+
+/**
+ * Team与TeamDto之间的转换
+ */
+public final class TeamMapper {
+
+    private TeamMapper() {}
+
+    public static TeamDto toDto(Team team) {
+        return TeamDto.builder()
+                .id(team.getId())
+                .companyId(team.getCompanyId())
+                .name(team.getName())
+                .archived(team.isArchived())
+                .timezone(team.getTimezone())
+                .dayWeekStarts(team.getDayWeekStarts())
+                .color(team.getColor())
+                .build();
+    }
+
+    public static Team toModel(TeamDto teamDto) {
+        return Team.builder()
+                .id(teamDto.getId())
+                .companyId(teamDto.getCompanyId())
+                .name(teamDto.getName())
+                .archived(teamDto.isArchived())
+                .timezone(teamDto.getTimezone())
+                .dayWeekStarts(teamDto.getDayWeekStarts())
+                .color(teamDto.getColor())
+                .build();
+    }
+
+    public static TeamDto copy(TeamDto teamDto) {
+        return TeamDto.builder()
+                .id(teamDto.getId())
+                .companyId(teamDto.getCompanyId())
+                .name(teamDto.getName())
+                .archived(teamDto.isArchived())
+                .timezone(teamDto.getTimezone())
+                .dayWeekStarts(teamDto.getDayWeekStarts())
+                .color(teamDto.getColor())
+                .build();
+    }
+}
@@ -0,0 +1,29 @@
+package xyz.staffjoy.company.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import java.time.LocalDate;
+
+/**
+ * 公司每周排班汇总，同时作为该(公司, 周)汇总行的锁
+ * shiftCount为该周的班次数，people为该周有已发布班次的员工数
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+public class ShiftWeek {
+    // weekStart/companyId
+    @Id
+    private String id;
+    private LocalDate weekStart;
+    private String companyId;
+    private int shiftCount;
+    private int people;
+}
@@ -0,0 +1,28 @@
+package xyz.staffjoy.company.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import java.time.LocalDate;
+
+/**
+ * 员工每周的已发布班次数，用于增量维护ShiftWeek.people
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+public class ShiftWeekUser {
+    // weekStart/companyId/userId
+    @Id
+    private String id;
+    private LocalDate weekStart;
+    private String companyId;
+    private String userId;
+    private int shiftCount;
+}
@@ -8,6 +8,7 @@ import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 import xyz.staffjoy.company.model.Admin;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -17,6 +18,8 @@ public interface AdminRepo extends JpaRepository<Admin, String> {
 
     Admin findByCompanyIdAndUserId(String companyId, String userId);
 
+    List<Admin> findByCompanyIdAndUserIdIn(String companyId, Collection<String> userIds);
+
     @Modifying(clearAutomatically = true)
     @Query("delete from Admin admin where admin.companyId = :companyId and admin.userId = :userId")
     @Transactional
@@ -1,10 +1,18 @@
 package xyz.staffjoy.company.repo;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 import xyz.staffjoy.company.model.Company;
 
+import java.util.List;
+
 @Repository
 public interface CompanyRepo extends JpaRepository<Company, String> {
     Company findCompanyById(String id);
+
+    // 返回List而不是Page，不会额外执行count查询
+    List<Company> findAllByOrderByIdAsc(Pageable pageable);
+
+    List<Company> findByIdGreaterThanOrderByIdAsc(String cursorId, Pageable pageable);
 }
@@ -10,13 +10,24 @@ import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 import xyz.staffjoy.company.model.Directory;
 
+import java.util.Collection;
+import java.util.List;
+
 @Repository
 public interface DirectoryRepo extends JpaRepository<Directory, String> {
 
     Directory findByCompanyIdAndUserId(String companyId, String userId);
 
+    List<Directory> findByCompanyIdAndUserIdIn(String companyId, Collection<String> userIds);
+
     Page<Directory> findByCompanyId(String companyId, Pageable pageable);
 
+    // 返回List而不是Page，不会额外执行count查询
+    List<Directory> findByCompanyIdOrderByIdAsc(String companyId, Pageable pageable);
+
+    // ix_directory_company_id的叶子节点隐含主键，(company_id, id)上的范围扫描
+    List<Directory> findByCompanyIdAndIdGreaterThanOrderByIdAsc(String companyId, String cursorId, Pageable pageable);
+
     @Modifying(clearAutomatically = true)
     @Query("update Directory directory set directory.internalId = :internalId where directory.companyId = :companyId and directory.userId = :userId")
     @Transactional
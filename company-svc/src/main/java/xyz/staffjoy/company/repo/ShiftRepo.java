@@ -1,5 +1,6 @@
 package xyz.staffjoy.company.repo;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
@@ -9,6 +10,7 @@ import org.springframework.transaction.annotation.Transactional;
 import xyz.staffjoy.company.model.Shift;
 
 import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -20,19 +22,10 @@ public interface ShiftRepo extends JpaRepository<Shift, String> {
     @Transactional
     int deleteShiftById(@Param("shiftId") String shiftId);
 
-    @Query(
-            value = "select cast(a.weekname as char) as week, greatest(a.count, coalesce(b.count,0)) as count from (select 0 as count, str_to_date(concat(year(start), week(start), ' Monday'), '%X%V %W') as weekname from shift where start < NOW() group by weekname) as a left join (select count(distinct(user_id)) as count, str_to_date(concat(year(start), week(start), ' Monday'), '%X%V %W') as weekname from shift where start < NOW() and user_id != '' and published is true group by weekname) as b on a.weekname = b.weekname",
-            nativeQuery = true
-    )
-    List<IScheduledPerWeek> getScheduledPerWeekList();
-
-    interface IScheduledPerWeek {
-
-        String getWeek();
-
-        int getCount();
-
-    }
+    @Modifying(clearAutomatically = true)
+    @Query("update Shift shift set shift.published = :published where shift.id in :shiftIds")
+    @Transactional
+    int updatePublishedByIdIn(@Param("published") boolean published, @Param("shiftIds") Collection<String> shiftIds);
 
     @Query(
             value = "select count(distinct(user_id)) from shift where shift.start <= NOW() and shift.stop > NOW() and user_id <> '' and shift.published = true",
@@ -40,6 +33,9 @@ public interface ShiftRepo extends JpaRepository<Shift, String> {
     )
     int getPeopleOnShifts();
 
+    // 按id分批扫描全表，用于重建汇总表
+    List<Shift> findByIdGreaterThanOrderByIdAsc(String id, Pageable pageable);
+
     // order by start asc
     @Query(
             value = "select shift from Shift shift where shift.teamId = :teamId and shift.userId = :userId and shift.start >= :startTime and shift.start < :endTime order by shift.start asc"
@@ -65,4 +61,32 @@ public interface ShiftRepo extends JpaRepository<Shift, String> {
             value = "select shift from Shift shift where shift.teamId = :teamId and shift.start >= :startTime and shift.start < :endTime"
     )
     List<Shift> listShiftByTeamIdOnly(@Param("teamId") String teamId, @Param("startTime") Instant start, @Param("endTime") Instant end);
+
+    /*
+     * 键集分页的范围扫描，按(start, id)排序，从上一页最后一行(cursorStart, cursorId)之后继续
+     * 首页时cursorStart为查询起始时间，cursorId为空串
+     * 走(team_id, start)和(user_id, team_id, start)索引
+     */
+    String KEYSET_RANGE = " and shift.start >= :cursorStart and shift.start < :endTime" +
+            " and (shift.start > :cursorStart or shift.id > :cursorId) order by shift.start asc, shift.id asc";
+
+    @Query("select shift from Shift shift where shift.teamId = :teamId" + KEYSET_RANGE)
+    List<Shift> scanShiftByTeamId(@Param("teamId") String teamId,
+                                  @Param("cursorStart") Instant cursorStart, @Param("cursorId") String cursorId,
+                                  @Param("endTime") Instant end, Pageable pageable);
+
+    @Query("select shift from Shift shift where shift.userId = :userId and shift.teamId = :teamId" + KEYSET_RANGE)
+    List<Shift> scanShiftByUserId(@Param("teamId") String teamId, @Param("userId") String userId,
+                                  @Param("cursorStart") Instant cursorStart, @Param("cursorId") String cursorId,
+                                  @Param("endTime") Instant end, Pageable pageable);
+
+    @Query("select shift from Shift shift where shift.teamId = :teamId and shift.jobId = :jobId" + KEYSET_RANGE)
+    List<Shift> scanShiftByJobId(@Param("teamId") String teamId, @Param("jobId") String jobId,
+                                 @Param("cursorStart") Instant cursorStart, @Param("cursorId") String cursorId,
+                                 @Param("endTime") Instant end, Pageable pageable);
+
+    @Query("select shift from Shift shift where shift.userId = :userId and shift.teamId = :teamId and shift.jobId = :jobId" + KEYSET_RANGE)
+    List<Shift> scanShiftByUserIdAndJobId(@Param("teamId") String teamId, @Param("userId") String userId, @Param("jobId") String jobId,
+                                          @Param("cursorStart") Instant cursorStart, @Param("cursorId") String cursorId,
+                                          @Param("endTime") Instant end, Pageable pageable);
 }
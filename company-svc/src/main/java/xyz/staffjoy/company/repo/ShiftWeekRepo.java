@@ -0,0 +1,21 @@
+package xyz.staffjoy.company.repo;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import xyz.staffjoy.company.model.ShiftWeek;
+
+import javax.persistence.LockModeType;
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface ShiftWeekRepo extends JpaRepository<ShiftWeek, String> {
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    ShiftWeek findForUpdateById(String id);
+
+    @Query("select distinct shiftWeek.weekStart from ShiftWeek shiftWeek where shiftWeek.weekStart <= :weekStart order by shiftWeek.weekStart asc")
+    List<LocalDate> findWeekStarts(@Param("weekStart") LocalDate weekStart);
+}
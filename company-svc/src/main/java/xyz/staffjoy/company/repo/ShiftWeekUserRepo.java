@@ -0,0 +1,33 @@
+package xyz.staffjoy.company.repo;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import xyz.staffjoy.company.model.ShiftWeekUser;
+
+import javax.persistence.LockModeType;
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface ShiftWeekUserRepo extends JpaRepository<ShiftWeekUser, String> {
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    ShiftWeekUser findForUpdateById(String id);
+
+    List<ShiftWeekUser> findByIdStartingWith(String prefix);
+
+    // 全局每周排班人数，同一个人在多个公司排班只算一次，走(week_start, user_id)索引
+    @Query("select shiftWeekUser.weekStart as weekStart, count(distinct shiftWeekUser.userId) as people from ShiftWeekUser shiftWeekUser" +
+            " where shiftWeekUser.weekStart <= :weekStart group by shiftWeekUser.weekStart")
+    List<IPeoplePerWeek> countPeoplePerWeek(@Param("weekStart") LocalDate weekStart);
+
+    interface IPeoplePerWeek {
+
+        LocalDate getWeekStart();
+
+        Long getPeople();
+
+    }
+}
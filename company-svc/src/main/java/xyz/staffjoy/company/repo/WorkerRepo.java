@@ -8,6 +8,7 @@ import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 import xyz.staffjoy.company.model.Worker;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -16,6 +17,11 @@ public interface WorkerRepo extends JpaRepository<Worker, String> {
     List<Worker> findByUserId(String userId);
     Worker findByTeamIdAndUserId(String teamId, String userId);
 
+    // 每行为 [userId, Team]
+    @Query("select worker.userId, team from Worker worker, Team team " +
+            "where team.id = worker.teamId and team.companyId = :companyId and worker.userId in :userIds")
+    List<Object[]> findTeamsOfUsers(@Param("companyId") String companyId, @Param("userIds") Collection<String> userIds);
+
     @Modifying(clearAutomatically = true)
     @Query("delete from Worker worker where worker.teamId = :teamId and worker.userId = :userId")
     @Transactional
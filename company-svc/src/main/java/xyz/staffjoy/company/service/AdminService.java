@@ -16,7 +16,12 @@ import xyz.staffjoy.company.model.Admin;
 import xyz.staffjoy.company.repo.AdminRepo;
 import xyz.staffjoy.company.service.helper.ServiceHelper;
 
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+
+import static java.util.stream.Collectors.toList;
 
 @Service
 public class AdminService {
@@ -34,6 +39,9 @@ public class AdminService {
     @Autowired
     ServiceHelper serviceHelper;
 
+    @Autowired
+    PermissionService permissionService;
+
     /**
      * 通过公司id获取管理员用户列表
      * @param companyId
@@ -48,10 +56,8 @@ public class AdminService {
                 .build();
         List<Admin> admins = adminRepo.findByCompanyId(companyId);
 
-        for(Admin admin : admins) {
-            DirectoryEntryDto directoryEntryDto = directoryService.getDirectoryEntry(companyId, admin.getUserId());
-            adminEntries.getAdmins().add(directoryEntryDto);
-        }
+        List<String> userIds = admins.stream().map(Admin::getUserId).collect(toList());
+        adminEntries.getAdmins().addAll(directoryService.getDirectoryEntries(companyId, userIds));
 
         return adminEntries;
     }
@@ -75,6 +81,23 @@ public class AdminService {
         return directoryEntryDto;
     }
 
+    /**
+     * 一次查询筛选出给定用户中是某公司管理员的用户
+     * @param companyId
+     * @param userIds
+     * @return
+     */
+    public Set<String> getAdminUserIds(String companyId, Collection<String> userIds) {
+        Set<String> adminUserIds = new HashSet<>();
+        if (userIds.isEmpty()) {
+            return adminUserIds;
+        }
+        for(Admin admin : adminRepo.findByCompanyIdAndUserIdIn(companyId, userIds)) {
+            adminUserIds.add(admin.getUserId());
+        }
+        return adminUserIds;
+    }
+
     public void deleteAdmin(String companyId, String userId) {
         // validate and will throw exception if not found
         this.getAdmin(companyId, userId);
@@ -84,6 +107,8 @@ public class AdminService {
         } catch (Exception ex) {
             String errMsg = "could not delete the admin";
             serviceHelper.handleErrorAndThrowException(logger, ex, errMsg);
+        } finally {
+            permissionService.evictAdmin(companyId, userId);
         }
 
         LogEntry auditLog = LogEntry.builder()
@@ -124,6 +149,8 @@ public class AdminService {
             String errMsg = "could not create the admin";
             //将异常和错误日志发送到在线sentry云服务上
             serviceHelper.handleErrorAndThrowException(logger, ex, errMsg);
+        } finally {
+            permissionService.evictAdmin(companyId, userId);
         }
 
         LogEntry auditLog = LogEntry.builder()
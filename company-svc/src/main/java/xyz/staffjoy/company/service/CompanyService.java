@@ -2,18 +2,18 @@ package xyz.staffjoy.company.service;
 
 import com.github.structlog4j.ILogger;
 import com.github.structlog4j.SLoggerFactory;
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import xyz.staffjoy.common.api.PageCursor;
 import xyz.staffjoy.common.api.ResultCode;
 import xyz.staffjoy.common.auditlog.LogEntry;
 import xyz.staffjoy.common.auth.AuthContext;
 import xyz.staffjoy.common.error.ServiceException;
 import xyz.staffjoy.company.dto.CompanyDto;
 import xyz.staffjoy.company.dto.CompanyList;
+import xyz.staffjoy.company.mapper.CompanyMapper;
 import xyz.staffjoy.company.model.Company;
 import xyz.staffjoy.company.repo.CompanyRepo;
 import xyz.staffjoy.company.service.helper.ServiceHelper;
@@ -36,7 +36,7 @@ public class CompanyService {
     private ServiceHelper serviceHelper;
 
     @Autowired
-    private ModelMapper modelMapper;
+    private TeamService teamService;
 
     @PersistenceContext
     private EntityManager entityManager;
@@ -81,6 +81,7 @@ public class CompanyService {
 
     /**
      * 获取现有公司列表 内部使用
+     * 按主键排序，offset为页号，不执行count查询
      * @param offset
      * @param limit
      * @return
@@ -91,24 +92,57 @@ public class CompanyService {
             limit = 20;
         }
 
-        Pageable pageRequest = PageRequest.of(offset, limit);
-        Page<Company> companyPage = null;
+        List<Company> companies = null;
         try {
             //分页查询
-            companyPage = companyRepo.findAll(pageRequest);
+            companies = companyRepo.findAllByOrderByIdAsc(PageRequest.of(offset, limit));
         } catch (Exception ex) {
             String errMsg = "fail to query database for company list";
             //将异常和错误日志发送到在线sentry云服务上
             serviceHelper.handleErrorAndThrowException(logger, ex, errMsg);
         }
-        List<CompanyDto> companyDtoList = companyPage.getContent().stream().map(company -> convertToDto(company)).collect(toList());
 
-        return CompanyList.builder()
+        return convertToCompanyList(companies, offset, limit);
+    }
+
+    /**
+     * 获取现有公司列表 内部使用
+     * 从续页令牌之后按主键继续扫描，深翻页的代价与第一页相同
+     * @param cursor 上一页返回的nextCursor，为空时从头开始
+     * @param limit
+     * @return
+     */
+    public CompanyList listCompanies(String cursor, int limit) {
+
+        if (limit <= 0) {
+            limit = 20;
+        }
+        String cursorId = StringUtils.isEmpty(cursor) ? "" : PageCursor.decode(cursor, 1)[0];
+
+        List<Company> companies = null;
+        try {
+            companies = companyRepo.findByIdGreaterThanOrderByIdAsc(cursorId, PageRequest.of(0, limit));
+        } catch (Exception ex) {
+            String errMsg = "fail to query database for company list";
+            serviceHelper.handleErrorAndThrowException(logger, ex, errMsg);
+        }
+
+        return convertToCompanyList(companies, 0, limit);
+    }
+
+    private CompanyList convertToCompanyList(List<Company> companies, int offset, int limit) {
+        List<CompanyDto> companyDtoList = companies.stream().map(company -> convertToDto(company)).collect(toList());
+
+        CompanyList companyList = CompanyList.builder()
                 .limit(limit)
                 .offset(offset)
                 .companies(companyDtoList)
                 .build();
-}
+        if (companies.size() == limit) {
+            companyList.setNextCursor(PageCursor.encode(companies.get(companies.size() - 1).getId()));
+        }
+        return companyList;
+    }
 
     /**
      * 通过id获取公司
@@ -147,6 +181,8 @@ public class CompanyService {
             String errMsg = "could not update the companyDto";
             //将异常和错误日志发送到在线sentry云服务上
             serviceHelper.handleErrorAndThrowException(logger, ex, errMsg);
+        } finally {
+            teamService.evictCompany(companyDto.getId());
         }
 
         //审计日志
@@ -177,7 +213,7 @@ public class CompanyService {
      * @return
      */
     private CompanyDto convertToDto(Company company) {
-        return modelMapper.map(company, CompanyDto.class);
+        return CompanyMapper.toDto(company);
     }
 
     /**
@@ -186,6 +222,6 @@ public class CompanyService {
      * @return
      */
     private Company convertToModel(CompanyDto companyDto) {
-        return modelMapper.map(companyDto, Company.class);
+        return CompanyMapper.toModel(companyDto);
     }
 }
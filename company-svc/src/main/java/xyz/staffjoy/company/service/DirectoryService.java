@@ -3,18 +3,24 @@ package xyz.staffjoy.company.service;
 import com.github.structlog4j.ILogger;
 import com.github.structlog4j.SLoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import xyz.staffjoy.account.AccountConstant;
 import xyz.staffjoy.account.client.AccountClient;
 import xyz.staffjoy.account.dto.AccountDto;
 import xyz.staffjoy.account.dto.GenericAccountResponse;
+import xyz.staffjoy.account.dto.GetAccountsRequest;
 import xyz.staffjoy.account.dto.GetOrCreateRequest;
+import xyz.staffjoy.account.dto.ListAccountResponse;
 import xyz.staffjoy.bot.dto.OnboardWorkerRequest;
+import xyz.staffjoy.common.api.PageCursor;
 import xyz.staffjoy.common.api.ResultCode;
 import xyz.staffjoy.common.auditlog.LogEntry;
 import xyz.staffjoy.common.auth.AuthConstant;
 import xyz.staffjoy.common.auth.AuthContext;
+import xyz.staffjoy.common.cache.NearCache;
 import xyz.staffjoy.common.error.ServiceException;
 import xyz.staffjoy.company.dto.*;
 import xyz.staffjoy.company.model.Directory;
@@ -22,6 +28,13 @@ import xyz.staffjoy.company.repo.CompanyRepo;
 import xyz.staffjoy.company.repo.DirectoryRepo;
 import xyz.staffjoy.company.service.helper.ServiceHelper;
 
+import javax.annotation.PostConstruct;
+import java.util.*;
+
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toMap;
+import static java.util.stream.Collectors.toSet;
+
 @Service
 public class DirectoryService {
 
@@ -45,6 +58,23 @@ public class DirectoryService {
     @Autowired
     private AdminService adminService;
 
+    @Autowired
+    private PermissionService permissionService;
+
+    @Value("${staffjoy.directory-cache.max-size:10000}")
+    private int directoryCacheMaxSize;
+
+    @Value("${staffjoy.directory-cache.ttl:60000}")
+    private long directoryCacheTtl;
+
+    //员工目录项的近端缓存，key为companyId/userId
+    private NearCache<String, DirectoryEntryDto> directoryEntryCache;
+
+    @PostConstruct
+    public void init() {
+        directoryEntryCache = new NearCache<>("directory_entry", directoryCacheMaxSize, directoryCacheTtl);
+    }
+
     public DirectoryEntryDto createDirectory(NewDirectoryEntry req) {
         boolean companyExists = companyRepo.existsById(req.getCompanyId());
         if (!companyExists) {
@@ -87,6 +117,8 @@ public class DirectoryService {
         } catch (Exception ex) {
             String errMsg = "could not create entry";
             serviceHelper.handleErrorAndThrowException(logger, ex, errMsg);
+        } finally {
+            permissionService.evictDirectory(req.getCompanyId(), account.getId());
         }
 
         LogEntry auditLog = LogEntry.builder()
@@ -112,44 +144,126 @@ public class DirectoryService {
         return directoryEntryDto;
     }
 
+    /**
+     * 按主键排序，offset为页号，不执行count查询
+     * @param companyId
+     * @param offset
+     * @param limit
+     * @return
+     */
     public DirectoryList listDirectory(String companyId, int offset, int limit) {
 
         if (limit <= 0) {
             limit = 20;
         }
-        DirectoryList directoryList = DirectoryList.builder().limit(limit).offset(offset).build();
-        PageRequest pageRequest = PageRequest.of(offset, limit);
-        Page<Directory> directoryPage = directoryRepo.findByCompanyId(companyId, pageRequest);
+        long stamp = directoryEntryCache.stamp();
+        List<Directory> directories = directoryRepo.findByCompanyIdOrderByIdAsc(companyId, PageRequest.of(offset, limit));
+
+        return convertToDirectoryList(companyId, directories, offset, limit, stamp);
+    }
+
+    /**
+     * 从续页令牌之后按主键继续扫描，深翻页的代价与第一页相同
+     * @param companyId
+     * @param cursor 上一页返回的nextCursor，为空时从头开始
+     * @param limit
+     * @return
+     */
+    public DirectoryList listDirectory(String companyId, String cursor, int limit) {
+
+        if (limit <= 0) {
+            limit = 20;
+        }
+        String cursorId = StringUtils.isEmpty(cursor) ? "" : PageCursor.decode(cursor, 1)[0];
+        long stamp = directoryEntryCache.stamp();
+        List<Directory> directories = directoryRepo.findByCompanyIdAndIdGreaterThanOrderByIdAsc(companyId, cursorId, PageRequest.of(0, limit));
+
+        return convertToDirectoryList(companyId, directories, 0, limit, stamp);
+    }
 
-        for(Directory directory : directoryPage.getContent()) {
+    private DirectoryList convertToDirectoryList(String companyId, List<Directory> directories, int offset, int limit, long stamp) {
+        DirectoryList directoryList = DirectoryList.builder().limit(limit).offset(offset).build();
+        for(Directory directory : directories) {
             DirectoryEntryDto directoryEntryDto = DirectoryEntryDto.builder()
                     .companyId(companyId)
                     .internalId(directory.getInternalId())
                     .userId(directory.getUserId())
                     .build();
+            directoryList.getAccounts().add(directoryEntryDto);
+        }
+        if (directories.size() == limit) {
+            directoryList.setNextCursor(PageCursor.encode(directories.get(directories.size() - 1).getId()));
+        }
 
-            GenericAccountResponse resp = null;
-            try {
-                resp = accountClient.getAccount(AuthConstant.AUTHORIZATION_COMPANY_SERVICE, directoryEntryDto.getUserId());
-            } catch (Exception ex) {
-                String errMsg = "could not get account";
-                serviceHelper.handleErrorAndThrowException(logger, ex, errMsg);
-            }
+        // 整页的账户一次批量获取
+        copyAccountsToDirectories(directoryList.getAccounts());
+        cacheDirectoryEntries(directoryList.getAccounts(), stamp);
 
-            if (!resp.isSuccess()) {
-                serviceHelper.handleErrorAndThrowException(logger, resp.getMessage());
+        return directoryList;
+    }
+
+    /**
+     * 批量获取目录条目，顺序与userIds相同
+     * @param companyId
+     * @param userIds
+     * @return
+     */
+    public List<DirectoryEntryDto> getDirectoryEntries(String companyId, List<String> userIds) {
+        // 先读缓存，未命中的一次批量加载
+        Map<String, DirectoryEntryDto> found = new HashMap<>();
+        Set<String> missing = new HashSet<>();
+        for(String userId : userIds) {
+            DirectoryEntryDto cached = directoryEntryCache.getIfPresent(directoryKey(companyId, userId));
+            if (cached != null) {
+                found.put(userId, cached);
+            } else {
+                missing.add(userId);
             }
+        }
 
-            AccountDto account = resp.getAccount();
-            copyAccountToDirectory(account, directoryEntryDto);
+        if (!missing.isEmpty()) {
+            long stamp = directoryEntryCache.stamp();
+            Map<String, Directory> directoryMap = directoryRepo.findByCompanyIdAndUserIdIn(companyId, missing).stream()
+                    .collect(toMap(Directory::getUserId, directory -> directory));
+            List<DirectoryEntryDto> loaded = new ArrayList<>();
+            for(String userId : missing) {
+                Directory directory = directoryMap.get(userId);
+                if (directory == null) {
+                    throw new ServiceException(ResultCode.NOT_FOUND, "directory entry not found for user in this company");
+                }
+                DirectoryEntryDto directoryEntryDto = DirectoryEntryDto.builder()
+                        .companyId(companyId)
+                        .internalId(directory.getInternalId())
+                        .userId(userId)
+                        .build();
+                loaded.add(directoryEntryDto);
+            }
 
-            directoryList.getAccounts().add(directoryEntryDto);
+            copyAccountsToDirectories(loaded);
+            cacheDirectoryEntries(loaded, stamp);
+            loaded.forEach(directoryEntryDto -> found.put(directoryEntryDto.getUserId(), directoryEntryDto));
         }
 
-        return directoryList;
+        return userIds.stream().map(userId -> copyOf(found.get(userId))).collect(toList());
     }
 
     public DirectoryEntryDto getDirectoryEntry(String companyId, String userId) {
+        DirectoryEntryDto directoryEntryDto = directoryEntryCache.get(directoryKey(companyId, userId),
+                key -> loadDirectoryEntry(companyId, userId));
+        // 缓存的对象不交给调用方修改
+        return copyOf(directoryEntryDto);
+    }
+
+    /**
+     * 账户信息有变化，该用户在所有公司的目录项都失效
+     * @param userId
+     */
+    public void evictAccount(String userId) {
+        String suffix = "/" + userId;
+        directoryEntryCache.invalidateIf(key -> key.endsWith(suffix));
+    }
+
+    private DirectoryEntryDto loadDirectoryEntry(String companyId, String userId) {
         DirectoryEntryDto directoryEntryDto = DirectoryEntryDto.builder().userId(userId).companyId(companyId).build();
         Directory directory = directoryRepo.findByCompanyIdAndUserId(companyId, userId);
         if (directory == null) {
@@ -176,7 +290,8 @@ public class DirectoryService {
     }
 
     public DirectoryEntryDto updateDirectoryEntry(DirectoryEntryDto request) {
-        DirectoryEntryDto orig = this.getDirectoryEntry(request.getCompanyId(), request.getUserId());
+        // 不用缓存，以最新的数据为准
+        DirectoryEntryDto orig = this.loadDirectoryEntry(request.getCompanyId(), request.getUserId());
 
         GenericAccountResponse genericAccountResponse1 = null;
         try {
@@ -219,6 +334,7 @@ public class DirectoryService {
             }
 
             copyAccountToDirectory(account, request);
+            this.evictAccount(request.getUserId());
         }
 
         try {
@@ -226,6 +342,8 @@ public class DirectoryService {
         } catch (Exception ex) {
             String errMsg = "fail to update directory";
             serviceHelper.handleErrorAndThrowException(logger, ex, errMsg);
+        } finally {
+            directoryEntryCache.invalidate(directoryKey(request.getCompanyId(), request.getUserId()));
         }
 
         LogEntry auditLog = LogEntry.builder()
@@ -259,22 +377,18 @@ public class DirectoryService {
         // this handles permissions
         DirectoryList directoryList = this.listDirectory(companyId, offset, limit);
 
+        // 整页的团队和管理员关系各一次查询，在内存中组装
+        Set<String> userIds = directoryList.getAccounts().stream()
+                .map(DirectoryEntryDto::getUserId)
+                .collect(toSet());
+        Map<String, List<TeamDto>> teamsOfWorkers = workerService.getTeamsOfWorkers(companyId, userIds);
+        Set<String> adminUserIds = adminService.getAdminUserIds(companyId, userIds);
+
         AssociationList associationList = AssociationList.builder().offset(offset).limit(limit).build();
         for(DirectoryEntryDto directoryEntryDto : directoryList.getAccounts()) {
             Association association = Association.builder().account(directoryEntryDto).build();
-            WorkerOfList workerOfList = workerService.getWorkerOf(directoryEntryDto.getUserId());
-            for(TeamDto teamDto : workerOfList.getTeams()) {
-                if (teamDto.getCompanyId().equals(companyId)) {
-                    association.getTeams().add(teamDto);
-                }
-
-                DirectoryEntryDto admin = adminService.getAdmin(companyId, directoryEntryDto.getUserId());
-                if (admin != null) {
-                    association.setAdmin(true);
-                } else {
-                    association.setAdmin(false);
-                }
-            }
+            association.getTeams().addAll(teamsOfWorkers.getOrDefault(directoryEntryDto.getUserId(), Collections.emptyList()));
+            association.setAdmin(adminUserIds.contains(directoryEntryDto.getUserId()));
 
             associationList.getAccounts().add(association);
         }
@@ -282,6 +396,62 @@ public class DirectoryService {
         return associationList;
     }
 
+    /**
+     * 按userId去重后批量获取账户，每批一次调用，代替逐条调用getAccount
+     * @param directoryEntryDtoList
+     */
+    private void copyAccountsToDirectories(List<DirectoryEntryDto> directoryEntryDtoList) {
+        List<String> userIds = directoryEntryDtoList.stream()
+                .map(DirectoryEntryDto::getUserId)
+                .distinct()
+                .collect(toList());
+        Map<String, AccountDto> accountMap = new HashMap<>();
+        for (int from = 0; from < userIds.size(); from += AccountConstant.MAX_GET_ACCOUNTS) {
+            List<String> batch = userIds.subList(from, Math.min(from + AccountConstant.MAX_GET_ACCOUNTS, userIds.size()));
+            GetAccountsRequest getAccountsRequest = GetAccountsRequest.builder().userIds(new ArrayList<>(batch)).build();
+
+            ListAccountResponse resp = null;
+            try {
+                resp = accountClient.getAccounts(AuthConstant.AUTHORIZATION_COMPANY_SERVICE, getAccountsRequest);
+            } catch (Exception ex) {
+                String errMsg = "could not get accounts";
+                serviceHelper.handleErrorAndThrowException(logger, ex, errMsg);
+            }
+
+            if (!resp.isSuccess()) {
+                serviceHelper.handleErrorAndThrowException(logger, resp.getMessage());
+            }
+
+            for (AccountDto account : resp.getAccountList().getAccounts()) {
+                accountMap.put(account.getId(), account);
+            }
+        }
+
+        for (DirectoryEntryDto directoryEntryDto : directoryEntryDtoList) {
+            AccountDto account = accountMap.get(directoryEntryDto.getUserId());
+            if (account == null) {
+                serviceHelper.handleErrorAndThrowException(logger, String.format("User with id %s not found", directoryEntryDto.getUserId()));
+            }
+            copyAccountToDirectory(account, directoryEntryDto);
+        }
+    }
+
+    private void cacheDirectoryEntries(List<DirectoryEntryDto> directoryEntryDtoList, long stamp) {
+        for (DirectoryEntryDto directoryEntryDto : directoryEntryDtoList) {
+            directoryEntryCache.put(directoryKey(directoryEntryDto.getCompanyId(), directoryEntryDto.getUserId()),
+                    copyOf(directoryEntryDto), stamp);
+        }
+    }
+
+    private static String directoryKey(String companyId, String userId) {
+        return companyId + "/" + userId;
+    }
+
+    private static DirectoryEntryDto copyOf(DirectoryEntryDto d) {
+        return new DirectoryEntryDto(d.getUserId(), d.getInternalId(), d.getCompanyId(), d.getName(),
+                d.getEmail(), d.isConfirmedAndActive(), d.getPhoneNumber(), d.getPhotoUrl());
+    }
+
     private void copyAccountToDirectory(AccountDto a, DirectoryEntryDto d) {
         d.setUserId(a.getId());
         d.setName(a.getName());
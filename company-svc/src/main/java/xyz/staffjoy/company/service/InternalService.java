@@ -5,8 +5,6 @@ import org.springframework.stereotype.Service;
 import xyz.staffjoy.company.dto.GrowthGraphResponse;
 import xyz.staffjoy.company.repo.ShiftRepo;
 
-import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
 @Service
@@ -14,17 +12,15 @@ public class InternalService {
     @Autowired
     ShiftRepo shiftRepo;
 
+    @Autowired
+    ShiftRollupService shiftRollupService;
+
     public GrowthGraphResponse getGrowthGraph() {
         // PeopleOnShifts returns the count of people working right now
         int peopleOnShifts = shiftRepo.getPeopleOnShifts();
 
-        // ScheduledPerWeek returns the weekly number of shifts/week
-        List<ShiftRepo.IScheduledPerWeek> scheduledPerWeekList = shiftRepo.getScheduledPerWeekList();
-
-        Map<String, Integer> stuff = new HashMap<>();
-        for(ShiftRepo.IScheduledPerWeek scheduledPerWeek : scheduledPerWeekList) {
-            stuff.put(scheduledPerWeek.getWeek(), scheduledPerWeek.getCount());
-        }
+        // ScheduledPerWeek returns the weekly number of people scheduled, read from the rollup table
+        Map<String, Integer> stuff = shiftRollupService.getPeopleScheduledPerWeek();
 
         GrowthGraphResponse response = GrowthGraphResponse.builder()
                 .peopleScheduledPerWeek(stuff)
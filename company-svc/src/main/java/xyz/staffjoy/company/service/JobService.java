@@ -2,7 +2,6 @@ package xyz.staffjoy.company.service;
 
 import com.github.structlog4j.ILogger;
 import com.github.structlog4j.SLoggerFactory;
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import xyz.staffjoy.common.api.ResultCode;
@@ -12,6 +11,7 @@ import xyz.staffjoy.common.error.ServiceException;
 import xyz.staffjoy.company.dto.CreateJobRequest;
 import xyz.staffjoy.company.dto.JobDto;
 import xyz.staffjoy.company.dto.JobList;
+import xyz.staffjoy.company.mapper.JobMapper;
 import xyz.staffjoy.company.model.Job;
 import xyz.staffjoy.company.repo.JobRepo;
 import xyz.staffjoy.company.service.helper.ServiceHelper;
@@ -28,9 +28,6 @@ public class JobService {
     @Autowired
     TeamService teamService;
 
-    @Autowired
-    private ModelMapper modelMapper;
-
     @Autowired
     ServiceHelper serviceHelper;
 
@@ -134,10 +131,10 @@ public class JobService {
     }
 
     JobDto convertToDto(Job job) {
-        return modelMapper.map(job, JobDto.class);
+        return JobMapper.toDto(job);
     }
 
     Job convertToModel(JobDto jobDto) {
-        return modelMapper.map(jobDto, Job.class);
+        return JobMapper.toModel(jobDto);
     }
 }
@@ -4,10 +4,12 @@ import com.github.structlog4j.ILogger;
 import com.github.structlog4j.SLoggerFactory;
 import io.sentry.SentryClient;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 import xyz.staffjoy.common.auth.AuthContext;
 import xyz.staffjoy.common.auth.PermissionDeniedException;
+import xyz.staffjoy.common.cache.NearCache;
 import xyz.staffjoy.company.model.Admin;
 import xyz.staffjoy.company.model.Directory;
 import xyz.staffjoy.company.model.Worker;
@@ -16,12 +18,17 @@ import xyz.staffjoy.company.repo.DirectoryRepo;
 import xyz.staffjoy.company.repo.WorkerRepo;
 import xyz.staffjoy.company.service.helper.ServiceHelper;
 
+import javax.annotation.PostConstruct;
+import java.util.function.BooleanSupplier;
 
 /**
  * Each permission has a public convenience checker, and a private relationship checker.
  * Recall that support users have a different authorization, and will not use these functions.
  *
  * PermissionCompanyAdmin checks that the current user is an admin of the given company
+ *
+ * Relationship lookups are cached: grants for a short TTL, denials in a smaller and shorter-lived cache.
+ * AdminService, WorkerService and DirectoryService evict the relationship they change.
  */
 @Service
 public class PermissionService {
@@ -43,17 +50,36 @@ public class PermissionService {
     @Autowired
     ServiceHelper serviceHelper;
 
+    @Value("${staffjoy.permission-cache.max-size:10000}")
+    private int grantCacheMaxSize;
+
+    @Value("${staffjoy.permission-cache.ttl:30000}")
+    private long grantCacheTtl;
+
+    @Value("${staffjoy.permission-cache.denial-max-size:2000}")
+    private int denialCacheMaxSize;
+
+    @Value("${staffjoy.permission-cache.denial-ttl:5000}")
+    private long denialCacheTtl;
+
+    private static final String ADMIN = "admin/";
+    private static final String WORKER = "worker/";
+    private static final String DIRECTORY = "directory/";
+
+    // key为 关系类型/companyId或teamId/userId
+    private NearCache<String, Boolean> grantCache;
+    private NearCache<String, Boolean> denialCache;
+
+    @PostConstruct
+    public void init() {
+        grantCache = new NearCache<>("permission_grant", grantCacheMaxSize, grantCacheTtl);
+        denialCache = new NearCache<>("permission_denial", denialCacheMaxSize, denialCacheTtl);
+    }
+
     public void checkPermissionCompanyAdmin(String companyId) {
         String currentUserId = checkAndGetCurrentUserId();
 
-        Admin admin = null;
-        try {
-            admin = adminRepo.findByCompanyIdAndUserId(companyId, currentUserId);
-        } catch (Exception ex) {
-            String errMsg = "failed to check company admin permissions";
-            serviceHelper.handleErrorAndThrowException(logger, ex, errMsg);
-        }
-        if (admin == null) {
+        if (!isCompanyAdmin(companyId, currentUserId)) {
             throw new PermissionDeniedException("you do not have admin access to this service");
         }
     }
@@ -63,24 +89,21 @@ public class PermissionService {
         String currentUserId = checkAndGetCurrentUserId();
 
         // Check if company admin
-        try {
-            Admin admin = adminRepo.findByCompanyIdAndUserId(companyId, currentUserId);
-            if (admin != null) { // Admin - allow access
-                return;
-            }
-        } catch (Exception ex) {
-            String errMsg = "failed to check company admin permissions";
-            serviceHelper.handleErrorAndThrowException(logger, ex, errMsg);
+        if (isCompanyAdmin(companyId, currentUserId)) { // Admin - allow access
+            return;
         }
 
-        Worker worker = null;
-        try {
-            worker = workerRepo.findByTeamIdAndUserId(teamId, currentUserId);
-        } catch (Exception ex) {
-            String errMsg = "failed to check teamDto member permissions";
-            serviceHelper.handleErrorAndThrowException(logger, ex, errMsg);
-        }
-        if (worker == null) {
+        boolean isWorker = isAllowed(WORKER + teamId + "/" + currentUserId, () -> {
+            Worker worker = null;
+            try {
+                worker = workerRepo.findByTeamIdAndUserId(teamId, currentUserId);
+            } catch (Exception ex) {
+                String errMsg = "failed to check teamDto member permissions";
+                serviceHelper.handleErrorAndThrowException(logger, ex, errMsg);
+            }
+            return worker != null;
+        });
+        if (!isWorker) {
             throw new PermissionDeniedException("you are not associated with this company");
         }
     }
@@ -90,18 +113,75 @@ public class PermissionService {
     public void checkPermissionCompanyDirectory(String companyId) {
         String currentUserId = checkAndGetCurrentUserId();
 
-        Directory directory = null;
-        try {
-            directory = directoryRepo.findByCompanyIdAndUserId(companyId, currentUserId);
-        } catch (Exception ex) {
-            String errMsg = "failed to check directory existence";
-            serviceHelper.handleErrorAndThrowException(logger, ex, errMsg);
-        }
-        if (directory == null) {
+        boolean inDirectory = isAllowed(DIRECTORY + companyId + "/" + currentUserId, () -> {
+            Directory directory = null;
+            try {
+                directory = directoryRepo.findByCompanyIdAndUserId(companyId, currentUserId);
+            } catch (Exception ex) {
+                String errMsg = "failed to check directory existence";
+                serviceHelper.handleErrorAndThrowException(logger, ex, errMsg);
+            }
+            return directory != null;
+        });
+        if (!inDirectory) {
             throw new PermissionDeniedException("you are not associated with this company");
         }
     }
 
+    public void evictAdmin(String companyId, String userId) {
+        evict(ADMIN + companyId + "/" + userId);
+    }
+
+    public void evictWorker(String teamId, String userId) {
+        evict(WORKER + teamId + "/" + userId);
+    }
+
+    public void evictDirectory(String companyId, String userId) {
+        evict(DIRECTORY + companyId + "/" + userId);
+    }
+
+    private boolean isCompanyAdmin(String companyId, String userId) {
+        return isAllowed(ADMIN + companyId + "/" + userId, () -> {
+            Admin admin = null;
+            try {
+                admin = adminRepo.findByCompanyIdAndUserId(companyId, userId);
+            } catch (Exception ex) {
+                String errMsg = "failed to check company admin permissions";
+                serviceHelper.handleErrorAndThrowException(logger, ex, errMsg);
+            }
+            return admin != null;
+        });
+    }
+
+    /**
+     * 先查缓存的授权和拒绝，都未命中才查数据库，查询期间有失效则结果不缓存
+     * @param key
+     * @param check
+     * @return
+     */
+    private boolean isAllowed(String key, BooleanSupplier check) {
+        if (grantCache.getIfPresent(key) != null) {
+            return true;
+        }
+        if (denialCache.getIfPresent(key) != null) {
+            return false;
+        }
+        long grantStamp = grantCache.stamp();
+        long denialStamp = denialCache.stamp();
+        boolean allowed = check.getAsBoolean();
+        if (allowed) {
+            grantCache.put(key, Boolean.TRUE, grantStamp);
+        } else {
+            denialCache.put(key, Boolean.TRUE, denialStamp);
+        }
+        return allowed;
+    }
+
+    private void evict(String key) {
+        grantCache.invalidate(key);
+        denialCache.invalidate(key);
+    }
+
     private String checkAndGetCurrentUserId() {
         String currentUserId = AuthContext.getUserId();
         if (StringUtils.isEmpty(currentUserId)) {
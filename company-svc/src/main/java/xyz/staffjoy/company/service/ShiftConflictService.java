@@ -0,0 +1,211 @@
+package xyz.staffjoy.company.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import xyz.staffjoy.common.api.ResultCode;
+import xyz.staffjoy.common.cache.NearCache;
+import xyz.staffjoy.common.error.ServiceException;
+import xyz.staffjoy.company.dto.*;
+import xyz.staffjoy.company.model.Shift;
+import xyz.staffjoy.company.repo.ShiftRepo;
+import xyz.staffjoy.company.service.ShiftIntervalIndex.ShiftInterval;
+
+import javax.annotation.PostConstruct;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.function.UnaryOperator;
+
+/**
+ * 班次冲突检查，同一员工的班次时间重叠即为冲突，包括该员工在公司内其他团队的班次
+ * 已有班次按团队-周(UTC周一开始)懒加载成区间索引放在缓存中，班次增删改时同步修改缓存中的索引
+ * 其他实例上的修改在缓存过期后可见
+ */
+@Service
+public class ShiftConflictService {
+
+    @Value("${staffjoy.shift-index-cache.max-size:5000}")
+    private int indexCacheMaxSize;
+
+    @Value("${staffjoy.shift-index-cache.ttl:300000}")
+    private long indexCacheTtl;
+
+    @Autowired
+    ShiftRepo shiftRepo;
+
+    @Autowired
+    TeamService teamService;
+
+    @Autowired
+    WorkerService workerService;
+
+    // teamId/weekStart
+    private NearCache<String, ShiftIntervalIndex> teamWeekCache;
+    // 串行化对缓存中索引的修改
+    private final Object updateLock = new Object();
+
+    @PostConstruct
+    public void init() {
+        teamWeekCache = new NearCache<>("shift_index", indexCacheMaxSize, indexCacheTtl);
+    }
+
+    /**
+     * 一次检查一批拟排的班次，返回它们之间以及与已有班次之间的冲突，每对冲突只返回一次
+     * 同一员工的拟排班次按开始时间排序后扫描，与已有班次的冲突通过区间索引查询，
+     * 整体O((n + k) log n)，n为班次数，k为冲突数
+     */
+    public ShiftConflictList checkConflicts(ShiftConflictRequest req) {
+        String companyId = req.getCompanyId();
+        List<ProposedShift> proposed = req.getShifts();
+
+        Set<String> proposedIds = new HashSet<>();
+        Set<String> teamIds = new HashSet<>();
+        Map<String, List<Integer>> userIndexes = new HashMap<>();
+        for(int i = 0; i < proposed.size(); i++) {
+            ProposedShift proposedShift = proposed.get(i);
+            if (!proposedShift.getStart().isBefore(proposedShift.getStop())) {
+                throw new ServiceException(ResultCode.PARAM_VALID_ERROR, String.format("shifts[%d]: stop must be after start", i));
+            }
+            teamIds.add(proposedShift.getTeamId());
+            if (!StringUtils.isEmpty(proposedShift.getId())) {
+                proposedIds.add(proposedShift.getId());
+            }
+            if (!StringUtils.isEmpty(proposedShift.getUserId())) {
+                userIndexes.computeIfAbsent(proposedShift.getUserId(), userId -> new ArrayList<>()).add(i);
+            }
+        }
+
+        for(String teamId : teamIds) {
+            // validate and will throw exception if not exist
+            teamService.getTeamWithCompanyIdValidation(companyId, teamId);
+        }
+
+        // 员工在公司内所属的全部团队
+        Map<String, List<TeamDto>> teamsOfWorkers = workerService.getTeamsOfWorkers(companyId, userIndexes.keySet());
+
+        List<ShiftConflictDto> conflicts = new ArrayList<>();
+        for(Map.Entry<String, List<Integer>> entry : userIndexes.entrySet()) {
+            String userId = entry.getKey();
+            List<Integer> indexes = entry.getValue();
+
+            Set<String> userTeamIds = new TreeSet<>();
+            for(TeamDto teamDto : teamsOfWorkers.getOrDefault(userId, Collections.emptyList())) {
+                userTeamIds.add(teamDto.getId());
+            }
+            for(int index : indexes) {
+                userTeamIds.add(proposed.get(index).getTeamId());
+            }
+
+            findProposedConflicts(proposed, userId, indexes, conflicts);
+            for(int index : indexes) {
+                findExistingConflicts(proposed.get(index), index, userId, userTeamIds, proposedIds, conflicts);
+            }
+        }
+
+        conflicts.sort(Comparator.comparingInt(ShiftConflictDto::getIndex)
+                .thenComparing(ShiftConflictDto::getConflictingIndex, Comparator.nullsLast(Comparator.naturalOrder()))
+                .thenComparing(ShiftConflictDto::getConflictingShiftId, Comparator.nullsLast(Comparator.naturalOrder())));
+        return ShiftConflictList.builder().conflicts(conflicts).build();
+    }
+
+    public void shiftCreated(ShiftDto shiftDto) {
+        ShiftInterval interval = new ShiftInterval(shiftDto.getId(), shiftDto.getUserId(), shiftDto.getStart(), shiftDto.getStop());
+        update(shiftDto.getTeamId(), shiftDto.getStart(), index -> index.with(interval));
+    }
+
+    public void shiftsCreated(List<ShiftDto> shiftDtos) {
+        for(ShiftDto shiftDto : shiftDtos) {
+            shiftCreated(shiftDto);
+        }
+    }
+
+    public void shiftUpdated(ShiftDto orig, ShiftDto updated) {
+        shiftDeleted(orig);
+        shiftCreated(updated);
+    }
+
+    public void shiftDeleted(ShiftDto shiftDto) {
+        update(shiftDto.getTeamId(), shiftDto.getStart(), index -> index.without(shiftDto.getId(), shiftDto.getUserId()));
+    }
+
+    // 按开始时间扫描，堆里是还没结束的班次，新班次与堆里剩下的都冲突
+    private static void findProposedConflicts(List<ProposedShift> proposed, String userId, List<Integer> indexes,
+                                              List<ShiftConflictDto> conflicts) {
+        List<Integer> sorted = new ArrayList<>(indexes);
+        sorted.sort(Comparator.comparing((Integer index) -> proposed.get(index).getStart()));
+        PriorityQueue<Integer> active = new PriorityQueue<>(Comparator.comparing((Integer index) -> proposed.get(index).getStop()));
+        for(int index : sorted) {
+            Instant start = proposed.get(index).getStart();
+            while (!active.isEmpty() && !proposed.get(active.peek()).getStop().isAfter(start)) {
+                active.poll();
+            }
+            for(int other : active) {
+                conflicts.add(ShiftConflictDto.builder()
+                        .index(Math.max(index, other))
+                        .userId(userId)
+                        .conflictingIndex(Math.min(index, other))
+                        .build());
+            }
+            active.add(index);
+        }
+    }
+
+    // 班次可能跨周，前一周开始的班次也可能重叠
+    // 新班次不超过MAX_SHIFT_DURATION，但限制生效前存下的班次可能更长，所以固定往前扫描一整周
+    private void findExistingConflicts(ProposedShift proposedShift, int index, String userId, Set<String> teamIds,
+                                       Set<String> proposedIds, List<ShiftConflictDto> conflicts) {
+        LocalDate firstWeek = ShiftRollupService.weekOf(proposedShift.getStart()).minusWeeks(1);
+        LocalDate lastWeek = ShiftRollupService.weekOf(proposedShift.getStop());
+        for(String teamId : teamIds) {
+            for(LocalDate week = firstWeek;
+                !week.isAfter(lastWeek); week = week.plusWeeks(1)) {
+                getIndex(teamId, week).forEachOverlap(userId, proposedShift.getStart(), proposedShift.getStop(), interval -> {
+                    // 被调整的已有班次以拟排的时间为准
+                    if (!proposedIds.contains(interval.getId())) {
+                        conflicts.add(ShiftConflictDto.builder()
+                                .index(index)
+                                .userId(userId)
+                                .conflictingShiftId(interval.getId())
+                                .build());
+                    }
+                });
+            }
+        }
+    }
+
+    private ShiftIntervalIndex getIndex(String teamId, LocalDate week) {
+        return teamWeekCache.get(teamWeekKey(teamId, week), key -> loadIndex(teamId, week));
+    }
+
+    private ShiftIntervalIndex loadIndex(String teamId, LocalDate week) {
+        Instant weekStart = week.atStartOfDay(ZoneOffset.UTC).toInstant();
+        Instant weekEnd = week.plusWeeks(1).atStartOfDay(ZoneOffset.UTC).toInstant();
+        List<ShiftInterval> intervals = new ArrayList<>();
+        for(Shift shift : shiftRepo.listShiftByTeamIdOnly(teamId, weekStart, weekEnd)) {
+            intervals.add(new ShiftInterval(shift.getId(), shift.getUserId(), shift.getStart(), shift.getStop()));
+        }
+        return ShiftIntervalIndex.of(intervals);
+    }
+
+    /**
+     * 修改已缓存的索引，未缓存时下次查询会从数据库加载
+     * 先失效再写入，修改前开始的加载结果不会覆盖修改后的索引
+     */
+    private void update(String teamId, Instant start, UnaryOperator<ShiftIntervalIndex> change) {
+        String key = teamWeekKey(teamId, ShiftRollupService.weekOf(start));
+        synchronized (updateLock) {
+            ShiftIntervalIndex current = teamWeekCache.getIfPresent(key);
+            teamWeekCache.invalidate(key);
+            if (current != null) {
+                teamWeekCache.put(key, change.apply(current), teamWeekCache.stamp());
+            }
+        }
+    }
+
+    private static String teamWeekKey(String teamId, LocalDate week) {
+        return teamId + "/" + week;
+    }
+}
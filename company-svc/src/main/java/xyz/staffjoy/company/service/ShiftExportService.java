@@ -0,0 +1,214 @@
+package xyz.staffjoy.company.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.github.structlog4j.ILogger;
+import com.github.structlog4j.SLoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import xyz.staffjoy.common.api.ResultCode;
+import xyz.staffjoy.common.error.ServiceException;
+import xyz.staffjoy.company.dto.ShiftDto;
+import xyz.staffjoy.company.dto.ShiftExportRequest;
+
+import javax.annotation.PostConstruct;
+import javax.sql.DataSource;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+
+/**
+ * 按时间范围流式导出公司或团队的班次，支持NDJSON和CSV
+ * 通过只进游标按fetchSize分批读取，每行直接写到输出流，内存占用与导出行数无关
+ * 导出期间一直占用一个数据库连接，所以限制时间范围和同时进行的导出数量
+ */
+@Service
+public class ShiftExportService {
+
+    static final ILogger logger = SLoggerFactory.getLogger(ShiftExportService.class);
+
+    static final String CSV_HEADER = "id,company_id,team_id,job_id,user_id,published,start,stop";
+
+    // ix_shift_team_start
+    private static final String TEAM_QUERY = "select id, team_id, job_id, user_id, published, start, stop from shift" +
+            " where team_id = ? and start >= ? and start < ? order by start, id";
+    // ix_shift_start
+    private static final String COMPANY_QUERY = "select shift.id, shift.team_id, shift.job_id, shift.user_id, shift.published, shift.start, shift.stop" +
+            " from shift join team on team.id = shift.team_id" +
+            " where team.company_id = ? and shift.start >= ? and shift.start < ? order by shift.start, shift.id";
+
+    @Value("${staffjoy.shift-export.fetch-size:1000}")
+    private int fetchSize;
+
+    @Value("${staffjoy.shift-export.max-concurrent:4}")
+    private int maxConcurrent;
+
+    @Value("${staffjoy.shift-export.max-range-days:366}")
+    private int maxRangeDays;
+
+    @Autowired
+    DataSource dataSource;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    TeamService teamService;
+
+    @Autowired
+    CompanyService companyService;
+
+    private JdbcTemplate jdbcTemplate;
+    private ObjectWriter shiftWriter;
+    private Semaphore permits;
+
+    @PostConstruct
+    public void init() {
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.setFetchSize(resolveFetchSize());
+        shiftWriter = objectMapper.writerFor(ShiftDto.class);
+        permits = new Semaphore(maxConcurrent);
+    }
+
+    /**
+     * MySQL驱动默认把整个结果集读进内存，fetchSize只在连接串开启useCursorFetch=true时生效
+     * 没有开启时用Integer.MIN_VALUE让驱动逐行流式读取，不依赖各环境的连接串配置
+     */
+    private int resolveFetchSize() {
+        try (Connection connection = dataSource.getConnection()) {
+            DatabaseMetaData metaData = connection.getMetaData();
+            if ("MySQL".equals(metaData.getDatabaseProductName()) && !metaData.getURL().contains("useCursorFetch=true")) {
+                logger.info("streaming shift exports row by row, useCursorFetch is not enabled");
+                return Integer.MIN_VALUE;
+            }
+        } catch (SQLException ex) {
+            throw new IllegalStateException("failed to read datasource metadata", ex);
+        }
+        return fetchSize;
+    }
+
+    /**
+     * 占用一个导出名额，名额用完时返回false，调用方应直接拒绝而不是排队等待
+     */
+    public boolean tryAcquire() {
+        return permits.tryAcquire();
+    }
+
+    public void release() {
+        permits.release();
+    }
+
+    /**
+     * 校验公司和团队，需要在开始写响应之前调用，出错时还能返回正常的错误响应
+     */
+    public void validate(ShiftExportRequest req) {
+        if (Duration.between(req.getShiftStartAfter(), req.getShiftStartBefore()).compareTo(Duration.ofDays(maxRangeDays)) > 0) {
+            throw new ServiceException(ResultCode.PARAM_VALID_ERROR,
+                    String.format("export range can not exceed %d days", maxRangeDays));
+        }
+        // validate and will throw exception if not exist
+        if (StringUtils.isEmpty(req.getTeamId())) {
+            companyService.getCompany(req.getCompanyId());
+        } else {
+            teamService.getTeamWithCompanyIdValidation(req.getCompanyId(), req.getTeamId());
+        }
+    }
+
+    /**
+     * 将班次逐行写入out，返回导出的行数
+     */
+    public long exportShifts(ShiftExportRequest req, OutputStream out) throws IOException {
+        boolean csv = ShiftExportRequest.FORMAT_CSV.equals(req.getFormat());
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        if (csv) {
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+        }
+
+        long[] count = new long[1];
+        RowCallbackHandler handler = rs -> {
+            ShiftDto shiftDto = toDto(rs, req.getCompanyId());
+            try {
+                if (csv) {
+                    writeCsv(writer, shiftDto);
+                } else {
+                    writer.write(shiftWriter.writeValueAsString(shiftDto));
+                    writer.write('\n');
+                }
+            } catch (IOException ex) {
+                // 客户端断开连接，结束查询并释放连接
+                throw new UncheckedIOException(ex);
+            }
+            count[0]++;
+        };
+
+        Timestamp after = Timestamp.from(req.getShiftStartAfter());
+        Timestamp before = Timestamp.from(req.getShiftStartBefore());
+        try {
+            if (StringUtils.isEmpty(req.getTeamId())) {
+                jdbcTemplate.query(COMPANY_QUERY, handler, req.getCompanyId(), after, before);
+            } else {
+                jdbcTemplate.query(TEAM_QUERY, handler, req.getTeamId(), after, before);
+            }
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+        writer.flush();
+
+        logger.info("exported shifts", "companyId", req.getCompanyId(), "teamId", req.getTeamId(),
+                "format", req.getFormat(), "count", count[0]);
+        return count[0];
+    }
+
+    private static ShiftDto toDto(ResultSet rs, String companyId) throws SQLException {
+        return ShiftDto.builder()
+                .id(rs.getString("id"))
+                .companyId(companyId)
+                .teamId(rs.getString("team_id"))
+                .jobId(rs.getString("job_id"))
+                .userId(rs.getString("user_id"))
+                .published(rs.getBoolean("published"))
+                .start(rs.getTimestamp("start").toInstant())
+                .stop(rs.getTimestamp("stop").toInstant())
+                .build();
+    }
+
+    private static void writeCsv(Writer writer, ShiftDto shiftDto) throws IOException {
+        writer.write(escapeCsv(shiftDto.getId()));
+        writer.write(',');
+        writer.write(escapeCsv(shiftDto.getCompanyId()));
+        writer.write(',');
+        writer.write(escapeCsv(shiftDto.getTeamId()));
+        writer.write(',');
+        writer.write(escapeCsv(shiftDto.getJobId()));
+        writer.write(',');
+        writer.write(escapeCsv(shiftDto.getUserId()));
+        writer.write(',');
+        writer.write(String.valueOf(shiftDto.isPublished()));
+        writer.write(',');
+        writer.write(shiftDto.getStart().toString());
+        writer.write(',');
+        writer.write(shiftDto.getStop().toString());
+        writer.write('\n');
+    }
+
+    static String escapeCsv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
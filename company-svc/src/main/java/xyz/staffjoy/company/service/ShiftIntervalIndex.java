@@ -0,0 +1,170 @@
+package xyz.staffjoy.company.service;
+
+import org.springframework.util.StringUtils;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * 一个团队一周内班次的区间索引，按员工分组，组内按开始时间排序并记录前缀最大结束时间
+ * 查询重叠时二分找到最后一个开始时间早于查询结束的班次，再向前扫描，
+ * 前缀最大结束时间不晚于查询开始时停止，复杂度O(log n + k)
+ * 索引不可变，增删返回新的索引，只重建受影响员工的数组
+ */
+final class ShiftIntervalIndex {
+
+    static final ShiftIntervalIndex EMPTY = new ShiftIntervalIndex(Collections.emptyMap());
+
+    private final Map<String, WorkerIntervals> workers;
+
+    private ShiftIntervalIndex(Map<String, WorkerIntervals> workers) {
+        this.workers = workers;
+    }
+
+    static ShiftIntervalIndex of(Collection<ShiftInterval> intervals) {
+        Map<String, List<ShiftInterval>> grouped = new HashMap<>();
+        for (ShiftInterval interval : intervals) {
+            // 未分配员工的班次不会造成冲突
+            if (!StringUtils.isEmpty(interval.getUserId())) {
+                grouped.computeIfAbsent(interval.getUserId(), userId -> new ArrayList<>()).add(interval);
+            }
+        }
+        Map<String, WorkerIntervals> workers = new HashMap<>();
+        grouped.forEach((userId, list) -> workers.put(userId, new WorkerIntervals(list)));
+        return new ShiftIntervalIndex(workers);
+    }
+
+    ShiftIntervalIndex with(ShiftInterval interval) {
+        if (StringUtils.isEmpty(interval.getUserId())) {
+            return this;
+        }
+        List<ShiftInterval> list = intervalsOf(interval.getUserId(), interval.getId());
+        list.add(interval);
+        return replace(interval.getUserId(), list);
+    }
+
+    ShiftIntervalIndex without(String shiftId, String userId) {
+        if (StringUtils.isEmpty(userId) || !workers.containsKey(userId)) {
+            return this;
+        }
+        return replace(userId, intervalsOf(userId, shiftId));
+    }
+
+    /**
+     * 该员工与[start, stop)重叠的班次
+     */
+    void forEachOverlap(String userId, Instant start, Instant stop, Consumer<ShiftInterval> consumer) {
+        WorkerIntervals worker = workers.get(userId);
+        if (worker != null) {
+            worker.forEachOverlap(start.toEpochMilli(), stop.toEpochMilli(), consumer);
+        }
+    }
+
+    int size() {
+        int size = 0;
+        for (WorkerIntervals worker : workers.values()) {
+            size += worker.sorted.length;
+        }
+        return size;
+    }
+
+    // 该员工除excludedId外的班次
+    private List<ShiftInterval> intervalsOf(String userId, String excludedId) {
+        List<ShiftInterval> list = new ArrayList<>();
+        WorkerIntervals worker = workers.get(userId);
+        if (worker != null) {
+            for (ShiftInterval interval : worker.sorted) {
+                if (!interval.getId().equals(excludedId)) {
+                    list.add(interval);
+                }
+            }
+        }
+        return list;
+    }
+
+    private ShiftIntervalIndex replace(String userId, List<ShiftInterval> list) {
+        Map<String, WorkerIntervals> copy = new HashMap<>(workers);
+        if (list.isEmpty()) {
+            copy.remove(userId);
+        } else {
+            copy.put(userId, new WorkerIntervals(list));
+        }
+        return new ShiftIntervalIndex(copy);
+    }
+
+    private static final class WorkerIntervals {
+        private final ShiftInterval[] sorted;
+        private final long[] starts;
+        // maxStops[i]为sorted[0..i]中最晚的结束时间
+        private final long[] maxStops;
+
+        WorkerIntervals(List<ShiftInterval> intervals) {
+            sorted = intervals.toArray(new ShiftInterval[0]);
+            Arrays.sort(sorted, Comparator.comparingLong(ShiftInterval::getStart).thenComparing(ShiftInterval::getId));
+            starts = new long[sorted.length];
+            maxStops = new long[sorted.length];
+            long maxStop = Long.MIN_VALUE;
+            for (int i = 0; i < sorted.length; i++) {
+                starts[i] = sorted[i].getStart();
+                maxStop = Math.max(maxStop, sorted[i].getStop());
+                maxStops[i] = maxStop;
+            }
+        }
+
+        void forEachOverlap(long start, long stop, Consumer<ShiftInterval> consumer) {
+            for (int i = firstStartNotBefore(stop) - 1; i >= 0 && maxStops[i] > start; i--) {
+                if (sorted[i].getStop() > start) {
+                    consumer.accept(sorted[i]);
+                }
+            }
+        }
+
+        private int firstStartNotBefore(long time) {
+            int low = 0;
+            int high = starts.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (starts[mid] < time) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+
+    /**
+     * 索引中的一个班次，时间为epoch毫秒，区间为[start, stop)
+     */
+    static final class ShiftInterval {
+        private final String id;
+        private final String userId;
+        private final long start;
+        private final long stop;
+
+        ShiftInterval(String id, String userId, Instant start, Instant stop) {
+            this.id = id;
+            this.userId = userId;
+            this.start = start.toEpochMilli();
+            this.stop = stop.toEpochMilli();
+        }
+
+        String getId() {
+            return id;
+        }
+
+        String getUserId() {
+            return userId;
+        }
+
+        long getStart() {
+            return start;
+        }
+
+        long getStop() {
+            return stop;
+        }
+    }
+}
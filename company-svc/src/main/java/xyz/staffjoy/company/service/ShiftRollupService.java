@@ -0,0 +1,504 @@
+package xyz.staffjoy.company.service;
+
+import com.github.structlog4j.ILogger;
+import com.github.structlog4j.SLoggerFactory;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+import xyz.staffjoy.company.dto.ShiftDto;
+import xyz.staffjoy.company.dto.ShiftRollupReport;
+import xyz.staffjoy.company.model.Shift;
+import xyz.staffjoy.company.model.ShiftWeek;
+import xyz.staffjoy.company.model.ShiftWeekUser;
+import xyz.staffjoy.company.model.Team;
+import xyz.staffjoy.company.repo.ShiftRepo;
+import xyz.staffjoy.company.repo.ShiftWeekRepo;
+import xyz.staffjoy.company.repo.ShiftWeekUserRepo;
+import xyz.staffjoy.company.repo.ShiftWeekUserRepo.IPeoplePerWeek;
+import xyz.staffjoy.company.repo.TeamRepo;
+
+import javax.annotation.PostConstruct;
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 维护增长图用的每周排班汇总表(shift_week, shift_week_user)
+ * 班次增删改时按差量更新汇总行，rebuild从shift表全量重建，check对比全量计算结果和汇总表
+ * 周从UTC的周一开始，汇总行按(公司, 周)划分，全局数据在读取时合并，避免所有班次修改都去锁同一个全局行
+ * 增量更新失败的(公司, 周)记入待修复集合，由定时任务从shift表重算
+ */
+@Service
+public class ShiftRollupService {
+
+    static final ILogger logger = SLoggerFactory.getLogger(ShiftRollupService.class);
+
+    public static final String FAILURE_COUNTER = "staffjoy.shift_rollup.failures";
+
+    private static final int REBUILD_BATCH_SIZE = 1000;
+    private static final int MAX_ATTEMPTS = 3;
+    private static final int MAX_REPORTED_MISMATCHES = 100;
+
+    @Autowired
+    ShiftWeekRepo shiftWeekRepo;
+
+    @Autowired
+    ShiftWeekUserRepo shiftWeekUserRepo;
+
+    @Autowired
+    ShiftRepo shiftRepo;
+
+    @Autowired
+    TeamRepo teamRepo;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    // 增量更新失败、等待修复的周行id
+    private final Set<String> pendingRepairs = ConcurrentHashMap.newKeySet();
+
+    private final Counter failures = Metrics.counter(FAILURE_COUNTER);
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public void shiftCreated(String companyId, ShiftDto shiftDto) {
+        Changes changes = new Changes();
+        changes.add(companyId, shiftDto, 1);
+        apply(changes);
+    }
+
+    public void shiftsCreated(String companyId, List<ShiftDto> shiftDtos) {
+        Changes changes = new Changes();
+        for (ShiftDto shiftDto : shiftDtos) {
+            changes.add(companyId, shiftDto, 1);
+        }
+        apply(changes);
+    }
+
+    public void shiftUpdated(String companyId, ShiftDto orig, ShiftDto updated) {
+        Changes changes = new Changes();
+        changes.add(companyId, orig, -1);
+        changes.add(companyId, updated, 1);
+        apply(changes);
+    }
+
+    public void shiftDeleted(String companyId, ShiftDto shiftDto) {
+        Changes changes = new Changes();
+        changes.add(companyId, shiftDto, -1);
+        apply(changes);
+    }
+
+    /**
+     * 批量发布或取消发布，origShifts为修改前的班次
+     */
+    public void shiftsPublished(String companyId, List<ShiftDto> origShifts, boolean published) {
+        Changes changes = new Changes();
+        for (ShiftDto orig : origShifts) {
+            changes.add(companyId, orig, -1);
+            changes.add(companyId, orig.toBuilder().published(published).build(), 1);
+        }
+        apply(changes);
+    }
+
+    /**
+     * 全局每周排班人数，只包含当前周及以前
+     */
+    public Map<String, Integer> getPeopleScheduledPerWeek() {
+        LocalDate currentWeek = weekOf(Instant.now());
+        // 有班次但没有人排班的周记为0，同一个人在多个公司排班只算一次
+        Map<String, Integer> peopleScheduledPerWeek = new LinkedHashMap<>();
+        for (LocalDate weekStart : shiftWeekRepo.findWeekStarts(currentWeek)) {
+            peopleScheduledPerWeek.put(weekStart.toString(), 0);
+        }
+        for (IPeoplePerWeek peoplePerWeek : shiftWeekUserRepo.countPeoplePerWeek(currentWeek)) {
+            peopleScheduledPerWeek.put(peoplePerWeek.getWeekStart().toString(), peoplePerWeek.getPeople().intValue());
+        }
+        return peopleScheduledPerWeek;
+    }
+
+    /**
+     * 从shift表全量重建汇总表，用于上线时回填或修复check发现的不一致
+     * 重建期间的增量更新会被覆盖，应在低峰期执行
+     */
+    public ShiftRollupReport rebuild() {
+        Rollup expected = aggregateShifts();
+        transactionTemplate.execute(status -> {
+            shiftWeekUserRepo.deleteAllInBatch();
+            shiftWeekRepo.deleteAllInBatch();
+            shiftWeekUserRepo.saveAll(expected.users.values());
+            shiftWeekRepo.saveAll(expected.weeks.values());
+            return null;
+        });
+        logger.info("rebuilt shift rollups", "weeks", expected.weeks.size(), "users", expected.users.size());
+        return ShiftRollupReport.builder()
+                .weeks(expected.weeks.size())
+                .users(expected.users.size())
+                .build();
+    }
+
+    /**
+     * 对比全量计算结果和汇总表，返回不一致的行
+     */
+    public ShiftRollupReport check() {
+        Rollup expected = aggregateShifts();
+
+        Map<String, ShiftWeek> actualWeeks = new HashMap<>();
+        shiftWeekRepo.findAll().forEach(shiftWeek -> actualWeeks.put(shiftWeek.getId(), shiftWeek));
+        Map<String, ShiftWeekUser> actualUsers = new HashMap<>();
+        shiftWeekUserRepo.findAll().forEach(shiftWeekUser -> actualUsers.put(shiftWeekUser.getId(), shiftWeekUser));
+
+        List<String> mismatches = new ArrayList<>();
+        Set<String> weekIds = new TreeSet<>(expected.weeks.keySet());
+        weekIds.addAll(actualWeeks.keySet());
+        for (String id : weekIds) {
+            ShiftWeek want = expected.weeks.get(id);
+            ShiftWeek got = actualWeeks.get(id);
+            int wantShifts = want == null ? 0 : want.getShiftCount();
+            int wantPeople = want == null ? 0 : want.getPeople();
+            int gotShifts = got == null ? 0 : got.getShiftCount();
+            int gotPeople = got == null ? 0 : got.getPeople();
+            if (wantShifts != gotShifts || wantPeople != gotPeople) {
+                mismatches.add(String.format("week %s expected shifts=%d people=%d, found shifts=%d people=%d",
+                        id, wantShifts, wantPeople, gotShifts, gotPeople));
+            }
+        }
+        Set<String> userIds = new TreeSet<>(expected.users.keySet());
+        userIds.addAll(actualUsers.keySet());
+        for (String id : userIds) {
+            ShiftWeekUser want = expected.users.get(id);
+            ShiftWeekUser got = actualUsers.get(id);
+            int wantShifts = want == null ? 0 : want.getShiftCount();
+            int gotShifts = got == null ? 0 : got.getShiftCount();
+            if (wantShifts != gotShifts) {
+                mismatches.add(String.format("user week %s expected shifts=%d, found shifts=%d", id, wantShifts, gotShifts));
+            }
+        }
+
+        if (!mismatches.isEmpty()) {
+            logger.warn("shift rollups are inconsistent", "mismatches", mismatches.size());
+        }
+        return ShiftRollupReport.builder()
+                .weeks(expected.weeks.size())
+                .users(expected.users.size())
+                .mismatchCount(mismatches.size())
+                .mismatches(new ArrayList<>(mismatches.subList(0, Math.min(mismatches.size(), MAX_REPORTED_MISMATCHES))))
+                .build();
+    }
+
+    /**
+     * 从shift表重算增量更新失败的(公司, 周)，失败的留到下一轮
+     */
+    @Scheduled(fixedDelayString = "${staffjoy.shift-rollup.repair-interval:60000}")
+    public void repairFailed() {
+        for (String weekId : new ArrayList<>(pendingRepairs)) {
+            pendingRepairs.remove(weekId);
+            try {
+                transactionTemplate.execute(status -> {
+                    repairInTransaction(weekId);
+                    return null;
+                });
+                logger.info("repaired shift rollup", "week", weekId);
+            } catch (Exception ex) {
+                pendingRepairs.add(weekId);
+                logger.error("failed to repair shift rollup", ex);
+            }
+        }
+    }
+
+    public int getPendingRepairs() {
+        return pendingRepairs.size();
+    }
+
+    static LocalDate weekOf(Instant instant) {
+        return instant.atOffset(ZoneOffset.UTC).toLocalDate().with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+    }
+
+    static String weekId(LocalDate weekStart, String companyId) {
+        return weekStart + "/" + companyId;
+    }
+
+    static String weekUserId(LocalDate weekStart, String companyId, String userId) {
+        return weekStart + "/" + companyId + "/" + userId;
+    }
+
+    // 已发布且已分配员工的班次才计入排班人数
+    static boolean isScheduled(boolean published, String userId) {
+        return published && !StringUtils.isEmpty(userId);
+    }
+
+    /**
+     * 汇总表的更新失败不影响班次本身的修改，计入失败指标，涉及的周行由repairFailed重算
+     */
+    private void apply(Changes changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        for (int attempt = 1; ; attempt++) {
+            try {
+                transactionTemplate.execute(status -> {
+                    applyInTransaction(changes);
+                    return null;
+                });
+                return;
+            } catch (DataAccessException ex) {
+                // 并发插入同一汇总行会冲突，重试时该行已存在
+                if (attempt >= MAX_ATTEMPTS) {
+                    failed(changes, ex);
+                    return;
+                }
+            } catch (Exception ex) {
+                failed(changes, ex);
+                return;
+            }
+        }
+    }
+
+    private void failed(Changes changes, Exception ex) {
+        failures.increment();
+        pendingRepairs.addAll(changes.weeks.keySet());
+        logger.error("failed to update shift rollups", ex);
+    }
+
+    // 先按id顺序锁周行再锁员工行，并发事务之间不会死锁
+    // 周行相当于(公司, 周)的锁，修复时同样先锁周行
+    private void applyInTransaction(Changes changes) {
+        Set<String> weekIds = new TreeSet<>();
+        changes.weeks.forEach((id, slot) -> {
+            if (slot.delta != 0) {
+                weekIds.add(id);
+            }
+        });
+        changes.users.values().forEach(slot -> {
+            if (slot.delta != 0) {
+                weekIds.add(weekId(slot.weekStart, slot.companyId));
+            }
+        });
+
+        Map<String, ShiftWeek> shiftWeeks = new HashMap<>();
+        Set<String> created = new HashSet<>();
+        for (String id : weekIds) {
+            ShiftWeek shiftWeek = shiftWeekRepo.findForUpdateById(id);
+            if (shiftWeek == null) {
+                // 并发插入同一周行时主键冲突，由apply重试
+                Slot slot = changes.weeks.get(id);
+                shiftWeek = ShiftWeek.builder()
+                        .id(id)
+                        .weekStart(slot.weekStart)
+                        .companyId(slot.companyId)
+                        .build();
+                created.add(id);
+            }
+            shiftWeeks.put(id, shiftWeek);
+        }
+
+        for (Map.Entry<String, Slot> entry : changes.users.entrySet()) {
+            Slot slot = entry.getValue();
+            if (slot.delta == 0) {
+                continue;
+            }
+            ShiftWeekUser shiftWeekUser = shiftWeekUserRepo.findForUpdateById(entry.getKey());
+            int before = shiftWeekUser == null ? 0 : shiftWeekUser.getShiftCount();
+            int after = before + slot.delta;
+            if (after <= 0) {
+                if (shiftWeekUser != null) {
+                    shiftWeekUserRepo.delete(shiftWeekUser);
+                }
+            } else {
+                if (shiftWeekUser == null) {
+                    shiftWeekUser = ShiftWeekUser.builder()
+                            .id(entry.getKey())
+                            .weekStart(slot.weekStart)
+                            .companyId(slot.companyId)
+                            .userId(slot.userId)
+                            .build();
+                }
+                shiftWeekUser.setShiftCount(after);
+                shiftWeekUserRepo.save(shiftWeekUser);
+            }
+            ShiftWeek shiftWeek = shiftWeeks.get(weekId(slot.weekStart, slot.companyId));
+            if (before <= 0 && after > 0) {
+                shiftWeek.setPeople(shiftWeek.getPeople() + 1);
+            } else if (before > 0 && after <= 0) {
+                shiftWeek.setPeople(Math.max(0, shiftWeek.getPeople() - 1));
+            }
+        }
+
+        for (String id : weekIds) {
+            ShiftWeek shiftWeek = shiftWeeks.get(id);
+            shiftWeek.setShiftCount(shiftWeek.getShiftCount() + changes.weeks.get(id).delta);
+            if (shiftWeek.getShiftCount() <= 0) {
+                if (!created.contains(id)) {
+                    shiftWeekRepo.delete(shiftWeek);
+                }
+            } else {
+                shiftWeekRepo.save(shiftWeek);
+            }
+        }
+    }
+
+    // 锁住周行后从shift表重算该(公司, 周)，行原地更新，避免同一事务内先删后插同一主键
+    // 班次已写入而增量尚未应用时重算，该增量会被重复计入，窗口很小，仍可由check/rebuild发现
+    private void repairInTransaction(String weekId) {
+        int separator = weekId.indexOf('/');
+        LocalDate weekStart = LocalDate.parse(weekId.substring(0, separator));
+        String companyId = weekId.substring(separator + 1);
+
+        ShiftWeek shiftWeek = shiftWeekRepo.findForUpdateById(weekId);
+        Instant start = weekStart.atStartOfDay(ZoneOffset.UTC).toInstant();
+        Instant end = start.plus(7, ChronoUnit.DAYS);
+        Changes expected = new Changes();
+        for (Team team : teamRepo.findByCompanyId(companyId)) {
+            for (Shift shift : shiftRepo.listShiftByTeamIdOnly(team.getId(), start, end)) {
+                expected.add(companyId, shift.getStart(), shift.getUserId(), shift.isPublished(), 1);
+            }
+        }
+
+        int people = expected.users.size();
+        // id以weekStart/companyId/开头，走主键的范围扫描
+        for (ShiftWeekUser shiftWeekUser : shiftWeekUserRepo.findByIdStartingWith(weekUserId(weekStart, companyId, ""))) {
+            Slot slot = expected.users.remove(shiftWeekUser.getId());
+            if (slot == null) {
+                shiftWeekUserRepo.delete(shiftWeekUser);
+            } else {
+                shiftWeekUser.setShiftCount(slot.delta);
+                shiftWeekUserRepo.save(shiftWeekUser);
+            }
+        }
+        for (Map.Entry<String, Slot> entry : expected.users.entrySet()) {
+            Slot slot = entry.getValue();
+            shiftWeekUserRepo.save(ShiftWeekUser.builder()
+                    .id(entry.getKey())
+                    .weekStart(slot.weekStart)
+                    .companyId(slot.companyId)
+                    .userId(slot.userId)
+                    .shiftCount(slot.delta)
+                    .build());
+        }
+
+        Slot slot = expected.weeks.get(weekId);
+        if (slot == null) {
+            if (shiftWeek != null) {
+                shiftWeekRepo.delete(shiftWeek);
+            }
+            return;
+        }
+        if (shiftWeek == null) {
+            shiftWeek = ShiftWeek.builder()
+                    .id(weekId)
+                    .weekStart(weekStart)
+                    .companyId(companyId)
+                    .build();
+        }
+        shiftWeek.setShiftCount(slot.delta);
+        shiftWeek.setPeople(people);
+        shiftWeekRepo.save(shiftWeek);
+    }
+
+    // 从shift表全量计算汇总，按id分批读取
+    private Rollup aggregateShifts() {
+        Map<String, String> teamCompanies = new HashMap<>();
+        for (Team team : teamRepo.findAll()) {
+            teamCompanies.put(team.getId(), team.getCompanyId());
+        }
+
+        Changes changes = new Changes();
+        String lastId = "";
+        while (true) {
+            List<Shift> shifts = shiftRepo.findByIdGreaterThanOrderByIdAsc(lastId, PageRequest.of(0, REBUILD_BATCH_SIZE));
+            for (Shift shift : shifts) {
+                changes.add(teamCompanies.get(shift.getTeamId()), shift.getStart(), shift.getUserId(), shift.isPublished(), 1);
+            }
+            if (shifts.size() < REBUILD_BATCH_SIZE) {
+                break;
+            }
+            lastId = shifts.get(shifts.size() - 1).getId();
+        }
+
+        Rollup rollup = new Rollup();
+        for (Map.Entry<String, Slot> entry : changes.weeks.entrySet()) {
+            Slot slot = entry.getValue();
+            rollup.weeks.put(entry.getKey(), ShiftWeek.builder()
+                    .id(entry.getKey())
+                    .weekStart(slot.weekStart)
+                    .companyId(slot.companyId)
+                    .shiftCount(slot.delta)
+                    .build());
+        }
+        for (Map.Entry<String, Slot> entry : changes.users.entrySet()) {
+            Slot slot = entry.getValue();
+            rollup.users.put(entry.getKey(), ShiftWeekUser.builder()
+                    .id(entry.getKey())
+                    .weekStart(slot.weekStart)
+                    .companyId(slot.companyId)
+                    .userId(slot.userId)
+                    .shiftCount(slot.delta)
+                    .build());
+            ShiftWeek shiftWeek = rollup.weeks.get(weekId(slot.weekStart, slot.companyId));
+            shiftWeek.setPeople(shiftWeek.getPeople() + 1);
+        }
+        return rollup;
+    }
+
+    private static class Slot {
+        private final LocalDate weekStart;
+        private final String companyId;
+        private final String userId;
+        private int delta;
+
+        Slot(LocalDate weekStart, String companyId, String userId) {
+            this.weekStart = weekStart;
+            this.companyId = companyId;
+            this.userId = userId;
+        }
+    }
+
+    // 按汇总行合并的差量，TreeMap保证加锁顺序一致
+    private static class Changes {
+        private final Map<String, Slot> weeks = new TreeMap<>();
+        private final Map<String, Slot> users = new TreeMap<>();
+
+        void add(String companyId, ShiftDto shiftDto, int sign) {
+            add(companyId, shiftDto.getStart(), shiftDto.getUserId(), shiftDto.isPublished(), sign);
+        }
+
+        void add(String companyId, Instant start, String userId, boolean published, int sign) {
+            // 找不到所属公司的班次不计入
+            if (StringUtils.isEmpty(companyId)) {
+                return;
+            }
+            LocalDate weekStart = weekOf(start);
+            weeks.computeIfAbsent(weekId(weekStart, companyId), id -> new Slot(weekStart, companyId, null)).delta += sign;
+            if (isScheduled(published, userId)) {
+                users.computeIfAbsent(weekUserId(weekStart, companyId, userId),
+                        id -> new Slot(weekStart, companyId, userId)).delta += sign;
+            }
+        }
+
+        boolean isEmpty() {
+            return weeks.values().stream().allMatch(slot -> slot.delta == 0)
+                    && users.values().stream().allMatch(slot -> slot.delta == 0);
+        }
+    }
+
+    private static class Rollup {
+        private final Map<String, ShiftWeek> weeks = new HashMap<>();
+        private final Map<String, ShiftWeekUser> users = new HashMap<>();
+    }
+}
@@ -2,14 +2,18 @@ package xyz.staffjoy.company.service;
 
 import com.github.structlog4j.ILogger;
 import com.github.structlog4j.SLoggerFactory;
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 import xyz.staffjoy.bot.dto.AlertNewShiftRequest;
 import xyz.staffjoy.bot.dto.AlertRemovedShiftRequest;
+import xyz.staffjoy.common.api.PageCursor;
+import xyz.staffjoy.common.api.ResultCode;
 import xyz.staffjoy.common.auditlog.LogEntry;
 import xyz.staffjoy.common.auth.AuthContext;
+import xyz.staffjoy.common.error.ServiceException;
 import xyz.staffjoy.company.dto.*;
 import xyz.staffjoy.company.model.Shift;
 import xyz.staffjoy.company.repo.ShiftRepo;
@@ -23,6 +27,8 @@ import java.util.*;
 public class ShiftService {
 
     static final ILogger logger = SLoggerFactory.getLogger(ShiftService.class);
+    // 批量更新时IN列表的最大长度
+    static final int MAX_IN_LIST = 500;
 
     @Autowired
     ShiftRepo shiftRepo;
@@ -43,9 +49,15 @@ public class ShiftService {
     ShiftHelper shiftHelper;
 
     @Autowired
-    ModelMapper modelMapper;
+    ShiftRollupService shiftRollupService;
+
+    @Autowired
+    ShiftConflictService shiftConflictService;
+
 
     public ShiftDto createShift(CreateShiftRequest req) {
+        ShiftHelper.validateShiftTimes(req.getStart(), req.getStop());
+
         // validate and will throw exception if not exist
         teamService.getTeamWithCompanyIdValidation(req.getCompanyId(), req.getTeamId());
 
@@ -89,6 +101,9 @@ public class ShiftService {
         ShiftDto shiftDto = shiftHelper.convertToDto(shift);
         shiftDto.setCompanyId(req.getCompanyId());
 
+        shiftRollupService.shiftCreated(req.getCompanyId(), shiftDto);
+        shiftConflictService.shiftCreated(shiftDto);
+
         if (!StringUtils.isEmpty(shift.getUserId()) && shift.isPublished()) {
             AlertNewShiftRequest alertNewShiftRequest = AlertNewShiftRequest.builder()
                     .userId(shiftDto.getUserId())
@@ -105,6 +120,130 @@ public class ShiftService {
         return shiftDto;
     }
 
+    /**
+     * 批量创建班次，不同的团队、岗位和员工各只校验一次，全部通过后在一个事务里批量插入
+     * 审计日志和事件各记一次，新班次通知按员工合并发送
+     */
+    public ShiftList bulkCreateShifts(BulkCreateShiftsRequest req) {
+        this.validateBulkCreate(req);
+
+        List<Shift> shifts = new ArrayList<>(req.getShifts().size());
+        for(CreateShiftRequest shiftRequest : req.getShifts()) {
+            shifts.add(Shift.builder()
+                    .teamId(shiftRequest.getTeamId())
+                    .jobId(shiftRequest.getJobId())
+                    .start(shiftRequest.getStart())
+                    .stop(shiftRequest.getStop())
+                    .published(shiftRequest.isPublished())
+                    .userId(shiftRequest.getUserId())
+                    .build());
+        }
+        try {
+            // saveAll在一个事务里执行，按hibernate.jdbc.batch_size分批插入，失败整批回滚
+            shiftRepo.saveAll(shifts);
+        } catch (Exception ex) {
+            String errMsg = "could not bulk create shifts";
+            serviceHelper.handleErrorAndThrowException(logger, ex, errMsg);
+        }
+
+        ShiftList shiftList = ShiftList.builder().build();
+        Set<String> teamIds = new LinkedHashSet<>();
+        // user to new published shifts
+        Map<String, List<ShiftDto>> notifs = new HashMap<>();
+        boolean published = false;
+        for(Shift shift : shifts) {
+            ShiftDto shiftDto = shiftHelper.convertToDto(shift);
+            shiftDto.setCompanyId(req.getCompanyId());
+            shiftList.getShifts().add(shiftDto);
+            teamIds.add(shift.getTeamId());
+            published |= shift.isPublished();
+            if (!StringUtils.isEmpty(shift.getUserId()) && shift.isPublished()) {
+                notifs.computeIfAbsent(shift.getUserId(), userId -> new ArrayList<>()).add(shiftDto);
+            }
+        }
+
+        LogEntry auditLog = LogEntry.builder()
+                .currentUserId(AuthContext.getUserId())
+                .authorization(AuthContext.getAuthz())
+                .targetType("shift")
+                .targetId(String.format("%d shifts", shifts.size()))
+                .companyId(req.getCompanyId())
+                .teamId(String.join(",", teamIds))
+                .updatedContents(String.format("created %d shifts", shifts.size()))
+                .build();
+
+        logger.info("bulk created shifts", auditLog);
+
+        shiftRollupService.shiftsCreated(req.getCompanyId(), shiftList.getShifts());
+        shiftConflictService.shiftsCreated(shiftList.getShifts());
+
+        if (!notifs.isEmpty()) {
+            serviceHelper.buildShiftNotificationAsync(notifs, true);
+        }
+
+        serviceHelper.trackEventAsync("shift_created");
+        if (published) {
+            serviceHelper.trackEventAsync("shift_published");
+        }
+
+        return shiftList;
+    }
+
+    private void validateBulkCreate(BulkCreateShiftsRequest req) {
+        String companyId = req.getCompanyId();
+        List<CreateShiftRequest> shiftRequests = req.getShifts();
+
+        // 记录每个团队/岗位/员工第一次出现的班次下标，出错时指明是哪个班次
+        Map<String, Integer> teams = new LinkedHashMap<>();
+        Map<String, Integer> jobs = new LinkedHashMap<>();
+        Map<String, Integer> users = new LinkedHashMap<>();
+        for(int i = 0; i < shiftRequests.size(); i++) {
+            CreateShiftRequest shiftRequest = shiftRequests.get(i);
+            if (!companyId.equals(shiftRequest.getCompanyId())) {
+                throw new ServiceException(ResultCode.PARAM_VALID_ERROR, String.format("shifts[%d]: company id does not match the batch", i));
+            }
+            validateShiftAt(i, () -> ShiftHelper.validateShiftTimes(shiftRequest.getStart(), shiftRequest.getStop()));
+            teams.putIfAbsent(shiftRequest.getTeamId(), i);
+            if (!StringUtils.isEmpty(shiftRequest.getJobId())) {
+                jobs.putIfAbsent(shiftRequest.getTeamId() + "/" + shiftRequest.getJobId(), i);
+            }
+            if (!StringUtils.isEmpty(shiftRequest.getUserId())) {
+                users.putIfAbsent(shiftRequest.getUserId(), i);
+            }
+        }
+
+        for(Map.Entry<String, Integer> entry : teams.entrySet()) {
+            // validate and will throw exception if not exist
+            validateShiftAt(entry.getValue(), () -> teamService.getTeamWithCompanyIdValidation(companyId, entry.getKey()));
+        }
+
+        for(int index : jobs.values()) {
+            CreateShiftRequest shiftRequest = shiftRequests.get(index);
+            // validate and will throw exception if not exist
+            validateShiftAt(index, () -> jobService.getJob(shiftRequest.getJobId(), companyId, shiftRequest.getTeamId()));
+        }
+
+        if (!users.isEmpty()) {
+            try {
+                directoryService.getDirectoryEntries(companyId, new ArrayList<>(users.keySet()));
+            } catch (ServiceException ex) {
+                // 批量查询不指明缺的是哪个员工，逐个查出第一个出错的班次
+                for(Map.Entry<String, Integer> entry : users.entrySet()) {
+                    validateShiftAt(entry.getValue(), () -> directoryService.getDirectoryEntry(companyId, entry.getKey()));
+                }
+                throw ex;
+            }
+        }
+    }
+
+    private static void validateShiftAt(int index, Runnable validation) {
+        try {
+            validation.run();
+        } catch (ServiceException ex) {
+            throw new ServiceException(ex.getResultCode(), String.format("shifts[%d]: %s", index, ex.getMessage()));
+        }
+    }
+
     public ShiftList listWorkerShifts(WorkerShiftListRequest req) {
         // validate and will throw exception if not exist
         teamService.getTeamWithCompanyIdValidation(req.getCompanyId(), req.getTeamId());
@@ -128,21 +267,45 @@ public class ShiftService {
                 .shiftStartBefore(req.getShiftStartBefore())
                 .build();
 
+        // 从续页令牌中恢复上一页最后一行的排序键
+        Instant cursorStart = req.getShiftStartAfter();
+        String cursorId = "";
+        if (!StringUtils.isEmpty(req.getCursor())) {
+            String[] keys = PageCursor.decode(req.getCursor(), 3);
+            Instant start;
+            try {
+                start = Instant.ofEpochSecond(Long.parseLong(keys[0]), Long.parseLong(keys[1]));
+            } catch (NumberFormatException ex) {
+                throw new ServiceException(ResultCode.PARAM_VALID_ERROR, "invalid page cursor");
+            }
+            if (!start.isBefore(cursorStart)) {
+                cursorStart = start;
+                cursorId = keys[2];
+            }
+        }
+        Pageable pageable = req.getLimit() > 0 ? PageRequest.of(0, req.getLimit()) : Pageable.unpaged();
+
         List<Shift> shifts = null;
         if (!StringUtils.isEmpty(req.getUserId()) && StringUtils.isEmpty(req.getJobId())) {
-            shifts = shiftRepo.listWorkerShifts(req.getTeamId(), req.getUserId(), req.getShiftStartAfter(), req.getShiftStartBefore());
+            shifts = shiftRepo.scanShiftByUserId(req.getTeamId(), req.getUserId(), cursorStart, cursorId, req.getShiftStartBefore(), pageable);
         }
 
         if (!StringUtils.isEmpty(req.getJobId()) && StringUtils.isEmpty(req.getUserId())) {
-            shifts = shiftRepo.listShiftByJobId(req.getTeamId(), req.getJobId(), req.getShiftStartAfter(), req.getShiftStartBefore());
+            shifts = shiftRepo.scanShiftByJobId(req.getTeamId(), req.getJobId(), cursorStart, cursorId, req.getShiftStartBefore(), pageable);
         }
 
         if (!StringUtils.isEmpty(req.getJobId()) && !StringUtils.isEmpty(req.getUserId())) {
-            shifts = shiftRepo.listShiftByUserIdAndJobId(req.getTeamId(), req.getUserId(), req.getJobId(), req.getShiftStartAfter(), req.getShiftStartBefore());
+            shifts = shiftRepo.scanShiftByUserIdAndJobId(req.getTeamId(), req.getUserId(), req.getJobId(), cursorStart, cursorId, req.getShiftStartBefore(), pageable);
         }
 
         if (StringUtils.isEmpty(req.getJobId()) && StringUtils.isEmpty(req.getUserId())) {
-            shifts = shiftRepo.listShiftByTeamIdOnly(req.getTeamId(), req.getShiftStartAfter(), req.getShiftStartBefore());
+            shifts = shiftRepo.scanShiftByTeamId(req.getTeamId(), cursorStart, cursorId, req.getShiftStartBefore(), pageable);
+        }
+
+        if (req.getLimit() > 0 && shifts.size() == req.getLimit()) {
+            Shift last = shifts.get(shifts.size() - 1);
+            shiftList.setNextCursor(PageCursor.encode(String.valueOf(last.getStart().getEpochSecond()),
+                    String.valueOf(last.getStart().getNano()), last.getId()));
         }
 
         return convertToShiftList(shiftList, shifts, req.getCompanyId());
@@ -184,8 +347,9 @@ public class ShiftService {
 
         // Keep track of notifications - user to orig shift
         Map<String, List<ShiftDto>> notifs = new HashMap<>();
-
-        logger.info(String.format("before shifts update %d", quickTime(startTime)));
+        // 只有发布状态变化的班次需要更新
+        List<String> changedShiftIds = new ArrayList<>();
+        List<ShiftDto> changedShifts = new ArrayList<>();
 
         for(ShiftDto shiftDto : orig.getShifts()) {
             // keep track of what changed for messaging purpose
@@ -200,14 +364,51 @@ public class ShiftService {
                 ShiftDto copy = shiftDto.toBuilder().build();
                 shiftDtos.add(copy);
             }
+            if (shiftDto.isPublished() != req.isPublished()) {
+                changedShiftIds.add(shiftDto.getId());
+                changedShifts.add(shiftDto.toBuilder().build());
+            }
             // do the change
             shiftDto.setPublished(req.isPublished());
-
-            //shiftHelper.updateShiftAsync(shiftDto);
-            shiftHelper.updateShift(shiftDto, true);
             shiftList.getShifts().add(shiftDto);
         }
 
+        logger.info(String.format("before shifts update %d", quickTime(startTime)));
+
+        // 团队和公司在listShifts中已校验，班次的员工和岗位不变，无需逐条重新校验
+        if (!changedShiftIds.isEmpty()) {
+            try {
+                // IN列表分批，每批不超过MAX_IN_LIST，重复执行结果相同，失败后重试即可补齐
+                for (int from = 0; from < changedShiftIds.size(); from += MAX_IN_LIST) {
+                    List<String> batch = changedShiftIds.subList(from, Math.min(from + MAX_IN_LIST, changedShiftIds.size()));
+                    shiftRepo.updatePublishedByIdIn(req.isPublished(), batch);
+                }
+            } catch (Exception ex) {
+                String errMsg = "could not bulk publish shifts";
+                serviceHelper.handleErrorAndThrowException(logger, ex, errMsg);
+            }
+
+            LogEntry auditLog = LogEntry.builder()
+                    .currentUserId(AuthContext.getUserId())
+                    .authorization(AuthContext.getAuthz())
+                    .targetType("shift")
+                    .targetId(String.format("%d shifts", changedShiftIds.size()))
+                    .companyId(req.getCompanyId())
+                    .teamId(req.getTeamId())
+                    .originalContents(String.format("published=%s", !req.isPublished()))
+                    .updatedContents(String.format("published=%s", req.isPublished()))
+                    .build();
+
+            logger.info("bulk updated shifts", auditLog);
+
+            shiftRollupService.shiftsPublished(req.getCompanyId(), changedShifts, req.isPublished());
+
+            serviceHelper.trackEventAsync("shift_updated");
+            if (req.isPublished()) {
+                serviceHelper.trackEventAsync("shift_published");
+            }
+        }
+
         logger.info(String.format("before shifts notifications %d", quickTime(startTime)));
 
         serviceHelper.buildShiftNotificationAsync(notifs, req.isPublished());
@@ -247,6 +448,9 @@ public class ShiftService {
 
         logger.info("deleted shift", auditLog);
 
+        shiftRollupService.shiftDeleted(companyId, orig);
+        shiftConflictService.shiftDeleted(orig);
+
         if (!StringUtils.isEmpty(orig.getUserId()) && orig.isPublished() && orig.getStart().isAfter(Instant.now())) {
             AlertRemovedShiftRequest alertRemovedShiftRequest = AlertRemovedShiftRequest.builder()
                     .userId(orig.getUserId())
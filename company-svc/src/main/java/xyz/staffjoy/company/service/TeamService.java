@@ -2,15 +2,18 @@ package xyz.staffjoy.company.service;
 
 import com.github.structlog4j.ILogger;
 import com.github.structlog4j.SLoggerFactory;
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 import xyz.staffjoy.common.api.ResultCode;
 import xyz.staffjoy.common.auditlog.LogEntry;
 import xyz.staffjoy.common.auth.AuthContext;
+import xyz.staffjoy.common.cache.NearCache;
+import xyz.staffjoy.common.cache.RequestMemo;
 import xyz.staffjoy.common.error.ServiceException;
 import xyz.staffjoy.company.dto.*;
+import xyz.staffjoy.company.mapper.TeamMapper;
 import xyz.staffjoy.company.model.Company;
 import xyz.staffjoy.company.model.Team;
 import xyz.staffjoy.company.model.Worker;
@@ -19,6 +22,7 @@ import xyz.staffjoy.company.repo.TeamRepo;
 import xyz.staffjoy.company.repo.WorkerRepo;
 import xyz.staffjoy.company.service.helper.ServiceHelper;
 
+import javax.annotation.PostConstruct;
 import java.util.List;
 
 @Service
@@ -26,9 +30,6 @@ public class TeamService {
 
     static final ILogger logger = SLoggerFactory.getLogger(TeamService.class);
 
-    @Autowired
-    private ModelMapper modelMapper;
-
     @Autowired
     TeamRepo teamRepo;
 
@@ -41,6 +42,27 @@ public class TeamService {
     @Autowired
     ServiceHelper serviceHelper;
 
+    @Value("${staffjoy.team-cache.max-size:10000}")
+    private int teamCacheMaxSize;
+
+    // 更新只清除本实例的缓存，其它实例上团队的归档状态最多滞后一个TTL
+    @Value("${staffjoy.team-cache.ttl:60000}")
+    private long teamCacheTtl;
+
+    private static final String TEAM_MEMO = "team";
+    private static final String COMPANY_MEMO = "company";
+
+    //团队缓存，包括所属公司和是否归档，key为teamId
+    private NearCache<String, TeamDto> teamCache;
+    //存在的公司，key为companyId
+    private NearCache<String, Boolean> companyCache;
+
+    @PostConstruct
+    public void init() {
+        teamCache = new NearCache<>("team", teamCacheMaxSize, teamCacheTtl);
+        companyCache = new NearCache<>("company", teamCacheMaxSize, teamCacheTtl);
+    }
+
     public TeamDto createTeam(CreateTeamRequest request) {
         Company company = companyRepo.findCompanyById(request.getCompanyId());
         if (company == null) {
@@ -88,16 +110,16 @@ public class TeamService {
     }
 
     public TeamList listTeams(String companyId) {
-        Company company = companyRepo.findCompanyById(companyId);
-        if (company == null) {
-            throw new ServiceException(ResultCode.NOT_FOUND, "Company with specified id not found");
-        }
+        this.validateCompany(companyId);
 
+        // 公司只校验一次，查到的团队顺便放进缓存
+        long stamp = teamCache.stamp();
         List<Team> teams = teamRepo.findByCompanyId(companyId);
 
         TeamList teamList = TeamList.builder().build();
         for(Team team : teams) {
-            TeamDto teamDto = this.getTeamWithCompanyIdValidation(team.getCompanyId(), team.getId());
+            TeamDto teamDto = this.convertToDto(team);
+            teamCache.put(team.getId(), this.convertToDto(team), stamp);
             teamList.getTeams().add(teamDto);
         }
 
@@ -105,15 +127,41 @@ public class TeamService {
     }
 
     public TeamDto getTeamWithCompanyIdValidation(String companyId, String teamId) {
-        Company company = companyRepo.findCompanyById(companyId);
-        if (company == null) {
-            throw new ServiceException(ResultCode.NOT_FOUND, "Company with specified id not found");
-        }
+        this.validateCompany(companyId);
 
-        return this.getTeam(teamId);
+        TeamDto teamDto = this.getTeam(teamId);
+        // 缓存按teamId共享，必须确认团队属于请求的公司
+        if (!companyId.equals(teamDto.getCompanyId())) {
+            throw new ServiceException(ResultCode.NOT_FOUND, "team with specified id not found");
+        }
+        return teamDto;
     }
 
     public TeamDto getTeam(String teamId) {
+        // 先查请求内的备忘，再查共享缓存，都未命中才查数据库
+        TeamDto teamDto = RequestMemo.get(TEAM_MEMO, teamId, () -> teamCache.get(teamId, this::loadTeam));
+        // 缓存的对象不交给调用方修改
+        return TeamMapper.copy(teamDto);
+    }
+
+    /**
+     * 公司信息有变化，清除缓存
+     * @param companyId
+     */
+    public void evictCompany(String companyId) {
+        companyCache.invalidate(companyId);
+        RequestMemo.remove(COMPANY_MEMO, companyId);
+    }
+
+    private void validateCompany(String companyId) {
+        Boolean exists = RequestMemo.get(COMPANY_MEMO, companyId,
+                () -> companyCache.get(companyId, id -> companyRepo.findCompanyById(id) != null ? Boolean.TRUE : null));
+        if (exists == null) {
+            throw new ServiceException(ResultCode.NOT_FOUND, "Company with specified id not found");
+        }
+    }
+
+    private TeamDto loadTeam(String teamId) {
         Team team = teamRepo.findById(teamId).orElse(null);
         if (team == null) {
             throw new ServiceException(ResultCode.NOT_FOUND, "team with specified id not found");
@@ -122,7 +170,9 @@ public class TeamService {
     }
 
     public TeamDto updateTeam(TeamDto teamToUpdate) {
-        TeamDto orig = this.getTeamWithCompanyIdValidation(teamToUpdate.getCompanyId(), teamToUpdate.getId());
+        this.validateCompany(teamToUpdate.getCompanyId());
+        // 不用缓存，以最新的数据为准
+        TeamDto orig = this.loadTeam(teamToUpdate.getId());
         Team team = this.convertToModel(teamToUpdate);
 
         try {
@@ -130,6 +180,9 @@ public class TeamService {
         } catch (Exception ex) {
             String errMsg = "could not update the team";
             serviceHelper.handleErrorAndThrowException(logger, ex, errMsg);
+        } finally {
+            teamCache.invalidate(teamToUpdate.getId());
+            RequestMemo.remove(TEAM_MEMO, teamToUpdate.getId());
         }
 
         LogEntry auditLog = LogEntry.builder()
@@ -176,10 +229,10 @@ public class TeamService {
     }
 
     private TeamDto convertToDto(Team team) {
-        return modelMapper.map(team, TeamDto.class);
+        return TeamMapper.toDto(team);
     }
 
     private Team convertToModel(TeamDto teamDto) {
-        return modelMapper.map(teamDto, Team.class);
+        return TeamMapper.toModel(teamDto);
     }
 }
@@ -9,11 +9,15 @@ import xyz.staffjoy.common.auditlog.LogEntry;
 import xyz.staffjoy.common.auth.AuthContext;
 import xyz.staffjoy.common.error.ServiceException;
 import xyz.staffjoy.company.dto.*;
+import xyz.staffjoy.company.mapper.TeamMapper;
+import xyz.staffjoy.company.model.Team;
 import xyz.staffjoy.company.model.Worker;
 import xyz.staffjoy.company.repo.WorkerRepo;
 import xyz.staffjoy.company.service.helper.ServiceHelper;
 
-import java.util.List;
+import java.util.*;
+
+import static java.util.stream.Collectors.toList;
 
 @Service
 public class WorkerService {
@@ -32,6 +36,9 @@ public class WorkerService {
     @Autowired
     ServiceHelper serviceHelper;
 
+    @Autowired
+    PermissionService permissionService;
+
     public WorkerEntries listWorkers(String companyId, String teamId) {
         // validate and will throw exception if not exist
         teamService.getTeamWithCompanyIdValidation(companyId, teamId);
@@ -39,10 +46,8 @@ public class WorkerService {
         List<Worker> workerList = workerRepo.findByTeamId(teamId);
 
         WorkerEntries workerEntries = WorkerEntries.builder().companyId(companyId).teamId(teamId).build();
-        for(Worker worker : workerList) {
-            DirectoryEntryDto directoryEntryDto = directoryService.getDirectoryEntry(companyId, worker.getUserId());
-            workerEntries.getWorkers().add(directoryEntryDto);
-        }
+        List<String> userIds = workerList.stream().map(Worker::getUserId).collect(toList());
+        workerEntries.getWorkers().addAll(directoryService.getDirectoryEntries(companyId, userIds));
 
         return workerEntries;
     }
@@ -70,6 +75,8 @@ public class WorkerService {
         } catch (Exception ex) {
             String errMsg = "failed to delete worker in database";
             serviceHelper.handleErrorAndThrowException(logger, ex, errMsg);
+        } finally {
+            permissionService.evictWorker(teamId, userId);
         }
 
         LogEntry auditLog = LogEntry.builder()
@@ -98,6 +105,24 @@ public class WorkerService {
         return workerOfList;
     }
 
+    /**
+     * 一次查询获取多个用户在某公司下所属的团队
+     * @param companyId
+     * @param userIds
+     * @return userId到团队列表的映射，不属于任何团队的用户不在其中
+     */
+    public Map<String, List<TeamDto>> getTeamsOfWorkers(String companyId, Collection<String> userIds) {
+        Map<String, List<TeamDto>> teamsOfWorkers = new HashMap<>();
+        if (userIds.isEmpty()) {
+            return teamsOfWorkers;
+        }
+        for(Object[] row : workerRepo.findTeamsOfUsers(companyId, userIds)) {
+            TeamDto teamDto = TeamMapper.toDto((Team) row[1]);
+            teamsOfWorkers.computeIfAbsent((String) row[0], userId -> new ArrayList<>()).add(teamDto);
+        }
+        return teamsOfWorkers;
+    }
+
     public DirectoryEntryDto createWorker(WorkerDto workerDto) {
         // validate and will throw exception if not found
         teamService.getTeamWithCompanyIdValidation(workerDto.getCompanyId(), workerDto.getTeamId());
@@ -115,6 +140,8 @@ public class WorkerService {
         } catch (Exception ex) {
             String errMsg = "failed to create worker in database";
             serviceHelper.handleErrorAndThrowException(logger, ex, errMsg);
+        } finally {
+            permissionService.evictWorker(workerDto.getTeamId(), workerDto.getUserId());
         }
 
         LogEntry auditLog = LogEntry.builder()
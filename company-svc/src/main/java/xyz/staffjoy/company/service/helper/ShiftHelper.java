@@ -2,7 +2,6 @@ package xyz.staffjoy.company.service.helper;
 
 import com.github.structlog4j.ILogger;
 import com.github.structlog4j.SLoggerFactory;
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
@@ -11,12 +10,20 @@ import xyz.staffjoy.common.auditlog.LogEntry;
 import xyz.staffjoy.common.auth.AuthContext;
 import xyz.staffjoy.common.error.ServiceException;
 import xyz.staffjoy.company.dto.ShiftDto;
+import xyz.staffjoy.company.mapper.ShiftMapper;
 import xyz.staffjoy.company.model.Shift;
 import xyz.staffjoy.company.repo.ShiftRepo;
 import xyz.staffjoy.company.service.DirectoryService;
 import xyz.staffjoy.company.service.JobService;
+import xyz.staffjoy.company.service.ShiftConflictService;
+import xyz.staffjoy.company.service.ShiftRollupService;
 import xyz.staffjoy.company.service.TeamService;
 
+import java.time.Duration;
+import java.time.Instant;
+
+import static xyz.staffjoy.company.dto.CreateShiftRequest.MAX_SHIFT_DURATION;
+
 @Component
 public class ShiftHelper {
 
@@ -38,7 +45,11 @@ public class ShiftHelper {
     ServiceHelper serviceHelper;
 
     @Autowired
-    ModelMapper modelMapper;
+    ShiftRollupService shiftRollupService;
+
+    @Autowired
+    ShiftConflictService shiftConflictService;
+
 
 //    @Async("asyncExecutor")
 //    public void updateShiftAsync(ShiftDto shiftDto) {
@@ -46,7 +57,21 @@ public class ShiftHelper {
 //    }
 
 
+    /**
+     * 校验班次的起止时间，DTO上同样的@AssertTrue方法不是getter，Bean Validation不会执行
+     */
+    public static void validateShiftTimes(Instant start, Instant stop) {
+        if (!start.isBefore(stop)) {
+            throw new ServiceException(ResultCode.PARAM_VALID_ERROR, "stop must be after start");
+        }
+        if (Duration.between(start, stop).toMillis() > MAX_SHIFT_DURATION) {
+            throw new ServiceException(ResultCode.PARAM_VALID_ERROR, "Shifts exceed max allowed hour duration");
+        }
+    }
+
     public ShiftDto updateShift(ShiftDto shiftDtoToUpdate, boolean suppressNotification) {
+        validateShiftTimes(shiftDtoToUpdate.getStart(), shiftDtoToUpdate.getStop());
+
         // validate and will throw exception if not exist
         ShiftDto orig = this.getShift(shiftDtoToUpdate.getId(), shiftDtoToUpdate.getTeamId(), shiftDtoToUpdate.getCompanyId());
 
@@ -86,6 +111,9 @@ public class ShiftHelper {
 
         logger.info("updated shift", auditLog);
 
+        shiftRollupService.shiftUpdated(shiftDtoToUpdate.getCompanyId(), orig, shiftDtoToUpdate);
+        shiftConflictService.shiftUpdated(orig, shiftDtoToUpdate);
+
         serviceHelper.trackEventAsync("shift_updated");
         if (!orig.isPublished() && shiftDtoToUpdate.isPublished()) {
             serviceHelper.trackEventAsync("shift_published");
@@ -114,10 +142,10 @@ public class ShiftHelper {
     }
 
     public ShiftDto convertToDto(Shift shift) {
-        return modelMapper.map(shift, ShiftDto.class);
+        return ShiftMapper.toDto(shift);
     }
 
     public Shift convertToModel(ShiftDto shiftDto) {
-        return modelMapper.map(shiftDto, Shift.class);
+        return ShiftMapper.toModel(shiftDto);
     }
 }
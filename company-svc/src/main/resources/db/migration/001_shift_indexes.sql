@@ -0,0 +1,12 @@
+-- shift表的范围扫描索引，已有数据库执行一次即可，新库由schema.sql直接创建
+-- InnoDB在线建索引，建索引期间不阻塞读写
+-- (user_id, team_id, start)以user_id开头，可替代原来的ix_job_user_id
+ALTER TABLE shift
+    ADD KEY ix_shift_team_start (`team_id`, `start`),
+    ADD KEY ix_shift_user_team_start (`user_id`, `team_id`, `start`),
+    ADD KEY ix_shift_start (`start`),
+    ALGORITHM=INPLACE, LOCK=NONE;
+
+ALTER TABLE shift
+    DROP KEY ix_job_user_id,
+    ALGORITHM=INPLACE, LOCK=NONE;
@@ -0,0 +1,19 @@
+-- 增长图的每周汇总表，建表后调用 /v1/company/internal/rebuild_shift_rollups 回填历史数据
+CREATE TABLE IF NOT EXISTS shift_week (
+    id VARCHAR(255) NOT NULL,
+    week_start DATE NOT NULL,
+    company_id VARCHAR(255) NOT NULL DEFAULT '',
+    shift_count INT NOT NULL DEFAULT 0,
+    people INT NOT NULL DEFAULT 0,
+    PRIMARY KEY (id),
+    KEY ix_shift_week_company_week (`company_id`, `week_start`)
+) ENGINE=InnoDB;
+
+CREATE TABLE IF NOT EXISTS shift_week_user (
+    id VARCHAR(255) NOT NULL,
+    week_start DATE NOT NULL,
+    company_id VARCHAR(255) NOT NULL DEFAULT '',
+    user_id VARCHAR(255) NOT NULL DEFAULT '',
+    shift_count INT NOT NULL DEFAULT 0,
+    PRIMARY KEY (id)
+) ENGINE=InnoDB;
@@ -0,0 +1,7 @@
+-- 汇总行改为只按(公司, 周)维护，删除旧的全局行(company_id为空)，全局人数在读取时按员工去重
+DELETE FROM shift_week_user WHERE company_id = '';
+DELETE FROM shift_week WHERE company_id = '';
+
+ALTER TABLE shift_week_user
+    ADD KEY ix_shift_week_user_week_user (`week_start`, `user_id`),
+    ALGORITHM=INPLACE, LOCK=NONE;
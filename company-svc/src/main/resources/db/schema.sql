@@ -72,5 +72,27 @@ CREATE TABLE IF NOT EXISTS shift (
                                    stop TIMESTAMP NOT NULL DEFAULT current_timestamp,
                                    PRIMARY KEY (id),
                                    KEY ix_job_shift_id (`job_id`),
-                                   KEY ix_job_user_id (`user_id`)
+                                   KEY ix_shift_team_start (`team_id`, `start`),
+                                   KEY ix_shift_user_team_start (`user_id`, `team_id`, `start`),
+                                   KEY ix_shift_start (`start`)
+) ENGINE=InnoDB;
+
+CREATE TABLE IF NOT EXISTS shift_week (
+                                   id VARCHAR(255) NOT NULL,
+                                   week_start DATE NOT NULL,
+                                   company_id VARCHAR(255) NOT NULL DEFAULT '',
+                                   shift_count INT NOT NULL DEFAULT 0,
+                                   people INT NOT NULL DEFAULT 0,
+                                   PRIMARY KEY (id),
+                                   KEY ix_shift_week_company_week (`company_id`, `week_start`)
+) ENGINE=InnoDB;
+
+CREATE TABLE IF NOT EXISTS shift_week_user (
+                                   id VARCHAR(255) NOT NULL,
+                                   week_start DATE NOT NULL,
+                                   company_id VARCHAR(255) NOT NULL DEFAULT '',
+                                   user_id VARCHAR(255) NOT NULL DEFAULT '',
+                                   shift_count INT NOT NULL DEFAULT 0,
+                                   PRIMARY KEY (id),
+                                   KEY ix_shift_week_user_week_user (`week_start`, `user_id`)
 ) ENGINE=InnoDB;
@@ -0,0 +1,79 @@
+package xyz.staffjoy.company.benchmark;
+
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import xyz.staffjoy.company.dto.ShiftDto;
+import xyz.staffjoy.company.mapper.ShiftMapper;
+import xyz.staffjoy.company.model.Shift;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Converting a 10k-shift list to DTOs, reflective ModelMapper versus the handwritten ShiftMapper.
+ *
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+ *   -Dexec.mainClass=xyz.staffjoy.company.benchmark.ShiftMappingBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ShiftMappingBenchmark {
+
+    private static final int SHIFTS = 10_000;
+
+    private final ModelMapper modelMapper = new ModelMapper();
+    private List<Shift> shifts;
+
+    @Setup
+    public void setup() {
+        Instant now = Instant.now();
+        String teamId = UUID.randomUUID().toString();
+        String jobId = UUID.randomUUID().toString();
+        shifts = new ArrayList<>(SHIFTS);
+        for (int i = 0; i < SHIFTS; i++) {
+            Instant start = now.plus(i, ChronoUnit.HOURS);
+            shifts.add(Shift.builder()
+                    .id(UUID.randomUUID().toString())
+                    .teamId(teamId)
+                    .jobId(jobId)
+                    .userId(UUID.randomUUID().toString())
+                    .start(start)
+                    .stop(start.plus(8, ChronoUnit.HOURS))
+                    .published(i % 2 == 0)
+                    .build());
+        }
+    }
+
+    @Benchmark
+    public List<ShiftDto> modelMapper() {
+        List<ShiftDto> shiftDtos = new ArrayList<>(SHIFTS);
+        for (Shift shift : shifts) {
+            shiftDtos.add(modelMapper.map(shift, ShiftDto.class));
+        }
+        return shiftDtos;
+    }
+
+    @Benchmark
+    public List<ShiftDto> shiftMapper() {
+        List<ShiftDto> shiftDtos = new ArrayList<>(SHIFTS);
+        for (Shift shift : shifts) {
+            shiftDtos.add(ShiftMapper.toDto(shift));
+        }
+        return shiftDtos;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(ShiftMappingBenchmark.class.getSimpleName()).build()).run();
+    }
+}
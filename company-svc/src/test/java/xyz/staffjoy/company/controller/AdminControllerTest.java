@@ -9,11 +9,16 @@ import org.mockito.ArgumentCaptor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.mock.mockito.SpyBean;
 import org.springframework.cloud.openfeign.EnableFeignClients;
 import org.springframework.context.annotation.Import;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.junit4.SpringRunner;
 import xyz.staffjoy.account.client.AccountClient;
+import xyz.staffjoy.account.dto.AccountDto;
+import xyz.staffjoy.account.dto.AccountList;
+import xyz.staffjoy.account.dto.GetAccountsRequest;
+import xyz.staffjoy.account.dto.ListAccountResponse;
 import xyz.staffjoy.account.dto.TrackEventRequest;
 import xyz.staffjoy.common.api.BaseResponse;
 import xyz.staffjoy.common.api.ResultCode;
@@ -21,16 +26,21 @@ import xyz.staffjoy.common.auth.AuthConstant;
 import xyz.staffjoy.company.TestConfig;
 import xyz.staffjoy.company.client.CompanyClient;
 import xyz.staffjoy.company.dto.*;
+import xyz.staffjoy.company.model.Directory;
 import xyz.staffjoy.company.repo.AdminRepo;
+import xyz.staffjoy.company.repo.DirectoryRepo;
 import xyz.staffjoy.company.service.CompanyService;
 import xyz.staffjoy.company.service.DirectoryService;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static java.util.stream.Collectors.toList;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
 @RunWith(SpringRunner.class)
@@ -43,9 +53,12 @@ public class AdminControllerTest {
     @Autowired
     AdminRepo adminRepo;
 
-    @MockBean
+    @SpyBean
     DirectoryService directoryService;
 
+    @Autowired
+    DirectoryRepo directoryRepo;
+
     @Autowired
     CompanyClient companyClient;
 
@@ -59,6 +72,7 @@ public class AdminControllerTest {
     public void setUp() {
         // cleanup
         adminRepo.deleteAll();
+        directoryRepo.deleteAll();
     }
 
     @Test
@@ -79,7 +93,7 @@ public class AdminControllerTest {
                 .email(email)
                 .phoneNumber(phoneNumber)
                 .build();
-        when(directoryService.getDirectoryEntry(companyId1, userId)).thenReturn(directoryEntryDto1);
+        doReturn(directoryEntryDto1).when(directoryService).getDirectoryEntry(companyId1, userId);
 
         // create admin001
         DirectoryEntryRequest directoryEntryRequest1 = DirectoryEntryRequest.builder()
@@ -102,7 +116,7 @@ public class AdminControllerTest {
                 .email(email)
                 .phoneNumber(phoneNumber)
                 .build();
-        when(directoryService.getDirectoryEntry(companyId2, userId)).thenReturn(directoryEntryDto3);
+        doReturn(directoryEntryDto3).when(directoryService).getDirectoryEntry(companyId2, userId);
         // create admin002
         DirectoryEntryRequest directoryEntryRequest2 = DirectoryEntryRequest.builder()
                 .companyId(companyId2)
@@ -115,6 +129,8 @@ public class AdminControllerTest {
         DirectoryEntryDto directoryEntryDto4 = genericDirectoryResponse.getDirectoryEntry();
         assertThat(directoryEntryDto4).isEqualTo(directoryEntryDto3);
 
+        // list admins through the real batch directory fetch
+        saveDirectoryEntries(directoryEntryDto1, directoryEntryDto3);
         // list admins
         when(companyService.getCompany(companyId1)).thenReturn(CompanyDto.builder().id(companyId1).build());
         when(companyService.getCompany(companyId2)).thenReturn(CompanyDto.builder().id(companyId2).build());
@@ -179,7 +195,7 @@ public class AdminControllerTest {
                 .email(email)
                 .phoneNumber(phoneNumber)
                 .build();
-        when(directoryService.getDirectoryEntry(companyId, userId)).thenReturn(directoryEntryDto1);
+        doReturn(directoryEntryDto1).when(directoryService).getDirectoryEntry(companyId, userId);
 
         // create admin
         DirectoryEntryRequest directoryEntryRequest = DirectoryEntryRequest.builder()
@@ -215,8 +231,48 @@ public class AdminControllerTest {
         assertThat(directoryEntryDto3).isEqualTo(directoryEntryDto1);
     }
 
+    /**
+     * 目录表写入对应的记录，列表走真实的批量查询
+     * @param directoryEntryDtos
+     */
+    private void saveDirectoryEntries(DirectoryEntryDto... directoryEntryDtos) {
+        for (DirectoryEntryDto directoryEntryDto : directoryEntryDtos) {
+            directoryRepo.save(Directory.builder()
+                    .companyId(directoryEntryDto.getCompanyId())
+                    .userId(directoryEntryDto.getUserId())
+                    .internalId(directoryEntryDto.getInternalId())
+                    .build());
+        }
+        stubAccounts(directoryEntryDtos);
+    }
+
+    /**
+     * 批量账户接口只认识给定的用户，并且按相反的顺序返回
+     * @param directoryEntryDtos
+     */
+    private void stubAccounts(DirectoryEntryDto... directoryEntryDtos) {
+        List<AccountDto> accounts = new ArrayList<>();
+        for (DirectoryEntryDto directoryEntryDto : directoryEntryDtos) {
+            accounts.add(0, AccountDto.builder()
+                    .id(directoryEntryDto.getUserId())
+                    .name(directoryEntryDto.getName())
+                    .email(directoryEntryDto.getEmail())
+                    .phoneNumber(directoryEntryDto.getPhoneNumber())
+                    .photoUrl(directoryEntryDto.getPhotoUrl())
+                    .build());
+        }
+        when(accountClient.getAccounts(anyString(), any(GetAccountsRequest.class))).thenAnswer(invocation -> {
+            GetAccountsRequest request = invocation.getArgument(1);
+            List<AccountDto> found = accounts.stream()
+                    .filter(account -> request.getUserIds().contains(account.getId()))
+                    .collect(toList());
+            return new ListAccountResponse(AccountList.builder().accounts(found).limit(found.size()).build());
+        });
+    }
+
     @After
     public void destroy() {
         adminRepo.deleteAll();
+        directoryRepo.deleteAll();
     }
 }
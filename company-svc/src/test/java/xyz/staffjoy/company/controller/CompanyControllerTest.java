@@ -146,6 +146,24 @@ public class CompanyControllerTest {
         assertThat(companyList.getCompanies()).hasSize(1);
         assertThat(companyList.getLimit()).isEqualTo(2);
         assertThat(companyList.getOffset()).isEqualTo(1);
+
+        // page by cursor and verify
+        listCompanyResponse = companyClient.listCompanies(AuthConstant.AUTHORIZATION_SUPPORT_USER, null, 2);
+        log.info(listCompanyResponse.toString());
+        assertThat(listCompanyResponse.isSuccess()).isTrue();
+        companyList = listCompanyResponse.getCompanyList();
+        assertThat(companyList.getCompanies()).hasSize(2);
+        assertThat(companyList.getNextCursor()).isNotNull();
+        String secondId = companyList.getCompanies().get(1).getId();
+        assertThat(secondId).isGreaterThan(companyList.getCompanies().get(0).getId());
+
+        listCompanyResponse = companyClient.listCompanies(AuthConstant.AUTHORIZATION_SUPPORT_USER, companyList.getNextCursor(), 2);
+        log.info(listCompanyResponse.toString());
+        assertThat(listCompanyResponse.isSuccess()).isTrue();
+        companyList = listCompanyResponse.getCompanyList();
+        assertThat(companyList.getCompanies()).hasSize(1);
+        assertThat(companyList.getCompanies().get(0).getId()).isGreaterThan(secondId);
+        assertThat(companyList.getNextCursor()).isNull();
     }
 
     @Test
@@ -15,8 +15,11 @@ import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.junit4.SpringRunner;
 import xyz.staffjoy.account.client.AccountClient;
 import xyz.staffjoy.account.dto.AccountDto;
+import xyz.staffjoy.account.dto.AccountList;
 import xyz.staffjoy.account.dto.GenericAccountResponse;
+import xyz.staffjoy.account.dto.GetAccountsRequest;
 import xyz.staffjoy.account.dto.GetOrCreateRequest;
+import xyz.staffjoy.account.dto.ListAccountResponse;
 import xyz.staffjoy.account.dto.TrackEventRequest;
 import xyz.staffjoy.bot.client.BotClient;
 import xyz.staffjoy.bot.dto.OnboardWorkerRequest;
@@ -30,12 +33,17 @@ import xyz.staffjoy.company.repo.CompanyRepo;
 import xyz.staffjoy.company.repo.DirectoryRepo;
 
 import java.time.Instant;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
+import static java.util.stream.Collectors.toList;
 
 @RunWith(SpringRunner.class)
 @DirtiesContext // avoid port conflict
@@ -63,6 +71,17 @@ public class DirectoryControllerTest {
     public void setUp() {
         // cleanup
         directoryRepo.deleteAll();
+
+        // batch account fetch answers from the single account mocks
+        when(accountClient.getAccounts(anyString(), any(GetAccountsRequest.class))).thenAnswer(invocation -> {
+            GetAccountsRequest request = invocation.getArgument(1);
+            List<AccountDto> accounts = request.getUserIds().stream()
+                    .map(userId -> accountClient.getAccount(AuthConstant.AUTHORIZATION_COMPANY_SERVICE, userId))
+                    .filter(Objects::nonNull)
+                    .map(GenericAccountResponse::getAccount)
+                    .collect(toList());
+            return new ListAccountResponse(AccountList.builder().accounts(accounts).limit(accounts.size()).build());
+        });
     }
 
     @Test
@@ -401,6 +420,24 @@ public class DirectoryControllerTest {
         assertThat(directoryList.getOffset()).isEqualTo(1);
         assertThat(directoryList.getLimit()).isEqualTo(2);
         assertThat(directoryList.getAccounts().size()).isEqualTo(1);
+
+        // verify paging by cursor
+        listDirectoryResponse = companyClient.listDirectories(AuthConstant.AUTHORIZATION_SUPPORT_USER, companyId, null, 2);
+        log.info(listDirectoryResponse.toString());
+        assertThat(listDirectoryResponse.isSuccess()).isTrue();
+        directoryList = listDirectoryResponse.getDirectoryList();
+        assertThat(directoryList.getAccounts().size()).isEqualTo(2);
+        assertThat(directoryList.getNextCursor()).isNotNull();
+        Set<String> userIds = new HashSet<>();
+        directoryList.getAccounts().forEach(directoryEntryDto -> userIds.add(directoryEntryDto.getUserId()));
+
+        listDirectoryResponse = companyClient.listDirectories(AuthConstant.AUTHORIZATION_SUPPORT_USER, companyId, directoryList.getNextCursor(), 2);
+        log.info(listDirectoryResponse.toString());
+        assertThat(listDirectoryResponse.isSuccess()).isTrue();
+        directoryList = listDirectoryResponse.getDirectoryList();
+        assertThat(directoryList.getAccounts().size()).isEqualTo(1);
+        assertThat(directoryList.getNextCursor()).isNull();
+        assertThat(userIds).doesNotContain(directoryList.getAccounts().get(0).getUserId());
     }
 
     @Test
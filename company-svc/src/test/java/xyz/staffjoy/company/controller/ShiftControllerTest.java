@@ -1,6 +1,8 @@
 package xyz.staffjoy.company.controller;
 
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import feign.Response;
 import lombok.extern.slf4j.Slf4j;
 import org.junit.After;
 import org.junit.Before;
@@ -21,23 +23,33 @@ import xyz.staffjoy.bot.dto.*;
 import xyz.staffjoy.common.api.BaseResponse;
 import xyz.staffjoy.common.api.ResultCode;
 import xyz.staffjoy.common.auth.AuthConstant;
+import xyz.staffjoy.common.error.ServiceException;
 import xyz.staffjoy.company.TestConfig;
 import xyz.staffjoy.company.client.CompanyClient;
 import xyz.staffjoy.company.dto.*;
 import xyz.staffjoy.company.model.Company;
 import xyz.staffjoy.company.model.Job;
+import xyz.staffjoy.company.model.Shift;
 import xyz.staffjoy.company.model.Team;
 import xyz.staffjoy.company.repo.CompanyRepo;
 import xyz.staffjoy.company.repo.JobRepo;
 import xyz.staffjoy.company.repo.ShiftRepo;
 import xyz.staffjoy.company.repo.TeamRepo;
 import xyz.staffjoy.company.service.DirectoryService;
+import xyz.staffjoy.company.service.ShiftExportService;
 
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
 import java.util.TimeZone;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
@@ -56,6 +68,12 @@ public class ShiftControllerTest {
     @Autowired
     CompanyClient companyClient;
 
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    ShiftExportService shiftExportService;
+
     @MockBean
     AccountClient accountClient;
     @MockBean
@@ -203,6 +221,37 @@ public class ShiftControllerTest {
         assertThat(alertNewShiftsRequest.getNewShifts()).containsExactly(shiftDto1Clone, shiftDto2Clone);
     }
 
+    @Test
+    public void testBulkPublishMoreShiftsThanOneBatch() {
+        Instant start = Instant.now().plus(1, ChronoUnit.DAYS).truncatedTo(ChronoUnit.SECONDS);
+        List<Shift> shifts = new ArrayList<>();
+        for (int i = 0; i < 501; i++) {
+            shifts.add(Shift.builder()
+                    .teamId(team.getId())
+                    .start(start.plusSeconds(i))
+                    .stop(start.plusSeconds(i).plus(1, ChronoUnit.HOURS))
+                    .published(false)
+                    .build());
+        }
+        shiftRepo.saveAll(shifts);
+
+        BulkPublishShiftsRequest bulkPublishShiftsRequest = BulkPublishShiftsRequest.builder()
+                .companyId(company.getId())
+                .teamId(team.getId())
+                .shiftStartAfter(Instant.now())
+                .shiftStartBefore(start.plus(2, ChronoUnit.DAYS))
+                .published(true)
+                .build();
+        GenericShiftListResponse shiftListResponse =
+                companyClient.bulkPublishShifts(AuthConstant.AUTHORIZATION_SUPPORT_USER, bulkPublishShiftsRequest);
+        log.info("bulk published {} shifts", shiftListResponse.getShiftList().getShifts().size());
+        assertThat(shiftListResponse.isSuccess()).isTrue();
+        assertThat(shiftListResponse.getShiftList().getShifts()).hasSize(501);
+
+        // both batches of the IN list are updated
+        assertThat(shiftRepo.findAll()).hasSize(501).allMatch(Shift::isPublished);
+    }
+
     @Test
     public void deleteShift() {
         this.createTwoShiftsAndVerify();
@@ -275,7 +324,7 @@ public class ShiftControllerTest {
 
         // update stop time
         ShiftDto shiftDto1Clone2 = shiftDto1Clone1.toBuilder().build();
-        shiftDto1Clone2.setStop(Instant.now().plus(10, ChronoUnit.DAYS));
+        shiftDto1Clone2.setStop(shiftDto1Clone2.getStart().plus(10, ChronoUnit.HOURS));
         genericShiftResponse =
                 companyClient.updateShift(AuthConstant.AUTHORIZATION_SUPPORT_USER, shiftDto1Clone2);
         assertThat(genericShiftResponse.isSuccess()).isTrue();
@@ -301,7 +350,7 @@ public class ShiftControllerTest {
         when(botClient.alertChangedShift(any(AlertChangedShiftRequest.class)))
                 .thenReturn(BaseResponse.builder().message("Changed Shift Alerted").build());
         ShiftDto shiftDto1Clone4 = shiftDto1Clone3.toBuilder().build();
-        shiftDto1Clone4.setStop(Instant.now().plus(8, ChronoUnit.DAYS));
+        shiftDto1Clone4.setStop(shiftDto1Clone4.getStart().plus(9, ChronoUnit.HOURS));
         genericShiftResponse =
                 companyClient.updateShift(AuthConstant.AUTHORIZATION_SUPPORT_USER, shiftDto1Clone4);
         assertThat(genericShiftResponse.isSuccess()).isTrue();
@@ -345,6 +394,40 @@ public class ShiftControllerTest {
         assertThat(alertRemovedShiftRequest2.getOldShift()).isEqualTo(shiftDto1Clone4);
     }
 
+    @Test
+    public void testRejectInvalidShiftTimes() {
+        this.createTwoShiftsAndVerify();
+
+        Instant start = Instant.now().plus(3, ChronoUnit.DAYS);
+        CreateShiftRequest createShiftRequest = CreateShiftRequest.builder()
+                .companyId(company.getId())
+                .teamId(team.getId())
+                .start(start)
+                .stop(start.plus(23, ChronoUnit.HOURS).plus(1, ChronoUnit.MINUTES))
+                .build();
+        GenericShiftResponse genericShiftResponse = companyClient.createShift(AuthConstant.AUTHORIZATION_SUPPORT_USER, createShiftRequest);
+        assertThat(genericShiftResponse.isSuccess()).isFalse();
+        assertThat(genericShiftResponse.getCode()).isEqualTo(ResultCode.PARAM_VALID_ERROR);
+        assertThat(genericShiftResponse.getMessage()).isEqualTo("Shifts exceed max allowed hour duration");
+
+        createShiftRequest.setStop(start);
+        genericShiftResponse = companyClient.createShift(AuthConstant.AUTHORIZATION_SUPPORT_USER, createShiftRequest);
+        assertThat(genericShiftResponse.isSuccess()).isFalse();
+        assertThat(genericShiftResponse.getMessage()).isEqualTo("stop must be after start");
+        assertThat(shiftRepo.count()).isEqualTo(2);
+
+        // exactly the maximum is allowed
+        createShiftRequest.setStop(start.plus(23, ChronoUnit.HOURS));
+        genericShiftResponse = companyClient.createShift(AuthConstant.AUTHORIZATION_SUPPORT_USER, createShiftRequest);
+        assertThat(genericShiftResponse.isSuccess()).isTrue();
+
+        ShiftDto tooLong = shiftDto1.toBuilder().stop(shiftDto1.getStart().plus(2, ChronoUnit.DAYS)).build();
+        genericShiftResponse = companyClient.updateShift(AuthConstant.AUTHORIZATION_SUPPORT_USER, tooLong);
+        assertThat(genericShiftResponse.isSuccess()).isFalse();
+        assertThat(genericShiftResponse.getCode()).isEqualTo(ResultCode.PARAM_VALID_ERROR);
+        assertThat(shiftRepo.findShiftById(shiftDto1.getId()).getStop()).isEqualTo(shiftDto1.getStop());
+    }
+
     @Test
     public void testListShifts() {
         this.createTwoShiftsAndVerify();
@@ -404,6 +487,295 @@ public class ShiftControllerTest {
         assertThat(shiftListResponse.isSuccess()).isTrue();
         shiftList = shiftListResponse.getShiftList();
         assertThat(shiftList.getShifts()).containsExactly(shiftDto1, shiftDto2);
+        assertThat(shiftList.getNextCursor()).isNull();
+
+        // page through with a continuation cursor
+        shiftListRequest4.setLimit(1);
+        shiftListResponse = companyClient.listShifts(AuthConstant.AUTHORIZATION_SUPPORT_USER, shiftListRequest4);
+        assertThat(shiftListResponse.isSuccess()).isTrue();
+        shiftList = shiftListResponse.getShiftList();
+        assertThat(shiftList.getShifts()).containsExactly(shiftDto1);
+        assertThat(shiftList.getNextCursor()).isNotNull();
+
+        shiftListRequest4.setCursor(shiftList.getNextCursor());
+        shiftListResponse = companyClient.listShifts(AuthConstant.AUTHORIZATION_SUPPORT_USER, shiftListRequest4);
+        assertThat(shiftListResponse.isSuccess()).isTrue();
+        shiftList = shiftListResponse.getShiftList();
+        assertThat(shiftList.getShifts()).containsExactly(shiftDto2);
+
+        shiftListRequest4.setCursor(shiftList.getNextCursor());
+        shiftListResponse = companyClient.listShifts(AuthConstant.AUTHORIZATION_SUPPORT_USER, shiftListRequest4);
+        assertThat(shiftListResponse.isSuccess()).isTrue();
+        assertThat(shiftListResponse.getShiftList().getShifts()).isEmpty();
+        assertThat(shiftListResponse.getShiftList().getNextCursor()).isNull();
+
+        shiftListRequest4.setCursor("not a cursor");
+        shiftListResponse = companyClient.listShifts(AuthConstant.AUTHORIZATION_SUPPORT_USER, shiftListRequest4);
+        assertThat(shiftListResponse.isSuccess()).isFalse();
+        assertThat(shiftListResponse.getCode()).isEqualTo(ResultCode.PARAM_VALID_ERROR);
+    }
+
+    @Test
+    public void testBulkCreateShifts() {
+        when(directoryService.getDirectoryEntries(eq(company.getId()), anyList()))
+                .thenReturn(Arrays.asList(directoryEntryDto1, directoryEntryDto2));
+        when(botClient.alertNewShifts(any(AlertNewShiftsRequest.class)))
+                .thenReturn(BaseResponse.builder().message("New Shifts Alerted").build());
+
+        Instant start = Instant.now().plus(1, ChronoUnit.DAYS);
+        BulkCreateShiftsRequest bulkCreateShiftsRequest = BulkCreateShiftsRequest.builder()
+                .companyId(company.getId())
+                .shifts(Arrays.asList(
+                        newShiftRequest(directoryEntryDto1.getUserId(), true, start),
+                        newShiftRequest(directoryEntryDto1.getUserId(), true, start.plus(1, ChronoUnit.DAYS)),
+                        newShiftRequest(directoryEntryDto2.getUserId(), false, start),
+                        newShiftRequest("", true, start)))
+                .build();
+        GenericShiftListResponse shiftListResponse =
+                companyClient.bulkCreateShifts(AuthConstant.AUTHORIZATION_SUPPORT_USER, bulkCreateShiftsRequest);
+        log.info(shiftListResponse.toString());
+        assertThat(shiftListResponse.isSuccess()).isTrue();
+        ShiftList shiftList = shiftListResponse.getShiftList();
+        assertThat(shiftList.getShifts()).hasSize(4);
+        for (int i = 0; i < 4; i++) {
+            ShiftDto shiftDto = shiftList.getShifts().get(i);
+            CreateShiftRequest shiftRequest = bulkCreateShiftsRequest.getShifts().get(i);
+            assertThat(shiftDto.getId()).isNotBlank();
+            assertThat(shiftDto.getCompanyId()).isEqualTo(company.getId());
+            assertThat(shiftDto.getUserId()).isEqualTo(shiftRequest.getUserId());
+            assertThat(shiftDto.getStart()).isEqualTo(shiftRequest.getStart());
+            assertThat(shiftDto.isPublished()).isEqualTo(shiftRequest.isPublished());
+        }
+        assertThat(shiftRepo.count()).isEqualTo(4);
+
+        // users validated once in one batch, one aggregated alert for the only user with published shifts
+        verify(directoryService, times(1)).getDirectoryEntries(eq(company.getId()), anyList());
+        verify(directoryService, never()).getDirectoryEntry(anyString(), anyString());
+        ArgumentCaptor<AlertNewShiftsRequest> argument = ArgumentCaptor.forClass(AlertNewShiftsRequest.class);
+        verify(botClient, times(1)).alertNewShifts(argument.capture());
+        assertThat(argument.getValue().getUserId()).isEqualTo(directoryEntryDto1.getUserId());
+        assertThat(argument.getValue().getNewShifts()).containsExactly(shiftList.getShifts().get(0), shiftList.getShifts().get(1));
+        verify(botClient, never()).alertNewShift(any(AlertNewShiftRequest.class));
+
+        // all or nothing, the error names the first bad shift
+        when(directoryService.getDirectoryEntries(eq(company.getId()), anyList()))
+                .thenThrow(new ServiceException(ResultCode.NOT_FOUND, "directory entry not found for user in this company"));
+        when(directoryService.getDirectoryEntry(company.getId(), "unknown_user"))
+                .thenThrow(new ServiceException(ResultCode.NOT_FOUND, "directory entry not found for user in this company"));
+        bulkCreateShiftsRequest.setShifts(Arrays.asList(
+                newShiftRequest(directoryEntryDto1.getUserId(), true, start),
+                newShiftRequest("unknown_user", true, start)));
+        shiftListResponse = companyClient.bulkCreateShifts(AuthConstant.AUTHORIZATION_SUPPORT_USER, bulkCreateShiftsRequest);
+        assertThat(shiftListResponse.isSuccess()).isFalse();
+        assertThat(shiftListResponse.getCode()).isEqualTo(ResultCode.NOT_FOUND);
+        assertThat(shiftListResponse.getMessage()).startsWith("shifts[1]:");
+        assertThat(shiftRepo.count()).isEqualTo(4);
+
+        CreateShiftRequest otherCompanyShift = newShiftRequest(directoryEntryDto1.getUserId(), true, start);
+        otherCompanyShift.setCompanyId("other_company");
+        bulkCreateShiftsRequest.setShifts(Arrays.asList(
+                newShiftRequest(directoryEntryDto1.getUserId(), true, start), otherCompanyShift));
+        shiftListResponse = companyClient.bulkCreateShifts(AuthConstant.AUTHORIZATION_SUPPORT_USER, bulkCreateShiftsRequest);
+        assertThat(shiftListResponse.isSuccess()).isFalse();
+        assertThat(shiftListResponse.getCode()).isEqualTo(ResultCode.PARAM_VALID_ERROR);
+        assertThat(shiftRepo.count()).isEqualTo(4);
+
+        CreateShiftRequest invertedShift = newShiftRequest(directoryEntryDto1.getUserId(), true, start);
+        invertedShift.setStop(start.minus(1, ChronoUnit.HOURS));
+        bulkCreateShiftsRequest.setShifts(Arrays.asList(
+                newShiftRequest(directoryEntryDto1.getUserId(), true, start), invertedShift));
+        shiftListResponse = companyClient.bulkCreateShifts(AuthConstant.AUTHORIZATION_SUPPORT_USER, bulkCreateShiftsRequest);
+        assertThat(shiftListResponse.isSuccess()).isFalse();
+        assertThat(shiftListResponse.getCode()).isEqualTo(ResultCode.PARAM_VALID_ERROR);
+        assertThat(shiftListResponse.getMessage()).isEqualTo("shifts[1]: stop must be after start");
+
+        CreateShiftRequest tooLongShift = newShiftRequest(directoryEntryDto1.getUserId(), true, start);
+        tooLongShift.setStop(start.plus(2, ChronoUnit.DAYS));
+        bulkCreateShiftsRequest.setShifts(Arrays.asList(tooLongShift));
+        shiftListResponse = companyClient.bulkCreateShifts(AuthConstant.AUTHORIZATION_SUPPORT_USER, bulkCreateShiftsRequest);
+        assertThat(shiftListResponse.isSuccess()).isFalse();
+        assertThat(shiftListResponse.getMessage()).isEqualTo("shifts[0]: Shifts exceed max allowed hour duration");
+        assertThat(shiftRepo.count()).isEqualTo(4);
+    }
+
+    private CreateShiftRequest newShiftRequest(String userId, boolean published, Instant start) {
+        return CreateShiftRequest.builder()
+                .companyId(company.getId())
+                .teamId(team.getId())
+                .jobId(job.getId())
+                .userId(userId)
+                .published(published)
+                .start(start)
+                .stop(start.plus(8, ChronoUnit.HOURS))
+                .build();
+    }
+
+    @Test
+    public void testCheckShiftConflicts() {
+        this.createTwoShiftsAndVerify();
+
+        Instant start1 = shiftDto1.getStart();
+        String userId1 = directoryEntryDto1.getUserId();
+        String userId2 = directoryEntryDto2.getUserId();
+        ShiftConflictRequest shiftConflictRequest = ShiftConflictRequest.builder()
+                .companyId(company.getId())
+                .shifts(Arrays.asList(
+                        // overlaps existing shift1
+                        proposedShift(null, userId1, start1.minus(1, ChronoUnit.HOURS), start1.plus(1, ChronoUnit.HOURS)),
+                        // two proposed shifts of worker2 overlap each other
+                        proposedShift(null, userId2, start1.plus(4, ChronoUnit.DAYS), start1.plus(5, ChronoUnit.DAYS)),
+                        proposedShift(null, userId2, start1.plus(4, ChronoUnit.DAYS).plus(12, ChronoUnit.HOURS), start1.plus(6, ChronoUnit.DAYS)),
+                        // shift2 moved away, no longer compared at its old time
+                        proposedShift(shiftDto2.getId(), userId1, start1.plus(10, ChronoUnit.DAYS), start1.plus(11, ChronoUnit.DAYS)),
+                        // unassigned shifts never conflict
+                        proposedShift(null, "", start1, start1.plus(1, ChronoUnit.HOURS))))
+                .build();
+        ListShiftConflictResponse shiftConflictResponse =
+                companyClient.checkShiftConflicts(AuthConstant.AUTHORIZATION_SUPPORT_USER, shiftConflictRequest);
+        log.info(shiftConflictResponse.toString());
+        assertThat(shiftConflictResponse.isSuccess()).isTrue();
+        assertThat(shiftConflictResponse.getShiftConflictList().getConflicts()).containsExactly(
+                ShiftConflictDto.builder().index(0).userId(userId1).conflictingShiftId(shiftDto1.getId()).build(),
+                ShiftConflictDto.builder().index(2).userId(userId2).conflictingIndex(1).build());
+
+        // the cached index follows deletes
+        when(botClient.alertRemovedShift(any(AlertRemovedShiftRequest.class)))
+                .thenReturn(BaseResponse.builder().message("Removed Shift Alerted").build());
+        BaseResponse baseResponse = companyClient.deleteShift(AuthConstant.AUTHORIZATION_SUPPORT_USER, shiftDto1.getId(), team.getId(), company.getId());
+        assertThat(baseResponse.isSuccess()).isTrue();
+        shiftConflictResponse = companyClient.checkShiftConflicts(AuthConstant.AUTHORIZATION_SUPPORT_USER, shiftConflictRequest);
+        assertThat(shiftConflictResponse.isSuccess()).isTrue();
+        assertThat(shiftConflictResponse.getShiftConflictList().getConflicts()).containsExactly(
+                ShiftConflictDto.builder().index(2).userId(userId2).conflictingIndex(1).build());
+
+        // and creates
+        GenericShiftResponse genericShiftResponse = companyClient.createShift(AuthConstant.AUTHORIZATION_SUPPORT_USER, CreateShiftRequest.builder()
+                .companyId(company.getId())
+                .teamId(team.getId())
+                .userId(userId1)
+                .start(start1.plus(10, ChronoUnit.DAYS))
+                .stop(start1.plus(10, ChronoUnit.DAYS).plus(2, ChronoUnit.HOURS))
+                .build());
+        assertThat(genericShiftResponse.isSuccess()).isTrue();
+        shiftConflictResponse = companyClient.checkShiftConflicts(AuthConstant.AUTHORIZATION_SUPPORT_USER, shiftConflictRequest);
+        assertThat(shiftConflictResponse.getShiftConflictList().getConflicts()).containsExactly(
+                ShiftConflictDto.builder().index(2).userId(userId2).conflictingIndex(1).build(),
+                ShiftConflictDto.builder().index(3).userId(userId1).conflictingShiftId(genericShiftResponse.getShift().getId()).build());
+    }
+
+    @Test
+    public void testCheckShiftConflictsAcrossWeeks() {
+        this.createTwoShiftsAndVerify();
+
+        String userId1 = directoryEntryDto1.getUserId();
+        // 2030-01-07 is a Monday, the existing shift starts the week before
+        Instant monday = Instant.parse("2030-01-07T00:00:00Z");
+        GenericShiftResponse genericShiftResponse = companyClient.createShift(AuthConstant.AUTHORIZATION_SUPPORT_USER, CreateShiftRequest.builder()
+                .companyId(company.getId())
+                .teamId(team.getId())
+                .userId(userId1)
+                .start(monday.minus(22, ChronoUnit.HOURS))
+                .stop(monday.plus(1, ChronoUnit.HOURS))
+                .build());
+        assertThat(genericShiftResponse.isSuccess()).isTrue();
+
+        ShiftConflictRequest shiftConflictRequest = ShiftConflictRequest.builder()
+                .companyId(company.getId())
+                .shifts(Arrays.asList(
+                        proposedShift(null, userId1, monday.plus(30, ChronoUnit.MINUTES), monday.plus(2, ChronoUnit.HOURS)),
+                        proposedShift(null, userId1, monday.plus(1, ChronoUnit.HOURS), monday.plus(2, ChronoUnit.HOURS))))
+                .build();
+        ListShiftConflictResponse shiftConflictResponse =
+                companyClient.checkShiftConflicts(AuthConstant.AUTHORIZATION_SUPPORT_USER, shiftConflictRequest);
+        assertThat(shiftConflictResponse.isSuccess()).isTrue();
+        assertThat(shiftConflictResponse.getShiftConflictList().getConflicts()).containsExactly(
+                ShiftConflictDto.builder().index(0).userId(userId1).conflictingShiftId(genericShiftResponse.getShift().getId()).build(),
+                ShiftConflictDto.builder().index(1).userId(userId1).conflictingIndex(0).build());
+    }
+
+    private ProposedShift proposedShift(String id, String userId, Instant start, Instant stop) {
+        return ProposedShift.builder()
+                .id(id)
+                .teamId(team.getId())
+                .userId(userId)
+                .start(start)
+                .stop(stop)
+                .build();
+    }
+
+    @Test
+    public void testExportShifts() throws Exception {
+        this.createTwoShiftsAndVerify();
+
+        ShiftExportRequest shiftExportRequest = ShiftExportRequest.builder()
+                .companyId(company.getId())
+                .teamId(team.getId())
+                .shiftStartAfter(Instant.now().minus(1, ChronoUnit.DAYS))
+                .shiftStartBefore(Instant.now().plus(5, ChronoUnit.DAYS))
+                .build();
+        List<String> lines = readLines(companyClient.exportShifts(AuthConstant.AUTHORIZATION_SUPPORT_USER, shiftExportRequest));
+        assertThat(lines).hasSize(2);
+        assertThat(objectMapper.readValue(lines.get(0), ShiftDto.class)).isEqualTo(shiftDto1);
+        assertThat(objectMapper.readValue(lines.get(1), ShiftDto.class)).isEqualTo(shiftDto2);
+
+        shiftExportRequest.setFormat(ShiftExportRequest.FORMAT_CSV);
+        lines = readLines(companyClient.exportShifts(AuthConstant.AUTHORIZATION_SUPPORT_USER, shiftExportRequest));
+        assertThat(lines).hasSize(3);
+        assertThat(lines.get(0)).isEqualTo("id,company_id,team_id,job_id,user_id,published,start,stop");
+        assertThat(lines.get(1)).isEqualTo(String.join(",", shiftDto1.getId(), company.getId(), team.getId(), job.getId(),
+                shiftDto1.getUserId(), "true", shiftDto1.getStart().toString(), shiftDto1.getStop().toString()));
+
+        // range without shifts
+        shiftExportRequest.setShiftStartAfter(Instant.now().plus(10, ChronoUnit.DAYS));
+        shiftExportRequest.setShiftStartBefore(Instant.now().plus(11, ChronoUnit.DAYS));
+        lines = readLines(companyClient.exportShifts(AuthConstant.AUTHORIZATION_SUPPORT_USER, shiftExportRequest));
+        assertThat(lines).hasSize(1);
+    }
+
+    @Test
+    public void testExportShiftsLimits() throws Exception {
+        ShiftExportRequest shiftExportRequest = ShiftExportRequest.builder()
+                .companyId(company.getId())
+                .teamId(team.getId())
+                .shiftStartAfter(Instant.now())
+                .shiftStartBefore(Instant.now().plus(367, ChronoUnit.DAYS))
+                .build();
+        BaseResponse baseResponse = readError(companyClient.exportShifts(AuthConstant.AUTHORIZATION_SUPPORT_USER, shiftExportRequest), 200);
+        assertThat(baseResponse.getCode()).isEqualTo(ResultCode.PARAM_VALID_ERROR);
+        assertThat(baseResponse.getMessage()).isEqualTo("export range can not exceed 366 days");
+
+        // all export slots taken
+        shiftExportRequest.setShiftStartBefore(Instant.now().plus(5, ChronoUnit.DAYS));
+        int held = 0;
+        try {
+            while (shiftExportService.tryAcquire()) {
+                held++;
+            }
+            baseResponse = readError(companyClient.exportShifts(AuthConstant.AUTHORIZATION_SUPPORT_USER, shiftExportRequest), 429);
+            assertThat(baseResponse.getCode()).isEqualTo(ResultCode.TOO_MANY_REQUESTS);
+        } finally {
+            for (int i = 0; i < held; i++) {
+                shiftExportService.release();
+            }
+        }
+
+        // the rejected export gave its slot back
+        assertThat(readLines(companyClient.exportShifts(AuthConstant.AUTHORIZATION_SUPPORT_USER, shiftExportRequest))).hasSize(0);
+    }
+
+    private BaseResponse readError(Response response, int status) throws Exception {
+        try (Response closeable = response) {
+            assertThat(closeable.status()).isEqualTo(status);
+            return objectMapper.readValue(closeable.body().asInputStream(), BaseResponse.class);
+        }
+    }
+
+    private List<String> readLines(Response response) throws Exception {
+        try (Response closeable = response;
+             BufferedReader reader = new BufferedReader(new InputStreamReader(closeable.body().asInputStream(), StandardCharsets.UTF_8))) {
+            assertThat(closeable.status()).isEqualTo(200);
+            return reader.lines().collect(Collectors.toList());
+        }
     }
 
     @Test
@@ -450,7 +822,7 @@ public class ShiftControllerTest {
                 .userId(directoryEntryDto1.getUserId())
                 .published(true)
                 .start(Instant.now().plus(1, ChronoUnit.DAYS))
-                .stop(Instant.now().plus(3, ChronoUnit.DAYS))
+                .stop(Instant.now().plus(1, ChronoUnit.DAYS).plus(8, ChronoUnit.HOURS))
                 .build();
         GenericShiftResponse genericShiftResponse = companyClient.createShift(AuthConstant.AUTHORIZATION_SUPPORT_USER, createShiftRequest1);
         log.info(genericShiftResponse.toString());
@@ -481,7 +853,7 @@ public class ShiftControllerTest {
                 .userId(directoryEntryDto1.getUserId())
                 .published(true)
                 .start(Instant.now().plus(2, ChronoUnit.DAYS))
-                .stop(Instant.now().plus(4, ChronoUnit.DAYS))
+                .stop(Instant.now().plus(2, ChronoUnit.DAYS).plus(8, ChronoUnit.HOURS))
                 .build();
         genericShiftResponse = companyClient.createShift(AuthConstant.AUTHORIZATION_SUPPORT_USER, createShiftRequest2);
         log.info(genericShiftResponse.toString());
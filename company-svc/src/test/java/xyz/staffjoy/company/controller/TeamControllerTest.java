@@ -15,12 +15,14 @@ import org.springframework.test.context.junit4.SpringRunner;
 import xyz.staffjoy.account.client.AccountClient;
 import xyz.staffjoy.account.dto.TrackEventRequest;
 import xyz.staffjoy.common.api.BaseResponse;
+import xyz.staffjoy.common.api.ResultCode;
 import xyz.staffjoy.common.auth.AuthConstant;
 import xyz.staffjoy.company.TestConfig;
 import xyz.staffjoy.company.client.CompanyClient;
 import xyz.staffjoy.company.dto.*;
 import xyz.staffjoy.company.model.Admin;
 import xyz.staffjoy.company.model.Company;
+import xyz.staffjoy.company.model.Team;
 import xyz.staffjoy.company.model.Worker;
 import xyz.staffjoy.company.repo.AdminRepo;
 import xyz.staffjoy.company.repo.CompanyRepo;
@@ -159,6 +161,32 @@ public class TeamControllerTest {
     }
 
 
+    @Test
+    public void testGetTeamOfOtherCompany() {
+        String companyId = UUID.randomUUID().toString();
+        String otherCompanyId = UUID.randomUUID().toString();
+        when(companyRepo.findCompanyById(companyId)).thenReturn(Company.builder().id(companyId).build());
+        when(companyRepo.findCompanyById(otherCompanyId)).thenReturn(Company.builder().id(otherCompanyId).build());
+        Team team = teamRepo.save(Team.builder()
+                .companyId(companyId)
+                .name("test_team003")
+                .dayWeekStarts("Sunday")
+                .timezone(TimeZone.getDefault().getID())
+                .color("#48B7AB")
+                .build());
+
+        // the first read caches the team
+        GenericTeamResponse genericTeamResponse =
+                companyClient.getTeam(AuthConstant.AUTHORIZATION_WWW_SERVICE, companyId, team.getId());
+        assertThat(genericTeamResponse.isSuccess()).isTrue();
+
+        // the cached team is still checked against the requested company
+        genericTeamResponse = companyClient.getTeam(AuthConstant.AUTHORIZATION_WWW_SERVICE, otherCompanyId, team.getId());
+        log.info(genericTeamResponse.toString());
+        assertThat(genericTeamResponse.isSuccess()).isFalse();
+        assertThat(genericTeamResponse.getCode()).isEqualTo(ResultCode.NOT_FOUND);
+    }
+
     @After
     public void destroy() {
         teamRepo.deleteAll();
@@ -8,11 +8,16 @@ import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.mock.mockito.SpyBean;
 import org.springframework.cloud.openfeign.EnableFeignClients;
 import org.springframework.context.annotation.Import;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.junit4.SpringRunner;
 import xyz.staffjoy.account.client.AccountClient;
+import xyz.staffjoy.account.dto.AccountDto;
+import xyz.staffjoy.account.dto.AccountList;
+import xyz.staffjoy.account.dto.GetAccountsRequest;
+import xyz.staffjoy.account.dto.ListAccountResponse;
 import xyz.staffjoy.account.dto.TrackEventRequest;
 import xyz.staffjoy.common.api.BaseResponse;
 import xyz.staffjoy.common.api.ResultCode;
@@ -21,18 +26,26 @@ import xyz.staffjoy.company.TestConfig;
 import xyz.staffjoy.company.client.CompanyClient;
 import xyz.staffjoy.company.dto.*;
 import xyz.staffjoy.company.model.Company;
+import xyz.staffjoy.company.model.Directory;
 import xyz.staffjoy.company.model.Team;
+import xyz.staffjoy.company.model.Worker;
 import xyz.staffjoy.company.repo.CompanyRepo;
+import xyz.staffjoy.company.repo.DirectoryRepo;
 import xyz.staffjoy.company.repo.TeamRepo;
 import xyz.staffjoy.company.repo.WorkerRepo;
 import xyz.staffjoy.company.service.DirectoryService;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 import java.util.TimeZone;
 import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static java.util.stream.Collectors.toList;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.when;
 
 @RunWith(SpringRunner.class)
@@ -58,13 +71,17 @@ public class WorkerControllerTest {
     @MockBean
     AccountClient accountClient;
 
-    @MockBean
+    @SpyBean
     DirectoryService directoryService;
 
+    @Autowired
+    DirectoryRepo directoryRepo;
+
     @Before
     public void setUp() {
         // cleanup
         workerRepo.deleteAll();
+        directoryRepo.deleteAll();
     }
 
     @Test
@@ -102,7 +119,7 @@ public class WorkerControllerTest {
                 .phoneNumber("18001999999")
                 .photoUrl("https://staffjoy.xyz/photo/test01.png")
                 .build();
-        when(directoryService.getDirectoryEntry(companyId, userId1)).thenReturn(directoryEntryDto1);
+        doReturn(directoryEntryDto1).when(directoryService).getDirectoryEntry(companyId, userId1);
 
         WorkerDto workerDto1 = WorkerDto.builder()
                 .companyId(companyId)
@@ -127,7 +144,7 @@ public class WorkerControllerTest {
                 .phoneNumber("18002888888")
                 .photoUrl("https://staffjoy.xyz/photo/test02.png")
                 .build();
-        when(directoryService.getDirectoryEntry(companyId, userId2)).thenReturn(directoryEntryDto3);
+        doReturn(directoryEntryDto3).when(directoryService).getDirectoryEntry(companyId, userId2);
 
         WorkerDto workerDto2 = WorkerDto.builder()
                 .companyId(companyId)
@@ -153,6 +170,8 @@ public class WorkerControllerTest {
         assertThat(teamFound.isArchived()).isEqualTo(team.isArchived());
         assertThat(teamFound.getName()).isEqualTo(team.getName());
 
+        // list workers through the real batch directory fetch
+        saveDirectoryEntries(directoryEntryDto1, directoryEntryDto3);
         // list worker
         ListWorkerResponse listWorkerResponse =
                 companyClient.listWorkers(AuthConstant.AUTHORIZATION_SUPPORT_USER, companyId, team.getId());
@@ -179,9 +198,101 @@ public class WorkerControllerTest {
         assertThat(genericDirectoryResponse.getCode()).isEqualTo(ResultCode.NOT_FOUND);
     }
 
+    @Test
+    public void testListWorkersKeepsOrderAndFailsOnMissingAccount() {
+        String companyId = UUID.randomUUID().toString();
+        when(companyRepo.findCompanyById(companyId)).thenReturn(Company.builder()
+                .name("test_company002")
+                .id(companyId)
+                .defaultDayWeekStarts("Sunday")
+                .defaultTimezone(TimeZone.getDefault().getID())
+                .build());
+        Team team = Team.builder()
+                .id(UUID.randomUUID().toString())
+                .companyId(companyId)
+                .name("test_team002")
+                .color("#48B7AB")
+                .dayWeekStarts("Monday")
+                .timezone(TimeZone.getDefault().getID())
+                .build();
+        when(teamRepo.findById(team.getId())).thenReturn(Optional.of(team));
+
+        List<DirectoryEntryDto> directoryEntryDtos = new ArrayList<>();
+        for (int i = 1; i <= 3; i++) {
+            String userId = UUID.randomUUID().toString();
+            workerRepo.save(Worker.builder().teamId(team.getId()).userId(userId).build());
+            directoryEntryDtos.add(DirectoryEntryDto.builder()
+                    .companyId(companyId)
+                    .userId(userId)
+                    .name("test_user00" + i)
+                    .email("test_user00" + i + "@staffjoy.xyz")
+                    .internalId(UUID.randomUUID().toString())
+                    .phoneNumber("1800100000" + i)
+                    .build());
+        }
+        saveDirectoryEntries(directoryEntryDtos.toArray(new DirectoryEntryDto[0]));
+
+        // the account service does not know the second user, the listing fails instead of dropping the worker
+        stubAccounts(directoryEntryDtos.get(0), directoryEntryDtos.get(2));
+        ListWorkerResponse listWorkerResponse =
+                companyClient.listWorkers(AuthConstant.AUTHORIZATION_SUPPORT_USER, companyId, team.getId());
+        log.info(listWorkerResponse.toString());
+        assertThat(listWorkerResponse.isSuccess()).isFalse();
+
+        // accounts come back in reverse order, the listing keeps the worker order
+        stubAccounts(directoryEntryDtos.toArray(new DirectoryEntryDto[0]));
+        listWorkerResponse = companyClient.listWorkers(AuthConstant.AUTHORIZATION_SUPPORT_USER, companyId, team.getId());
+        log.info(listWorkerResponse.toString());
+        assertThat(listWorkerResponse.isSuccess()).isTrue();
+        List<String> workerOrder = workerRepo.findByTeamId(team.getId()).stream().map(Worker::getUserId).collect(toList());
+        List<DirectoryEntryDto> workers = listWorkerResponse.getWorkerEntries().getWorkers();
+        assertThat(workers.stream().map(DirectoryEntryDto::getUserId).collect(toList())).isEqualTo(workerOrder);
+        assertThat(workers).containsExactlyInAnyOrderElementsOf(directoryEntryDtos);
+    }
+
+    /**
+     * 目录表写入对应的记录，列表走真实的批量查询
+     * @param directoryEntryDtos
+     */
+    private void saveDirectoryEntries(DirectoryEntryDto... directoryEntryDtos) {
+        for (DirectoryEntryDto directoryEntryDto : directoryEntryDtos) {
+            directoryRepo.save(Directory.builder()
+                    .companyId(directoryEntryDto.getCompanyId())
+                    .userId(directoryEntryDto.getUserId())
+                    .internalId(directoryEntryDto.getInternalId())
+                    .build());
+        }
+        stubAccounts(directoryEntryDtos);
+    }
+
+    /**
+     * 批量账户接口只认识给定的用户，并且按相反的顺序返回
+     * @param directoryEntryDtos
+     */
+    private void stubAccounts(DirectoryEntryDto... directoryEntryDtos) {
+        List<AccountDto> accounts = new ArrayList<>();
+        for (DirectoryEntryDto directoryEntryDto : directoryEntryDtos) {
+            accounts.add(0, AccountDto.builder()
+                    .id(directoryEntryDto.getUserId())
+                    .name(directoryEntryDto.getName())
+                    .email(directoryEntryDto.getEmail())
+                    .phoneNumber(directoryEntryDto.getPhoneNumber())
+                    .photoUrl(directoryEntryDto.getPhotoUrl())
+                    .build());
+        }
+        when(accountClient.getAccounts(anyString(), any(GetAccountsRequest.class))).thenAnswer(invocation -> {
+            GetAccountsRequest request = invocation.getArgument(1);
+            List<AccountDto> found = accounts.stream()
+                    .filter(account -> request.getUserIds().contains(account.getId()))
+                    .collect(toList());
+            return new ListAccountResponse(AccountList.builder().accounts(found).limit(found.size()).build());
+        });
+    }
+
     @After
     public void destroy() {
         // cleanup
         workerRepo.deleteAll();
+        directoryRepo.deleteAll();
     }
 }
@@ -164,7 +164,7 @@ public class CompanyControllerUnitTest {
 
     @Test
     public void testListCompanySuccessfully() throws Exception {
-        CompanyList expectedCompanyList = new CompanyList(Arrays.asList(newCompanyDto), 1, 1);
+        CompanyList expectedCompanyList = new CompanyList(Arrays.asList(newCompanyDto), 1, 1, null);
         when(companyService.listCompanies(anyInt(), anyInt())).thenReturn(expectedCompanyList);
 
         MvcResult mvcResult = mockMvc.perform(get("/v1/company/list?limit=1&offset=1")
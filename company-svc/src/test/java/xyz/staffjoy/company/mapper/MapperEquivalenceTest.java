@@ -0,0 +1,98 @@
+package xyz.staffjoy.company.mapper;
+
+import org.junit.Test;
+import org.modelmapper.ModelMapper;
+import xyz.staffjoy.company.dto.CompanyDto;
+import xyz.staffjoy.company.dto.JobDto;
+import xyz.staffjoy.company.dto.ShiftDto;
+import xyz.staffjoy.company.dto.TeamDto;
+import xyz.staffjoy.company.model.Company;
+import xyz.staffjoy.company.model.Job;
+import xyz.staffjoy.company.model.Shift;
+import xyz.staffjoy.company.model.Team;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The handwritten mappers must produce exactly what ModelMapper produced before them
+ */
+public class MapperEquivalenceTest {
+
+    private final ModelMapper modelMapper = new ModelMapper();
+
+    @Test
+    public void testShiftMapper() {
+        Instant now = Instant.now();
+        Shift shift = Shift.builder()
+                .id(UUID.randomUUID().toString())
+                .teamId(UUID.randomUUID().toString())
+                .userId(UUID.randomUUID().toString())
+                .jobId(UUID.randomUUID().toString())
+                .start(now)
+                .stop(now.plus(8, ChronoUnit.HOURS))
+                .published(true)
+                .build();
+        ShiftDto shiftDto = ShiftMapper.toDto(shift);
+        assertThat(shiftDto).isEqualTo(modelMapper.map(shift, ShiftDto.class));
+
+        shiftDto.setCompanyId(UUID.randomUUID().toString());
+        assertThat(ShiftMapper.toModel(shiftDto)).isEqualTo(modelMapper.map(shiftDto, Shift.class));
+
+        Shift empty = Shift.builder().id(UUID.randomUUID().toString()).start(now).stop(now.plusSeconds(1)).build();
+        assertThat(ShiftMapper.toDto(empty)).isEqualTo(modelMapper.map(empty, ShiftDto.class));
+    }
+
+    @Test
+    public void testJobMapper() {
+        Job job = Job.builder()
+                .id(UUID.randomUUID().toString())
+                .teamId(UUID.randomUUID().toString())
+                .name("test_job001")
+                .archived(true)
+                .color("#48B7AB")
+                .build();
+        JobDto jobDto = JobMapper.toDto(job);
+        assertThat(jobDto).isEqualTo(modelMapper.map(job, JobDto.class));
+
+        jobDto.setCompanyId(UUID.randomUUID().toString());
+        assertThat(JobMapper.toModel(jobDto)).isEqualTo(modelMapper.map(jobDto, Job.class));
+    }
+
+    @Test
+    public void testTeamMapper() {
+        Team team = Team.builder()
+                .id(UUID.randomUUID().toString())
+                .companyId(UUID.randomUUID().toString())
+                .name("test_team001")
+                .archived(false)
+                .timezone("America/New_York")
+                .dayWeekStarts("Monday")
+                .color("#48B7AB")
+                .build();
+        TeamDto teamDto = TeamMapper.toDto(team);
+        assertThat(teamDto).isEqualTo(modelMapper.map(team, TeamDto.class));
+        assertThat(TeamMapper.toModel(teamDto)).isEqualTo(modelMapper.map(teamDto, Team.class));
+
+        TeamDto copy = TeamMapper.copy(teamDto);
+        assertThat(copy).isEqualTo(modelMapper.map(teamDto, TeamDto.class));
+        assertThat(copy).isNotSameAs(teamDto);
+    }
+
+    @Test
+    public void testCompanyMapper() {
+        Company company = Company.builder()
+                .id(UUID.randomUUID().toString())
+                .name("test_company001")
+                .archived(true)
+                .defaultTimezone("America/New_York")
+                .defaultDayWeekStarts("Sunday")
+                .build();
+        CompanyDto companyDto = CompanyMapper.toDto(company);
+        assertThat(companyDto).isEqualTo(modelMapper.map(company, CompanyDto.class));
+        assertThat(CompanyMapper.toModel(companyDto)).isEqualTo(modelMapper.map(companyDto, Company.class));
+    }
+}
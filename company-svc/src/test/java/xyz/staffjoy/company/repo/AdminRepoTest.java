@@ -10,6 +10,7 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.junit4.SpringRunner;
 import xyz.staffjoy.company.model.Admin;
 
+import java.util.Arrays;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -59,6 +60,9 @@ public class AdminRepoTest {
         assertThat(foundAdmins.size()).isEqualTo(1);
         assertThat(foundAdmins).containsExactly(admin3);
 
+        foundAdmins = adminRepo.findByCompanyIdAndUserIdIn("C100001", Arrays.asList("U100001", "U100003", "U100005"));
+        assertThat(foundAdmins).containsExactlyInAnyOrder(admin1, admin3);
+
         int count = adminRepo.deleteAdmin("C100002", "U100003");
         assertThat(count).isEqualTo(0);
         count = adminRepo.deleteAdmin("C100001", "U100003");
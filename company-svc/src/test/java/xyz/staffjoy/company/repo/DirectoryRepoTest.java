@@ -1,6 +1,7 @@
 package xyz.staffjoy.company.repo;
 
 import lombok.extern.slf4j.Slf4j;
+import org.assertj.core.api.Assertions;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -13,6 +14,9 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.test.context.junit4.SpringRunner;
 import xyz.staffjoy.company.model.Directory;
 
+import java.util.Arrays;
+import java.util.List;
+
 import static junit.framework.TestCase.assertTrue;
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 
@@ -53,6 +57,11 @@ public class DirectoryRepoTest {
         assertThat(foundDirectory).isNotNull();
         assertThat(foundDirectory).isEqualTo(directory1);
 
+        // test findByCompanyIdAndUserIdIn
+        List<Directory> foundDirectories = directoryRepo.findByCompanyIdAndUserIdIn("C100001", Arrays.asList("U100001", "U100002", "U100003"));
+        Assertions.assertThat(foundDirectories).containsExactlyInAnyOrder(directory1, directory2);
+        foundDirectories = directoryRepo.findByCompanyIdAndUserIdIn("C100002", Arrays.asList("U100001", "U100002"));
+        Assertions.assertThat(foundDirectories).isEmpty();
 
         // test pagination
         Pageable pageRequest = PageRequest.of(1, 1);
@@ -65,6 +74,15 @@ public class DirectoryRepoTest {
         assertThat(directoryPage.getTotalPages()).isEqualTo(1);
         assertThat(directoryPage.getTotalElements()).isEqualTo(2);
 
+        // test keyset pagination
+        List<Directory> firstPage = directoryRepo.findByCompanyIdAndIdGreaterThanOrderByIdAsc("C100001", "", PageRequest.of(0, 1));
+        Assertions.assertThat(firstPage).hasSize(1);
+        List<Directory> secondPage = directoryRepo.findByCompanyIdAndIdGreaterThanOrderByIdAsc("C100001", firstPage.get(0).getId(), PageRequest.of(0, 1));
+        Assertions.assertThat(secondPage).hasSize(1);
+        assertThat(secondPage.get(0).getId()).isGreaterThan(firstPage.get(0).getId());
+        Assertions.assertThat(directoryRepo.findByCompanyIdAndIdGreaterThanOrderByIdAsc("C100001", secondPage.get(0).getId(), PageRequest.of(0, 1))).isEmpty();
+        Assertions.assertThat(directoryRepo.findByCompanyIdOrderByIdAsc("C100001", PageRequest.of(1, 1))).containsExactlyElementsOf(secondPage);
+
         // test update
         directory1.setInternalId("I10000X");
         int result = directoryRepo.updateInternalIdByCompanyIdAndUserId(directory1.getInternalId(), "C100001", "U100001");
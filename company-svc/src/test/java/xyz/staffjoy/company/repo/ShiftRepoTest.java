@@ -7,12 +7,14 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.test.context.junit4.SpringRunner;
 import xyz.staffjoy.company.model.Shift;
 
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
-import java.util.List;
+import java.util.*;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -113,13 +115,6 @@ public class ShiftRepoTest {
         int count = shiftRepo.getPeopleOnShifts();
         assertThat(count).isEqualTo(1);
 
-        // FIXME mysql specific, incompatible with h2
-        /*
-        List<ShiftRepo.IScheduledPerWeek> scheduledPerWeek = shiftRepo.getScheduledPerweekList();
-        assertThat(scheduledPerWeek.size()).isEqualTo(1);
-        assertThat(scheduledPerWeek.get(0).getCount()).isEqualTo(1);
-        */
-
         Shift shiftToUpdate = Shift.builder().id(shift2.getId())
                 .teamId("T100002").userId("U100002").jobId("J100002")
                 .published(true)
@@ -135,6 +130,13 @@ public class ShiftRepoTest {
         count = shiftRepo.getPeopleOnShifts();
         assertThat(count).isEqualTo(2);
 
+        int updated = shiftRepo.updatePublishedByIdIn(false, Arrays.asList(shift1.getId(), shiftToUpdate.getId()));
+        assertThat(updated).isEqualTo(2);
+        assertThat(shiftRepo.findShiftById(shift1.getId()).isPublished()).isFalse();
+        assertThat(shiftRepo.findShiftById(shiftToUpdate.getId()).isPublished()).isFalse();
+        count = shiftRepo.getPeopleOnShifts();
+        assertThat(count).isEqualTo(0);
+
         int result = shiftRepo.deleteShiftById(shiftToUpdate.getId());
         assertThat(result).isEqualTo(1);
         found = shiftRepo.findShiftById(shiftToUpdate.getId());
@@ -142,6 +144,59 @@ public class ShiftRepoTest {
 
     }
 
+    @Test
+    public void testKeysetScan() {
+        Instant now = Instant.now();
+        List<Shift> seeded = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            // every start is shared by 5 shifts, so the id breaks the ties
+            Instant start = now.plus(i / 5, ChronoUnit.MINUTES);
+            seeded.add(Shift.builder()
+                    .teamId("T100001").userId("U10000" + (i % 3)).jobId("J100001")
+                    .start(start)
+                    .stop(start.plus(1, ChronoUnit.HOURS))
+                    .build());
+        }
+        // rows of another team in the same range
+        for (int i = 0; i < 100; i++) {
+            seeded.add(Shift.builder()
+                    .teamId("T100002").userId("U100000").jobId("J100001")
+                    .start(now.plus(i, ChronoUnit.MINUTES))
+                    .stop(now.plus(i + 60, ChronoUnit.MINUTES))
+                    .build());
+        }
+        shiftRepo.saveAll(seeded);
+
+        Instant end = now.plus(1, ChronoUnit.DAYS);
+        Instant cursorStart = now;
+        String cursorId = "";
+        Set<String> seen = new HashSet<>();
+        Shift previous = null;
+        List<Shift> page;
+        do {
+            page = shiftRepo.scanShiftByTeamId("T100001", cursorStart, cursorId, end, PageRequest.of(0, 300));
+            for (Shift shift : page) {
+                assertThat(shift.getTeamId()).isEqualTo("T100001");
+                assertThat(seen.add(shift.getId())).isTrue();
+                if (previous != null) {
+                    assertThat(!shift.getStart().isBefore(previous.getStart())).isTrue();
+                    if (shift.getStart().equals(previous.getStart())) {
+                        assertThat(shift.getId().compareTo(previous.getId())).isPositive();
+                    }
+                }
+                previous = shift;
+            }
+            if (!page.isEmpty()) {
+                cursorStart = page.get(page.size() - 1).getStart();
+                cursorId = page.get(page.size() - 1).getId();
+            }
+        } while (page.size() == 300);
+        assertThat(seen.size()).isEqualTo(5000);
+
+        List<Shift> workerShifts = shiftRepo.scanShiftByUserId("T100001", "U100001", now, "", end, Pageable.unpaged());
+        assertThat(workerShifts.size()).isEqualTo(1667);
+    }
+
     @After
     public void destroy() {
         shiftRepo.deleteAll();
@@ -8,8 +8,10 @@ import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.junit4.SpringRunner;
+import xyz.staffjoy.company.model.Team;
 import xyz.staffjoy.company.model.Worker;
 
+import java.util.Arrays;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -22,9 +24,13 @@ public class WorkerRepoTest {
     @Autowired
     WorkerRepo workerRepo;
 
+    @Autowired
+    TeamRepo teamRepo;
+
     @Before
     public void setUp() {
         workerRepo.deleteAll();
+        teamRepo.deleteAll();
     }
 
     @Test
@@ -59,8 +65,27 @@ public class WorkerRepoTest {
         assertThat(worker5).isNull();
     }
 
+    @Test
+    public void testFindTeamsOfUsers() {
+        Team team1 = teamRepo.save(Team.builder().companyId("C100001").name("team1").build());
+        Team team2 = teamRepo.save(Team.builder().companyId("C100001").name("team2").build());
+        Team otherTeam = teamRepo.save(Team.builder().companyId("C100002").name("other").build());
+
+        workerRepo.save(Worker.builder().teamId(team1.getId()).userId("U100001").build());
+        workerRepo.save(Worker.builder().teamId(team2.getId()).userId("U100001").build());
+        workerRepo.save(Worker.builder().teamId(team2.getId()).userId("U100002").build());
+        workerRepo.save(Worker.builder().teamId(otherTeam.getId()).userId("U100002").build());
+        workerRepo.save(Worker.builder().teamId(team1.getId()).userId("U100003").build());
+
+        List<Object[]> rows = workerRepo.findTeamsOfUsers("C100001", Arrays.asList("U100001", "U100002"));
+        assertThat(rows.size()).isEqualTo(3);
+        assertThat(rows).extracting(row -> row[0] + "/" + ((Team) row[1]).getName())
+                .containsExactlyInAnyOrder("U100001/team1", "U100001/team2", "U100002/team2");
+    }
+
     @After
     public void destroy() {
         workerRepo.deleteAll();
+        teamRepo.deleteAll();
     }
 }
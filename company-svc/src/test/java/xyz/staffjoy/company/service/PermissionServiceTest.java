@@ -0,0 +1,131 @@
+package xyz.staffjoy.company.service;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import xyz.staffjoy.account.client.AccountClient;
+import xyz.staffjoy.account.dto.TrackEventRequest;
+import xyz.staffjoy.common.api.BaseResponse;
+import xyz.staffjoy.common.auth.AuthConstant;
+import xyz.staffjoy.common.auth.PermissionDeniedException;
+import xyz.staffjoy.company.dto.CompanyDto;
+import xyz.staffjoy.company.dto.DirectoryEntryDto;
+import xyz.staffjoy.company.model.Admin;
+import xyz.staffjoy.company.repo.AdminRepo;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+        "staffjoy.permission-cache.ttl=1000",
+        "staffjoy.permission-cache.denial-ttl=300"
+})
+@RunWith(SpringRunner.class)
+public class PermissionServiceTest {
+    @Autowired
+    PermissionService permissionService;
+
+    @Autowired
+    AdminService adminService;
+
+    @Autowired
+    AdminRepo adminRepo;
+
+    @MockBean
+    CompanyService companyService;
+
+    @MockBean
+    DirectoryService directoryService;
+
+    @MockBean
+    AccountClient accountClient;
+
+    private String companyId;
+    private String userId;
+
+    @Before
+    public void setUp() {
+        adminRepo.deleteAll();
+        companyId = UUID.randomUUID().toString();
+        userId = UUID.randomUUID().toString();
+
+        when(companyService.getCompany(companyId)).thenReturn(CompanyDto.builder().id(companyId).build());
+        when(directoryService.getDirectoryEntry(companyId, userId))
+                .thenReturn(DirectoryEntryDto.builder().companyId(companyId).userId(userId).build());
+        when(accountClient.trackEvent(any(TrackEventRequest.class))).thenReturn(BaseResponse.builder().build());
+
+        // the current user is taken from the request header
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(AuthConstant.CURRENT_USER_HEADER, userId);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+    }
+
+    @Test
+    public void testRevokedAdminDeniedOnNextCall() {
+        adminService.createAdmin(companyId, userId);
+        // cache the grant
+        permissionService.checkPermissionCompanyAdmin(companyId);
+
+        adminService.deleteAdmin(companyId, userId);
+
+        assertThatThrownBy(() -> permissionService.checkPermissionCompanyAdmin(companyId))
+                .isInstanceOf(PermissionDeniedException.class);
+    }
+
+    @Test
+    public void testGrantClearsCachedDenial() {
+        // cache the denial
+        assertThatThrownBy(() -> permissionService.checkPermissionCompanyAdmin(companyId))
+                .isInstanceOf(PermissionDeniedException.class);
+
+        adminService.createAdmin(companyId, userId);
+
+        assertThatCode(() -> permissionService.checkPermissionCompanyAdmin(companyId)).doesNotThrowAnyException();
+    }
+
+    @Test
+    public void testDenialExpiresAfterTtl() throws Exception {
+        assertThatThrownBy(() -> permissionService.checkPermissionCompanyAdmin(companyId))
+                .isInstanceOf(PermissionDeniedException.class);
+
+        // granted behind the service's back, nothing evicts the denial
+        adminRepo.save(Admin.builder().companyId(companyId).userId(userId).build());
+        assertThatThrownBy(() -> permissionService.checkPermissionCompanyAdmin(companyId))
+                .isInstanceOf(PermissionDeniedException.class);
+
+        Thread.sleep(500);
+        assertThatCode(() -> permissionService.checkPermissionCompanyAdmin(companyId)).doesNotThrowAnyException();
+    }
+
+    @Test
+    public void testGrantExpiresAfterTtl() throws Exception {
+        adminRepo.save(Admin.builder().companyId(companyId).userId(userId).build());
+        permissionService.checkPermissionCompanyAdmin(companyId);
+
+        // revoked behind the service's back, nothing evicts the grant
+        adminRepo.deleteAdmin(companyId, userId);
+        assertThatCode(() -> permissionService.checkPermissionCompanyAdmin(companyId)).doesNotThrowAnyException();
+
+        Thread.sleep(1300);
+        assertThatThrownBy(() -> permissionService.checkPermissionCompanyAdmin(companyId))
+                .isInstanceOf(PermissionDeniedException.class);
+    }
+
+    @After
+    public void destroy() {
+        RequestContextHolder.resetRequestAttributes();
+        adminRepo.deleteAll();
+    }
+}
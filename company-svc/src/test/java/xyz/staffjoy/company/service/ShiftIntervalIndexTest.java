@@ -0,0 +1,84 @@
+package xyz.staffjoy.company.service;
+
+import org.junit.Test;
+import xyz.staffjoy.company.service.ShiftIntervalIndex.ShiftInterval;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ShiftIntervalIndexTest {
+
+    private final Instant base = Instant.parse("2019-01-07T00:00:00Z");
+
+    @Test
+    public void testOverlapsMatchBruteForce() {
+        Random random = new Random(42);
+        List<ShiftInterval> intervals = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            Instant start = base.plus(random.nextInt(7 * 24 * 60), ChronoUnit.MINUTES);
+            Instant stop = start.plus(1 + random.nextInt(12 * 60), ChronoUnit.MINUTES);
+            intervals.add(new ShiftInterval("S" + i, "U" + random.nextInt(20), start, stop));
+        }
+        ShiftIntervalIndex index = ShiftIntervalIndex.of(intervals);
+        assertThat(index.size()).isEqualTo(2000);
+
+        for (int i = 0; i < 500; i++) {
+            String userId = "U" + random.nextInt(20);
+            Instant start = base.plus(random.nextInt(7 * 24 * 60), ChronoUnit.MINUTES);
+            Instant stop = start.plus(1 + random.nextInt(12 * 60), ChronoUnit.MINUTES);
+
+            Set<String> expected = new HashSet<>();
+            for (ShiftInterval interval : intervals) {
+                if (interval.getUserId().equals(userId)
+                        && interval.getStart() < stop.toEpochMilli() && interval.getStop() > start.toEpochMilli()) {
+                    expected.add(interval.getId());
+                }
+            }
+            Set<String> found = new HashSet<>();
+            index.forEachOverlap(userId, start, stop, interval -> found.add(interval.getId()));
+            assertThat(found).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    public void testAdjacentShiftsDoNotOverlap() {
+        ShiftIntervalIndex index = ShiftIntervalIndex.of(Arrays.asList(
+                new ShiftInterval("S1", "U1", base, base.plus(8, ChronoUnit.HOURS)),
+                // long shift earlier in the week, still running
+                new ShiftInterval("S2", "U1", base.minus(1, ChronoUnit.DAYS), base.plus(20, ChronoUnit.HOURS)),
+                new ShiftInterval("S3", "", base, base.plus(8, ChronoUnit.HOURS))));
+        assertThat(index.size()).isEqualTo(2);
+
+        List<String> found = new ArrayList<>();
+        index.forEachOverlap("U1", base.plus(8, ChronoUnit.HOURS), base.plus(16, ChronoUnit.HOURS), interval -> found.add(interval.getId()));
+        assertThat(found).containsExactly("S2");
+
+        found.clear();
+        index.forEachOverlap("U1", base.plus(20, ChronoUnit.HOURS), base.plus(24, ChronoUnit.HOURS), interval -> found.add(interval.getId()));
+        assertThat(found).isEmpty();
+    }
+
+    @Test
+    public void testWithAndWithout() {
+        ShiftIntervalIndex index = ShiftIntervalIndex.EMPTY
+                .with(new ShiftInterval("S1", "U1", base, base.plus(8, ChronoUnit.HOURS)))
+                .with(new ShiftInterval("S2", "U2", base, base.plus(8, ChronoUnit.HOURS)));
+        assertThat(index.size()).isEqualTo(2);
+        assertThat(ShiftIntervalIndex.EMPTY.size()).isEqualTo(0);
+
+        // moving a shift replaces it
+        ShiftIntervalIndex moved = index.with(new ShiftInterval("S1", "U1", base.plus(1, ChronoUnit.DAYS), base.plus(25, ChronoUnit.HOURS)));
+        assertThat(moved.size()).isEqualTo(2);
+        List<String> found = new ArrayList<>();
+        moved.forEachOverlap("U1", base, base.plus(8, ChronoUnit.HOURS), interval -> found.add(interval.getId()));
+        assertThat(found).isEmpty();
+
+        ShiftIntervalIndex removed = moved.without("S1", "U1");
+        assertThat(removed.size()).isEqualTo(1);
+        assertThat(index.size()).isEqualTo(2);
+        assertThat(removed.without("S1", "U1")).isSameAs(removed);
+    }
+}
@@ -0,0 +1,185 @@
+package xyz.staffjoy.company.service;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.test.context.junit4.SpringRunner;
+import xyz.staffjoy.company.dto.ShiftDto;
+import xyz.staffjoy.company.dto.ShiftRollupReport;
+import xyz.staffjoy.company.mapper.ShiftMapper;
+import xyz.staffjoy.company.model.Shift;
+import xyz.staffjoy.company.model.ShiftWeek;
+import xyz.staffjoy.company.model.Team;
+import xyz.staffjoy.company.repo.ShiftRepo;
+import xyz.staffjoy.company.repo.ShiftWeekRepo;
+import xyz.staffjoy.company.repo.ShiftWeekUserRepo;
+import xyz.staffjoy.company.repo.TeamRepo;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.reset;
+
+// 修复由测试直接调用，不依赖定时任务
+@SpringBootTest(webEnvironment= SpringBootTest.WebEnvironment.NONE, properties = "staffjoy.shift-rollup.repair-interval=3600000")
+@RunWith(SpringRunner.class)
+public class ShiftRollupServiceTest {
+    @Autowired
+    ShiftRollupService shiftRollupService;
+
+    @Autowired
+    ShiftRepo shiftRepo;
+
+    @Autowired
+    TeamRepo teamRepo;
+
+    @Autowired
+    ShiftWeekRepo shiftWeekRepo;
+
+    @SpyBean
+    ShiftWeekUserRepo shiftWeekUserRepo;
+
+    private String companyId = "C100001";
+    private Team team;
+    // 2019-01-07为周一
+    private Instant monday = Instant.parse("2019-01-07T09:00:00Z");
+
+    @Before
+    public void setUp() {
+        shiftRepo.deleteAll();
+        teamRepo.deleteAll();
+        shiftWeekUserRepo.deleteAll();
+        shiftWeekRepo.deleteAll();
+        team = teamRepo.save(Team.builder().companyId(companyId).name("team1").build());
+    }
+
+    @Test
+    public void testIncrementalUpdatesMatchRebuild() {
+        ShiftDto shift1 = createShift("U100001", true, monday);
+        ShiftDto shift2 = createShift("U100001", true, monday.plus(2, ChronoUnit.DAYS));
+        ShiftDto shift3 = createShift("U100002", false, monday.plus(6, ChronoUnit.DAYS));
+        createShift("", true, monday.plus(7, ChronoUnit.DAYS));
+
+        ShiftWeek week = shiftWeekRepo.findById("2019-01-07/" + companyId).get();
+        assertThat(week.getShiftCount()).isEqualTo(3);
+        assertThat(week.getPeople()).isEqualTo(1);
+        assertThat(shiftWeekRepo.findById("2019-01-14/" + companyId).get().getPeople()).isEqualTo(0);
+        // 没有全局汇总行
+        assertThat(shiftWeekRepo.findById("2019-01-07/")).isEmpty();
+
+        // 发布shift3，第一周多一个排班的人
+        shiftRollupService.shiftsPublished(companyId, Arrays.asList(shift3), true);
+        shiftRepo.updatePublishedByIdIn(true, Arrays.asList(shift3.getId()));
+        assertThat(shiftWeekRepo.findById("2019-01-07/" + companyId).get().getPeople()).isEqualTo(2);
+
+        // shift1移到下一周，U100001在第一周还有shift2
+        ShiftDto moved = shift1.toBuilder()
+                .start(monday.plus(8, ChronoUnit.DAYS))
+                .stop(monday.plus(8, ChronoUnit.DAYS).plus(8, ChronoUnit.HOURS))
+                .build();
+        shiftRepo.save(ShiftMapper.toModel(moved));
+        shiftRollupService.shiftUpdated(companyId, shift1, moved);
+        week = shiftWeekRepo.findById("2019-01-07/" + companyId).get();
+        assertThat(week.getShiftCount()).isEqualTo(2);
+        assertThat(week.getPeople()).isEqualTo(2);
+        assertThat(shiftWeekRepo.findById("2019-01-14/" + companyId).get().getPeople()).isEqualTo(1);
+
+        shiftRepo.deleteShiftById(shift2.getId());
+        shiftRollupService.shiftDeleted(companyId, shift2);
+        assertThat(shiftWeekRepo.findById("2019-01-07/" + companyId).get().getPeople()).isEqualTo(1);
+
+        ShiftRollupReport report = shiftRollupService.check();
+        assertThat(report.getMismatches()).isEmpty();
+        assertThat(report.getMismatchCount()).isEqualTo(0);
+
+        Map<String, Integer> perWeek = shiftRollupService.getPeopleScheduledPerWeek();
+        assertThat(perWeek).containsEntry("2019-01-07", 1).containsEntry("2019-01-14", 1).hasSize(2);
+    }
+
+    @Test
+    public void testCheckAndRebuild() {
+        // 直接写入shift表，绕过增量维护
+        shiftRepo.save(Shift.builder().teamId(team.getId()).jobId("J100001").userId("U100001").published(true)
+                .start(monday).stop(monday.plus(8, ChronoUnit.HOURS)).build());
+        shiftRepo.save(Shift.builder().teamId(team.getId()).jobId("J100001").userId("U100002").published(true)
+                .start(monday.plus(1, ChronoUnit.DAYS)).stop(monday.plus(1, ChronoUnit.DAYS).plus(8, ChronoUnit.HOURS)).build());
+
+        ShiftRollupReport report = shiftRollupService.check();
+        assertThat(report.getMismatchCount()).isEqualTo(3);
+
+        report = shiftRollupService.rebuild();
+        assertThat(report.getWeeks()).isEqualTo(1);
+        assertThat(report.getUsers()).isEqualTo(2);
+
+        ShiftWeek week = shiftWeekRepo.findById("2019-01-07/" + companyId).get();
+        assertThat(week.getWeekStart()).isEqualTo(LocalDate.of(2019, 1, 7));
+        assertThat(week.getShiftCount()).isEqualTo(2);
+        assertThat(week.getPeople()).isEqualTo(2);
+        assertThat(shiftRollupService.check().getMismatchCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void testPeopleScheduledAcrossCompanies() {
+        Team otherTeam = teamRepo.save(Team.builder().companyId("C100002").name("team2").build());
+        createShift("U100001", true, monday);
+        ShiftDto other = ShiftMapper.toDto(shiftRepo.save(Shift.builder().teamId(otherTeam.getId()).jobId("J100001")
+                .userId("U100001").published(true).start(monday).stop(monday.plus(8, ChronoUnit.HOURS)).build()));
+        shiftRollupService.shiftCreated("C100002", other);
+        createShift("U100002", false, monday.plus(7, ChronoUnit.DAYS));
+
+        // 同一个人在两个公司排班只算一次，没有人排班的周为0
+        Map<String, Integer> perWeek = shiftRollupService.getPeopleScheduledPerWeek();
+        assertThat(perWeek).containsEntry("2019-01-07", 1).containsEntry("2019-01-14", 0).hasSize(2);
+        assertThat(shiftWeekRepo.findById("2019-01-07/C100002").get().getPeople()).isEqualTo(1);
+        assertThat(shiftRollupService.check().getMismatchCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void testFailedUpdateIsRepaired() {
+        createShift("U100001", true, monday);
+
+        doThrow(new QueryTimeoutException("lock wait timeout")).when(shiftWeekUserRepo).findForUpdateById(anyString());
+        createShift("U100002", true, monday.plus(1, ChronoUnit.DAYS));
+        reset(shiftWeekUserRepo);
+
+        // 班次已写入，汇总行没有更新
+        assertThat(shiftWeekRepo.findById("2019-01-07/" + companyId).get().getShiftCount()).isEqualTo(1);
+        assertThat(shiftRollupService.getPendingRepairs()).isEqualTo(1);
+
+        shiftRollupService.repairFailed();
+
+        ShiftWeek week = shiftWeekRepo.findById("2019-01-07/" + companyId).get();
+        assertThat(week.getShiftCount()).isEqualTo(2);
+        assertThat(week.getPeople()).isEqualTo(2);
+        assertThat(shiftRollupService.getPendingRepairs()).isEqualTo(0);
+        assertThat(shiftRollupService.check().getMismatchCount()).isEqualTo(0);
+    }
+
+    @After
+    public void destroy() {
+        shiftRepo.deleteAll();
+        teamRepo.deleteAll();
+        shiftWeekUserRepo.deleteAll();
+        shiftWeekRepo.deleteAll();
+    }
+
+    private ShiftDto createShift(String userId, boolean published, Instant start) {
+        Shift shift = shiftRepo.save(Shift.builder().teamId(team.getId()).jobId("J100001").userId(userId).published(published)
+                .start(start).stop(start.plus(8, ChronoUnit.HOURS)).build());
+        ShiftDto shiftDto = ShiftMapper.toDto(shift);
+        shiftDto.setCompanyId(companyId);
+        shiftRollupService.shiftCreated(companyId, shiftDto);
+        return shiftDto;
+    }
+}
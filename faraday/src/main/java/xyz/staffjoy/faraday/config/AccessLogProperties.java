@@ -0,0 +1,23 @@
+package xyz.staffjoy.faraday.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class AccessLogProperties {
+    /**
+     * Flag for enabling and disabling the access log.
+     */
+    private boolean enabled = true;
+    /**
+     * Maximum number of access log entries waiting to be written, further entries are dropped.
+     */
+    private int queueSize = 8192;
+    /**
+     * Duration in milliseconds above which a request is logged as slow, with extra detail.
+     */
+    private int slowThreshold = 1000;
+}
@@ -0,0 +1,28 @@
+package xyz.staffjoy.faraday.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BanListProperties {
+    /**
+     * Location of the banned user ids, one per line, e.g. file:/etc/staffjoy/banned-users.txt
+     * or an internal admin endpoint such as http://admin/banned-users.
+     */
+    private String location = "classpath:banned-users.txt";
+    /**
+     * Interval in milliseconds at which the ban list is reloaded in background.
+     */
+    private int refreshInterval = 60000;
+    /**
+     * Minimum number of banned users for which a Bloom filter is checked before the set.
+     */
+    private int bloomFilterThreshold = 10000;
+    /**
+     * Expected false positive probability of the Bloom filter.
+     */
+    private double bloomFilterFalsePositiveRate = 0.01;
+}
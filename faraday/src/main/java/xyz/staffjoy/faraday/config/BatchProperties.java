@@ -0,0 +1,44 @@
+package xyz.staffjoy.faraday.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BatchProperties {
+    /**
+     * Flag for enabling and disabling the batch endpoint.
+     */
+    private boolean enabled = true;
+    /**
+     * Source host serving the batch endpoint, defaults to the www host of the external apex.
+     * Requests to the batch path on any other host are proxied as usual.
+     */
+    private String host;
+    /**
+     * Path of the batch endpoint.
+     */
+    private String path = "/batch";
+    /**
+     * Maximum size in bytes of the batch request body.
+     */
+    private int maxRequestSize = 262144;
+    /**
+     * Maximum number of sub-requests in one batch.
+     */
+    private int maxRequests = 20;
+    /**
+     * Maximum number of sub-requests of one batch forwarded at the same time.
+     */
+    private int maxConcurrency = 5;
+    /**
+     * Deadline in milliseconds for the whole batch, unfinished sub-requests are answered with 504.
+     */
+    private int timeout = 10000;
+    /**
+     * Number of threads forwarding sub-requests, shared by all batches.
+     */
+    private int threads = 32;
+}
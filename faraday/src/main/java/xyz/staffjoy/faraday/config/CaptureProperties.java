@@ -0,0 +1,51 @@
+package xyz.staffjoy.faraday.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CaptureProperties {
+    /**
+     * Flag for enabling and disabling the capture of sampled requests into a binary log.
+     */
+    private boolean enabled = false;
+    /**
+     * Fraction of requests captured, between 0 and 1.
+     */
+    private double sampleRate = 0.01;
+    /**
+     * Directory the capture logs are written to, one file per gateway start.
+     */
+    private String directory = "capture";
+    /**
+     * Capacity of the queue between request threads and the capture writer, captures are dropped when full.
+     */
+    private int queueSize = 4096;
+    /**
+     * Maximum size in bytes of a captured body, larger bodies are replayed as zero-filled bodies of the same size.
+     * Queued bodies are reserved against the memory budget, captures are dropped when it is exhausted.
+     */
+    private int maxBodySize = 64 * 1024;
+    /**
+     * Path prefixes whose bodies, carrying passwords and other credentials, are never captured,
+     * they are replayed as zero-filled bodies of the same size.
+     */
+    private List<String> redactedBodyPaths = new ArrayList<>(Arrays.asList(
+            "/login", "/reset", "/activate", "/confirm", "/new_company", "/v1/account"));
+    /**
+     * Headers never written to the capture log.
+     */
+    private List<String> redactedHeaders = new ArrayList<>(Arrays.asList(
+            "Authorization", "Proxy-Authorization", "X-Forwarded-For"));
+    /**
+     * Test signing secret the session cookie is re-signed with, the cookie is dropped when empty.
+     */
+    private String resignSecret;
+}
@@ -0,0 +1,28 @@
+package xyz.staffjoy.faraday.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class DnsProperties {
+    /**
+     * Flag for enabling and disabling caching of destination host lookups.
+     * When disabled every connection goes through the JVM resolver.
+     */
+    private boolean enabled = true;
+    /**
+     * Time to live in milliseconds of a resolved entry, after which the host is resolved again.
+     * The JVM resolver does not expose the TTL of DNS records, so by default (-1) the TTL the JVM resolver itself
+     * honours is used, which is the 'networkaddress.cache.ttl' security property, or 30 seconds when it is not set.
+     * Set it to the TTL of the destination records when that is shorter.
+     */
+    private int ttl = -1;
+    /**
+     * Maximum age in milliseconds of a cached entry that is still served when refreshes keep failing.
+     * Older entries are resolved again on the request thread.
+     */
+    private int maxStale = 300000;
+}
@@ -0,0 +1,22 @@
+package xyz.staffjoy.faraday.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class EtagProperties {
+    /**
+     * Flag for enabling and disabling strong ETags generated from upstream response bodies.
+     */
+    private boolean enabled = false;
+    /**
+     * Names of the mappings whose responses get an ETag, all mappings when empty.
+     */
+    private List<String> routes = new ArrayList<>();
+}
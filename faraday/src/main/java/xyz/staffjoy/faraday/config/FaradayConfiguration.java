@@ -1,7 +1,9 @@
 package xyz.staffjoy.faraday.config;
 
 import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.http.impl.conn.SystemDefaultDnsResolver;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.autoconfigure.web.ServerProperties;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.boot.web.servlet.FilterRegistrationBean;
@@ -12,17 +14,30 @@ import org.springframework.core.Ordered;
 import xyz.staffjoy.common.config.StaffjoyWebConfig;
 import xyz.staffjoy.common.env.EnvConfig;
 import xyz.staffjoy.faraday.core.filter.FaviconFilter;
+import xyz.staffjoy.faraday.core.filter.GatewayFilter;
 import xyz.staffjoy.faraday.core.filter.HealthCheckFilter;
 import xyz.staffjoy.faraday.core.filter.NakedDomainFilter;
 import xyz.staffjoy.faraday.core.filter.SecurityFilter;
+import xyz.staffjoy.faraday.core.filter.StatsFilter;
 import xyz.staffjoy.faraday.core.interceptor.*;
+import xyz.staffjoy.faraday.core.accesslog.AccessLogger;
 import xyz.staffjoy.faraday.core.balancer.LoadBalancer;
 import xyz.staffjoy.faraday.core.balancer.RandomLoadBalancer;
+import xyz.staffjoy.faraday.core.ban.BanList;
+import xyz.staffjoy.faraday.core.batch.BatchFilter;
+import xyz.staffjoy.faraday.core.bulkhead.BulkheadRegistry;
+import xyz.staffjoy.faraday.core.capture.TrafficCapture;
+import xyz.staffjoy.faraday.core.dns.CachingDnsResolver;
+import xyz.staffjoy.faraday.core.etag.EtagGenerator;
 import xyz.staffjoy.faraday.core.http.*;
 import xyz.staffjoy.faraday.core.mappings.ConfigurationMappingsProvider;
 import xyz.staffjoy.faraday.core.mappings.MappingsProvider;
 import xyz.staffjoy.faraday.core.mappings.MappingsValidator;
+import xyz.staffjoy.faraday.core.memory.MemoryBudget;
+import xyz.staffjoy.faraday.core.priority.FairAdmissionQueue;
+import xyz.staffjoy.faraday.core.priority.RequestClassifier;
 import xyz.staffjoy.faraday.core.mappings.ProgrammaticMappingsProvider;
+import xyz.staffjoy.faraday.core.stats.GatewayStats;
 import xyz.staffjoy.faraday.core.trace.LoggingTraceInterceptor;
 import xyz.staffjoy.faraday.core.trace.ProxyingTraceInterceptor;
 import xyz.staffjoy.faraday.core.trace.TraceInterceptor;
@@ -70,7 +85,56 @@ public class FaradayConfiguration {
         return registrationBean;
     }
 
+    /**
+     * 注册合并的网关过滤器，代替下面四个独立的过滤器
+     * @param envConfig
+     * @return
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "faraday", name = "enable-fused-filter-chain", matchIfMissing = true)
+    public FilterRegistrationBean<GatewayFilter> gatewayFilterRegistrationBean(EnvConfig envConfig) {
+        FilterRegistrationBean<GatewayFilter> registrationBean =
+                new FilterRegistrationBean<>(new GatewayFilter(envConfig, assetLoader.getFaviconFile()));
+        registrationBean.setOrder(Ordered.HIGHEST_PRECEDENCE + 70); // before ReverseProxyFilter
+        return registrationBean;
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "faraday.stats", name = "enabled", matchIfMissing = true)
+    public FilterRegistrationBean<StatsFilter> statsFilterRegistrationBean(GatewayStats gatewayStats,
+                                                                          HttpClientProvider httpClientProvider,
+                                                                          BulkheadRegistry bulkheadRegistry,
+                                                                          FairAdmissionQueue admissionQueue) {
+        FilterRegistrationBean<StatsFilter> registrationBean = new FilterRegistrationBean<>(
+                new StatsFilter(faradayProperties.getStats(), gatewayStats, httpClientProvider, bulkheadRegistry,
+                        admissionQueue));
+        registrationBean.setOrder(Ordered.HIGHEST_PRECEDENCE + 60); // before gatewayFilter, internal only
+        return registrationBean;
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "faraday.batch", name = "enabled", matchIfMissing = true)
+    public FilterRegistrationBean<BatchFilter> batchFilterRegistrationBean(RequestDataExtractor extractor,
+                                                                          MappingsProvider mappingsProvider,
+                                                                          RequestForwarder requestForwarder,
+                                                                          ProxyingTraceInterceptor traceInterceptor,
+                                                                          PreForwardRequestInterceptor requestInterceptor,
+                                                                          BulkheadRegistry bulkheadRegistry,
+                                                                          AccessLogger accessLogger,
+                                                                          MemoryBudget memoryBudget,
+                                                                          RequestClassifier requestClassifier,
+                                                                          FairAdmissionQueue admissionQueue,
+                                                                          EnvConfig envConfig) {
+        FilterRegistrationBean<BatchFilter> registrationBean = new FilterRegistrationBean<>(
+                new BatchFilter(faradayProperties.getBatch(), extractor, mappingsProvider, requestForwarder,
+                        traceInterceptor, requestInterceptor, bulkheadRegistry, accessLogger, memoryBudget,
+                        requestClassifier, admissionQueue, envConfig));
+        registrationBean.setOrder(Ordered.HIGHEST_PRECEDENCE + 95); // after gatewayFilter, before ReverseProxyFilter
+        return registrationBean;
+    }
+
     @Bean
+    @ConditionalOnProperty(prefix = "faraday", name = "enable-fused-filter-chain", havingValue = "false")
     public FilterRegistrationBean<NakedDomainFilter> nakedDomainFilterRegistrationBean(EnvConfig envConfig) {
         FilterRegistrationBean<NakedDomainFilter> registrationBean =
                 new FilterRegistrationBean<>(new NakedDomainFilter(envConfig));
@@ -79,6 +143,7 @@ public class FaradayConfiguration {
     }
 
     @Bean
+    @ConditionalOnProperty(prefix = "faraday", name = "enable-fused-filter-chain", havingValue = "false")
     public FilterRegistrationBean<SecurityFilter> securityFilterRegistrationBean(EnvConfig envConfig) {
         FilterRegistrationBean<SecurityFilter> registrationBean =
                 new FilterRegistrationBean<>(new SecurityFilter(envConfig));
@@ -87,6 +152,7 @@ public class FaradayConfiguration {
     }
 
     @Bean
+    @ConditionalOnProperty(prefix = "faraday", name = "enable-fused-filter-chain", havingValue = "false")
     public FilterRegistrationBean<FaviconFilter> faviconFilterRegistrationBean() {
         FilterRegistrationBean<FaviconFilter> registrationBean =
                 new FilterRegistrationBean<>(new FaviconFilter(assetLoader.getFaviconFile()));
@@ -95,6 +161,7 @@ public class FaradayConfiguration {
     }
 
     @Bean
+    @ConditionalOnProperty(prefix = "faraday", name = "enable-fused-filter-chain", havingValue = "false")
     public FilterRegistrationBean<HealthCheckFilter> healthCheckFilterRegistrationBean() {
         FilterRegistrationBean<HealthCheckFilter> registrationBean =
                 new FilterRegistrationBean<>(new HealthCheckFilter());
@@ -109,6 +176,13 @@ public class FaradayConfiguration {
      * @param requestForwarder
      * @param traceInterceptor
      * @param requestInterceptor
+     * @param bulkheadRegistry
+     * @param accessLogger
+     * @param memoryBudget
+     * @param trafficCapture
+     * @param requestClassifier
+     * @param admissionQueue
+     * @param etagGenerator
      * @return
      */
     @Bean
@@ -118,17 +192,74 @@ public class FaradayConfiguration {
             MappingsProvider mappingsProvider,
             RequestForwarder requestForwarder,
             ProxyingTraceInterceptor traceInterceptor,
-            PreForwardRequestInterceptor requestInterceptor
+            PreForwardRequestInterceptor requestInterceptor,
+            BulkheadRegistry bulkheadRegistry,
+            AccessLogger accessLogger,
+            MemoryBudget memoryBudget,
+            TrafficCapture trafficCapture,
+            RequestClassifier requestClassifier,
+            FairAdmissionQueue admissionQueue,
+            EtagGenerator etagGenerator
     ) {
         return new ReverseProxyFilter(faradayProperties, extractor, mappingsProvider,
-                requestForwarder, traceInterceptor, requestInterceptor);
+                requestForwarder, traceInterceptor, requestInterceptor, bulkheadRegistry, accessLogger, memoryBudget,
+                trafficCapture, requestClassifier, admissionQueue, etagGenerator);
+    }
+
+    //实例化RequestClassifier的Bean
+    @Bean
+    @ConditionalOnMissingBean
+    public RequestClassifier faradayRequestClassifier() {
+        return new RequestClassifier(faradayProperties.getPriority());
+    }
+
+    //实例化FairAdmissionQueue的Bean
+    @Bean
+    @ConditionalOnMissingBean
+    public FairAdmissionQueue faradayAdmissionQueue(Optional<MeterRegistry> meterRegistry) {
+        return new FairAdmissionQueue(faradayProperties, meterRegistry);
+    }
+
+    //实例化TrafficCapture的Bean
+    @Bean
+    @ConditionalOnMissingBean
+    public TrafficCapture faradayTrafficCapture(MemoryBudget memoryBudget, Optional<MeterRegistry> meterRegistry) {
+        return new TrafficCapture(faradayProperties, staffjoyPropreties.getSigningSecret(), memoryBudget, meterRegistry);
+    }
+
+    //实例化MemoryBudget的Bean
+    @Bean
+    @ConditionalOnMissingBean
+    public MemoryBudget faradayMemoryBudget(Optional<MeterRegistry> meterRegistry) {
+        return new MemoryBudget(faradayProperties, meterRegistry);
+    }
+
+    //实例化AccessLogger的Bean
+    @Bean
+    @ConditionalOnMissingBean
+    public AccessLogger faradayAccessLogger(Optional<MeterRegistry> meterRegistry) {
+        return new AccessLogger(faradayProperties, meterRegistry);
+    }
+
+    //实例化BulkheadRegistry的Bean
+    @Bean
+    @ConditionalOnMissingBean
+    public BulkheadRegistry faradayBulkheadRegistry(Optional<MeterRegistry> meterRegistry) {
+        return new BulkheadRegistry(faradayProperties, meterRegistry);
     }
 
     //实例化HttpClientProvider的Bean
     @Bean
     @ConditionalOnMissingBean
-    public HttpClientProvider faradayHttpClientProvider() {
-        return new HttpClientProvider();
+    public HttpClientProvider faradayHttpClientProvider(CachingDnsResolver dnsResolver) {
+        return new HttpClientProvider(dnsResolver);
+    }
+
+    //实例化CachingDnsResolver的Bean
+    @Bean
+    @ConditionalOnMissingBean
+    public CachingDnsResolver faradayDnsResolver() {
+        return new CachingDnsResolver(faradayProperties.getDns(), SystemDefaultDnsResolver.INSTANCE);
     }
 
     //实例化RequestDataExtractor的Bean
@@ -143,17 +274,18 @@ public class FaradayConfiguration {
     @ConditionalOnMissingBean
     public MappingsProvider faradayConfigurationMappingsProvider(EnvConfig envConfig,
                                                     MappingsValidator mappingsValidator,
-                                                    HttpClientProvider httpClientProvider) {
+                                                    HttpClientProvider httpClientProvider,
+                                                    BulkheadRegistry bulkheadRegistry) {
         if (faradayProperties.isEnableProgrammaticMapping()) {
             return new ProgrammaticMappingsProvider(
                     envConfig, serverProperties,
                     faradayProperties, mappingsValidator,
-                    httpClientProvider);
+                    httpClientProvider, bulkheadRegistry);
         } else {
             return new ConfigurationMappingsProvider(
                     serverProperties,
                     faradayProperties, mappingsValidator,
-                    httpClientProvider);
+                    httpClientProvider, bulkheadRegistry);
         }
     }
 
@@ -180,12 +312,28 @@ public class FaradayConfiguration {
             LoadBalancer loadBalancer,
             Optional<MeterRegistry> meterRegistry,
             ProxyingTraceInterceptor traceInterceptor,
-            PostForwardResponseInterceptor responseInterceptor
+            PostForwardResponseInterceptor responseInterceptor,
+            GatewayStats gatewayStats,
+            EtagGenerator etagGenerator
     ) {
         return new RequestForwarder(
                 serverProperties, faradayProperties, httpClientProvider,
                 mappingsProvider, loadBalancer, meterRegistry,
-                traceInterceptor, responseInterceptor);
+                traceInterceptor, responseInterceptor, gatewayStats, etagGenerator);
+    }
+
+    //实例化EtagGenerator的Bean
+    @Bean
+    @ConditionalOnMissingBean
+    public EtagGenerator faradayEtagGenerator(Optional<MeterRegistry> meterRegistry) {
+        return new EtagGenerator(faradayProperties, meterRegistry);
+    }
+
+    //实例化GatewayStats的Bean
+    @Bean
+    @ConditionalOnMissingBean
+    public GatewayStats faradayGatewayStats() {
+        return new GatewayStats(faradayProperties.getStats());
     }
 
     @Bean
@@ -202,9 +350,16 @@ public class FaradayConfiguration {
 
     @Bean
     @ConditionalOnMissingBean
-    public PreForwardRequestInterceptor faradayPreForwardRequestInterceptor(EnvConfig envConfig) {
+    public PreForwardRequestInterceptor faradayPreForwardRequestInterceptor(EnvConfig envConfig, BanList banList) {
         //return new NoOpPreForwardRequestInterceptor();
-        return new AuthRequestInterceptor(staffjoyPropreties.getSigningSecret(), envConfig);
+        return new AuthRequestInterceptor(staffjoyPropreties.getSigningSecret(), envConfig, banList);
+    }
+
+    //实例化BanList的Bean
+    @Bean
+    @ConditionalOnMissingBean
+    public BanList faradayBanList() {
+        return new BanList(faradayProperties.getBanList());
     }
 
     @Bean
@@ -2,6 +2,9 @@ package xyz.staffjoy.faraday.config;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.boot.context.properties.NestedConfigurationProperty;
+import org.springframework.validation.annotation.Validated;
+
+import javax.validation.Valid;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -13,6 +16,7 @@ import static org.springframework.core.Ordered.HIGHEST_PRECEDENCE;
  * 配置属性
  */
 @ConfigurationProperties("faraday")
+@Validated
 public class FaradayProperties {
     /**
      * Faraday servlet filter order.
@@ -25,6 +29,12 @@ public class FaradayProperties {
      * 动态配置 开发环境通过配置文件
      */
     private boolean enableProgrammaticMapping = true;
+    /**
+     * Enable the fused gateway filter or not,
+     * false registers the separate health check, favicon, security and naked domain filters
+     * 合并的网关过滤器
+     */
+    private boolean enableFusedFilterChain = true;
     /**
      * Properties responsible for collecting metrics during HTTP requests forwarding.
      * 收集http请求调用链
@@ -37,6 +47,52 @@ public class FaradayProperties {
      */
     @NestedConfigurationProperty
     private TracingProperties tracing = new TracingProperties();
+    /**
+     * Properties responsible for resolving destination hosts.
+     */
+    @NestedConfigurationProperty
+    private DnsProperties dns = new DnsProperties();
+    /**
+     * Properties responsible for loading banned users.
+     */
+    @NestedConfigurationProperty
+    private BanListProperties banList = new BanListProperties();
+    /**
+     * Properties responsible for the access log.
+     */
+    @NestedConfigurationProperty
+    private AccessLogProperties accessLog = new AccessLogProperties();
+    /**
+     * Properties responsible for the live gateway statistics endpoint.
+     */
+    @Valid
+    @NestedConfigurationProperty
+    private StatsProperties stats = new StatsProperties();
+    /**
+     * Properties responsible for the batch endpoint.
+     */
+    @NestedConfigurationProperty
+    private BatchProperties batch = new BatchProperties();
+    /**
+     * Properties responsible for the gateway-wide budget of buffered bodies.
+     */
+    @NestedConfigurationProperty
+    private MemoryBudgetProperties memoryBudget = new MemoryBudgetProperties();
+    /**
+     * Properties responsible for capturing sampled requests for replay.
+     */
+    @NestedConfigurationProperty
+    private CaptureProperties capture = new CaptureProperties();
+    /**
+     * Properties responsible for priority classes and weighted fair admission.
+     */
+    @NestedConfigurationProperty
+    private PriorityProperties priority = new PriorityProperties();
+    /**
+     * Properties responsible for gateway-generated ETags.
+     */
+    @NestedConfigurationProperty
+    private EtagProperties etag = new EtagProperties();
     /**
      * List of proxy mappings.
      */
@@ -67,6 +123,78 @@ public class FaradayProperties {
         this.tracing = tracing;
     }
 
+    public DnsProperties getDns() {
+        return dns;
+    }
+
+    public void setDns(DnsProperties dns) {
+        this.dns = dns;
+    }
+
+    public BanListProperties getBanList() {
+        return banList;
+    }
+
+    public void setBanList(BanListProperties banList) {
+        this.banList = banList;
+    }
+
+    public AccessLogProperties getAccessLog() {
+        return accessLog;
+    }
+
+    public void setAccessLog(AccessLogProperties accessLog) {
+        this.accessLog = accessLog;
+    }
+
+    public StatsProperties getStats() {
+        return stats;
+    }
+
+    public void setStats(StatsProperties stats) {
+        this.stats = stats;
+    }
+
+    public BatchProperties getBatch() {
+        return batch;
+    }
+
+    public void setBatch(BatchProperties batch) {
+        this.batch = batch;
+    }
+
+    public MemoryBudgetProperties getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    public void setMemoryBudget(MemoryBudgetProperties memoryBudget) {
+        this.memoryBudget = memoryBudget;
+    }
+
+    public CaptureProperties getCapture() {
+        return capture;
+    }
+
+    public void setCapture(CaptureProperties capture) {
+        this.capture = capture;
+    }
+
+    public PriorityProperties getPriority() {
+        return priority;
+    }
+
+    public void setPriority(PriorityProperties priority) {
+        this.priority = priority;
+    }
+
+    public EtagProperties getEtag() {
+        return etag;
+    }
+
+    public void setEtag(EtagProperties etag) {
+        this.etag = etag;
+    }
+
     public List<MappingProperties> getMappings() {
         return mappings;
     }
@@ -82,4 +210,12 @@ public class FaradayProperties {
     public void setEnableProgrammaticMapping(boolean enableProgrammaticMapping) {
         this.enableProgrammaticMapping = enableProgrammaticMapping;
     }
+
+    public boolean isEnableFusedFilterChain() {
+        return this.enableFusedFilterChain;
+    }
+
+    public void setEnableFusedFilterChain(boolean enableFusedFilterChain) {
+        this.enableFusedFilterChain = enableFusedFilterChain;
+    }
 }
@@ -31,7 +31,14 @@ public class MappingProperties {
      * Properties responsible for timeout while forwarding HTTP requests.
      */
     private TimeoutProperties timeout = new TimeoutProperties();
-
+    /**
+     * Properties responsible for isolating concurrent HTTP requests forwarded to this mapping.
+     */
+    private BulkheadProperties bulkhead = new BulkheadProperties();
+    /**
+     * Properties responsible for limiting the size of buffered HTTP request and response bodies.
+     */
+    private BodyLimitProperties bodyLimit = new BodyLimitProperties();
 
     /**
      * Custom properties placeholder.
@@ -70,6 +77,22 @@ public class MappingProperties {
         this.timeout = timeout;
     }
 
+    public BulkheadProperties getBulkhead() {
+        return bulkhead;
+    }
+
+    public void setBulkhead(BulkheadProperties bulkhead) {
+        this.bulkhead = bulkhead;
+    }
+
+    public BodyLimitProperties getBodyLimit() {
+        return bodyLimit;
+    }
+
+    public void setBodyLimit(BodyLimitProperties bodyLimit) {
+        this.bodyLimit = bodyLimit;
+    }
+
     public Map<String, Object> getCustomConfiguration() {
         return customConfiguration;
     }
@@ -84,6 +107,8 @@ public class MappingProperties {
         clone.setHost(host);
         clone.setDestinations(destinations == null ? null : new ArrayList<>(destinations));
         clone.setTimeout(timeout);
+        clone.setBulkhead(bulkhead);
+        clone.setBodyLimit(bodyLimit);
         clone.setCustomConfiguration(customConfiguration == null ? null : new HashMap<>(customConfiguration));
         return clone;
     }
@@ -95,6 +120,8 @@ public class MappingProperties {
                 .append("host", host)
                 .append("destinations", destinations)
                 .append("timeout", timeout)
+                .append("bulkhead", bulkhead)
+                .append("bodyLimit", bodyLimit)
                 .append("customConfiguration", customConfiguration)
                 .toString();
     }
@@ -135,4 +162,103 @@ public class MappingProperties {
                     .toString();
         }
     }
+
+    public static class BulkheadProperties {
+
+        /**
+         * Flag for enabling and disabling the bulkhead of the mapping.
+         */
+        private boolean enabled = true;
+        /**
+         * Maximum number of HTTP requests forwarded to the mapping at the same time.
+         * Keep it below faraday.priority.max-concurrent so a single slow mapping cannot hold every gateway slot.
+         */
+        private int maxConcurrent = 50;
+        /**
+         * Maximum number of HTTP requests waiting for a free slot, further requests are rejected immediately.
+         */
+        private int maxQueued = 50;
+        /**
+         * Maximum time in milliseconds a queued HTTP request waits for a free slot.
+         */
+        private int maxWait = 500;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getMaxConcurrent() {
+            return maxConcurrent;
+        }
+
+        public void setMaxConcurrent(int maxConcurrent) {
+            this.maxConcurrent = maxConcurrent;
+        }
+
+        public int getMaxQueued() {
+            return maxQueued;
+        }
+
+        public void setMaxQueued(int maxQueued) {
+            this.maxQueued = maxQueued;
+        }
+
+        public int getMaxWait() {
+            return maxWait;
+        }
+
+        public void setMaxWait(int maxWait) {
+            this.maxWait = maxWait;
+        }
+
+        @Override
+        public String toString() {
+            return new ToStringBuilder(this, NO_CLASS_NAME_STYLE)
+                    .append("enabled", enabled)
+                    .append("maxConcurrent", maxConcurrent)
+                    .append("maxQueued", maxQueued)
+                    .append("maxWait", maxWait)
+                    .toString();
+        }
+    }
+
+    public static class BodyLimitProperties {
+
+        /**
+         * Maximum size in bytes of a buffered HTTP request body, larger requests are rejected with 413.
+         */
+        private int maxRequestSize = 10 * 1024 * 1024;
+        /**
+         * Maximum size in bytes of a buffered HTTP response body, larger responses are answered with 502.
+         */
+        private int maxResponseSize = 50 * 1024 * 1024;
+
+        public int getMaxRequestSize() {
+            return maxRequestSize;
+        }
+
+        public void setMaxRequestSize(int maxRequestSize) {
+            this.maxRequestSize = maxRequestSize;
+        }
+
+        public int getMaxResponseSize() {
+            return maxResponseSize;
+        }
+
+        public void setMaxResponseSize(int maxResponseSize) {
+            this.maxResponseSize = maxResponseSize;
+        }
+
+        @Override
+        public String toString() {
+            return new ToStringBuilder(this, NO_CLASS_NAME_STYLE)
+                    .append("maxRequestSize", maxRequestSize)
+                    .append("maxResponseSize", maxResponseSize)
+                    .toString();
+        }
+    }
 }
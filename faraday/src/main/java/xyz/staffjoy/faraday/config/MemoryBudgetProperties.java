@@ -0,0 +1,19 @@
+package xyz.staffjoy.faraday.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class MemoryBudgetProperties {
+    /**
+     * Flag for enabling and disabling the gateway-wide budget of buffered bodies.
+     */
+    private boolean enabled = true;
+    /**
+     * Maximum number of bytes of request and response bodies buffered by all in-flight HTTP requests.
+     */
+    private long maxBufferedBytes = 256L * 1024 * 1024;
+}
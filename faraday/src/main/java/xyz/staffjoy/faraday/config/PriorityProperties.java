@@ -0,0 +1,66 @@
+package xyz.staffjoy.faraday.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class PriorityProperties {
+    /**
+     * Flag for enabling and disabling priority classes and weighted fair admission.
+     */
+    private boolean enabled = true;
+    /**
+     * Maximum number of HTTP requests forwarded by the gateway at the same time, further requests wait in their class queue.
+     * Keep it above the max-concurrent of every mapping bulkhead.
+     */
+    private int maxConcurrent = 100;
+    /**
+     * Optional request header lowering the priority class of a request, e.g. background for internal jobs.
+     */
+    private String header = "faraday-priority";
+    /**
+     * Names of the mappings whose traffic is always background, e.g. calendar polling.
+     */
+    private List<String> backgroundRoutes = new ArrayList<>(Arrays.asList("ical_route"));
+    /**
+     * Regular expression matched against the User-Agent of background clients such as crawlers.
+     */
+    private String backgroundUserAgents = "(?i).*(bot|crawler|spider|slurp|curl|wget|python-requests).*";
+    /**
+     * Interactive traffic, e.g. schedule edits.
+     */
+    private ClassProperties interactive = new ClassProperties(8, 200, 2000);
+    /**
+     * Regular page and API reads.
+     */
+    private ClassProperties normal = new ClassProperties(4, 100, 1000);
+    /**
+     * Background traffic, delayed and shed first under contention.
+     */
+    private ClassProperties background = new ClassProperties(1, 20, 200);
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class ClassProperties {
+        /**
+         * Share of the free slots given to the class while several classes are waiting.
+         */
+        private int weight = 1;
+        /**
+         * Maximum number of HTTP requests of the class waiting for a slot, further requests are shed.
+         */
+        private int maxQueued = 100;
+        /**
+         * Maximum time in milliseconds a request of the class waits for a slot before being shed.
+         */
+        private int maxWait = 1000;
+    }
+}
@@ -0,0 +1,48 @@
+package xyz.staffjoy.faraday.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.AssertTrue;
+import javax.validation.constraints.Min;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class StatsProperties {
+    /**
+     * Flag for enabling and disabling the live gateway statistics endpoint.
+     */
+    private boolean enabled = true;
+    /**
+     * Path of the live gateway statistics endpoint.
+     */
+    private String path = "/faraday/stats";
+    /**
+     * Length in milliseconds of the rolling window the statistics are computed over.
+     */
+    @Min(1)
+    private int window = 60000;
+    /**
+     * Number of buckets the rolling window is split into.
+     */
+    @Min(1)
+    private int buckets = 6;
+    /**
+     * Networks, in CIDR notation, allowed to read the statistics.
+     */
+    private List<String> allowedNetworks = new ArrayList<>(Arrays.asList(
+            "127.0.0.0/8", "10.0.0.0/8", "172.16.0.0/12", "192.168.0.0/16", "::1/128"));
+
+    /**
+     * 每个桶至少要1毫秒，否则轮转间隔为0
+     */
+    @AssertTrue(message = "window must not be shorter than buckets")
+    public boolean isWindowCoveringBuckets() {
+        return window >= buckets;
+    }
+}
@@ -0,0 +1,85 @@
+package xyz.staffjoy.faraday.core.accesslog;
+
+import static java.lang.System.nanoTime;
+
+/**
+ * 一次请求的访问日志
+ * 请求线程只记录引用和时间戳，格式化在写日志的线程完成
+ */
+public class AccessLogEntry {
+
+    /**
+     * 请求处理的各个阶段，每次mark把上一次mark以来的时间计入该阶段
+     */
+    public enum Phase {
+        ROUTING("routing"),
+        QUEUE("queue"),
+        BODY_READ("bodyRead"),
+        AUTH("auth"),
+        UPSTREAM("upstream"),
+        RESPONSE_WRITE("responseWrite");
+
+        final String key;
+
+        Phase(String key) {
+            this.key = key;
+        }
+    }
+
+    private final long startNanos = nanoTime();
+    private final long[] phaseNanos = new long[Phase.values().length];
+    private long lastMarkNanos = startNanos;
+    private long totalNanos;
+
+    String traceId;
+    String method;
+    String host;
+    String uri;
+    String remoteAddr;
+    String userAgent;
+    String route;
+    String destination;
+    int status;
+    long bytesIn;
+    long bytesOut;
+    String error;
+
+    public AccessLogEntry(String traceId, String method, String host, String uri, String remoteAddr, String userAgent) {
+        this.traceId = traceId;
+        this.method = method;
+        this.host = host;
+        this.uri = uri;
+        this.remoteAddr = remoteAddr;
+        this.userAgent = userAgent;
+    }
+
+    public void mark(Phase phase) {
+        long now = nanoTime();
+        phaseNanos[phase.ordinal()] += now - lastMarkNanos;
+        lastMarkNanos = now;
+    }
+
+    public void finish() {
+        totalNanos = nanoTime() - startNanos;
+    }
+
+    public void setRoute(String route) { this.route = route; }
+
+    public void setDestination(String destination) { this.destination = destination; }
+
+    public void setStatus(int status) { this.status = status; }
+
+    public void setBytesIn(long bytesIn) { this.bytesIn = bytesIn; }
+
+    public void setBytesOut(long bytesOut) { this.bytesOut = bytesOut; }
+
+    public void setError(Throwable error) { this.error = error.getClass().getSimpleName(); }
+
+    public String getTraceId() { return traceId; }
+
+    public long getStartNanos() { return startNanos; }
+
+    public long getTotalNanos() { return totalNanos; }
+
+    long getPhaseNanos(Phase phase) { return phaseNanos[phase.ordinal()]; }
+}
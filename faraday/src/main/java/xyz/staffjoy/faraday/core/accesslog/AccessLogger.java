@@ -0,0 +1,169 @@
+package xyz.staffjoy.faraday.core.accesslog;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import xyz.staffjoy.faraday.config.AccessLogProperties;
+import xyz.staffjoy.faraday.config.FaradayProperties;
+
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 异步访问日志
+ * 请求线程只把日志条目放入有界队列(满了丢弃并计数)，
+ * 单独的写日志线程复用同一个StringBuilder格式化，输出到faraday.access这个logger
+ * 丢弃的条目数作为指标导出
+ */
+public class AccessLogger {
+
+    private static final Logger accessLog = LoggerFactory.getLogger("faraday.access");
+
+    protected final AccessLogProperties accessLogProperties;
+    protected final BlockingQueue<AccessLogEntry> queue;
+    protected final AtomicLong dropped = new AtomicLong();
+    protected final Thread writer;
+    protected final long slowThresholdNanos;
+    // only touched by the writer thread
+    private final StringBuilder line = new StringBuilder(512);
+
+    public AccessLogger(FaradayProperties faradayProperties, Optional<MeterRegistry> meterRegistry) {
+        this.accessLogProperties = faradayProperties.getAccessLog();
+        this.queue = new ArrayBlockingQueue<>(accessLogProperties.getQueueSize());
+        this.slowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(accessLogProperties.getSlowThreshold());
+        this.writer = new Thread(this::drain, "faraday-access-log-writer");
+        this.writer.setDaemon(true);
+        if (accessLogProperties.isEnabled()) {
+            this.writer.start();
+        }
+        meterRegistry.ifPresent(registry ->
+                registerMetrics(registry, faradayProperties.getMetrics().getNamesPrefix() + ".access_log"));
+    }
+
+    /**
+     * 开始一条访问日志，追踪关闭时没有traceId，这里生成一个
+     * @return
+     */
+    public AccessLogEntry start(String traceId, String method, String host, String uri,
+                                String remoteAddr, String userAgent) {
+        if (traceId == null) {
+            traceId = Long.toHexString(ThreadLocalRandom.current().nextLong());
+        }
+        return new AccessLogEntry(traceId, method, host, uri, remoteAddr, userAgent);
+    }
+
+    public void log(AccessLogEntry entry) {
+        if (!accessLogProperties.isEnabled()) {
+            return;
+        }
+        entry.finish();
+        if (!queue.offer(entry)) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    public int getQueued() {
+        return queue.size();
+    }
+
+    public void shutdown() {
+        writer.interrupt();
+    }
+
+    protected void registerMetrics(MeterRegistry registry, String prefix) {
+        Gauge.builder(prefix + ".queued", this, AccessLogger::getQueued)
+                .register(registry);
+        FunctionCounter.builder(prefix + ".dropped", this, AccessLogger::getDropped)
+                .register(registry);
+    }
+
+    protected void drain() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                write(queue.take());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                accessLog.error("Fail to write access log", e);
+            }
+        }
+    }
+
+    protected void write(AccessLogEntry entry) {
+        boolean slow = entry.getTotalNanos() >= slowThresholdNanos;
+        line.setLength(0);
+        append("traceId", entry.traceId);
+        append("method", entry.method);
+        append("host", entry.host);
+        append("uri", entry.uri);
+        append("route", entry.route);
+        append("destination", entry.destination);
+        append("status", entry.status);
+        append("bytesIn", entry.bytesIn);
+        append("bytesOut", entry.bytesOut);
+        appendMicros("totalUs", entry.getTotalNanos());
+        for (AccessLogEntry.Phase phase : AccessLogEntry.Phase.values()) {
+            appendMicros(phase.key + "Us", entry.getPhaseNanos(phase));
+        }
+        if (entry.error != null) {
+            append("error", entry.error);
+        }
+        if (slow) {
+            append("slow", "true");
+            append("remoteAddr", entry.remoteAddr);
+            appendQuoted("userAgent", entry.userAgent);
+            accessLog.warn(line.toString());
+        } else {
+            accessLog.info(line.toString());
+        }
+    }
+
+    private void append(String key, String value) {
+        if (value == null) {
+            return;
+        }
+        separate();
+        line.append(key).append('=').append(value);
+    }
+
+    private void append(String key, long value) {
+        separate();
+        line.append(key).append('=').append(value);
+    }
+
+    private void appendMicros(String key, long nanos) {
+        append(key, nanos / 1000);
+    }
+
+    private void appendQuoted(String key, String value) {
+        if (value == null) {
+            return;
+        }
+        separate();
+        line.append(key).append("=\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                line.append('\\');
+            }
+            line.append(c);
+        }
+        line.append('"');
+    }
+
+    private void separate() {
+        if (line.length() > 0) {
+            line.append(' ');
+        }
+    }
+}
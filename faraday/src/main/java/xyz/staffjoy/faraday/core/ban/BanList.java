@@ -0,0 +1,121 @@
+package xyz.staffjoy.faraday.core.ban;
+
+import com.github.structlog4j.ILogger;
+import com.github.structlog4j.SLoggerFactory;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import xyz.staffjoy.faraday.config.BanListProperties;
+
+import javax.annotation.PostConstruct;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * 黑名单
+ * 从本地文件或管理端点加载被禁用户id，后台定时重新加载并整体替换不可变的快照，
+ * 请求线程只读快照，不会被重新加载阻塞
+ */
+public class BanList {
+
+    private static final ILogger log = SLoggerFactory.getLogger(BanList.class);
+
+    protected final BanListProperties banListProperties;
+    protected final ResourceLoader resourceLoader = new DefaultResourceLoader();
+    protected final ScheduledExecutorService reloader;
+    protected volatile Snapshot snapshot = new Snapshot(Collections.emptySet(), null);
+
+    public BanList(BanListProperties banListProperties) {
+        this.banListProperties = banListProperties;
+        this.reloader = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "faraday-ban-list-reloader");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PostConstruct
+    public void init() {
+        reload();
+        reloader.scheduleWithFixedDelay(this::reload,
+                banListProperties.getRefreshInterval(), banListProperties.getRefreshInterval(), MILLISECONDS);
+    }
+
+    public void shutdown() {
+        reloader.shutdownNow();
+    }
+
+    public boolean isBanned(String userId) {
+        return userId != null && snapshot.contains(userId);
+    }
+
+    public int size() {
+        return snapshot.userIds.size();
+    }
+
+    /**
+     * 重新加载黑名单，失败时保留上一次的快照
+     */
+    protected void reload() {
+        Set<String> userIds;
+        try {
+            userIds = load(resourceLoader.getResource(banListProperties.getLocation()));
+        } catch (IOException | RuntimeException e) {
+            log.error("Fail to load ban list, keep the previous one", "location", banListProperties.getLocation(), e);
+            return;
+        }
+        BloomFilter bloomFilter = null;
+        if (userIds.size() >= banListProperties.getBloomFilterThreshold()) {
+            bloomFilter = BloomFilter.create(userIds, banListProperties.getBloomFilterFalsePositiveRate());
+        }
+        Set<String> previous = snapshot.userIds;
+        snapshot = new Snapshot(Collections.unmodifiableSet(userIds), bloomFilter);
+        if (!previous.equals(userIds)) {
+            long added = userIds.stream().filter(userId -> !previous.contains(userId)).count();
+            long removed = previous.stream().filter(userId -> !userIds.contains(userId)).count();
+            log.info("Ban list reloaded", "size", userIds.size(), "added", added, "removed", removed,
+                    "bloomFilter", bloomFilter != null);
+        }
+    }
+
+    protected Set<String> load(Resource resource) throws IOException {
+        Set<String> userIds = new HashSet<>();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (!line.isEmpty() && !line.startsWith("#")) {
+                    userIds.add(line);
+                }
+            }
+        }
+        return userIds;
+    }
+
+    protected static class Snapshot {
+        private final Set<String> userIds;
+        private final BloomFilter bloomFilter;
+
+        Snapshot(Set<String> userIds, BloomFilter bloomFilter) {
+            this.userIds = userIds;
+            this.bloomFilter = bloomFilter;
+        }
+
+        boolean contains(String userId) {
+            if (bloomFilter != null && !bloomFilter.mightContain(userId)) {
+                return false;
+            }
+            return userIds.contains(userId);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package xyz.staffjoy.faraday.core.ban;
+
+import java.util.Collection;
+
+/**
+ * 布隆过滤器
+ * 大黑名单的前置检查，不在名单中的用户(绝大多数请求)只需要几次位探测
+ */
+public class BloomFilter {
+
+    private final long[] bits;
+    private final int numBits;
+    private final int numHashes;
+
+    private BloomFilter(int numBits, int numHashes) {
+        this.bits = new long[(numBits + 63) >>> 6];
+        this.numBits = numBits;
+        this.numHashes = numHashes;
+    }
+
+    public static BloomFilter create(Collection<String> items, double falsePositiveRate) {
+        int expected = Math.max(1, items.size());
+        double ln2 = Math.log(2);
+        int numBits = (int) Math.min(Integer.MAX_VALUE - 63,
+                Math.ceil(-expected * Math.log(falsePositiveRate) / (ln2 * ln2)));
+        int numHashes = Math.max(1, (int) Math.round((double) numBits / expected * ln2));
+        BloomFilter filter = new BloomFilter(Math.max(64, numBits), numHashes);
+        items.forEach(filter::put);
+        return filter;
+    }
+
+    public boolean mightContain(String item) {
+        long hash = hash(item);
+        int hash1 = (int) hash;
+        int hash2 = (int) (hash >>> 32);
+        for (int i = 1; i <= numHashes; i++) {
+            int combined = (hash1 + i * hash2) & Integer.MAX_VALUE;
+            int index = combined % numBits;
+            if ((bits[index >>> 6] & (1L << index)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void put(String item) {
+        long hash = hash(item);
+        int hash1 = (int) hash;
+        int hash2 = (int) (hash >>> 32);
+        for (int i = 1; i <= numHashes; i++) {
+            int combined = (hash1 + i * hash2) & Integer.MAX_VALUE;
+            int index = combined % numBits;
+            bits[index >>> 6] |= 1L << index;
+        }
+    }
+
+    // 64-bit FNV-1a followed by a murmur3 finalizer to spread the bits of short ids
+    private static long hash(String item) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < item.length(); i++) {
+            hash ^= item.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,424 @@
+package xyz.staffjoy.faraday.core.batch;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.structlog4j.ILogger;
+import com.github.structlog4j.SLoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.filter.OncePerRequestFilter;
+import xyz.staffjoy.common.env.EnvConfig;
+import xyz.staffjoy.faraday.config.BatchProperties;
+import xyz.staffjoy.faraday.config.MappingProperties;
+import xyz.staffjoy.faraday.core.accesslog.AccessLogEntry;
+import xyz.staffjoy.faraday.core.accesslog.AccessLogEntry.Phase;
+import xyz.staffjoy.faraday.core.accesslog.AccessLogger;
+import xyz.staffjoy.faraday.core.bulkhead.Bulkhead;
+import xyz.staffjoy.faraday.core.bulkhead.BulkheadRegistry;
+import xyz.staffjoy.faraday.core.http.ForwardCancellation;
+import xyz.staffjoy.faraday.core.http.RequestData;
+import xyz.staffjoy.faraday.core.http.RequestDataExtractor;
+import xyz.staffjoy.faraday.core.http.RequestForwarder;
+import xyz.staffjoy.faraday.core.interceptor.PreForwardRequestInterceptor;
+import xyz.staffjoy.faraday.core.mappings.MappingsProvider;
+import xyz.staffjoy.faraday.core.memory.MemoryBudget;
+import xyz.staffjoy.faraday.core.priority.FairAdmissionQueue;
+import xyz.staffjoy.faraday.core.priority.PriorityClass;
+import xyz.staffjoy.faraday.core.priority.RequestClassifier;
+import xyz.staffjoy.faraday.core.trace.ProxyingTraceInterceptor;
+import xyz.staffjoy.faraday.exceptions.FaradayException;
+import xyz.staffjoy.faraday.exceptions.ForbiddenException;
+import xyz.staffjoy.faraday.exceptions.GatewayTimeoutException;
+import xyz.staffjoy.faraday.exceptions.MemoryBudgetExceededException;
+import xyz.staffjoy.faraday.exceptions.PayloadTooLargeException;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static java.lang.System.nanoTime;
+import static org.apache.commons.lang3.StringUtils.isBlank;
+import static xyz.staffjoy.faraday.core.utils.BodyConverter.convertBodyToString;
+import static xyz.staffjoy.faraday.core.utils.BodyConverter.convertStringToBody;
+
+/**
+ * 批量请求端点
+ * 一个请求体里包含多个子请求，在请求线程上统一完成路由和认证(JWT只校验一次)，
+ * 再通过共享的线程池并行转发，每个批次有并发上限和截止时间，最后合并成一个响应
+ * 只在配置的host上拦截，请求体必须是JSON，在大小上限和内存预算内读取
+ */
+public class BatchFilter extends OncePerRequestFilter {
+
+    private static final ILogger log = SLoggerFactory.getLogger(BatchFilter.class);
+
+    protected final BatchProperties batchProperties;
+    protected final RequestDataExtractor extractor;
+    protected final MappingsProvider mappingsProvider;
+    protected final RequestForwarder requestForwarder;
+    protected final ProxyingTraceInterceptor traceInterceptor;
+    protected final PreForwardRequestInterceptor preForwardRequestInterceptor;
+    protected final BulkheadRegistry bulkheadRegistry;
+    protected final AccessLogger accessLogger;
+    protected final MemoryBudget memoryBudget;
+    protected final RequestClassifier requestClassifier;
+    protected final FairAdmissionQueue admissionQueue;
+    protected final ExecutorService executor;
+    protected final String host;
+    protected final ObjectMapper objectMapper = new ObjectMapper();
+
+    public BatchFilter(
+            BatchProperties batchProperties,
+            RequestDataExtractor extractor,
+            MappingsProvider mappingsProvider,
+            RequestForwarder requestForwarder,
+            ProxyingTraceInterceptor traceInterceptor,
+            PreForwardRequestInterceptor preForwardRequestInterceptor,
+            BulkheadRegistry bulkheadRegistry,
+            AccessLogger accessLogger,
+            MemoryBudget memoryBudget,
+            RequestClassifier requestClassifier,
+            FairAdmissionQueue admissionQueue,
+            EnvConfig envConfig
+    ) {
+        this.batchProperties = batchProperties;
+        this.extractor = extractor;
+        this.mappingsProvider = mappingsProvider;
+        this.requestForwarder = requestForwarder;
+        this.traceInterceptor = traceInterceptor;
+        this.preForwardRequestInterceptor = preForwardRequestInterceptor;
+        this.bulkheadRegistry = bulkheadRegistry;
+        this.accessLogger = accessLogger;
+        this.memoryBudget = memoryBudget;
+        this.requestClassifier = requestClassifier;
+        this.admissionQueue = admissionQueue;
+        ThreadPoolExecutor threadPool = new ThreadPoolExecutor(
+                batchProperties.getThreads(), batchProperties.getThreads(),
+                60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(batchProperties.getThreads() * 4),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "faraday-batch");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        threadPool.allowCoreThreadTimeOut(true);
+        this.executor = threadPool;
+        this.host = isBlank(batchProperties.getHost()) ? "www." + envConfig.getExternalApex() : batchProperties.getHost();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        if (!HttpMethod.POST.matches(request.getMethod()) || !batchProperties.getPath().equals(request.getRequestURI())
+                || !host.equalsIgnoreCase(request.getServerName())) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        long receivedNanos = nanoTime();
+        if (!isJson(request.getContentType())) {
+            writeError(response, HttpServletResponse.SC_UNSUPPORTED_MEDIA_TYPE, "Batch request must be JSON");
+            return;
+        }
+
+        //整个批次的请求体和响应体共享一个内存预算租约，写完合并的响应、所有子请求都结束后归还
+        try (MemoryBudget.Lease lease = memoryBudget.lease()) {
+            BatchRequest batchRequest = readBatchRequest(request, response, lease);
+            if (batchRequest == null) {
+                return; // rejected while reading
+            }
+            List<BatchRequest.Item> items = batchRequest.getRequests();
+            if (items == null || items.isEmpty() || items.size() > batchProperties.getMaxRequests()) {
+                writeError(response, HttpServletResponse.SC_BAD_REQUEST,
+                        "Batch must contain between 1 and " + batchProperties.getMaxRequests() + " requests");
+                return;
+            }
+            execute(request, response, items, lease, receivedNanos);
+        }
+    }
+
+    /**
+     * 在大小上限和内存预算内读取并解析批量请求体
+     * @return 已经回了错误响应时返回null
+     */
+    protected BatchRequest readBatchRequest(HttpServletRequest request, HttpServletResponse response,
+                                            MemoryBudget.Lease lease) throws IOException {
+        long contentLength = request.getContentLengthLong();
+        int maxRequestSize = batchProperties.getMaxRequestSize();
+        if (contentLength > maxRequestSize) {
+            memoryBudget.recordTooLarge();
+            writeError(response, HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE, "Batch request too large");
+            return null;
+        }
+        if (!lease.reserve(contentLength)) {
+            writeError(response, HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Service busy");
+            return null;
+        }
+        byte[] body;
+        try {
+            body = contentLength < 0
+                    ? extractor.extractBody(request, maxRequestSize, lease)
+                    : extractor.extractBody(request, maxRequestSize);
+        } catch (PayloadTooLargeException e) {
+            memoryBudget.recordTooLarge();
+            writeError(response, HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE, "Batch request too large");
+            return null;
+        } catch (MemoryBudgetExceededException e) {
+            writeError(response, HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Service busy");
+            return null;
+        }
+        try {
+            return objectMapper.readValue(body, BatchRequest.class);
+        } catch (IOException e) {
+            writeError(response, HttpServletResponse.SC_BAD_REQUEST, "Invalid batch request");
+            return null;
+        }
+    }
+
+    /**
+     * 并行转发子请求，截止时间到了还没完成的子请求被中止，回504
+     */
+    protected void execute(HttpServletRequest request, HttpServletResponse response, List<BatchRequest.Item> items,
+                           MemoryBudget.Lease lease, long receivedNanos) throws IOException {
+        long deadline = receivedNanos + TimeUnit.MILLISECONDS.toNanos(batchProperties.getTimeout());
+        String traceId = traceInterceptor.generateTraceId();
+        String remoteAddr = request.getRemoteAddr();
+        String userAgent = request.getHeader(HttpHeaders.USER_AGENT);
+        int size = items.size();
+        BatchResponse.Item[] results = new BatchResponse.Item[size];
+        List<Future<?>> futures = new ArrayList<>(Collections.nCopies(size, null));
+        ForwardCancellation[] cancellations = new ForwardCancellation[size];
+        AtomicBoolean[] claims = new AtomicBoolean[size];
+        Semaphore permits = new Semaphore(batchProperties.getMaxConcurrency());
+
+        for (int i = 0; i < size; i++) {
+            BatchRequest.Item item = items.get(i);
+            MappingProperties mapping = isBlank(item.getHost()) ? null : mappingsProvider.resolveMapping(item.getHost(), request);
+            RequestData data = prepare(request, item, mapping, results, i);
+            if (data == null) {
+                continue; // answered while routing or authenticating
+            }
+            try {
+                if (!permits.tryAcquire(deadline - nanoTime(), TimeUnit.NANOSECONDS)) {
+                    break; // deadline passed, the rest are answered with 504
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            //子请求的截止时间是路由的读超时和批次截止时间中较早的一个，都从收到批量请求开始计算
+            data.setDeadlineNanos(Math.min(deadline,
+                    receivedNanos + TimeUnit.MILLISECONDS.toNanos(mapping.getTimeout().getRead())));
+            cancellations[i] = new ForwardCancellation();
+            data.setCancellation(cancellations[i]);
+            AtomicBoolean claim = new AtomicBoolean();
+            claims[i] = claim;
+            int index = i;
+            //子请求各自持有租约，许可和租约只在子请求真正结束时归还，被中止的子请求也一样
+            lease.retain();
+            try {
+                futures.set(i, executor.submit(() -> {
+                    if (!claim.compareAndSet(false, true)) {
+                        return; // abandoned at the deadline before it started
+                    }
+                    try {
+                        results[index] = forward(item, data, mapping, traceId, remoteAddr, userAgent, lease);
+                    } finally {
+                        permits.release();
+                        lease.close();
+                    }
+                }));
+            } catch (RejectedExecutionException e) {
+                permits.release();
+                lease.close();
+                results[i] = error(item, HttpStatus.SERVICE_UNAVAILABLE, "Service busy");
+            }
+        }
+
+        List<BatchResponse.Item> responses = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Future<?> future = futures.get(i);
+            if (future != null) {
+                try {
+                    future.get(Math.max(0, deadline - nanoTime()), TimeUnit.NANOSECONDS);
+                } catch (TimeoutException | InterruptedException | ExecutionException e) {
+                    //中断不会打断阻塞中的HTTP读写，直接中止底层请求；还没开始的子请求不再执行，由这里归还
+                    cancellations[i].cancel();
+                    if (claims[i].compareAndSet(false, true)) {
+                        future.cancel(false);
+                        permits.release();
+                        lease.close();
+                    }
+                    if (e instanceof InterruptedException) {
+                        Thread.currentThread().interrupt();
+                    }
+                    responses.add(error(items.get(i), HttpStatus.GATEWAY_TIMEOUT, "Batch deadline exceeded"));
+                    continue;
+                }
+            }
+            BatchResponse.Item result = results[i];
+            responses.add(result != null ? result : error(items.get(i), HttpStatus.GATEWAY_TIMEOUT, "Batch deadline exceeded"));
+        }
+
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(MediaType.APPLICATION_JSON_UTF8_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), BatchResponse.builder().responses(responses).build());
+    }
+
+    /**
+     * 在请求线程上完成子请求的路由和认证
+     * @return 已经得到结果(路由失败、禁止访问、需要重定向)时返回null
+     */
+    protected RequestData prepare(HttpServletRequest request, BatchRequest.Item item, MappingProperties mapping,
+                                  BatchResponse.Item[] results, int index) {
+        if (mapping == null) {
+            results[index] = error(item, HttpStatus.BAD_REQUEST, "Unsupported domain");
+            return null;
+        }
+        HttpMethod method = item.getMethod() == null ? null : HttpMethod.resolve(item.getMethod().toUpperCase());
+        if (method == null || item.getUri() == null || !item.getUri().startsWith("/")) {
+            results[index] = error(item, HttpStatus.BAD_REQUEST, "Invalid method or uri");
+            return null;
+        }
+
+        byte[] body = item.getBody() == null ? new byte[0] : convertStringToBody(item.getBody());
+        if (body.length > mapping.getBodyLimit().getMaxRequestSize()) {
+            memoryBudget.recordTooLarge();
+            results[index] = error(item, HttpStatus.PAYLOAD_TOO_LARGE, "Request body too large");
+            return null;
+        }
+
+        // sub-requests carry the cookies and other headers of the batch, minus its entity headers
+        HttpHeaders headers = extractor.extractHttpHeaders(request);
+        headers.remove(HttpHeaders.CONTENT_LENGTH);
+        headers.remove(HttpHeaders.CONTENT_TYPE);
+        headers.remove(HttpHeaders.TRANSFER_ENCODING);
+        if (item.getBody() != null) {
+            headers.setContentType(MediaType.APPLICATION_JSON_UTF8);
+        }
+        if (item.getHeaders() != null) {
+            item.getHeaders().forEach(headers::set);
+        }
+        headers.set(HttpHeaders.HOST, item.getHost());
+        extractor.addForwardHeaders(request, headers);
+
+        RequestData data = new RequestData(method, item.getHost(), item.getUri(), headers, body, request);
+        try {
+            preForwardRequestInterceptor.intercept(data, mapping);
+        } catch (ForbiddenException e) {
+            results[index] = error(item, HttpStatus.FORBIDDEN, e.getMessage());
+            return null;
+        } catch (FaradayException e) {
+            results[index] = error(item, HttpStatus.INTERNAL_SERVER_ERROR, e.getMessage());
+            return null;
+        }
+        if (data.isNeedRedirect() && !isBlank(data.getRedirectUrl())) {
+            BatchResponse.Item redirect = error(item, HttpStatus.FOUND, null);
+            redirect.getHeaders().put(HttpHeaders.LOCATION, Collections.singletonList(data.getRedirectUrl()));
+            results[index] = redirect;
+            return null;
+        }
+        return data;
+    }
+
+    /**
+     * 在批量线程池中转发子请求
+     */
+    protected BatchResponse.Item forward(BatchRequest.Item item, RequestData data, MappingProperties mapping,
+                                         String traceId, String remoteAddr, String userAgent,
+                                         MemoryBudget.Lease lease) {
+        AccessLogEntry accessLogEntry = accessLogger.start(traceId, data.getMethod().name(), data.getHost(),
+                data.getUri(), remoteAddr, userAgent);
+        accessLogEntry.setRoute(mapping.getName());
+        accessLogEntry.setBytesIn(data.getBody().length);
+        PriorityClass priorityClass = requestClassifier.classify(data.getMethod(), data.getHeaders(), mapping);
+        // 先取舱壁再排准入队列，在舱壁里等待时不占用全局的位置
+        Bulkhead bulkhead = bulkheadRegistry.getBulkhead(mapping);
+        boolean acquired = bulkhead == null || bulkhead.tryAcquire();
+        FairAdmissionQueue.Slot slot = acquired ? admissionQueue.acquire(priorityClass) : null;
+        accessLogEntry.mark(Phase.QUEUE);
+        try {
+            if (slot == null || !lease.reserve(data.getBody().length)) {
+                accessLogEntry.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+                return error(item, HttpStatus.SERVICE_UNAVAILABLE, "Service busy");
+            }
+            ResponseEntity<byte[]> responseEntity = requestForwarder.forwardHttpRequest(data, traceId, mapping, accessLogEntry, lease);
+            byte[] body = responseEntity.getBody();
+            accessLogEntry.setStatus(responseEntity.getStatusCodeValue());
+            accessLogEntry.setBytesOut(body == null ? 0 : body.length);
+            return BatchResponse.Item.builder()
+                    .id(item.getId())
+                    .status(responseEntity.getStatusCodeValue())
+                    .headers(new HashMap<>(responseEntity.getHeaders()))
+                    .body(convertBodyToString(body))
+                    .build();
+        } catch (PayloadTooLargeException e) {
+            memoryBudget.recordTooLarge();
+            accessLogEntry.setStatus(HttpServletResponse.SC_BAD_GATEWAY);
+            return error(item, HttpStatus.BAD_GATEWAY, "Response body too large");
+        } catch (MemoryBudgetExceededException e) {
+            accessLogEntry.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            return error(item, HttpStatus.SERVICE_UNAVAILABLE, "Service busy");
+        } catch (GatewayTimeoutException e) {
+            accessLogEntry.setStatus(HttpServletResponse.SC_GATEWAY_TIMEOUT);
+            return error(item, HttpStatus.GATEWAY_TIMEOUT, "Batch deadline exceeded");
+        } catch (RuntimeException e) {
+            if (!data.getCancellation().isCancelled()) {
+                log.warn("Fail to forward batch sub-request", "host", data.getHost(), "uri", data.getUri(), e);
+            }
+            accessLogEntry.setError(e);
+            accessLogEntry.setStatus(HttpServletResponse.SC_BAD_GATEWAY);
+            return error(item, HttpStatus.BAD_GATEWAY, "Bad gateway");
+        } finally {
+            if (slot != null) {
+                slot.close();
+            }
+            if (acquired && bulkhead != null) {
+                bulkhead.release();
+            }
+            accessLogger.log(accessLogEntry);
+        }
+    }
+
+    // 过滤器由FilterRegistrationBean注册，Spring不会推断销毁方法，由容器移除过滤器时关闭线程池
+    @Override
+    public void destroy() {
+        shutdown();
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private BatchResponse.Item error(BatchRequest.Item item, HttpStatus status, String message) {
+        return BatchResponse.Item.builder()
+                .id(item.getId())
+                .status(status.value())
+                .body(message)
+                .build();
+    }
+
+    private static boolean isJson(String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        try {
+            return MediaType.APPLICATION_JSON.isCompatibleWith(MediaType.parseMediaType(contentType));
+        } catch (InvalidMediaTypeException e) {
+            return false;
+        }
+    }
+
+    private void writeError(HttpServletResponse response, int status, String message) throws IOException {
+        response.setStatus(status);
+        response.getWriter().println(message);
+    }
+}
@@ -0,0 +1,41 @@
+package xyz.staffjoy.faraday.core.batch;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 批量请求
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BatchRequest {
+    @Builder.Default
+    private List<Item> requests = new ArrayList<>();
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class Item {
+        // echoed back in the matching response
+        private String id;
+        @Builder.Default
+        private String method = "GET";
+        // mapped host, e.g. company.staffjoy.xyz
+        private String host;
+        // path and query
+        private String uri;
+        @Builder.Default
+        private Map<String, String> headers = new HashMap<>();
+        private String body;
+    }
+}
@@ -0,0 +1,35 @@
+package xyz.staffjoy.faraday.core.batch;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 批量请求的响应，和请求的顺序一致
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BatchResponse {
+    @Builder.Default
+    private List<Item> responses = new ArrayList<>();
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class Item {
+        private String id;
+        private int status;
+        @Builder.Default
+        private Map<String, List<String>> headers = new HashMap<>();
+        private String body;
+    }
+}
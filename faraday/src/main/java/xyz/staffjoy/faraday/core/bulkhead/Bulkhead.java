@@ -0,0 +1,84 @@
+package xyz.staffjoy.faraday.core.bulkhead;
+
+import xyz.staffjoy.faraday.config.MappingProperties.BulkheadProperties;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * 舱壁隔离
+ * 限制同时转发到一个路由的请求数，以及等待空位的请求数，
+ * 满了直接拒绝，避免一个慢的后端占满网关的全部工作线程
+ */
+public class Bulkhead {
+
+    private final String name;
+    private final int maxConcurrent;
+    private final int maxQueued;
+    private final int maxWait;
+    private final Semaphore permits;
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicLong rejected = new AtomicLong();
+
+    public Bulkhead(String name, BulkheadProperties properties) {
+        this.name = name;
+        this.maxConcurrent = properties.getMaxConcurrent();
+        this.maxQueued = properties.getMaxQueued();
+        this.maxWait = properties.getMaxWait();
+        this.permits = new Semaphore(maxConcurrent);
+    }
+
+    /**
+     * 获取一个空位，获取成功后必须调用release
+     * @return false表示舱壁已满，请求应被拒绝
+     */
+    public boolean tryAcquire() {
+        if (permits.tryAcquire()) {
+            return true;
+        }
+        if (queued.incrementAndGet() > maxQueued) {
+            queued.decrementAndGet();
+            rejected.incrementAndGet();
+            return false;
+        }
+        try {
+            if (permits.tryAcquire(maxWait, MILLISECONDS)) {
+                return true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            queued.decrementAndGet();
+        }
+        rejected.incrementAndGet();
+        return false;
+    }
+
+    public void release() {
+        permits.release();
+    }
+
+    /**
+     * 限制与配置是否一致，不一致时需要按新的配置重建
+     * @param properties
+     * @return
+     */
+    public boolean hasLimits(BulkheadProperties properties) {
+        return maxConcurrent == properties.getMaxConcurrent()
+                && maxQueued == properties.getMaxQueued()
+                && maxWait == properties.getMaxWait();
+    }
+
+    public String getName() { return name; }
+
+    public int getActive() { return maxConcurrent - permits.availablePermits(); }
+
+    public int getQueued() { return queued.get(); }
+
+    public long getRejected() { return rejected.get(); }
+
+    public double getUtilization() { return (double) getActive() / maxConcurrent; }
+}
@@ -0,0 +1,120 @@
+package xyz.staffjoy.faraday.core.bulkhead;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import xyz.staffjoy.faraday.config.FaradayProperties;
+import xyz.staffjoy.faraday.config.MappingProperties;
+import xyz.staffjoy.faraday.config.MappingProperties.BulkheadProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static java.util.stream.Collectors.toSet;
+
+/**
+ * 路由-舱壁映射表
+ * 每个路由一个舱壁，第一次使用时创建并注册饱和度指标，
+ * 路由的舱壁配置变化时按新配置重建，路由删除时一并删除
+ * 正在转发的请求持有旧舱壁的引用，仍然释放到旧舱壁
+ */
+public class BulkheadRegistry {
+
+    protected final FaradayProperties faradayProperties;
+    protected final Optional<MeterRegistry> meterRegistry;
+    protected final ConcurrentMap<String, Bulkhead> bulkheads = new ConcurrentHashMap<>();
+    protected final ConcurrentMap<Bulkhead, List<Meter>> meters = new ConcurrentHashMap<>();
+
+    public BulkheadRegistry(FaradayProperties faradayProperties, Optional<MeterRegistry> meterRegistry) {
+        this.faradayProperties = faradayProperties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * 获取路由的舱壁
+     * @param mapping
+     * @return 路由关闭了舱壁时返回null
+     */
+    public Bulkhead getBulkhead(MappingProperties mapping) {
+        BulkheadProperties properties = mapping.getBulkhead();
+        if (!properties.isEnabled()) {
+            return null;
+        }
+        Bulkhead bulkhead = bulkheads.get(mapping.getName());
+        if (bulkhead != null && bulkhead.hasLimits(properties)) {
+            return bulkhead;
+        }
+        return bulkheads.compute(mapping.getName(), (name, current) -> {
+            if (current != null && current.hasLimits(properties)) {
+                return current;
+            }
+            if (current != null) {
+                removeMetrics(current);
+            }
+            return createBulkhead(name, properties);
+        });
+    }
+
+    /**
+     * 查询已经创建的舱壁
+     * @param mappingName
+     * @return
+     */
+    public Bulkhead findBulkhead(String mappingName) {
+        return bulkheads.get(mappingName);
+    }
+
+    /**
+     * 路由表更新时调用，删除已经不存在或关闭了舱壁的路由的舱壁
+     * @param mappings
+     */
+    public void updateMappings(List<MappingProperties> mappings) {
+        Set<String> names = mappings.stream()
+                .filter(mapping -> mapping.getBulkhead().isEnabled())
+                .map(MappingProperties::getName)
+                .collect(toSet());
+        bulkheads.entrySet().removeIf(entry -> {
+            if (names.contains(entry.getKey())) {
+                return false;
+            }
+            removeMetrics(entry.getValue());
+            return true;
+        });
+    }
+
+    protected Bulkhead createBulkhead(String name, BulkheadProperties properties) {
+        Bulkhead bulkhead = new Bulkhead(name, properties);
+        meterRegistry.ifPresent(registry -> meters.put(bulkhead, registerMetrics(registry, bulkhead)));
+        return bulkhead;
+    }
+
+    protected List<Meter> registerMetrics(MeterRegistry registry, Bulkhead bulkhead) {
+        String prefix = faradayProperties.getMetrics().getNamesPrefix() + ".bulkhead";
+        List<Meter> registered = new ArrayList<>();
+        registered.add(Gauge.builder(prefix + ".active", bulkhead, Bulkhead::getActive)
+                .tag("mapping", bulkhead.getName())
+                .register(registry));
+        registered.add(Gauge.builder(prefix + ".queued", bulkhead, Bulkhead::getQueued)
+                .tag("mapping", bulkhead.getName())
+                .register(registry));
+        registered.add(Gauge.builder(prefix + ".utilization", bulkhead, Bulkhead::getUtilization)
+                .tag("mapping", bulkhead.getName())
+                .register(registry));
+        registered.add(FunctionCounter.builder(prefix + ".rejected", bulkhead, Bulkhead::getRejected)
+                .tag("mapping", bulkhead.getName())
+                .register(registry));
+        return registered;
+    }
+
+    protected void removeMetrics(Bulkhead bulkhead) {
+        List<Meter> registered = meters.remove(bulkhead);
+        if (registered != null) {
+            meterRegistry.ifPresent(registry -> registered.forEach(registry::remove));
+        }
+    }
+}
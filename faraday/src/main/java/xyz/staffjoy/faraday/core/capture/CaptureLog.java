@@ -0,0 +1,84 @@
+package xyz.staffjoy.faraday.core.capture;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 抓取日志的二进制格式
+ * 文件头: magic(int) version(short)
+ * 每个请求: offsetMicros(long) method host uri(UTF) headerCount(short) name value(UTF)...
+ *          bodyLength(int) bodyCaptured(boolean) body(bytes, 只在bodyCaptured时存在)
+ */
+public class CaptureLog {
+
+    static final int MAGIC = 0x46444350; // "FDCP"
+    static final short VERSION = 1;
+
+    public static void writeHeader(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+    }
+
+    public static void readHeader(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a faraday capture log");
+        }
+        short version = in.readShort();
+        if (version != VERSION) {
+            throw new IOException("Unsupported capture log version " + version);
+        }
+    }
+
+    public static void write(DataOutputStream out, CaptureRecord record) throws IOException {
+        out.writeLong(record.getOffsetMicros());
+        out.writeUTF(record.getMethod());
+        out.writeUTF(record.getHost());
+        out.writeUTF(record.getUri());
+        out.writeShort(record.getHeaders().size());
+        for (Map.Entry<String, String> header : record.getHeaders()) {
+            out.writeUTF(header.getKey());
+            out.writeUTF(header.getValue());
+        }
+        out.writeInt(record.getBodyLength());
+        out.writeBoolean(record.isBodyCaptured());
+        if (record.isBodyCaptured()) {
+            out.write(record.getBody());
+        }
+    }
+
+    /**
+     * 读取下一个请求
+     * @param in
+     * @return 到达文件末尾时返回null
+     * @throws IOException
+     */
+    public static CaptureRecord read(DataInputStream in) throws IOException {
+        long offsetMicros;
+        try {
+            offsetMicros = in.readLong();
+        } catch (EOFException e) {
+            return null;
+        }
+        String method = in.readUTF();
+        String host = in.readUTF();
+        String uri = in.readUTF();
+        int headerCount = in.readUnsignedShort();
+        List<Map.Entry<String, String>> headers = new ArrayList<>(headerCount);
+        for (int i = 0; i < headerCount; i++) {
+            headers.add(new SimpleImmutableEntry<>(in.readUTF(), in.readUTF()));
+        }
+        int bodyLength = in.readInt();
+        byte[] body = null;
+        if (in.readBoolean()) {
+            body = new byte[bodyLength];
+            in.readFully(body);
+        }
+        return new CaptureRecord(offsetMicros, method, host, uri, headers, bodyLength, body);
+    }
+}
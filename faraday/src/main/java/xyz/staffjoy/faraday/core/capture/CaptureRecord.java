@@ -0,0 +1,71 @@
+package xyz.staffjoy.faraday.core.capture;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 抓取的一个请求
+ * offsetMicros是相对于日志中第一个请求的时间，回放时按这个时间发送
+ */
+public class CaptureRecord {
+
+    private final long offsetMicros;
+    private final String method;
+    private final String host;
+    private final String uri;
+    private final List<Map.Entry<String, String>> headers;
+    private final int bodyLength;
+    // null when the body was larger than the capture limit
+    private final byte[] body;
+
+    public CaptureRecord(long offsetMicros, String method, String host, String uri,
+                         List<Map.Entry<String, String>> headers, int bodyLength, byte[] body) {
+        this.offsetMicros = offsetMicros;
+        this.method = method;
+        this.host = host;
+        this.uri = uri;
+        this.headers = headers;
+        this.bodyLength = bodyLength;
+        this.body = body;
+    }
+
+    public long getOffsetMicros() {
+        return offsetMicros;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public String getUri() {
+        return uri;
+    }
+
+    public List<Map.Entry<String, String>> getHeaders() {
+        return headers;
+    }
+
+    public int getBodyLength() {
+        return bodyLength;
+    }
+
+    /**
+     * 回放用的body，超出抓取上限的body用同样长度的0填充
+     * @return
+     */
+    public byte[] getReplayBody() {
+        return body != null ? body : new byte[bodyLength];
+    }
+
+    boolean isBodyCaptured() {
+        return body != null;
+    }
+
+    byte[] getBody() {
+        return body;
+    }
+}
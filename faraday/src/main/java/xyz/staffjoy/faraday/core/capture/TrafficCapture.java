@@ -0,0 +1,229 @@
+package xyz.staffjoy.faraday.core.capture;
+
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.github.structlog4j.ILogger;
+import com.github.structlog4j.SLoggerFactory;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import xyz.staffjoy.common.auth.AuthConstant;
+import xyz.staffjoy.common.auth.Sessions;
+import xyz.staffjoy.common.crypto.Sign;
+import xyz.staffjoy.faraday.config.CaptureProperties;
+import xyz.staffjoy.faraday.config.FaradayProperties;
+import xyz.staffjoy.faraday.core.memory.MemoryBudget;
+
+import java.io.*;
+import java.text.SimpleDateFormat;
+import java.util.*;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.lang.System.nanoTime;
+import static org.apache.commons.lang3.StringUtils.isBlank;
+
+/**
+ * 生产流量抓取
+ * 请求线程按采样率把请求的元数据和body放入有界队列(满了丢弃并计数)，排队的body占用内存预算，
+ * 单独的写线程去掉敏感的请求头，把会话cookie用测试密钥重新签名，写入紧凑的二进制日志(见CaptureLog)
+ * 登录、账户等路径的body带有密码，不抓取
+ */
+public class TrafficCapture {
+
+    private static final ILogger log = SLoggerFactory.getLogger(TrafficCapture.class);
+
+    protected final CaptureProperties captureProperties;
+    protected final String signingSecret;
+    protected final Set<String> redactedHeaders = new HashSet<>();
+    protected final List<String> redactedBodyPaths;
+    protected final MemoryBudget memoryBudget;
+    protected final BlockingQueue<Captured> queue;
+    protected final AtomicLong dropped = new AtomicLong();
+    protected final Thread writer;
+
+    public TrafficCapture(FaradayProperties faradayProperties, String signingSecret, MemoryBudget memoryBudget,
+                          Optional<MeterRegistry> meterRegistry) {
+        this.captureProperties = faradayProperties.getCapture();
+        this.signingSecret = signingSecret;
+        this.memoryBudget = memoryBudget;
+        captureProperties.getRedactedHeaders().forEach(name -> redactedHeaders.add(name.toLowerCase()));
+        this.redactedBodyPaths = new ArrayList<>(captureProperties.getRedactedBodyPaths());
+        this.queue = new ArrayBlockingQueue<>(captureProperties.getQueueSize());
+        this.writer = new Thread(this::drain, "faraday-capture-writer");
+        this.writer.setDaemon(true);
+        if (captureProperties.isEnabled()) {
+            this.writer.start();
+        }
+        meterRegistry.ifPresent(registry ->
+                FunctionCounter.builder(faradayProperties.getMetrics().getNamesPrefix() + ".capture.dropped",
+                        this, TrafficCapture::getDropped)
+                        .register(registry));
+    }
+
+    /**
+     * 按采样率抓取请求，要在添加X-Forwarded头之前调用
+     * @param method
+     * @param host
+     * @param uri
+     * @param headers
+     * @param body
+     */
+    public void capture(HttpMethod method, String host, String uri, HttpHeaders headers, byte[] body) {
+        if (!captureProperties.isEnabled()
+                || ThreadLocalRandom.current().nextDouble() >= captureProperties.getSampleRate()) {
+            return;
+        }
+        // the headers are modified further down the chain, copy the values
+        List<Map.Entry<String, String>> headerValues = new ArrayList<>();
+        headers.forEach((name, values) -> values.forEach(value -> headerValues.add(new SimpleImmutableEntry<>(name, value))));
+        boolean captureBody = body.length <= captureProperties.getMaxBodySize() && !isBodyRedacted(uri);
+        CaptureRecord record = new CaptureRecord(TimeUnit.NANOSECONDS.toMicros(nanoTime()), method.name(), host, uri,
+                headerValues, body.length, captureBody ? body : null);
+        //排队的body一直占用内存预算，直到写入日志
+        MemoryBudget.Lease lease = memoryBudget.lease();
+        if ((captureBody && !lease.reserve(body.length)) || !queue.offer(new Captured(record, lease))) {
+            lease.close();
+            dropped.incrementAndGet();
+        }
+    }
+
+    /**
+     * 按路径前缀判断body是否不能抓取，uri带有查询参数
+     * @param uri
+     * @return
+     */
+    protected boolean isBodyRedacted(String uri) {
+        int query = uri.indexOf('?');
+        String path = query < 0 ? uri : uri.substring(0, query);
+        for (String prefix : redactedBodyPaths) {
+            if (path.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    public void shutdown() {
+        writer.interrupt();
+    }
+
+    protected void drain() {
+        // each record is encoded into the buffer first, so a record the format cannot hold never corrupts the log
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(4096);
+        DataOutputStream bufferOut = new DataOutputStream(buffer);
+        try (DataOutputStream out = open()) {
+            long firstMicros = -1;
+            while (!Thread.currentThread().isInterrupted()) {
+                Captured captured;
+                try {
+                    captured = queue.poll(1, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                if (captured == null) {
+                    out.flush();
+                    continue;
+                }
+                try (MemoryBudget.Lease lease = captured.lease) {
+                    CaptureRecord record = captured.record;
+                    if (firstMicros < 0) {
+                        firstMicros = record.getOffsetMicros();
+                    }
+                    buffer.reset();
+                    try {
+                        CaptureLog.write(bufferOut, redact(record, firstMicros));
+                    } catch (UTFDataFormatException e) {
+                        continue; // header or uri longer than 64k
+                    }
+                    buffer.writeTo(out);
+                }
+            }
+        } catch (IOException e) {
+            log.error("Fail to write capture log", e);
+        }
+    }
+
+    protected DataOutputStream open() throws IOException {
+        File directory = new File(captureProperties.getDirectory());
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Fail to create capture directory " + directory);
+        }
+        File file = new File(directory,
+                "faraday-capture-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()) + ".bin");
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 64 * 1024));
+        CaptureLog.writeHeader(out);
+        log.info("Capturing sampled requests", "file", file.getPath(), "sampleRate", captureProperties.getSampleRate());
+        return out;
+    }
+
+    protected CaptureRecord redact(CaptureRecord record, long firstMicros) {
+        List<Map.Entry<String, String>> headers = new ArrayList<>(record.getHeaders().size());
+        for (Map.Entry<String, String> header : record.getHeaders()) {
+            String name = header.getKey();
+            if (redactedHeaders.contains(name.toLowerCase())) {
+                continue;
+            }
+            if (HttpHeaders.COOKIE.equalsIgnoreCase(name)) {
+                String cookie = resignSessionCookie(header.getValue());
+                if (cookie != null) {
+                    headers.add(new SimpleImmutableEntry<>(name, cookie));
+                }
+                continue;
+            }
+            headers.add(header);
+        }
+        return new CaptureRecord(record.getOffsetMicros() - firstMicros, record.getMethod(), record.getHost(),
+                record.getUri(), headers, record.getBodyLength(), record.getBody());
+    }
+
+    /**
+     * 只保留会话cookie，用生产密钥校验通过后，用测试密钥为同一个用户重新签名
+     * @param cookieHeader
+     * @return 没有配置测试密钥或者会话无效时返回null，即丢弃整个cookie
+     */
+    protected String resignSessionCookie(String cookieHeader) {
+        if (isBlank(captureProperties.getResignSecret())) {
+            return null;
+        }
+        for (String cookie : cookieHeader.split(";")) {
+            int separator = cookie.indexOf('=');
+            if (separator < 0 || !AuthConstant.COOKIE_NAME.equals(cookie.substring(0, separator).trim())) {
+                continue;
+            }
+            try {
+                DecodedJWT jwt = Sign.verifySessionToken(cookie.substring(separator + 1).trim(), signingSecret);
+                String token = Sign.generateSessionToken(jwt.getClaim(Sign.CLAIM_USER_ID).asString(),
+                        captureProperties.getResignSecret(),
+                        Boolean.TRUE.equals(jwt.getClaim(Sign.CLAIM_SUPPORT).asBoolean()),
+                        Sessions.LONG_SESSION);
+                return AuthConstant.COOKIE_NAME + "=" + token;
+            } catch (Exception e) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 排队中的请求和它的body占用的内存预算
+     */
+    protected static class Captured {
+        final CaptureRecord record;
+        final MemoryBudget.Lease lease;
+
+        Captured(CaptureRecord record, MemoryBudget.Lease lease) {
+            this.record = record;
+            this.lease = lease;
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package xyz.staffjoy.faraday.core.dns;
+
+import com.github.structlog4j.ILogger;
+import com.github.structlog4j.SLoggerFactory;
+import org.apache.http.conn.DnsResolver;
+import xyz.staffjoy.faraday.config.DnsProperties;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.security.Security;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.lang.System.currentTimeMillis;
+import static java.util.Collections.emptySet;
+import static java.util.Collections.unmodifiableSet;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * 带缓存的DNS解析器
+ * 只缓存路由表中目标服务的地址(如k8s service名)，每个地址在TTL到期时后台重新解析，请求线程只读缓存，
+ * 多个A记录之间轮询，消失的地址在下一次刷新后不再使用
+ * 其他主机直接交给JVM解析器，不进入缓存
+ */
+public class CachingDnsResolver implements DnsResolver {
+
+    private static final ILogger log = SLoggerFactory.getLogger(CachingDnsResolver.class);
+
+    // JVM解析器在未设置networkaddress.cache.ttl时的缓存时间
+    static final long DEFAULT_TTL = 30000;
+    // 刷新间隔的下限，TTL为0时也不会连续不断地解析
+    static final long MIN_REFRESH_INTERVAL = 1000;
+    // 刷新失败后的重试间隔上限
+    static final long MAX_RETRY_INTERVAL = 5000;
+
+    protected final DnsProperties dnsProperties;
+    protected final DnsResolver delegate;
+    protected final long ttl;
+    protected final ConcurrentMap<String, Entry> cache = new ConcurrentHashMap<>();
+    protected final ConcurrentMap<String, ScheduledFuture<?>> refreshes = new ConcurrentHashMap<>();
+    protected final ScheduledExecutorService refresher;
+    // 路由表中的目标主机，只有这些主机会被缓存
+    protected volatile Set<String> hosts = emptySet();
+
+    public CachingDnsResolver(DnsProperties dnsProperties, DnsResolver delegate) {
+        this.dnsProperties = dnsProperties;
+        this.delegate = delegate;
+        this.ttl = Math.max(resolveTtl(dnsProperties), MIN_REFRESH_INTERVAL);
+        this.refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "faraday-dns-refresher");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public InetAddress[] resolve(String host) throws UnknownHostException {
+        if (!dnsProperties.isEnabled() || !hosts.contains(host)) {
+            return delegate.resolve(host);
+        }
+        Entry entry = cache.get(host);
+        if (entry == null || entry.isStale(currentTimeMillis(), dnsProperties.getMaxStale())) {
+            // only the very first lookup of a host, or a host whose refreshes failed for too long, blocks
+            entry = lookup(host);
+        }
+        return entry.next();
+    }
+
+    /**
+     * 路由表更新时调用，新的目标主机异步预解析，避免首个请求承担DNS查询的延迟，
+     * 不再使用的主机从缓存中移除并停止刷新
+     * @param destinationHosts
+     */
+    public void updateHosts(Collection<String> destinationHosts) {
+        if (!dnsProperties.isEnabled()) {
+            return;
+        }
+        Set<String> updated = unmodifiableSet(new HashSet<>(destinationHosts));
+        hosts = updated;
+        cache.keySet().retainAll(updated);
+        refreshes.entrySet().removeIf(refresh -> {
+            if (updated.contains(refresh.getKey())) {
+                return false;
+            }
+            refresh.getValue().cancel(false);
+            return true;
+        });
+        updated.stream()
+                .filter(host -> !cache.containsKey(host))
+                .forEach(host -> refresher.execute(() -> refresh(host)));
+    }
+
+    public void shutdown() {
+        refresher.shutdownNow();
+    }
+
+    protected void refresh(String host) {
+        if (!hosts.contains(host)) {
+            return;
+        }
+        try {
+            lookup(host);
+        } catch (UnknownHostException e) {
+            // keep serving the last known addresses until they become too stale
+            log.warn("Fail to refresh destination host addresses", "host", host, e);
+            scheduleRefresh(host, Math.min(ttl, MAX_RETRY_INTERVAL));
+        } catch (RuntimeException e) {
+            log.error("Unexpected error refreshing destination host addresses", "host", host, e);
+            scheduleRefresh(host, Math.min(ttl, MAX_RETRY_INTERVAL));
+        }
+    }
+
+    protected Entry lookup(String host) throws UnknownHostException {
+        InetAddress[] addresses = delegate.resolve(host);
+        if (addresses == null || addresses.length == 0) {
+            throw new UnknownHostException(host);
+        }
+        Entry entry = new Entry(addresses, currentTimeMillis());
+        if (hosts.contains(host)) {
+            cache.put(host, entry);
+            scheduleRefresh(host, ttl);
+        }
+        return entry;
+    }
+
+    protected void scheduleRefresh(String host, long delay) {
+        if (refresher.isShutdown()) {
+            return;
+        }
+        ScheduledFuture<?> previous = refreshes.put(host, refresher.schedule(() -> refresh(host), delay, MILLISECONDS));
+        if (previous != null) {
+            previous.cancel(false);
+        }
+    }
+
+    static long resolveTtl(DnsProperties dnsProperties) {
+        if (dnsProperties.getTtl() >= 0) {
+            return dnsProperties.getTtl();
+        }
+        try {
+            long seconds = Long.parseLong(Security.getProperty("networkaddress.cache.ttl"));
+            if (seconds >= 0) {
+                return seconds * 1000;
+            }
+        } catch (NumberFormatException e) {
+            // not set, the JVM resolver uses its default
+        }
+        return DEFAULT_TTL;
+    }
+
+    protected static class Entry {
+        private final InetAddress[] addresses;
+        private final long resolvedAt;
+        private final AtomicInteger cursor = new AtomicInteger();
+
+        Entry(InetAddress[] addresses, long resolvedAt) {
+            this.addresses = addresses;
+            this.resolvedAt = resolvedAt;
+        }
+
+        boolean isStale(long now, long maxStale) {
+            return now - resolvedAt > maxStale;
+        }
+
+        /**
+         * 轮询返回地址列表，httpclient会优先连接第一个地址
+         * @return
+         */
+        InetAddress[] next() {
+            int size = addresses.length;
+            if (size == 1) {
+                return addresses.clone();
+            }
+            int start = (cursor.getAndIncrement() & Integer.MAX_VALUE) % size;
+            InetAddress[] rotated = new InetAddress[size];
+            for (int i = 0; i < size; i++) {
+                rotated[i] = addresses[(start + i) % size];
+            }
+            return rotated;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package xyz.staffjoy.faraday.core.etag;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import xyz.staffjoy.faraday.config.EtagProperties;
+import xyz.staffjoy.faraday.config.FaradayProperties;
+import xyz.staffjoy.faraday.config.MappingProperties;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * 网关生成的强ETag
+ * 后端没有给出ETag的200响应，用body的128位哈希作为ETag，客户端带If-None-Match命中时直接回304，不再下发body
+ */
+public class EtagGenerator {
+
+    protected final EtagProperties etagProperties;
+    protected final Set<String> routes;
+    private Counter notModifiedCounter;
+    private Counter savedBytesCounter;
+
+    public EtagGenerator(FaradayProperties faradayProperties, Optional<MeterRegistry> meterRegistry) {
+        this.etagProperties = faradayProperties.getEtag();
+        this.routes = new HashSet<>(etagProperties.getRoutes());
+        String prefix = faradayProperties.getMetrics().getNamesPrefix() + ".etag";
+        meterRegistry.ifPresent(registry -> {
+            notModifiedCounter = Counter.builder(prefix + ".not_modified").register(registry);
+            savedBytesCounter = Counter.builder(prefix + ".saved_bytes").baseUnit("bytes").register(registry);
+        });
+    }
+
+    /**
+     * 只给启用路由上GET的200响应生成ETag，后端自己给出ETag的保持原样
+     * HEAD没有body，算出的哈希和GET的不一致，不生成
+     * @param method
+     * @param mapping
+     * @param status
+     * @param responseHeaders
+     * @return
+     */
+    public boolean shouldGenerate(HttpMethod method, MappingProperties mapping, int status, HttpHeaders responseHeaders) {
+        return method == HttpMethod.GET && appliesTo(method, mapping) && status == HttpStatus.OK.value() && responseHeaders.getETag() == null;
+    }
+
+    public String toEtag(Murmur3Hash128 hash) {
+        return "\"" + hash.finishHex() + "\"";
+    }
+
+    /**
+     * 客户端的If-None-Match是否命中响应的ETag，按RFC 7232用弱比较
+     * @param method
+     * @param mapping
+     * @param requestHeaders
+     * @param responseEntity
+     * @return
+     */
+    public boolean isNotModified(HttpMethod method, MappingProperties mapping, HttpHeaders requestHeaders,
+                                 ResponseEntity<byte[]> responseEntity) {
+        if (!appliesTo(method, mapping) || responseEntity.getStatusCodeValue() != HttpStatus.OK.value()) {
+            return false;
+        }
+        String etag = responseEntity.getHeaders().getETag();
+        if (etag == null) {
+            return false;
+        }
+        List<String> ifNoneMatch = requestHeaders.getIfNoneMatch();
+        for (String candidate : ifNoneMatch) {
+            if ("*".equals(candidate) || opaqueTag(candidate).equals(opaqueTag(etag))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void recordNotModified(int savedBytes) {
+        if (notModifiedCounter != null) {
+            notModifiedCounter.increment();
+            savedBytesCounter.increment(savedBytes);
+        }
+    }
+
+    protected boolean appliesTo(HttpMethod method, MappingProperties mapping) {
+        return etagProperties.isEnabled()
+                && (routes.isEmpty() || routes.contains(mapping.getName()))
+                && (method == HttpMethod.GET || method == HttpMethod.HEAD);
+    }
+
+    private static String opaqueTag(String etag) {
+        String tag = etag.trim();
+        return tag.startsWith("W/") ? tag.substring(2) : tag;
+    }
+}
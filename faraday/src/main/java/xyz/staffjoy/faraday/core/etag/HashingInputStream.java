@@ -0,0 +1,46 @@
+package xyz.staffjoy.faraday.core.etag;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 读取的同时计算哈希，body流过一遍即得到哈希值，不需要再扫描缓冲区
+ */
+public class HashingInputStream extends FilterInputStream {
+
+    private final Murmur3Hash128 hash;
+
+    public HashingInputStream(InputStream in, Murmur3Hash128 hash) {
+        super(in);
+        this.hash = hash;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = in.read();
+        if (b >= 0) {
+            hash.update(b);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int n = in.read(b, off, len);
+        if (n > 0) {
+            hash.update(b, off, n);
+        }
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        throw new IOException("Skipping a hashed stream is not supported");
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+}
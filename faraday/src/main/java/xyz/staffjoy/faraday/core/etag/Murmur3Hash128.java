@@ -0,0 +1,147 @@
+package xyz.staffjoy.faraday.core.etag;
+
+/**
+ * 增量计算的MurmurHash3 x64 128位哈希
+ * 数据可以分多次喂入，结果与一次性计算相同，不足16字节的尾部暂存到下一次
+ */
+public class Murmur3Hash128 {
+
+    private static final long C1 = 0x87c37b91114253d5L;
+    private static final long C2 = 0x4cf5ad432745937fL;
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private long h1;
+    private long h2;
+    private long length;
+    private final byte[] tail = new byte[16];
+    private int tailLength;
+
+    public Murmur3Hash128() {
+        this(0);
+    }
+
+    public Murmur3Hash128(long seed) {
+        this.h1 = seed;
+        this.h2 = seed;
+    }
+
+    public void update(int b) {
+        length++;
+        tail[tailLength++] = (byte) b;
+        if (tailLength == 16) {
+            mix(getLong(tail, 0), getLong(tail, 8));
+            tailLength = 0;
+        }
+    }
+
+    public void update(byte[] bytes, int offset, int len) {
+        length += len;
+        if (tailLength > 0) {
+            int n = Math.min(16 - tailLength, len);
+            System.arraycopy(bytes, offset, tail, tailLength, n);
+            tailLength += n;
+            offset += n;
+            len -= n;
+            if (tailLength < 16) {
+                return;
+            }
+            mix(getLong(tail, 0), getLong(tail, 8));
+            tailLength = 0;
+        }
+        while (len >= 16) {
+            mix(getLong(bytes, offset), getLong(bytes, offset + 8));
+            offset += 16;
+            len -= 16;
+        }
+        if (len > 0) {
+            System.arraycopy(bytes, offset, tail, 0, len);
+            tailLength = len;
+        }
+    }
+
+    /**
+     * 结束计算，返回32位十六进制字符串，之后不能再调用update
+     * @return
+     */
+    public String finishHex() {
+        long k1 = 0;
+        long k2 = 0;
+        for (int i = tailLength - 1; i >= 8; i--) {
+            k2 ^= (tail[i] & 0xffL) << ((i - 8) * 8);
+        }
+        if (tailLength > 8) {
+            k2 *= C2;
+            k2 = Long.rotateLeft(k2, 33);
+            k2 *= C1;
+            h2 ^= k2;
+        }
+        for (int i = Math.min(tailLength, 8) - 1; i >= 0; i--) {
+            k1 ^= (tail[i] & 0xffL) << (i * 8);
+        }
+        if (tailLength > 0) {
+            k1 *= C1;
+            k1 = Long.rotateLeft(k1, 31);
+            k1 *= C2;
+            h1 ^= k1;
+        }
+
+        h1 ^= length;
+        h2 ^= length;
+        h1 += h2;
+        h2 += h1;
+        h1 = fmix64(h1);
+        h2 = fmix64(h2);
+        h1 += h2;
+        h2 += h1;
+        char[] hex = new char[32];
+        putHex(hex, 0, h1);
+        putHex(hex, 16, h2);
+        return new String(hex);
+    }
+
+    private void mix(long k1, long k2) {
+        k1 *= C1;
+        k1 = Long.rotateLeft(k1, 31);
+        k1 *= C2;
+        h1 ^= k1;
+        h1 = Long.rotateLeft(h1, 27);
+        h1 += h2;
+        h1 = h1 * 5 + 0x52dce729;
+
+        k2 *= C2;
+        k2 = Long.rotateLeft(k2, 33);
+        k2 *= C1;
+        h2 ^= k2;
+        h2 = Long.rotateLeft(h2, 31);
+        h2 += h1;
+        h2 = h2 * 5 + 0x38495ab5;
+    }
+
+    private static long fmix64(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+
+    // 每个响应都要计算，不用String.format
+    private static void putHex(char[] hex, int offset, long value) {
+        for (int i = offset + 15; i >= offset; i--) {
+            hex[i] = HEX_DIGITS[(int) (value & 0xf)];
+            value >>>= 4;
+        }
+    }
+
+    private static long getLong(byte[] bytes, int offset) {
+        return (bytes[offset] & 0xffL)
+                | (bytes[offset + 1] & 0xffL) << 8
+                | (bytes[offset + 2] & 0xffL) << 16
+                | (bytes[offset + 3] & 0xffL) << 24
+                | (bytes[offset + 4] & 0xffL) << 32
+                | (bytes[offset + 5] & 0xffL) << 40
+                | (bytes[offset + 6] & 0xffL) << 48
+                | (bytes[offset + 7] & 0xffL) << 56;
+    }
+}
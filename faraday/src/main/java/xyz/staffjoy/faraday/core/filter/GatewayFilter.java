@@ -0,0 +1,126 @@
+package xyz.staffjoy.faraday.core.filter;
+
+import com.github.structlog4j.ILogger;
+import com.github.structlog4j.SLoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.filter.OncePerRequestFilter;
+import xyz.staffjoy.common.env.EnvConfig;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 合并的网关过滤器
+ * 一次完成HealthCheckFilter, FaviconFilter, SecurityFilter, NakedDomainFilter的判断，
+ * 请求只解析一次，终止路径、响应头、重定向地址都在构造时预先计算好，
+ * 其余请求交给ReverseProxyFilter转发
+ */
+public class GatewayFilter extends OncePerRequestFilter {
+
+    private static final ILogger log = SLoggerFactory.getLogger(GatewayFilter.class);
+
+    private static final String[][] CORS_HEADERS = {
+            {HttpHeaders.ACCESS_CONTROL_ALLOW_CREDENTIALS, "true"},
+            {HttpHeaders.ACCESS_CONTROL_ALLOW_METHODS, "POST, GET, OPTIONS, PUT, DELETE"},
+            {HttpHeaders.ACCESS_CONTROL_ALLOW_HEADERS, "Accept, Content-Type, Content-Length, Cookie, Accept-Encoding, X-CSRF-Token, Authorization"}
+    };
+
+    private static final String[][] SECURE_HEADERS = {
+            // HSTS - force SSL
+            {"Strict-Transport-Security", "max-age=315360000; includeSubDomains; preload"},
+            // No iFrames
+            {"X-Frame-Options", "DENY"},
+            // Cross-site scripting protection
+            {"X-XSS-Protection", "1; mode=block"}
+    };
+
+    private final boolean debug;
+    private final String externalApex;
+    // terminal paths answered by the gateway itself
+    private final Map<String, TerminalHandler> terminalHandlers = new HashMap<>();
+    // naked domain redirect is <prefix><port>/login/
+    private final String nakedDomainRedirectPrefix;
+
+    public GatewayFilter(EnvConfig envConfig, byte[] faviconFile) {
+        this.debug = envConfig.isDebug();
+        this.externalApex = envConfig.getExternalApex();
+        this.nakedDomainRedirectPrefix = (debug ? "http" : "https") + "://www." + externalApex + ":";
+
+        terminalHandlers.put(HealthCheckFilter.HEALTH_CHECK_PATH, response -> {
+            response.setStatus(HttpServletResponse.SC_OK);
+            response.getWriter().println("OK");
+        });
+        terminalHandlers.put(FaviconFilter.FAVICON_PATH, response -> {
+            response.setStatus(HttpServletResponse.SC_OK);
+            response.getOutputStream().write(faviconFile);
+        });
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        RequestContext context = RequestContext.parse(request);
+
+        TerminalHandler terminalHandler = terminalHandlers.get(context.uri);
+        if (terminalHandler != null) {
+            terminalHandler.handle(response);
+            return;
+        }
+
+        if (context.hasOrigin()) {
+            response.setHeader(HttpHeaders.ACCESS_CONTROL_ALLOW_ORIGIN, context.origin);
+            setHeaders(response, CORS_HEADERS);
+        }
+
+        // Stop here if its Preflighted OPTIONS request
+        if (context.isPreflight()) {
+            return;
+        }
+
+        if (!debug) {
+            // If not secure, then redirect
+            if (!context.secure) {
+                log.info("Insecure quest in uat&prod environment, redirect to https");
+                redirectToHttps(context, response);
+                return;
+            }
+            setHeaders(response, SECURE_HEADERS);
+        }
+
+        // if you're hitting naked domain - go to www
+        if (externalApex.equals(context.host)) {
+            log.info("hitting naked domain - redirect to www");
+            response.sendRedirect(nakedDomainRedirectPrefix + context.port + "/login/");
+            return;
+        }
+
+        filterChain.doFilter(request, response);
+    }
+
+    private void redirectToHttps(RequestContext context, HttpServletResponse response) throws IOException {
+        try {
+            URI redirectUrl = new URI("https", context.host, context.uri, null);
+            response.sendRedirect(redirectUrl.toString());
+        } catch (URISyntaxException e) {
+            log.error("fail to build redirect url", e);
+        }
+    }
+
+    private static void setHeaders(HttpServletResponse response, String[][] headers) {
+        for (String[] header : headers) {
+            response.setHeader(header[0], header[1]);
+        }
+    }
+
+    @FunctionalInterface
+    private interface TerminalHandler {
+        void handle(HttpServletResponse response) throws IOException;
+    }
+}
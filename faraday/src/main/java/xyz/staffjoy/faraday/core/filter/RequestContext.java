@@ -0,0 +1,44 @@
+package xyz.staffjoy.faraday.core.filter;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * 请求上下文
+ * 网关过滤器只解析一次请求，后续判断都基于这里的字段
+ */
+public class RequestContext {
+
+    static final String ORIGIN_HEADER = "Origin";
+    static final String X_FORWARDED_PROTO_HEADER = "X-Forwarded-Proto";
+
+    final String method;
+    final String host;
+    final String uri;
+    final int port;
+    final String origin;
+    final boolean secure;
+
+    RequestContext(String method, String host, String uri, int port, String origin, boolean secure) {
+        this.method = method;
+        this.host = host;
+        this.uri = uri;
+        this.port = port;
+        this.origin = origin;
+        this.secure = secure;
+    }
+
+    static RequestContext parse(HttpServletRequest request) {
+        // Check if frontend proxy proxied it
+        boolean secure = request.isSecure() || "https".equals(request.getHeader(X_FORWARDED_PROTO_HEADER));
+        return new RequestContext(request.getMethod(), request.getServerName(), request.getRequestURI(),
+                request.getServerPort(), request.getHeader(ORIGIN_HEADER), secure);
+    }
+
+    boolean isPreflight() {
+        return "OPTIONS".equals(method);
+    }
+
+    boolean hasOrigin() {
+        return origin != null && !origin.isEmpty();
+    }
+}
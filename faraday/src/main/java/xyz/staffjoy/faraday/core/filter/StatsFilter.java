@@ -0,0 +1,179 @@
+package xyz.staffjoy.faraday.core.filter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+import xyz.staffjoy.faraday.config.StatsProperties;
+import xyz.staffjoy.faraday.core.bulkhead.Bulkhead;
+import xyz.staffjoy.faraday.core.bulkhead.BulkheadRegistry;
+import xyz.staffjoy.faraday.core.http.HttpClientProvider;
+import xyz.staffjoy.faraday.core.priority.FairAdmissionQueue;
+import xyz.staffjoy.faraday.core.priority.PriorityClass;
+import xyz.staffjoy.faraday.core.stats.GatewayStats;
+import xyz.staffjoy.faraday.core.stats.GatewayStats.RouteStats;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 网关实时统计端点
+ * 只对内网开放，经过前端负载均衡(带X-Forwarded-For)的请求一律视为外部请求，交给后续过滤器处理
+ */
+public class StatsFilter extends OncePerRequestFilter {
+
+    static final String X_FORWARDED_FOR_HEADER = "X-Forwarded-For";
+
+    private final StatsProperties statsProperties;
+    private final GatewayStats gatewayStats;
+    private final HttpClientProvider httpClientProvider;
+    private final BulkheadRegistry bulkheadRegistry;
+    private final FairAdmissionQueue admissionQueue;
+    private final List<Network> allowedNetworks = new ArrayList<>();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public StatsFilter(StatsProperties statsProperties,
+                       GatewayStats gatewayStats,
+                       HttpClientProvider httpClientProvider,
+                       BulkheadRegistry bulkheadRegistry,
+                       FairAdmissionQueue admissionQueue) {
+        this.statsProperties = statsProperties;
+        this.gatewayStats = gatewayStats;
+        this.httpClientProvider = httpClientProvider;
+        this.bulkheadRegistry = bulkheadRegistry;
+        this.admissionQueue = admissionQueue;
+        statsProperties.getAllowedNetworks().forEach(cidr -> allowedNetworks.add(Network.parse(cidr)));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        if (statsProperties.getPath().equals(request.getRequestURI()) && isInternal(request)) {
+            response.setStatus(HttpServletResponse.SC_OK);
+            response.setContentType(MediaType.APPLICATION_JSON_UTF8_VALUE);
+            objectMapper.writeValue(response.getOutputStream(), buildStats());
+        } else {
+            filterChain.doFilter(request, response);
+        }
+    }
+
+    private boolean isInternal(HttpServletRequest request) {
+        if (request.getHeader(X_FORWARDED_FOR_HEADER) != null) {
+            return false;
+        }
+        byte[] address;
+        try {
+            // remote address is always an IP literal, no lookup happens here
+            address = InetAddress.getByName(request.getRemoteAddr()).getAddress();
+        } catch (UnknownHostException e) {
+            return false;
+        }
+        for (Network network : allowedNetworks) {
+            if (network.contains(address)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Map<String, Object> buildStats() {
+        double windowSeconds = gatewayStats.getWindowSeconds();
+        Map<String, Object> routes = new LinkedHashMap<>();
+        for (Map.Entry<String, RouteStats> route : gatewayStats.getRoutes().entrySet()) {
+            Map<String, Object> routeSnapshot = route.getValue().getTotal().snapshot(windowSeconds);
+
+            PoolingHttpClientConnectionManager connectionManager = httpClientProvider.getConnectionManager(route.getKey());
+            if (connectionManager != null) {
+                PoolStats poolStats = connectionManager.getTotalStats();
+                Map<String, Object> pool = new LinkedHashMap<>();
+                pool.put("leased", poolStats.getLeased());
+                pool.put("available", poolStats.getAvailable());
+                pool.put("pending", poolStats.getPending());
+                pool.put("max", poolStats.getMax());
+                pool.put("utilization", poolStats.getMax() == 0 ? 0.0 : (double) poolStats.getLeased() / poolStats.getMax());
+                routeSnapshot.put("pool", pool);
+            }
+
+            Bulkhead bulkhead = bulkheadRegistry.findBulkhead(route.getKey());
+            if (bulkhead != null) {
+                Map<String, Object> bulkheadSnapshot = new LinkedHashMap<>();
+                bulkheadSnapshot.put("active", bulkhead.getActive());
+                bulkheadSnapshot.put("queued", bulkhead.getQueued());
+                bulkheadSnapshot.put("rejected", bulkhead.getRejected());
+                bulkheadSnapshot.put("utilization", bulkhead.getUtilization());
+                routeSnapshot.put("bulkhead", bulkheadSnapshot);
+            }
+
+            Map<String, Object> destinations = new LinkedHashMap<>();
+            route.getValue().getDestinations().forEach((destination, stats) ->
+                    destinations.put(destination, stats.snapshot(windowSeconds)));
+            routeSnapshot.put("destinations", destinations);
+
+            routes.put(route.getKey(), routeSnapshot);
+        }
+        Map<String, Object> priority = new LinkedHashMap<>();
+        for (PriorityClass priorityClass : PriorityClass.values()) {
+            Map<String, Object> classSnapshot = new LinkedHashMap<>();
+            classSnapshot.put("queued", admissionQueue.getQueued(priorityClass));
+            classSnapshot.put("shed", admissionQueue.getShed(priorityClass));
+            priority.put(priorityClass.getKey(), classSnapshot);
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("windowSeconds", windowSeconds);
+        stats.put("routes", routes);
+        stats.put("priority", priority);
+        return stats;
+    }
+
+    /**
+     * CIDR网段
+     */
+    private static class Network {
+        private final byte[] address;
+        private final int prefixLength;
+
+        private Network(byte[] address, int prefixLength) {
+            this.address = address;
+            this.prefixLength = prefixLength;
+        }
+
+        static Network parse(String cidr) {
+            String[] parts = cidr.split("/");
+            try {
+                byte[] address = InetAddress.getByName(parts[0]).getAddress();
+                int prefixLength = parts.length > 1 ? Integer.parseInt(parts[1]) : address.length * 8;
+                return new Network(address, prefixLength);
+            } catch (UnknownHostException | NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid network " + cidr, e);
+            }
+        }
+
+        boolean contains(byte[] candidate) {
+            if (candidate.length != address.length) {
+                return false;
+            }
+            int fullBytes = prefixLength / 8;
+            for (int i = 0; i < fullBytes; i++) {
+                if (candidate[i] != address[i]) {
+                    return false;
+                }
+            }
+            int remainingBits = prefixLength % 8;
+            if (remainingBits == 0) {
+                return true;
+            }
+            int mask = (0xff << (8 - remainingBits)) & 0xff;
+            return (candidate[fullBytes] & mask) == (address[fullBytes] & mask);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package xyz.staffjoy.faraday.core.http;
+
+import org.apache.http.client.methods.HttpUriRequest;
+
+/**
+ * 转发的取消句柄
+ * 批量请求超时时通过它中止还在进行的子请求，底层的HTTP请求被abort，连接和批量线程随即释放
+ * 转发线程在发送前绑定句柄，HttpClientProvider创建底层请求时登记到当前线程绑定的句柄上
+ */
+public class ForwardCancellation {
+
+    private static final ThreadLocal<ForwardCancellation> current = new ThreadLocal<>();
+
+    // guarded by this
+    private HttpUriRequest request;
+    private boolean cancelled;
+
+    public static void bind(ForwardCancellation cancellation) {
+        if (cancellation == null) {
+            current.remove();
+        } else {
+            current.set(cancellation);
+        }
+    }
+
+    public static void unbind() {
+        current.remove();
+    }
+
+    static void attachCurrent(HttpUriRequest request) {
+        ForwardCancellation cancellation = current.get();
+        if (cancellation != null) {
+            cancellation.attach(request);
+        }
+    }
+
+    synchronized void attach(HttpUriRequest request) {
+        this.request = request;
+        if (cancelled) {
+            request.abort();
+        }
+    }
+
+    public synchronized void cancel() {
+        if (cancelled) {
+            return;
+        }
+        cancelled = true;
+        if (request != null) {
+            request.abort();
+        }
+    }
+
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+}
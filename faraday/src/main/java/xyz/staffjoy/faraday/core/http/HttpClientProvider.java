@@ -1,35 +1,96 @@
 package xyz.staffjoy.faraday.core.http;
 
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.ClientHttpResponse;
 import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.DefaultResponseErrorHandler;
 import org.springframework.web.client.RestTemplate;
 import xyz.staffjoy.faraday.config.MappingProperties;
+import xyz.staffjoy.faraday.core.dns.CachingDnsResolver;
 
+import java.io.IOException;
+import java.net.URI;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
-import static java.util.stream.Collectors.toMap;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static org.apache.http.impl.client.HttpClientBuilder.create;
 
 /**
  * httpClient提供者
  * 产生httpClient
  * 实现httpclient映射表(Service-HttpClient)
+ * 路由表更新时超时配置没变的路由复用原来的client，配置变化或删除的路由的client和连接池
+ * 在连接超时加读取超时之后关闭，正在转发的请求可以先完成
  */
 public class HttpClientProvider {
     //最终是使用spring提供的RestTemplate访问目标服务
     protected Map<String, RestTemplate> httpClients = new HashMap<>();
+    //每个路由的连接池，用于统计连接池的使用情况
+    protected final Map<String, PoolingHttpClientConnectionManager> connectionManagers = new ConcurrentHashMap<>();
+    //每个路由当前的底层client，guarded by this
+    protected final Map<String, PooledClient> pooledClients = new HashMap<>();
+    //目标主机解析，带缓存和后台刷新
+    protected final CachingDnsResolver dnsResolver;
+    //延迟关闭被替换的client
+    protected final ScheduledExecutorService closer;
 
-    public void updateHttpClients(List<MappingProperties> mappings) {
-        httpClients = mappings.stream().collect(toMap(MappingProperties::getName, this::createRestTemplate));
+    public HttpClientProvider(CachingDnsResolver dnsResolver) {
+        this.dnsResolver = dnsResolver;
+        this.closer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "faraday-http-client-closer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public synchronized void updateHttpClients(List<MappingProperties> mappings) {
+        Map<String, PooledClient> previous = new HashMap<>(pooledClients);
+        Map<String, RestTemplate> updated = new HashMap<>();
+        for (MappingProperties mapping : mappings) {
+            PooledClient current = previous.get(mapping.getName());
+            if (current != null && current.hasTimeout(mapping.getTimeout())) {
+                updated.put(mapping.getName(), current.restTemplate);
+                previous.remove(mapping.getName());
+            } else {
+                updated.put(mapping.getName(), createRestTemplate(mapping));
+            }
+        }
+        httpClients = updated;
+        // previous剩下的是被替换或已删除的路由
+        previous.forEach((name, pooledClient) -> {
+            if (!updated.containsKey(name)) {
+                pooledClients.remove(name);
+                connectionManagers.remove(name);
+            }
+            retire(pooledClient);
+        });
+        dnsResolver.updateHosts(resolveDestinationHosts(mappings));
     }
 
     public RestTemplate getHttpClient(String mappingName) {
         return httpClients.get(mappingName);
     }
 
+    public PoolingHttpClientConnectionManager getConnectionManager(String mappingName) {
+        return connectionManagers.get(mappingName);
+    }
+
     /**
      * 构建RestTemplate
      * @param mapping
@@ -37,13 +98,112 @@ public class HttpClientProvider {
      */
     protected RestTemplate createRestTemplate(MappingProperties mapping) {
         CloseableHttpClient client = createHttpClient(mapping).build();
-        HttpComponentsClientHttpRequestFactory requestFactory = new HttpComponentsClientHttpRequestFactory(client);
+        PoolingHttpClientConnectionManager connectionManager = connectionManagers.get(mapping.getName());
+        //底层请求登记到转发线程绑定的取消句柄上，超时的批量子请求可以被中止
+        HttpComponentsClientHttpRequestFactory requestFactory = new HttpComponentsClientHttpRequestFactory(client) {
+            @Override
+            protected HttpUriRequest createHttpUriRequest(HttpMethod httpMethod, URI uri) {
+                HttpUriRequest request = super.createHttpUriRequest(httpMethod, uri);
+                ForwardCancellation.attachCurrent(request);
+                return request;
+            }
+        };
         requestFactory.setConnectTimeout(mapping.getTimeout().getConnect());
         requestFactory.setReadTimeout(mapping.getTimeout().getRead());
-        return new RestTemplate(requestFactory);
+        RestTemplate restTemplate = new RestTemplate(requestFactory);
+        //错误状态码的响应也原样转发给客户端，body和正常响应一样在内存预算内读取
+        restTemplate.setErrorHandler(new DefaultResponseErrorHandler() {
+            @Override
+            public boolean hasError(ClientHttpResponse response) {
+                return false;
+            }
+        });
+        pooledClients.put(mapping.getName(), new PooledClient(mapping.getTimeout(), restTemplate, client, connectionManager));
+        return restTemplate;
     }
 
     protected HttpClientBuilder createHttpClient(MappingProperties mapping) {
-        return create().useSystemProperties().disableRedirectHandling().disableCookieManagement();
+        PoolingHttpClientConnectionManager connectionManager = createConnectionManager();
+        connectionManagers.put(mapping.getName(), connectionManager);
+        return create().useSystemProperties().disableRedirectHandling().disableCookieManagement()
+                .setConnectionManager(connectionManager);
+    }
+
+    /**
+     * 构建连接池，和HttpClientBuilder.useSystemProperties()默认构建的连接池一致，
+     * 另外使用带缓存的DNS解析器
+     * @return
+     */
+    protected PoolingHttpClientConnectionManager createConnectionManager() {
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(
+                RegistryBuilder.<ConnectionSocketFactory>create()
+                        .register("http", PlainConnectionSocketFactory.getSocketFactory())
+                        .register("https", SSLConnectionSocketFactory.getSystemSocketFactory())
+                        .build(),
+                null, null, dnsResolver, -1, TimeUnit.MILLISECONDS);
+        if ("true".equalsIgnoreCase(System.getProperty("http.keepAlive", "true"))) {
+            int maxConnections = Integer.parseInt(System.getProperty("http.maxConnections", "5"));
+            connectionManager.setDefaultMaxPerRoute(maxConnections);
+            connectionManager.setMaxTotal(2 * maxConnections);
+        }
+        return connectionManager;
+    }
+
+    public synchronized void shutdown() {
+        closer.shutdownNow();
+        pooledClients.values().forEach(HttpClientProvider::close);
+        pooledClients.clear();
+        connectionManagers.clear();
+    }
+
+    protected void retire(PooledClient pooledClient) {
+        // 先关掉空闲连接，正在使用的连接等请求结束
+        pooledClient.connectionManager.closeIdleConnections(0, MILLISECONDS);
+        closer.schedule(() -> close(pooledClient), pooledClient.connect + pooledClient.read, MILLISECONDS);
+    }
+
+    protected static void close(PooledClient pooledClient) {
+        try {
+            // 同时关闭连接池
+            pooledClient.client.close();
+        } catch (IOException e) {
+            // nothing left to release
+        }
+    }
+
+    protected Set<String> resolveDestinationHosts(List<MappingProperties> mappings) {
+        Set<String> hosts = new HashSet<>();
+        mappings.forEach(mapping -> mapping.getDestinations().forEach(destination -> {
+            try {
+                String host = URI.create(destination).getHost();
+                if (host != null) {
+                    hosts.add(host);
+                }
+            } catch (IllegalArgumentException e) {
+                // malformed destinations fail on forwarding, nothing to resolve
+            }
+        }));
+        return hosts;
+    }
+
+    protected static class PooledClient {
+        private final int connect;
+        private final int read;
+        private final RestTemplate restTemplate;
+        private final CloseableHttpClient client;
+        private final PoolingHttpClientConnectionManager connectionManager;
+
+        PooledClient(MappingProperties.TimeoutProperties timeout, RestTemplate restTemplate,
+                     CloseableHttpClient client, PoolingHttpClientConnectionManager connectionManager) {
+            this.connect = timeout.getConnect();
+            this.read = timeout.getRead();
+            this.restTemplate = restTemplate;
+            this.client = client;
+            this.connectionManager = connectionManager;
+        }
+
+        boolean hasTimeout(MappingProperties.TimeoutProperties timeout) {
+            return connect == timeout.getConnect() && read == timeout.getRead();
+        }
     }
 }
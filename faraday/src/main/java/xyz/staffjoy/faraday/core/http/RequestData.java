@@ -15,6 +15,10 @@ public class RequestData extends UnmodifiableRequestData {
     private boolean needRedirect;
     //重定向url
     private String redirectUrl;
+    //取消句柄，批量请求的子请求才有
+    private ForwardCancellation cancellation;
+    //网关等待这个请求的截止时间(System.nanoTime)，没有时按路由的读超时
+    private Long deadlineNanos;
 
     public RequestData(HttpMethod method,
                        String host,
@@ -60,4 +64,20 @@ public class RequestData extends UnmodifiableRequestData {
     public String getRedirectUrl() {
         return this.redirectUrl;
     }
+
+    public void setCancellation(ForwardCancellation cancellation) {
+        this.cancellation = cancellation;
+    }
+
+    public ForwardCancellation getCancellation() {
+        return this.cancellation;
+    }
+
+    public void setDeadlineNanos(Long deadlineNanos) {
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    public Long getDeadlineNanos() {
+        return this.deadlineNanos;
+    }
 }
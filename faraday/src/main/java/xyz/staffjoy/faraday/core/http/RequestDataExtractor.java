@@ -2,22 +2,32 @@ package xyz.staffjoy.faraday.core.http;
 
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
+import xyz.staffjoy.faraday.core.memory.MemoryBudget;
 import xyz.staffjoy.faraday.exceptions.FaradayException;
 
 import javax.servlet.http.HttpServletRequest;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Enumeration;
 import java.util.List;
 
+import static java.lang.String.valueOf;
 import static java.util.Collections.list;
 import static org.apache.commons.io.IOUtils.toByteArray;
 import static org.apache.commons.lang3.StringUtils.EMPTY;
+import static org.springframework.util.CollectionUtils.isEmpty;
+import static xyz.staffjoy.faraday.core.utils.BodyReader.readBody;
 
 /**
  * 请求数据抽取器
  */
 public class RequestDataExtractor {
 
+    public static final String X_FORWARDED_FOR_HEADER = "X-Forwarded-For";
+    public static final String X_FORWARDED_PROTO_HEADER = "X-Forwarded-Proto";
+    public static final String X_FORWARDED_HOST_HEADER = "X-Forwarded-Host";
+    public static final String X_FORWARDED_PORT_HEADER = "X-Forwarded-Port";
+
     /**
      * 将请求body转为话byte[]
      * @param request
@@ -31,6 +41,36 @@ public class RequestDataExtractor {
         }
     }
 
+    /**
+     * 将请求body转为byte[]，超出maxSize时抛出PayloadTooLargeException
+     * @param request
+     * @param maxSize
+     * @return
+     */
+    public byte[] extractBody(HttpServletRequest request, long maxSize) {
+        try {
+            return readBody(request.getInputStream(), maxSize);
+        } catch (IOException e) {
+            throw new FaradayException("Error extracting body of HTTP request with URI: " + extractUri(request), e);
+        }
+    }
+
+    /**
+     * 将未知长度的请求body转为byte[]，边读边在租约上预留内存预算，
+     * 超出maxSize时抛出PayloadTooLargeException，预算用完时抛出MemoryBudgetExceededException
+     * @param request
+     * @param maxSize
+     * @param lease
+     * @return
+     */
+    public byte[] extractBody(HttpServletRequest request, long maxSize, MemoryBudget.Lease lease) {
+        try {
+            return readBody(request.getInputStream(), maxSize, lease);
+        } catch (IOException e) {
+            throw new FaradayException("Error extracting body of HTTP request with URI: " + extractUri(request), e);
+        }
+    }
+
     /**
      * 抽取请求头
      * @param request
@@ -82,4 +122,21 @@ public class RequestDataExtractor {
     protected String getQuery(HttpServletRequest request) {
         return request.getQueryString() == null ? EMPTY : "?" + request.getQueryString();
     }
+
+    /**
+     * 请求头添加X-Forwarded数据
+     * @param request
+     * @param headers
+     */
+    public void addForwardHeaders(HttpServletRequest request, HttpHeaders headers) {
+        List<String> forwordedFor = headers.get(X_FORWARDED_FOR_HEADER);//X-Forwarded-For
+        if (isEmpty(forwordedFor)) {
+            forwordedFor = new ArrayList<>(1);
+        }
+        forwordedFor.add(request.getRemoteAddr());
+        headers.put(X_FORWARDED_FOR_HEADER, forwordedFor);
+        headers.set(X_FORWARDED_PROTO_HEADER, request.getScheme());
+        headers.set(X_FORWARDED_HOST_HEADER, request.getServerName());
+        headers.set(X_FORWARDED_PORT_HEADER, valueOf(request.getServerPort()));
+    }
 }
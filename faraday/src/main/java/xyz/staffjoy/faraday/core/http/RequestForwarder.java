@@ -1,29 +1,44 @@
 package xyz.staffjoy.faraday.core.http;
 
-import com.github.structlog4j.ILogger;
-import com.github.structlog4j.SLoggerFactory;
 import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.boot.autoconfigure.web.ServerProperties;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.RequestEntity;
 import org.springframework.http.ResponseEntity;
-import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.RequestCallback;
+import org.springframework.web.client.ResponseExtractor;
+import xyz.staffjoy.common.deadline.DeadlineContext;
 import xyz.staffjoy.faraday.config.FaradayProperties;
 import xyz.staffjoy.faraday.config.MappingProperties;
+import xyz.staffjoy.faraday.core.accesslog.AccessLogEntry;
+import xyz.staffjoy.faraday.core.accesslog.AccessLogEntry.Phase;
 import xyz.staffjoy.faraday.core.balancer.LoadBalancer;
+import xyz.staffjoy.faraday.core.etag.EtagGenerator;
+import xyz.staffjoy.faraday.core.etag.HashingInputStream;
+import xyz.staffjoy.faraday.core.etag.Murmur3Hash128;
 import xyz.staffjoy.faraday.core.interceptor.PostForwardResponseInterceptor;
 import xyz.staffjoy.faraday.core.mappings.MappingsProvider;
+import xyz.staffjoy.faraday.core.memory.MemoryBudget;
+import xyz.staffjoy.faraday.core.stats.GatewayStats;
+import xyz.staffjoy.faraday.core.stats.GatewayStats.RouteStats;
 import xyz.staffjoy.faraday.core.trace.ProxyingTraceInterceptor;
 import xyz.staffjoy.faraday.exceptions.FaradayException;
+import xyz.staffjoy.faraday.exceptions.GatewayTimeoutException;
+import xyz.staffjoy.faraday.exceptions.MemoryBudgetExceededException;
+import xyz.staffjoy.faraday.exceptions.PayloadTooLargeException;
 
+import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.Optional;
 
 import static java.lang.System.nanoTime;
 import static java.time.Duration.ofNanos;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 import static org.springframework.http.HttpHeaders.*;
 import static org.springframework.http.ResponseEntity.status;
+import static xyz.staffjoy.faraday.core.utils.BodyReader.readBody;
 
 /**
  * 请求转发器
@@ -32,8 +47,6 @@ import static org.springframework.http.ResponseEntity.status;
  */
 public class RequestForwarder {
 
-    private static final ILogger log = SLoggerFactory.getLogger(RequestForwarder.class);
-
     protected final ServerProperties serverProperties;
     protected final FaradayProperties faradayProperties;
     protected final HttpClientProvider httpClientProvider;
@@ -43,6 +56,10 @@ public class RequestForwarder {
     protected final ProxyingTraceInterceptor traceInterceptor;
     //响应截获器
     protected final PostForwardResponseInterceptor postForwardResponseInterceptor;
+    //网关实时统计
+    protected final GatewayStats gatewayStats;
+    //网关生成的ETag
+    protected final EtagGenerator etagGenerator;
 
     public RequestForwarder(
             ServerProperties serverProperties,
@@ -52,7 +69,9 @@ public class RequestForwarder {
             LoadBalancer loadBalancer,
             Optional<MeterRegistry> meterRegistry,
             ProxyingTraceInterceptor traceInterceptor,
-            PostForwardResponseInterceptor postForwardResponseInterceptor
+            PostForwardResponseInterceptor postForwardResponseInterceptor,
+            GatewayStats gatewayStats,
+            EtagGenerator etagGenerator
     ) {
         this.serverProperties = serverProperties;
         this.faradayProperties = faradayProperties;
@@ -62,6 +81,8 @@ public class RequestForwarder {
         this.meterRegistry = meterRegistry;
         this.traceInterceptor = traceInterceptor;
         this.postForwardResponseInterceptor = postForwardResponseInterceptor;
+        this.gatewayStats = gatewayStats;
+        this.etagGenerator = etagGenerator;
     }
 
     /**
@@ -69,13 +90,24 @@ public class RequestForwarder {
      * @param data
      * @param traceId
      * @param mapping
+     * @param accessLogEntry
+     * @param lease 响应body占用的内存预算记在这个租约上
      * @return
      */
-    public ResponseEntity<byte[]> forwardHttpRequest(RequestData data, String traceId, MappingProperties mapping) {
+    public ResponseEntity<byte[]> forwardHttpRequest(RequestData data, String traceId, MappingProperties mapping,
+                                                     AccessLogEntry accessLogEntry, MemoryBudget.Lease lease) {
+        //准入、舱壁、读body、批量排队已经用掉了一部分时间，只把剩下的时间作为截止时间传给后端，
+        //后端的Feign调用继续向下传递剩余的时间
+        long remainingMillis = resolveRemainingMillis(data, mapping);
+        if (remainingMillis <= 0) {
+            throw new GatewayTimeoutException("Deadline exceeded before forwarding to mapping " + mapping.getName());
+        }
         //解析转发目的地
         ForwardDestination destination = resolveForwardDestination(data.getUri(), mapping);
+        accessLogEntry.setDestination(destination.getUri().getAuthority());
         //从client的request中移除协议层的头数据 这些数据我们不需要发送到远端服务器
         prepareForwardedRequestHeaders(data, destination);
+        data.getHeaders().set(DeadlineContext.DEADLINE_HEADER, String.valueOf(remainingMillis));
         //转发开始时进行追踪拦截
         traceInterceptor.onForwardStart(traceId, destination.getMappingName(),
                 data.getMethod(), data.getHost(), destination.getUri().toString(),
@@ -83,9 +115,8 @@ public class RequestForwarder {
         //构造spring的request 数据
         RequestEntity<byte[]> request = new RequestEntity<>(data.getBody(), data.getHeaders(), data.getMethod(), destination.getUri());
         //发送请求
-        ResponseData response = sendRequest(traceId, request, mapping, destination.getMappingMetricsName(), data);
-
-        log.debug(String.format("Forwarded: %s %s %s -> %s %d", data.getMethod(), data.getHost(), data.getUri(), destination.getUri(), response.getStatus().value()));
+        ResponseData response = sendRequest(traceId, request, mapping, destination.getMappingMetricsName(), data, lease);
+        accessLogEntry.mark(Phase.UPSTREAM);
 
         traceInterceptor.onForwardComplete(traceId, response.getStatus(), response.getBody(), response.getHeaders());
         //响应截获器
@@ -98,6 +129,20 @@ public class RequestForwarder {
 
     }
 
+    /**
+     * 截止时间之前剩余的毫秒数，没有截止时间时就是路由的读超时
+     * @param data
+     * @param mapping
+     * @return
+     */
+    protected long resolveRemainingMillis(RequestData data, MappingProperties mapping) {
+        Long deadlineNanos = data.getDeadlineNanos();
+        if (deadlineNanos == null) {
+            return mapping.getTimeout().getRead();
+        }
+        return NANOSECONDS.toMillis(deadlineNanos - nanoTime());
+    }
+
     /**
      * Remove any protocol-level headers from the remote server's response that
      * do not apply to the new response we are sending.
@@ -153,32 +198,83 @@ public class RequestForwarder {
      * @param mapping
      * @param mappingMetricsName
      * @param requestData
+     * @param lease
      * @return
      */
-    protected ResponseData sendRequest(String traceId, RequestEntity<byte[]> request, MappingProperties mapping, String mappingMetricsName, RequestData requestData ) {
+    protected ResponseData sendRequest(String traceId, RequestEntity<byte[]> request, MappingProperties mapping, String mappingMetricsName, RequestData requestData, MemoryBudget.Lease lease) {
        //spring的响应数据
         ResponseEntity<byte[]> response;
+        //实时统计，按路由和目的地
+        RouteStats routeStats = gatewayStats.route(mapping.getName());
+        String destination = request.getUrl().getAuthority();
+        routeStats.onStart(destination);
         long startingTime = nanoTime();
+        ForwardCancellation.bind(requestData.getCancellation());
         try {
-            //获得httpclient，即相关的resttemplate,再通过resttemplate发送请求
-            response = httpClientProvider.getHttpClient(mapping.getName()).exchange(request, byte[].class);
-            //
-            recordLatency(mappingMetricsName, startingTime);
-        } catch (HttpStatusCodeException e) {
+            //获得httpclient，即相关的resttemplate,再通过resttemplate发送请求，响应body在内存预算内读取
+            response = httpClientProvider.getHttpClient(mapping.getName())
+                    .execute(request.getUrl(), request.getMethod(), requestCallback(request), responseExtractor(request.getMethod(), mapping, lease));
             recordLatency(mappingMetricsName, startingTime);
-            response = status(e.getStatusCode())
-                    .headers(e.getResponseHeaders())
-                    .body(e.getResponseBodyAsByteArray());
+            routeStats.onComplete(destination, nanoTime() - startingTime, response.getStatusCode().is5xxServerError());
         } catch (Exception e) {
             recordLatency(mappingMetricsName, startingTime);
+            routeStats.onComplete(destination, nanoTime() - startingTime, true);
             traceInterceptor.onForwardFailed(traceId, e);
             throw e;
+        } finally {
+            ForwardCancellation.unbind();
         }
         UnmodifiableRequestData data = new UnmodifiableRequestData(requestData);
         //构造新的响应数据，并返回
         return new ResponseData(response.getStatusCode(), response.getHeaders(), response.getBody(), data);
     }
 
+    /**
+     * 原样写出请求头和请求body
+     * @param request
+     * @return
+     */
+    protected RequestCallback requestCallback(RequestEntity<byte[]> request) {
+        return clientRequest -> {
+            clientRequest.getHeaders().putAll(request.getHeaders());
+            if (request.getBody() != null && request.getBody().length > 0) {
+                clientRequest.getBody().write(request.getBody());
+            }
+        };
+    }
+
+    /**
+     * 读取响应，任何状态码都不抛异常(见HttpClientProvider)
+     * 已知长度的响应在读取前检查大小上限并预留内存预算，未知长度的响应边读边预留，不超过上限
+     * 需要生成ETag的响应在读取的同时计算body的哈希
+     * @param method
+     * @param mapping
+     * @param lease
+     * @return
+     */
+    protected ResponseExtractor<ResponseEntity<byte[]>> responseExtractor(HttpMethod method, MappingProperties mapping, MemoryBudget.Lease lease) {
+        int maxResponseSize = mapping.getBodyLimit().getMaxResponseSize();
+        return clientResponse -> {
+            HttpHeaders headers = clientResponse.getHeaders();
+            long contentLength = headers.getContentLength();
+            if (contentLength > maxResponseSize) {
+                throw new PayloadTooLargeException("Response body of " + contentLength + " bytes exceeds the limit of mapping " + mapping.getName());
+            }
+            if (!lease.reserve(contentLength)) {
+                throw new MemoryBudgetExceededException("No memory budget left for response body of " + contentLength + " bytes");
+            }
+            Murmur3Hash128 hash = etagGenerator.shouldGenerate(method, mapping, clientResponse.getRawStatusCode(), headers)
+                    ? new Murmur3Hash128() : null;
+            InputStream in = hash == null ? clientResponse.getBody() : new HashingInputStream(clientResponse.getBody(), hash);
+            byte[] body = contentLength < 0 ? readBody(in, maxResponseSize, lease) : readBody(in, maxResponseSize);
+            ResponseEntity.BodyBuilder builder = status(clientResponse.getRawStatusCode()).headers(headers);
+            if (hash != null) {
+                builder.eTag(etagGenerator.toEtag(hash));
+            }
+            return builder.body(body);
+        };
+    }
+
     /**
      *
      * @param metricName
@@ -1,29 +1,40 @@
 package xyz.staffjoy.faraday.core.http;
 
-import com.github.structlog4j.ILogger;
-import com.github.structlog4j.SLoggerFactory;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.filter.OncePerRequestFilter;
 import xyz.staffjoy.faraday.config.FaradayProperties;
 import xyz.staffjoy.faraday.config.MappingProperties;
+import xyz.staffjoy.faraday.core.accesslog.AccessLogEntry;
+import xyz.staffjoy.faraday.core.accesslog.AccessLogEntry.Phase;
+import xyz.staffjoy.faraday.core.accesslog.AccessLogger;
+import xyz.staffjoy.faraday.core.bulkhead.Bulkhead;
+import xyz.staffjoy.faraday.core.bulkhead.BulkheadRegistry;
+import xyz.staffjoy.faraday.core.capture.TrafficCapture;
+import xyz.staffjoy.faraday.core.etag.EtagGenerator;
 import xyz.staffjoy.faraday.core.interceptor.PreForwardRequestInterceptor;
 import xyz.staffjoy.faraday.core.mappings.MappingsProvider;
+import xyz.staffjoy.faraday.core.memory.MemoryBudget;
+import xyz.staffjoy.faraday.core.priority.FairAdmissionQueue;
+import xyz.staffjoy.faraday.core.priority.PriorityClass;
+import xyz.staffjoy.faraday.core.priority.RequestClassifier;
 import xyz.staffjoy.faraday.core.trace.ProxyingTraceInterceptor;
 import xyz.staffjoy.faraday.exceptions.FaradayException;
+import xyz.staffjoy.faraday.exceptions.GatewayTimeoutException;
+import xyz.staffjoy.faraday.exceptions.MemoryBudgetExceededException;
+import xyz.staffjoy.faraday.exceptions.PayloadTooLargeException;
 
 import javax.servlet.FilterChain;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
-import static java.lang.String.valueOf;
 import static org.apache.commons.lang3.StringUtils.isBlank;
-import static org.springframework.util.CollectionUtils.isEmpty;
 
 /**
  * 反向代理过滤器
@@ -38,12 +49,10 @@ import static org.springframework.util.CollectionUtils.isEmpty;
  */
 public class ReverseProxyFilter extends OncePerRequestFilter {//继承是spring  每个请求处理一次
 
-    protected static final String X_FORWARDED_FOR_HEADER = "X-Forwarded-For";
-    protected static final String X_FORWARDED_PROTO_HEADER = "X-Forwarded-Proto";
-    protected static final String X_FORWARDED_HOST_HEADER = "X-Forwarded-Host";
-    protected static final String X_FORWARDED_PORT_HEADER = "X-Forwarded-Port";
-
-    private static final ILogger log = SLoggerFactory.getLogger(ReverseProxyFilter.class);
+    //304响应里只带这些头，Set-Cookie也要保留，否则会话续期等cookie会丢失(RFC 7232 4.1)
+    protected static final List<String> NOT_MODIFIED_HEADERS = Arrays.asList(
+            HttpHeaders.CACHE_CONTROL, HttpHeaders.CONTENT_LOCATION, HttpHeaders.DATE,
+            HttpHeaders.ETAG, HttpHeaders.EXPIRES, HttpHeaders.VARY, HttpHeaders.SET_COOKIE);
 
     protected final FaradayProperties faradayProperties;
     //请求数据提取器
@@ -54,6 +63,19 @@ public class ReverseProxyFilter extends OncePerRequestFilter {//继承是spring
     protected final RequestForwarder requestForwarder;
     protected final ProxyingTraceInterceptor traceInterceptor;
     protected final PreForwardRequestInterceptor preForwardRequestInterceptor;
+    //路由舱壁隔离
+    protected final BulkheadRegistry bulkheadRegistry;
+    //访问日志
+    protected final AccessLogger accessLogger;
+    //缓存body的全局内存预算
+    protected final MemoryBudget memoryBudget;
+    //生产流量抓取
+    protected final TrafficCapture trafficCapture;
+    //优先级分类和加权公平准入
+    protected final RequestClassifier requestClassifier;
+    protected final FairAdmissionQueue admissionQueue;
+    //网关生成的ETag和304
+    protected final EtagGenerator etagGenerator;
 
     public ReverseProxyFilter(
             FaradayProperties faradayProperties,
@@ -61,7 +83,14 @@ public class ReverseProxyFilter extends OncePerRequestFilter {//继承是spring
             MappingsProvider mappingsProvider,
             RequestForwarder requestForwarder,
             ProxyingTraceInterceptor traceInterceptor,
-            PreForwardRequestInterceptor requestInterceptor
+            PreForwardRequestInterceptor requestInterceptor,
+            BulkheadRegistry bulkheadRegistry,
+            AccessLogger accessLogger,
+            MemoryBudget memoryBudget,
+            TrafficCapture trafficCapture,
+            RequestClassifier requestClassifier,
+            FairAdmissionQueue admissionQueue,
+            EtagGenerator etagGenerator
     ) {
         this.faradayProperties = faradayProperties;
         this.extractor = extractor;
@@ -69,6 +98,13 @@ public class ReverseProxyFilter extends OncePerRequestFilter {//继承是spring
         this.requestForwarder = requestForwarder;
         this.traceInterceptor = traceInterceptor;
         this.preForwardRequestInterceptor = requestInterceptor;
+        this.bulkheadRegistry = bulkheadRegistry;
+        this.accessLogger = accessLogger;
+        this.memoryBudget = memoryBudget;
+        this.trafficCapture = trafficCapture;
+        this.requestClassifier = requestClassifier;
+        this.admissionQueue = admissionQueue;
+        this.etagGenerator = etagGenerator;
     }
 
     /**
@@ -84,54 +120,178 @@ public class ReverseProxyFilter extends OncePerRequestFilter {//继承是spring
         String originUri = extractor.extractUri(request);
         String originHost = extractor.extractHost(request);
 
-        log.debug("Incoming request", "method", request.getMethod(),
-                "host", originHost,
-                "uri", originUri);
-
         HttpHeaders headers = extractor.extractHttpHeaders(request);
         HttpMethod method = extractor.extractHttpMethod(request);
 
         //代理追踪  调式用的日志信息
         String traceId = traceInterceptor.generateTraceId();
-        //一接收请求即调用
-        traceInterceptor.onRequestReceived(traceId, method, originHost, originUri, headers);
+        //访问日志，记录各个阶段的耗时
+        AccessLogEntry accessLogEntry = accessLogger.start(traceId, request.getMethod(), originHost, originUri,
+                request.getRemoteAddr(), headers.getFirst(HttpHeaders.USER_AGENT));
+        try {
+            //一接收请求即调用
+            traceInterceptor.onRequestReceived(traceId, method, originHost, originUri, headers);
 
-        //查询路由映射表，找到相关的Mapping 即路由信息
-        MappingProperties mapping = mappingsProvider.resolveMapping(originHost, request);
-        if (mapping == null) {
-            traceInterceptor.onNoMappingFound(traceId, method, originHost, originUri, headers);
+            //查询路由映射表，找到相关的Mapping 即路由信息
+            MappingProperties mapping = mappingsProvider.resolveMapping(originHost, request);
+            accessLogEntry.mark(Phase.ROUTING);
+            if (mapping == null) {
+                traceInterceptor.onNoMappingFound(traceId, method, originHost, originUri, headers);
 
-            log.debug(String.format("Forwarding: %s %s %s -> no mapping found", method, originHost, originUri));
+                response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+                response.getWriter().println("Unsupported domain");
+                accessLogEntry.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+                return;
+            }
+            accessLogEntry.setRoute(mapping.getName());
 
-            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
-            response.getWriter().println("Unsupported domain");
-            return;
-        } else {
-            log.debug(String.format("Forwarding: %s %s %s -> %s", method, originHost, originUri, mapping.getDestinations()));
+            //舱壁已满，快速拒绝，不占用其它路由的处理能力
+            //先取路由的舱壁再排全局的准入队列，在舱壁里等待时不占用全局的位置
+            Bulkhead bulkhead = bulkheadRegistry.getBulkhead(mapping);
+            if (bulkhead != null && !bulkhead.tryAcquire()) {
+                accessLogEntry.mark(Phase.QUEUE);
+                reject(response, HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Service busy", accessLogEntry);
+                return;
+            }
+            try {
+                //按优先级类别排队准入，争用时交互请求保持低延迟，后台请求先被延迟和丢弃
+                PriorityClass priorityClass = requestClassifier.classify(method, headers, mapping);
+                FairAdmissionQueue.Slot slot = admissionQueue.acquire(priorityClass);
+                accessLogEntry.mark(Phase.QUEUE);
+                if (slot == null) {
+                    reject(response, HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Service busy", accessLogEntry);
+                    return;
+                }
+                try {
+                    forward(request, response, traceId, method, originHost, originUri, headers, mapping, accessLogEntry);
+                } finally {
+                    slot.close();
+                }
+            } finally {
+                if (bulkhead != null) {
+                    bulkhead.release();
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            accessLogEntry.setError(e);
+            throw e;
+        } finally {
+            accessLogger.log(accessLogEntry);
         }
+    }
+
+    /**
+     * 在舱壁内完成请求的转发
+     * @param request
+     * @param response
+     * @param traceId
+     * @param method
+     * @param originHost
+     * @param originUri
+     * @param headers
+     * @param mapping
+     * @param accessLogEntry
+     * @throws IOException
+     */
+    protected void forward(HttpServletRequest request, HttpServletResponse response, String traceId,
+                           HttpMethod method, String originHost, String originUri,
+                           HttpHeaders headers, MappingProperties mapping,
+                           AccessLogEntry accessLogEntry) throws IOException {
+        //请求和响应的body在整个转发期间都占用内存预算，写完响应后归还
+        try (MemoryBudget.Lease lease = memoryBudget.lease()) {
+            //读取body之前先检查大小上限和内存预算，未知长度(chunked)的body边读边预留，不超过上限
+            long contentLength = request.getContentLengthLong();
+            int maxRequestSize = mapping.getBodyLimit().getMaxRequestSize();
+            if (contentLength > maxRequestSize) {
+                memoryBudget.recordTooLarge();
+                reject(response, HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE, "Request body too large", accessLogEntry);
+                return;
+            }
+            if (!lease.reserve(contentLength)) {
+                reject(response, HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Service busy", accessLogEntry);
+                return;
+            }
+            byte[] body;
+            try {
+                body = contentLength < 0
+                        ? extractor.extractBody(request, maxRequestSize, lease)
+                        : extractor.extractBody(request, maxRequestSize);
+            } catch (PayloadTooLargeException e) {
+                memoryBudget.recordTooLarge();
+                reject(response, HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE, "Request body too large", accessLogEntry);
+                return;
+            } catch (MemoryBudgetExceededException e) {
+                reject(response, HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Service busy", accessLogEntry);
+                return;
+            }
+            accessLogEntry.setBytesIn(body.length);
+            accessLogEntry.mark(Phase.BODY_READ);
+            //按采样率抓取原始请求，用于回放压测
+            trafficCapture.capture(method, originHost, originUri, headers, body);
+            //请求头添加数据
+            addForwardHeaders(request, headers);
+
+            //重新构造网关内的请求数据  用来转发(forward)的的请求数据
+            RequestData dataToForward = new RequestData(method, originHost, originUri, headers, body, request);
+            //从收到请求开始计算读超时，转发时只传剩余的时间
+            dataToForward.setDeadlineNanos(accessLogEntry.getStartNanos()
+                    + TimeUnit.MILLISECONDS.toNanos(mapping.getTimeout().getRead()));
+            //请求转发之前拦截器，注意和重定向redirect的区别  请求截获器，进行预处理
+            preForwardRequestInterceptor.intercept(dataToForward, mapping);
+            accessLogEntry.mark(Phase.AUTH);
 
-        byte[] body = extractor.extractBody(request);
-        //请求头添加数据
-        addForwardHeaders(request, headers);
-
-        //重新构造网关内的请求数据  用来转发(forward)的的请求数据
-        RequestData dataToForward = new RequestData(method, originHost, originUri, headers, body, request);
-        //请求转发之前拦截器，注意和重定向redirect的区别  请求截获器，进行预处理
-        preForwardRequestInterceptor.intercept(dataToForward, mapping);
-
-        //请求需要重定向，且重定向url不为空
-        if (dataToForward.isNeedRedirect() && !isBlank(dataToForward.getRedirectUrl())) {
-            log.debug(String.format("Redirecting to -> %s", dataToForward.getRedirectUrl()));
-            //发送重定向请求
-            response.sendRedirect(dataToForward.getRedirectUrl());
-            return;
+            //请求需要重定向，且重定向url不为空
+            if (dataToForward.isNeedRedirect() && !isBlank(dataToForward.getRedirectUrl())) {
+                //发送重定向请求
+                response.sendRedirect(dataToForward.getRedirectUrl());
+                accessLogEntry.setStatus(HttpServletResponse.SC_FOUND);
+                return;
+            }
+
+            //进行实际的转发请求，并生成响应
+            ResponseEntity<byte[]> responseEntity;
+            try {
+                responseEntity = requestForwarder.forwardHttpRequest(dataToForward, traceId, mapping, accessLogEntry, lease);
+            } catch (PayloadTooLargeException e) {
+                memoryBudget.recordTooLarge();
+                reject(response, HttpServletResponse.SC_BAD_GATEWAY, "Response body too large", accessLogEntry);
+                return;
+            } catch (MemoryBudgetExceededException e) {
+                reject(response, HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Service busy", accessLogEntry);
+                return;
+            } catch (GatewayTimeoutException e) {
+                reject(response, HttpServletResponse.SC_GATEWAY_TIMEOUT, "Gateway timeout", accessLogEntry);
+                return;
+            }
+            //客户端缓存的内容没有变化，回304不带body
+            if (etagGenerator.isNotModified(method, mapping, headers, responseEntity)) {
+                this.processNotModified(response, responseEntity);
+                accessLogEntry.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                accessLogEntry.setBytesOut(0);
+                accessLogEntry.mark(Phase.RESPONSE_WRITE);
+                return;
+            }
+            //生成实际的响应
+            this.processResponse(response, responseEntity);
+            accessLogEntry.setStatus(responseEntity.getStatusCodeValue());
+            accessLogEntry.setBytesOut(responseEntity.getBody() == null ? 0 : responseEntity.getBody().length);
+            accessLogEntry.mark(Phase.RESPONSE_WRITE);
         }
+    }
 
-        //进行实际的转发请求，并生成响应
-        ResponseEntity<byte[]> responseEntity =
-                requestForwarder.forwardHttpRequest(dataToForward, traceId, mapping);
-        //生成实际的响应
-        this.processResponse(response, responseEntity);
+    /**
+     * 在读取或转发之前拒绝请求
+     * @param response
+     * @param status
+     * @param message
+     * @param accessLogEntry
+     * @throws IOException
+     */
+    protected void reject(HttpServletResponse response, int status, String message,
+                          AccessLogEntry accessLogEntry) throws IOException {
+        response.setStatus(status);
+        response.getWriter().println(message);
+        accessLogEntry.setStatus(status);
     }
 
     /**
@@ -140,15 +300,24 @@ public class ReverseProxyFilter extends OncePerRequestFilter {//继承是spring
      * @param headers
      */
     protected void addForwardHeaders(HttpServletRequest request, HttpHeaders headers) {
-        List<String> forwordedFor = headers.get(X_FORWARDED_FOR_HEADER);//X-Forwarded-For
-        if (isEmpty(forwordedFor)) {
-            forwordedFor = new ArrayList<>(1);
-        }
-        forwordedFor.add(request.getRemoteAddr());
-        headers.put(X_FORWARDED_FOR_HEADER, forwordedFor);
-        headers.set(X_FORWARDED_PROTO_HEADER, request.getScheme());
-        headers.set(X_FORWARDED_HOST_HEADER, request.getServerName());
-        headers.set(X_FORWARDED_PORT_HEADER, valueOf(request.getServerPort()));
+        extractor.addForwardHeaders(request, headers);
+    }
+
+    /**
+     * 生成304响应，只保留RFC 7232要求的头和Set-Cookie
+     * @param response
+     * @param responseEntity
+     */
+    protected void processNotModified(HttpServletResponse response, ResponseEntity<byte[]> responseEntity) {
+        response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        HttpHeaders responseHeaders = responseEntity.getHeaders();
+        NOT_MODIFIED_HEADERS.forEach(name -> {
+            List<String> values = responseHeaders.get(name);
+            if (values != null) {
+                values.forEach(value -> response.addHeader(name, value));
+            }
+        });
+        etagGenerator.recordNotModified(responseEntity.getBody() == null ? 0 : responseEntity.getBody().length);
     }
 
     /**
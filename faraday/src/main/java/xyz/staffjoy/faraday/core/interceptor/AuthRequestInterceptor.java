@@ -16,6 +16,7 @@ import xyz.staffjoy.common.services.SecurityConstant;
 import xyz.staffjoy.common.services.Service;
 import xyz.staffjoy.common.services.ServiceDirectory;
 import xyz.staffjoy.faraday.config.MappingProperties;
+import xyz.staffjoy.faraday.core.ban.BanList;
 import xyz.staffjoy.faraday.core.http.RequestData;
 import xyz.staffjoy.faraday.exceptions.FaradayException;
 import xyz.staffjoy.faraday.exceptions.ForbiddenException;
@@ -23,8 +24,6 @@ import xyz.staffjoy.faraday.exceptions.ForbiddenException;
 import javax.servlet.http.HttpServletRequest;
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.util.HashMap;
-import java.util.Map;
 
 /**
  * 请求auth验证拦截器
@@ -32,18 +31,18 @@ import java.util.Map;
 public class AuthRequestInterceptor implements PreForwardRequestInterceptor {
     private final static ILogger log = SLoggerFactory.getLogger(AuthRequestInterceptor.class);
 
+    private static final String SESSION_ATTRIBUTE = AuthRequestInterceptor.class.getName() + ".session";
+    private static final Object ANONYMOUS = new Object();
+
     private final String signingSecret;
     private final EnvConfig envConfig;
+    // reloaded in background, see faraday.ban-list
+    private final BanList banList;
 
-    // Use a map for constant time lookups. Value doesn't matter
-    // Hypothetically these should be universally unique, so we don't have to limit by env
-    private final Map<String, String> bannedUsers = new HashMap<String, String>() {{
-        put("d7b9dbed-9719-4856-5f19-23da2d0e3dec", "hidden");
-    }};
-
-    public AuthRequestInterceptor(String signingSecret, EnvConfig envConfig) {
+    public AuthRequestInterceptor(String signingSecret, EnvConfig envConfig, BanList banList) {
         this.signingSecret = signingSecret;
         this.envConfig = envConfig;
+        this.banList = banList;
     }
 
     @Override
@@ -94,7 +93,7 @@ public class AuthRequestInterceptor implements PreForwardRequestInterceptor {
      * @param userId
      */
     private void checkBannedUsers(String userId) {
-        if (bannedUsers.containsKey(userId)) {
+        if (banList.isBanned(userId)) {
             log.warn(String.format("Banned user accessing service - user %s", userId));
             throw new ForbiddenException("Banned user forbidden!");
         }
@@ -158,6 +157,17 @@ public class AuthRequestInterceptor implements PreForwardRequestInterceptor {
      * @return
      */
     private Session getSession(HttpServletRequest request) {
+        // a batch request forwards several sub-requests of the same origin request, verify only once
+        Object verified = request.getAttribute(SESSION_ATTRIBUTE);
+        if (verified != null) {
+            return verified == ANONYMOUS ? null : (Session) verified;
+        }
+        Session session = this.verifySession(request);
+        request.setAttribute(SESSION_ATTRIBUTE, session == null ? ANONYMOUS : session);
+        return session;
+    }
+
+    private Session verifySession(HttpServletRequest request) {
         String token = Sessions.getToken(request);
         if (token == null) return null;
         try {
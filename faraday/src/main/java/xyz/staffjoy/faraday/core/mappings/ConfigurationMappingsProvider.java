@@ -3,6 +3,7 @@ package xyz.staffjoy.faraday.core.mappings;
 import org.springframework.boot.autoconfigure.web.ServerProperties;
 import xyz.staffjoy.faraday.config.FaradayProperties;
 import xyz.staffjoy.faraday.config.MappingProperties;
+import xyz.staffjoy.faraday.core.bulkhead.BulkheadRegistry;
 import xyz.staffjoy.faraday.core.http.HttpClientProvider;
 
 import javax.servlet.http.HttpServletRequest;
@@ -18,10 +19,11 @@ public class ConfigurationMappingsProvider extends MappingsProvider {
             ServerProperties serverProperties,
             FaradayProperties faradayProperties,
             MappingsValidator mappingsValidator,
-            HttpClientProvider httpClientProvider
+            HttpClientProvider httpClientProvider,
+            BulkheadRegistry bulkheadRegistry
     ) {
         super(serverProperties, faradayProperties,
-                mappingsValidator, httpClientProvider);
+                mappingsValidator, httpClientProvider, bulkheadRegistry);
     }
 
 
@@ -5,6 +5,7 @@ import com.github.structlog4j.SLoggerFactory;
 import org.springframework.boot.autoconfigure.web.ServerProperties;
 import xyz.staffjoy.faraday.config.FaradayProperties;
 import xyz.staffjoy.faraday.config.MappingProperties;
+import xyz.staffjoy.faraday.core.bulkhead.BulkheadRegistry;
 import xyz.staffjoy.faraday.core.http.HttpClientProvider;
 
 import javax.annotation.PostConstruct;
@@ -25,18 +26,21 @@ public abstract class MappingsProvider {
     protected final FaradayProperties faradayProperties;
     protected final MappingsValidator mappingsValidator;
     protected final HttpClientProvider httpClientProvider;
+    protected final BulkheadRegistry bulkheadRegistry;
     protected List<MappingProperties> mappings;
 
     public MappingsProvider(
             ServerProperties serverProperties,
             FaradayProperties faradayProperties,
             MappingsValidator mappingsValidator,
-            HttpClientProvider httpClientProvider
+            HttpClientProvider httpClientProvider,
+            BulkheadRegistry bulkheadRegistry
     ) {
         this.serverProperties = serverProperties;
         this.faradayProperties = faradayProperties;
         this.mappingsValidator = mappingsValidator;
         this.httpClientProvider = httpClientProvider;
+        this.bulkheadRegistry = bulkheadRegistry;
     }
 
     /**
@@ -68,6 +72,8 @@ public abstract class MappingsProvider {
         mappings = newMappings;
         //生成httpclient映射表
         httpClientProvider.updateHttpClients(mappings);
+        //删除已经不存在的路由的舱壁
+        bulkheadRegistry.updateMappings(mappings);
         log.info("Destination mappings updated", mappings);
     }
 
@@ -39,6 +39,8 @@ public class MappingsValidator {
         validateDestinations(mapping);
         validateHost(mapping);
         validateTimeout(mapping);
+        validateBulkhead(mapping);
+        validateBodyLimit(mapping);
     }
 
     protected void validateName(MappingProperties mapping) {
@@ -81,4 +83,30 @@ public class MappingsValidator {
             throw new FaradayException("Invalid read timeout value: " + readTimeout);
         }
     }
+
+    protected void validateBulkhead(MappingProperties mapping) {
+        int maxConcurrent = mapping.getBulkhead().getMaxConcurrent();
+        if (maxConcurrent <= 0) {
+            throw new FaradayException("Invalid bulkhead max concurrent value: " + maxConcurrent);
+        }
+        int maxQueued = mapping.getBulkhead().getMaxQueued();
+        if (maxQueued < 0) {
+            throw new FaradayException("Invalid bulkhead max queued value: " + maxQueued);
+        }
+        int maxWait = mapping.getBulkhead().getMaxWait();
+        if (maxWait < 0) {
+            throw new FaradayException("Invalid bulkhead max wait value: " + maxWait);
+        }
+    }
+
+    protected void validateBodyLimit(MappingProperties mapping) {
+        int maxRequestSize = mapping.getBodyLimit().getMaxRequestSize();
+        if (maxRequestSize < 0) {
+            throw new FaradayException("Invalid max request body size value: " + maxRequestSize);
+        }
+        int maxResponseSize = mapping.getBodyLimit().getMaxResponseSize();
+        if (maxResponseSize < 0) {
+            throw new FaradayException("Invalid max response body size value: " + maxResponseSize);
+        }
+    }
 }
@@ -6,6 +6,7 @@ import xyz.staffjoy.common.services.Service;
 import xyz.staffjoy.common.services.ServiceDirectory;
 import xyz.staffjoy.faraday.config.FaradayProperties;
 import xyz.staffjoy.faraday.config.MappingProperties;
+import xyz.staffjoy.faraday.core.bulkhead.BulkheadRegistry;
 import xyz.staffjoy.faraday.core.http.HttpClientProvider;
 
 import javax.servlet.http.HttpServletRequest;
@@ -25,9 +26,10 @@ public class ProgrammaticMappingsProvider extends MappingsProvider {
             ServerProperties serverProperties,
             FaradayProperties faradayProperties,
             MappingsValidator mappingsValidator,
-            HttpClientProvider httpClientProvider
+            HttpClientProvider httpClientProvider,
+            BulkheadRegistry bulkheadRegistry
     ) {
-        super(serverProperties, faradayProperties, mappingsValidator, httpClientProvider);
+        super(serverProperties, faradayProperties, mappingsValidator, httpClientProvider, bulkheadRegistry);
         this.envConfig = envConfig;
     }
 
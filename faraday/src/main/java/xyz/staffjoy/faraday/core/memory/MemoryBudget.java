@@ -0,0 +1,145 @@
+package xyz.staffjoy.faraday.core.memory;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import xyz.staffjoy.faraday.config.FaradayProperties;
+import xyz.staffjoy.faraday.config.MemoryBudgetProperties;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 网关全局的内存预算
+ * 请求和响应的body都整体缓存为byte[]，所有进行中的请求缓存的字节数之和不能超过预算，
+ * 超出预算的请求在读取body之前就被拒绝，未知长度的body边读边预留，避免大量上传下载把网关拖入频繁GC甚至OOM
+ */
+public class MemoryBudget {
+
+    protected final MemoryBudgetProperties memoryBudgetProperties;
+    protected final AtomicLong buffered = new AtomicLong();
+    protected final AtomicLong rejectedTooLarge = new AtomicLong();
+    protected final AtomicLong rejectedExhausted = new AtomicLong();
+
+    public MemoryBudget(FaradayProperties faradayProperties, Optional<MeterRegistry> meterRegistry) {
+        this.memoryBudgetProperties = faradayProperties.getMemoryBudget();
+        meterRegistry.ifPresent(registry ->
+                registerMetrics(registry, faradayProperties.getMetrics().getNamesPrefix() + ".memory"));
+    }
+
+    /**
+     * 开始一个请求的预算租约，请求结束时必须关闭以归还预算
+     * @return
+     */
+    public Lease lease() {
+        return new Lease();
+    }
+
+    /**
+     * 记录一次因为body超出路由大小上限的拒绝
+     */
+    public void recordTooLarge() {
+        rejectedTooLarge.incrementAndGet();
+    }
+
+    public long getBuffered() {
+        return buffered.get();
+    }
+
+    public long getMax() {
+        return memoryBudgetProperties.getMaxBufferedBytes();
+    }
+
+    public long getRejectedTooLarge() {
+        return rejectedTooLarge.get();
+    }
+
+    public long getRejectedExhausted() {
+        return rejectedExhausted.get();
+    }
+
+    protected boolean tryReserve(long bytes) {
+        if (!memoryBudgetProperties.isEnabled()) {
+            return true;
+        }
+        long max = memoryBudgetProperties.getMaxBufferedBytes();
+        while (true) {
+            long current = buffered.get();
+            if (current + bytes > max) {
+                rejectedExhausted.incrementAndGet();
+                return false;
+            }
+            if (buffered.compareAndSet(current, current + bytes)) {
+                return true;
+            }
+        }
+    }
+
+    protected void release(long bytes) {
+        if (memoryBudgetProperties.isEnabled()) {
+            buffered.addAndGet(-bytes);
+        }
+    }
+
+    protected void registerMetrics(MeterRegistry registry, String prefix) {
+        Gauge.builder(prefix + ".buffered", this, MemoryBudget::getBuffered)
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder(prefix + ".max", this, MemoryBudget::getMax)
+                .baseUnit("bytes")
+                .register(registry);
+        FunctionCounter.builder(prefix + ".rejected", this, MemoryBudget::getRejectedTooLarge)
+                .tag("reason", "too_large")
+                .register(registry);
+        FunctionCounter.builder(prefix + ".rejected", this, MemoryBudget::getRejectedExhausted)
+                .tag("reason", "exhausted")
+                .register(registry);
+    }
+
+    /**
+     * 一个请求占用的预算，请求体和响应体分别预留，最后一个持有者关闭时一次归还
+     * 批量请求的每个子请求各自持有租约，超时被中止的子请求结束之前预算不会归还
+     */
+    public class Lease implements AutoCloseable {
+
+        // guarded by this
+        private long reserved;
+        private int holders = 1;
+
+        /**
+         * 预留字节数
+         * @param bytes
+         * @return false表示预算已经用完，请求应被拒绝
+         */
+        public synchronized boolean reserve(long bytes) {
+            if (bytes <= 0) {
+                return true;
+            }
+            if (holders == 0 || !tryReserve(bytes)) {
+                return false;
+            }
+            reserved += bytes;
+            return true;
+        }
+
+        /**
+         * 增加一个持有者，每个持有者各自关闭一次
+         * @return
+         */
+        public synchronized Lease retain() {
+            if (holders == 0) {
+                throw new IllegalStateException("Lease already released");
+            }
+            holders++;
+            return this;
+        }
+
+        @Override
+        public synchronized void close() {
+            if (holders > 0 && --holders == 0) {
+                release(reserved);
+                reserved = 0;
+            }
+        }
+    }
+}
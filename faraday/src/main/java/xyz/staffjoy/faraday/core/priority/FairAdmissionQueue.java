@@ -0,0 +1,230 @@
+package xyz.staffjoy.faraday.core.priority;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import xyz.staffjoy.faraday.config.FaradayProperties;
+import xyz.staffjoy.faraday.config.PriorityProperties;
+import xyz.staffjoy.faraday.config.PriorityProperties.ClassProperties;
+
+import java.util.ArrayDeque;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static java.lang.System.nanoTime;
+
+/**
+ * 加权公平准入队列
+ * 网关同时转发的请求数有上限，满了之后请求按优先级类别排队，
+ * 空出的位置按权重分给各个类别(stride scheduling)，低优先级的队列更短、等待时间更短，先被丢弃
+ */
+public class FairAdmissionQueue {
+
+    private static final long STRIDE = 1L << 20;
+
+    protected final PriorityProperties priorityProperties;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final int classCount = PriorityClass.values().length;
+    // all guarded by lock
+    private final ArrayDeque<Waiter>[] queues;
+    private final long[] pass = new long[classCount];
+    private final long[] strides = new long[classCount];
+    private long virtualTime;
+    private int available;
+
+    private final ClassProperties[] classProperties = new ClassProperties[classCount];
+    private final AtomicLong[] shed = new AtomicLong[classCount];
+    private final Timer[] waitTimers = new Timer[classCount];
+    private final Counter[] shedCounters = new Counter[classCount];
+    // 关闭准入时放行的请求不占位置，归还时也不放回
+    private final Slot unlimited = new Slot(false);
+
+    @SuppressWarnings("unchecked")
+    public FairAdmissionQueue(FaradayProperties faradayProperties, Optional<MeterRegistry> meterRegistry) {
+        this.priorityProperties = faradayProperties.getPriority();
+        this.available = priorityProperties.getMaxConcurrent();
+        this.queues = new ArrayDeque[classCount];
+        classProperties[PriorityClass.INTERACTIVE.ordinal()] = priorityProperties.getInteractive();
+        classProperties[PriorityClass.NORMAL.ordinal()] = priorityProperties.getNormal();
+        classProperties[PriorityClass.BACKGROUND.ordinal()] = priorityProperties.getBackground();
+        for (int i = 0; i < classCount; i++) {
+            queues[i] = new ArrayDeque<>();
+            strides[i] = STRIDE / Math.max(1, classProperties[i].getWeight());
+            shed[i] = new AtomicLong();
+        }
+        meterRegistry.ifPresent(registry ->
+                registerMetrics(registry, faradayProperties.getMetrics().getNamesPrefix() + ".priority"));
+    }
+
+    /**
+     * 获取一个转发的位置，获取成功后必须关闭返回的Slot
+     * 位置是否计数在获取时就确定，运行中切换enabled不会多还或少还位置
+     * @param priorityClass
+     * @return null表示请求被丢弃
+     */
+    public Slot acquire(PriorityClass priorityClass) {
+        if (!priorityProperties.isEnabled()) {
+            return unlimited;
+        }
+        int index = priorityClass.ordinal();
+        long start = nanoTime();
+        lock.lock();
+        try {
+            if (available > 0 && isIdle()) {
+                available--;
+                recordWait(index, 0);
+                return new Slot(true);
+            }
+            ArrayDeque<Waiter> queue = queues[index];
+            if (queue.size() >= classProperties[index].getMaxQueued()) {
+                recordShed(index);
+                return null;
+            }
+            if (queue.isEmpty()) {
+                // an idle class does not bank credit while it was away
+                pass[index] = Math.max(pass[index], virtualTime);
+            }
+            Waiter waiter = new Waiter(lock.newCondition());
+            queue.addLast(waiter);
+            long remaining = TimeUnit.MILLISECONDS.toNanos(classProperties[index].getMaxWait());
+            try {
+                while (!waiter.granted) {
+                    if (remaining <= 0) {
+                        queue.remove(waiter);
+                        recordShed(index);
+                        return null;
+                    }
+                    remaining = waiter.condition.awaitNanos(remaining);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                if (!waiter.granted) {
+                    queue.remove(waiter);
+                    recordShed(index);
+                    return null;
+                }
+            }
+            recordWait(index, nanoTime() - start);
+            return new Slot(true);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 归还位置，直接交给按权重选出的下一个等待的请求
+     */
+    private void release() {
+        lock.lock();
+        try {
+            Waiter next = pollNext();
+            if (next == null) {
+                available++;
+            } else {
+                next.granted = true;
+                next.condition.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getQueued(PriorityClass priorityClass) {
+        lock.lock();
+        try {
+            return queues[priorityClass.ordinal()].size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getShed(PriorityClass priorityClass) {
+        return shed[priorityClass.ordinal()].get();
+    }
+
+    private boolean isIdle() {
+        for (ArrayDeque<Waiter> queue : queues) {
+            if (!queue.isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Waiter pollNext() {
+        int selected = -1;
+        for (int i = 0; i < classCount; i++) {
+            if (!queues[i].isEmpty() && (selected < 0 || pass[i] < pass[selected])) {
+                selected = i;
+            }
+        }
+        if (selected < 0) {
+            return null;
+        }
+        virtualTime = pass[selected];
+        pass[selected] += strides[selected];
+        return queues[selected].pollFirst();
+    }
+
+    private void recordWait(int index, long nanos) {
+        if (waitTimers[index] != null) {
+            waitTimers[index].record(nanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void recordShed(int index) {
+        shed[index].incrementAndGet();
+        if (shedCounters[index] != null) {
+            shedCounters[index].increment();
+        }
+    }
+
+    protected void registerMetrics(MeterRegistry registry, String prefix) {
+        for (PriorityClass priorityClass : PriorityClass.values()) {
+            int index = priorityClass.ordinal();
+            waitTimers[index] = Timer.builder(prefix + ".wait")
+                    .tag("class", priorityClass.getKey())
+                    .register(registry);
+            shedCounters[index] = Counter.builder(prefix + ".shed")
+                    .tag("class", priorityClass.getKey())
+                    .register(registry);
+            Gauge.builder(prefix + ".queued", this, queue -> queue.getQueued(priorityClass))
+                    .tag("class", priorityClass.getKey())
+                    .register(registry);
+        }
+    }
+
+    /**
+     * 一个转发的位置，关闭时归还，重复关闭无效
+     */
+    public class Slot implements AutoCloseable {
+
+        private final boolean counted;
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private Slot(boolean counted) {
+            this.counted = counted;
+        }
+
+        @Override
+        public void close() {
+            if (counted && closed.compareAndSet(false, true)) {
+                release();
+            }
+        }
+    }
+
+    private static class Waiter {
+        private final Condition condition;
+        private boolean granted;
+
+        Waiter(Condition condition) {
+            this.condition = condition;
+        }
+    }
+}
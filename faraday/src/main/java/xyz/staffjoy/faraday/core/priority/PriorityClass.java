@@ -0,0 +1,33 @@
+package xyz.staffjoy.faraday.core.priority;
+
+/**
+ * 请求的优先级类别
+ */
+public enum PriorityClass {
+    INTERACTIVE("interactive"),
+    NORMAL("normal"),
+    BACKGROUND("background");
+
+    private final String key;
+
+    PriorityClass(String key) {
+        this.key = key;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * @param key
+     * @return 无法识别时返回null
+     */
+    public static PriorityClass fromKey(String key) {
+        for (PriorityClass priorityClass : values()) {
+            if (priorityClass.key.equalsIgnoreCase(key)) {
+                return priorityClass;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,50 @@
+package xyz.staffjoy.faraday.core.priority;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import xyz.staffjoy.faraday.config.MappingProperties;
+import xyz.staffjoy.faraday.config.PriorityProperties;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * 请求分类器
+ * 按路由、请求方法、User-Agent划分优先级，请求头只能降低优先级，不能提升
+ */
+public class RequestClassifier {
+
+    protected final PriorityProperties priorityProperties;
+    protected final Set<String> backgroundRoutes;
+    protected final Pattern backgroundUserAgents;
+
+    public RequestClassifier(PriorityProperties priorityProperties) {
+        this.priorityProperties = priorityProperties;
+        this.backgroundRoutes = new HashSet<>(priorityProperties.getBackgroundRoutes());
+        this.backgroundUserAgents = Pattern.compile(priorityProperties.getBackgroundUserAgents());
+    }
+
+    public PriorityClass classify(HttpMethod method, HttpHeaders headers, MappingProperties mapping) {
+        PriorityClass priorityClass = classifyTraffic(method, headers, mapping);
+        PriorityClass requested = PriorityClass.fromKey(headers.getFirst(priorityProperties.getHeader()));
+        if (requested != null && requested.compareTo(priorityClass) > 0) {
+            return requested;
+        }
+        return priorityClass;
+    }
+
+    protected PriorityClass classifyTraffic(HttpMethod method, HttpHeaders headers, MappingProperties mapping) {
+        if (backgroundRoutes.contains(mapping.getName())) {
+            return PriorityClass.BACKGROUND;
+        }
+        String userAgent = headers.getFirst(HttpHeaders.USER_AGENT);
+        if (userAgent != null && backgroundUserAgents.matcher(userAgent).matches()) {
+            return PriorityClass.BACKGROUND;
+        }
+        if (method != null && method != HttpMethod.GET && method != HttpMethod.HEAD && method != HttpMethod.OPTIONS) {
+            return PriorityClass.INTERACTIVE; // edits, a user is waiting on them
+        }
+        return PriorityClass.NORMAL;
+    }
+}
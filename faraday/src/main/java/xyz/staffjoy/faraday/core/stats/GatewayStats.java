@@ -0,0 +1,114 @@
+package xyz.staffjoy.faraday.core.stats;
+
+import xyz.staffjoy.faraday.config.StatsProperties;
+import xyz.staffjoy.faraday.exceptions.FaradayException;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * 网关实时统计
+ * 按路由和目的地分别记录滑动窗口内的请求数、延迟分布、进行中的请求数和错误数
+ */
+public class GatewayStats {
+
+    protected final StatsProperties statsProperties;
+    protected final ConcurrentMap<String, RouteStats> routes = new ConcurrentHashMap<>();
+    protected final ScheduledExecutorService rotator;
+
+    public GatewayStats(StatsProperties statsProperties) {
+        validate(statsProperties);
+        this.statsProperties = statsProperties;
+        this.rotator = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "faraday-stats-rotator");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long bucketMillis = statsProperties.getWindow() / statsProperties.getBuckets();
+        rotator.scheduleAtFixedRate(this::rotate, bucketMillis, bucketMillis, MILLISECONDS);
+    }
+
+    public RouteStats route(String name) {
+        RouteStats stats = routes.get(name);
+        if (stats == null) {
+            stats = routes.computeIfAbsent(name, key -> new RouteStats(statsProperties.getBuckets()));
+        }
+        return stats;
+    }
+
+    public Map<String, RouteStats> getRoutes() {
+        return routes;
+    }
+
+    public double getWindowSeconds() {
+        return statsProperties.getWindow() / 1000.0;
+    }
+
+    public void shutdown() {
+        rotator.shutdownNow();
+    }
+
+    private static void validate(StatsProperties statsProperties) {
+        if (statsProperties.getBuckets() < 1) {
+            throw new FaradayException("Invalid stats buckets value: " + statsProperties.getBuckets());
+        }
+        if (statsProperties.getWindow() < statsProperties.getBuckets()) {
+            throw new FaradayException("Invalid stats window value: " + statsProperties.getWindow()
+                    + ", must not be shorter than " + statsProperties.getBuckets() + " buckets");
+        }
+    }
+
+    protected void rotate() {
+        routes.values().forEach(RouteStats::rotate);
+    }
+
+    /**
+     * 一个路由的统计，以及它的每个目的地的统计
+     */
+    public static class RouteStats {
+        private final int buckets;
+        private final RollingStats total;
+        private final ConcurrentMap<String, RollingStats> destinations = new ConcurrentHashMap<>();
+
+        RouteStats(int buckets) {
+            this.buckets = buckets;
+            this.total = new RollingStats(buckets);
+        }
+
+        public void onStart(String destination) {
+            total.onStart();
+            destination(destination).onStart();
+        }
+
+        public void onComplete(String destination, long durationNanos, boolean error) {
+            total.onComplete(durationNanos, error);
+            destination(destination).onComplete(durationNanos, error);
+        }
+
+        public RollingStats getTotal() {
+            return total;
+        }
+
+        public Map<String, RollingStats> getDestinations() {
+            return destinations;
+        }
+
+        private RollingStats destination(String destination) {
+            RollingStats stats = destinations.get(destination);
+            if (stats == null) {
+                stats = destinations.computeIfAbsent(destination, key -> new RollingStats(buckets));
+            }
+            return stats;
+        }
+
+        void rotate() {
+            total.rotate();
+            destinations.values().forEach(RollingStats::rotate);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package xyz.staffjoy.faraday.core.stats;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * 滑动窗口统计
+ * 请求线程只做无锁的记录(Recorder, LongAdder)，
+ * 后台线程定时把当前桶换出，读取统计时合并窗口内所有的桶
+ */
+public class RollingStats {
+
+    // latencies are recorded in microseconds, up to an hour
+    static final long HIGHEST_TRACKABLE_MICROS = 3_600_000_000L;
+    static final int SIGNIFICANT_DIGITS = 2;
+
+    private final Recorder recorder = new Recorder(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS);
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    // ring of completed buckets, guarded by this
+    private final Histogram[] histograms;
+    private final long[] requestCounts;
+    private final long[] errorCounts;
+    private int current;
+
+    public RollingStats(int buckets) {
+        this.histograms = new Histogram[buckets];
+        this.requestCounts = new long[buckets];
+        this.errorCounts = new long[buckets];
+    }
+
+    public void onStart() {
+        inFlight.incrementAndGet();
+    }
+
+    public void onComplete(long durationNanos, boolean error) {
+        inFlight.decrementAndGet();
+        recorder.recordValue(Math.min(NANOSECONDS.toMicros(durationNanos), HIGHEST_TRACKABLE_MICROS));
+        requests.increment();
+        if (error) {
+            errors.increment();
+        }
+    }
+
+    /**
+     * 换出当前桶，覆盖窗口内最旧的桶
+     */
+    synchronized void rotate() {
+        current = (current + 1) % histograms.length;
+        histograms[current] = recorder.getIntervalHistogram();
+        requestCounts[current] = requests.sumThenReset();
+        errorCounts[current] = errors.sumThenReset();
+    }
+
+    public synchronized Map<String, Object> snapshot(double windowSeconds) {
+        Histogram merged = new Histogram(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS);
+        long requestCount = 0;
+        long errorCount = 0;
+        for (int i = 0; i < histograms.length; i++) {
+            if (histograms[i] != null) {
+                merged.add(histograms[i]);
+            }
+            requestCount += requestCounts[i];
+            errorCount += errorCounts[i];
+        }
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("requestRate", requestCount / windowSeconds);
+        snapshot.put("p50Ms", merged.getValueAtPercentile(50) / 1000.0);
+        snapshot.put("p95Ms", merged.getValueAtPercentile(95) / 1000.0);
+        snapshot.put("p99Ms", merged.getValueAtPercentile(99) / 1000.0);
+        snapshot.put("maxMs", merged.getMaxValue() / 1000.0);
+        snapshot.put("inFlight", inFlight.get());
+        snapshot.put("errorRate", requestCount == 0 ? 0.0 : (double) errorCount / requestCount);
+        return snapshot;
+    }
+}
@@ -0,0 +1,62 @@
+package xyz.staffjoy.faraday.core.utils;
+
+import org.apache.commons.io.input.BoundedInputStream;
+import org.apache.commons.io.output.ByteArrayOutputStream;
+import xyz.staffjoy.faraday.core.memory.MemoryBudget;
+import xyz.staffjoy.faraday.exceptions.MemoryBudgetExceededException;
+import xyz.staffjoy.faraday.exceptions.PayloadTooLargeException;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.apache.commons.io.IOUtils.toByteArray;
+
+public class BodyReader {
+
+    static final int CHUNK_SIZE = 8192;
+
+    /**
+     * 读取body，最多读取maxSize + 1个字节，超出maxSize时抛出PayloadTooLargeException
+     * @param in
+     * @param maxSize
+     * @return
+     * @throws IOException
+     */
+    public static byte[] readBody(InputStream in, long maxSize) throws IOException {
+        byte[] body = toByteArray(new BoundedInputStream(in, maxSize + 1));
+        if (body.length > maxSize) {
+            throw new PayloadTooLargeException("Body larger than " + maxSize + " bytes");
+        }
+        return body;
+    }
+
+    /**
+     * 读取未知长度的body，每读一块之前先在租约上预留，预算用完时抛出MemoryBudgetExceededException，
+     * 超出maxSize时抛出PayloadTooLargeException
+     * @param in
+     * @param maxSize
+     * @param lease
+     * @return
+     * @throws IOException
+     */
+    public static byte[] readBody(InputStream in, long maxSize, MemoryBudget.Lease lease) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] chunk = new byte[CHUNK_SIZE];
+        long remaining = maxSize + 1;
+        while (remaining > 0) {
+            int read = in.read(chunk, 0, (int) Math.min(chunk.length, remaining));
+            if (read < 0) {
+                break;
+            }
+            if (out.size() + read > maxSize) {
+                throw new PayloadTooLargeException("Body larger than " + maxSize + " bytes");
+            }
+            if (!lease.reserve(read)) {
+                throw new MemoryBudgetExceededException("No memory budget left for body after " + out.size() + " bytes");
+            }
+            out.write(chunk, 0, read);
+            remaining -= read;
+        }
+        return out.toByteArray();
+    }
+}
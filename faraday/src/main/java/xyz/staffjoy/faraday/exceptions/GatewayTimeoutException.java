@@ -0,0 +1,7 @@
+package xyz.staffjoy.faraday.exceptions;
+
+public class GatewayTimeoutException extends FaradayException {
+    public GatewayTimeoutException(String message) {
+        super(message);
+    }
+}
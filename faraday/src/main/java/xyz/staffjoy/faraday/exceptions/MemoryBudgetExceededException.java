@@ -0,0 +1,7 @@
+package xyz.staffjoy.faraday.exceptions;
+
+public class MemoryBudgetExceededException extends FaradayException {
+    public MemoryBudgetExceededException(String message) {
+        super(message);
+    }
+}
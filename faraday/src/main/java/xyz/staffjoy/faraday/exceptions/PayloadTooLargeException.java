@@ -0,0 +1,7 @@
+package xyz.staffjoy.faraday.exceptions;
+
+public class PayloadTooLargeException extends FaradayException {
+    public PayloadTooLargeException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,83 @@
+package xyz.staffjoy.faraday.spec
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import spock.lang.Specification
+import spock.util.concurrent.PollingConditions
+import xyz.staffjoy.faraday.config.FaradayProperties
+import xyz.staffjoy.faraday.core.accesslog.AccessLogEntry
+import xyz.staffjoy.faraday.core.accesslog.AccessLogger
+
+import java.util.concurrent.CountDownLatch
+
+class AccessLoggerSpec extends Specification {
+
+    def "Should drop entries and count them when the queue is full"() {
+        given:
+        def properties = new FaradayProperties()
+        properties.accessLog.queueSize = 1
+        def meterRegistry = new SimpleMeterRegistry()
+        def writing = new CountDownLatch(1)
+        def release = new CountDownLatch(1)
+        def accessLogger = new BlockingAccessLogger(properties, meterRegistry, writing, release)
+
+        when:
+        // the writer takes the first entry and blocks, the second fills the queue
+        accessLogger.log(entry(accessLogger))
+        writing.await()
+        accessLogger.log(entry(accessLogger))
+        accessLogger.log(entry(accessLogger))
+        accessLogger.log(entry(accessLogger))
+
+        then:
+        accessLogger.dropped == 2
+        meterRegistry.find('faraday.access_log.dropped').functionCounter().count() == 2
+        meterRegistry.find('faraday.access_log.queued').gauge().value() == 1
+
+        when:
+        release.countDown()
+
+        then:
+        new PollingConditions(timeout: 5).eventually { assert accessLogger.queued == 0 }
+        accessLogger.dropped == 2
+
+        cleanup:
+        release.countDown()
+        accessLogger.shutdown()
+    }
+
+    def "Should not queue entries when the access log is disabled"() {
+        given:
+        def properties = new FaradayProperties()
+        properties.accessLog.enabled = false
+        def accessLogger = new AccessLogger(properties, Optional.empty())
+
+        when:
+        accessLogger.log(entry(accessLogger))
+
+        then:
+        accessLogger.queued == 0
+        accessLogger.dropped == 0
+    }
+
+    private static AccessLogEntry entry(AccessLogger accessLogger) {
+        accessLogger.start(null, 'GET', 'www.staffjoy-v2.local', '/', '127.0.0.1', 'spec')
+    }
+
+    private static class BlockingAccessLogger extends AccessLogger {
+        private final CountDownLatch writing
+        private final CountDownLatch release
+
+        BlockingAccessLogger(FaradayProperties properties, SimpleMeterRegistry meterRegistry,
+                             CountDownLatch writing, CountDownLatch release) {
+            super(properties, Optional.of(meterRegistry))
+            this.writing = writing
+            this.release = release
+        }
+
+        @Override
+        protected void write(AccessLogEntry entry) {
+            writing.countDown()
+            release.await()
+        }
+    }
+}
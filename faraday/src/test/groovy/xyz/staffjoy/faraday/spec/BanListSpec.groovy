@@ -0,0 +1,77 @@
+package xyz.staffjoy.faraday.spec
+
+import spock.lang.Specification
+import spock.lang.Unroll
+import xyz.staffjoy.faraday.config.BanListProperties
+import xyz.staffjoy.faraday.core.ban.BanList
+
+import java.nio.file.Files
+import java.nio.file.Path
+
+class BanListSpec extends Specification {
+
+    private Path file = Files.createTempFile('banned-users', '.txt')
+    private BanList banList
+
+    void cleanup() {
+        banList?.shutdown()
+        Files.deleteIfExists(file)
+    }
+
+    @Unroll
+    def "Should match '#userId' against ban list when bloom filter threshold is #threshold"() {
+        given:
+        file.text = '# banned users\nU1\n\n  U2  \n'
+        banList = createBanList(threshold)
+
+        expect:
+        banList.isBanned(userId) == banned
+        banList.size() == 2
+
+        where:
+        userId | threshold | banned
+        'U1'   | 10000     | true
+        'U2'   | 10000     | true
+        'U3'   | 10000     | false
+        null   | 10000     | false
+        '#'    | 10000     | false
+        'U1'   | 1         | true
+        'U2'   | 1         | true
+        'U3'   | 1         | false
+    }
+
+    def "Should pick up swapped entries of the same size on reload"() {
+        given:
+        file.text = 'U1\nU2\n'
+        banList = createBanList(10000)
+
+        when:
+        file.text = 'U1\nU3\n'
+        banList.reload()
+
+        then:
+        banList.size() == 2
+        banList.isBanned('U1')
+        !banList.isBanned('U2')
+        banList.isBanned('U3')
+    }
+
+    def "Should keep the previous ban list when reload fails"() {
+        given:
+        file.text = 'U1\n'
+        banList = createBanList(10000)
+
+        when:
+        Files.delete(file)
+        banList.reload()
+
+        then:
+        banList.isBanned('U1')
+    }
+
+    private BanList createBanList(int bloomFilterThreshold) {
+        def banList = new BanList(new BanListProperties("file:${file.toAbsolutePath()}", 3600000, bloomFilterThreshold, 0.01))
+        banList.init()
+        banList
+    }
+}
@@ -0,0 +1,142 @@
+package xyz.staffjoy.faraday.spec
+
+import com.fasterxml.jackson.databind.ObjectMapper
+import org.springframework.test.context.TestPropertySource
+import xyz.staffjoy.faraday.BasicSpec
+import xyz.staffjoy.faraday.config.BatchProperties
+import xyz.staffjoy.faraday.core.batch.BatchFilter
+
+import static com.github.tomakehurst.wiremock.matching.RequestPatternBuilder.allRequests
+import static org.springframework.http.HttpMethod.POST
+import static org.springframework.http.HttpStatus.GATEWAY_TIMEOUT
+import static org.springframework.http.HttpStatus.OK
+import static org.springframework.http.HttpStatus.PAYLOAD_TOO_LARGE
+import static org.springframework.http.HttpStatus.UNSUPPORTED_MEDIA_TYPE
+import static xyz.staffjoy.faraday.assertions.Assertions.assertThat
+
+@TestPropertySource(properties = ['faraday.batch.host=ical.staffjoy-v2.local', 'faraday.batch.timeout=300',
+        'faraday.batch.max-request-size=2048'])
+class BatchSpec extends BasicSpec {
+
+    private static final String BATCH_HOST = 'ical.staffjoy-v2.local'
+    private static final String PUBLIC_HOST = 'www.staffjoy-v2.local'
+    private static final Map<String, String> JSON = ['Content-Type': 'application/json']
+
+    private ObjectMapper objectMapper = new ObjectMapper()
+
+    def "Should fan out sub-requests and answer them in request order"() {
+        given:
+        stubDestinationResponse('hello')
+
+        when:
+        def response = sendBatch([item('a', '/path/a'), item('b', '/path/b'), item('c', '/path/c')])
+
+        then:
+        response.statusCode == OK
+        def responses = parse(response.body)
+        responses*.id == ['a', 'b', 'c']
+        responses*.status == [200, 200, 200]
+        responses*.body == ['hello', 'hello', 'hello']
+        received('/path/a') + received('/path/b') + received('/path/c') == 3
+    }
+
+    def "Should answer failed sub-requests individually without failing the batch"() {
+        given:
+        stubDestinationResponse('hello')
+
+        when:
+        def response = sendBatch([
+                item('ok', '/path/ok'),
+                [id: 'unmapped', method: 'GET', host: 'unknown.staffjoy-v2.local', uri: '/path/unmapped'],
+                [id: 'invalid', method: 'FETCH', host: PUBLIC_HOST, uri: '/path/invalid']
+        ])
+
+        then:
+        response.statusCode == OK
+        def responses = parse(response.body)
+        responses*.id == ['ok', 'unmapped', 'invalid']
+        responses*.status == [200, 400, 400]
+        responses[0].body == 'hello'
+        received('/path/ok') == 1
+        received('/path/unmapped') == 0
+        received('/path/invalid') == 0
+    }
+
+    def "Should answer sub-requests unfinished at the batch deadline with 504"() {
+        given:
+        stubDestinationResponse(true)
+
+        when:
+        def start = System.nanoTime()
+        def response = sendBatch([item('slow', '/path/slow')])
+        def elapsedMillis = (System.nanoTime() - start) / 1000000
+
+        then:
+        response.statusCode == OK
+        def responses = parse(response.body)
+        responses*.id == ['slow']
+        responses*.status == [GATEWAY_TIMEOUT.value()]
+        // the sub-request is aborted at the deadline instead of waiting for the 1 second response
+        elapsedMillis < 900
+    }
+
+    def "Should reject batch request that is not JSON"() {
+        when:
+        def response = sendRequest POST, BATCH_HOST, '/batch', ['Content-Type': 'text/plain'],
+                objectMapper.writeValueAsString([requests: [item('a', '/path/a')]])
+
+        then:
+        response.statusCode == UNSUPPORTED_MEDIA_TYPE
+        assertThat(localhost8086, localhost8087).haveReceivedNoRequest()
+    }
+
+    def "Should reject batch request larger than the limit"() {
+        when:
+        def response = sendRequest POST, BATCH_HOST, '/batch', JSON,
+                objectMapper.writeValueAsString([requests: [item('a', '/path/a')], padding: 'x' * 4096])
+
+        then:
+        response.statusCode == PAYLOAD_TOO_LARGE
+        assertThat(localhost8086, localhost8087).haveReceivedNoRequest()
+    }
+
+    def "Should proxy batch path on other hosts"() {
+        when:
+        sendRequest POST, PUBLIC_HOST, '/batch', JSON,
+                objectMapper.writeValueAsString([requests: [item('a', '/path/a')]])
+
+        then:
+        assertThat(localhost8086, localhost8087)
+                .haveReceivedRequest()
+                .withMethodAndUrl(POST, '/batch')
+    }
+
+    def "Should stop sub-request threads when the filter is destroyed"() {
+        given:
+        def properties = new BatchProperties()
+        properties.host = BATCH_HOST
+        def filter = new BatchFilter(properties, null, null, null, null, null, null, null, null, null, null, null)
+
+        when:
+        filter.destroy()
+
+        then:
+        filter.executor.isShutdown()
+    }
+
+    private sendBatch(List<Map> items) {
+        sendRequest POST, BATCH_HOST, '/batch', JSON, objectMapper.writeValueAsString([requests: items])
+    }
+
+    private List<Map> parse(String body) {
+        objectMapper.readValue(body, Map).responses as List<Map>
+    }
+
+    private int received(String uri) {
+        [localhost8086, localhost8087].sum { it.findAll(allRequests().withUrl(uri)).size() } as int
+    }
+
+    private static Map item(String id, String uri) {
+        [id: id, method: 'GET', host: PUBLIC_HOST, uri: uri]
+    }
+}
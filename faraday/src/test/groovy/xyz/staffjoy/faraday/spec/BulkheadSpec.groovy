@@ -0,0 +1,128 @@
+package xyz.staffjoy.faraday.spec
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import spock.lang.Specification
+import xyz.staffjoy.faraday.config.FaradayProperties
+import xyz.staffjoy.faraday.config.MappingProperties
+import xyz.staffjoy.faraday.config.MappingProperties.BulkheadProperties
+import xyz.staffjoy.faraday.core.bulkhead.Bulkhead
+import xyz.staffjoy.faraday.core.bulkhead.BulkheadRegistry
+
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+
+class BulkheadSpec extends Specification {
+
+    def "Should reject immediately when max concurrent requests are in flight and queue is full"() {
+        given:
+        def bulkhead = new Bulkhead('route', properties(2, 0, 1000))
+
+        when:
+        def first = bulkhead.tryAcquire()
+        def second = bulkhead.tryAcquire()
+        def start = System.nanoTime()
+        def third = bulkhead.tryAcquire()
+        def waited = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)
+
+        then:
+        first
+        second
+        !third
+        waited < 500
+        bulkhead.active == 2
+        bulkhead.rejected == 1
+    }
+
+    def "Should reject queued request when no slot frees up within max wait"() {
+        given:
+        def bulkhead = new Bulkhead('route', properties(1, 1, 200))
+        bulkhead.tryAcquire()
+
+        when:
+        def start = System.nanoTime()
+        def acquired = bulkhead.tryAcquire()
+        def waited = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)
+
+        then:
+        !acquired
+        waited >= 200
+        bulkhead.queued == 0
+        bulkhead.rejected == 1
+    }
+
+    def "Should admit queued request when a slot is released within max wait"() {
+        given:
+        def bulkhead = new Bulkhead('route', properties(1, 1, 5000))
+        bulkhead.tryAcquire()
+        def executor = Executors.newSingleThreadExecutor()
+        def waiting = new CountDownLatch(1)
+
+        when:
+        def queued = executor.submit({ waiting.countDown(); bulkhead.tryAcquire() } as java.util.concurrent.Callable)
+        waiting.await()
+        while (bulkhead.queued == 0) {
+            Thread.sleep(10)
+        }
+        bulkhead.release()
+
+        then:
+        queued.get(5, TimeUnit.SECONDS)
+        bulkhead.active == 1
+        bulkhead.rejected == 0
+
+        cleanup:
+        executor.shutdownNow()
+    }
+
+    def "Should rebuild bulkhead when mapping limits change"() {
+        given:
+        def meterRegistry = new SimpleMeterRegistry()
+        def registry = new BulkheadRegistry(new FaradayProperties(), Optional.of(meterRegistry))
+        def mapping = mapping('route', properties(2, 0, 100))
+        def original = registry.getBulkhead(mapping)
+
+        when:
+        def same = registry.getBulkhead(mapping('route', properties(2, 0, 100)))
+        def rebuilt = registry.getBulkhead(mapping('route', properties(3, 0, 100)))
+        3.times { assert rebuilt.tryAcquire() }
+
+        then:
+        same.is(original)
+        !rebuilt.is(original)
+        registry.findBulkhead('route').is(rebuilt)
+        meterRegistry.find('faraday.bulkhead.active').gauges().size() == 1
+        meterRegistry.find('faraday.bulkhead.active').gauge().value() == 3
+    }
+
+    def "Should drop bulkheads of removed mappings"() {
+        given:
+        def meterRegistry = new SimpleMeterRegistry()
+        def registry = new BulkheadRegistry(new FaradayProperties(), Optional.of(meterRegistry))
+        registry.getBulkhead(mapping('kept', properties(2, 0, 100)))
+        registry.getBulkhead(mapping('removed', properties(2, 0, 100)))
+
+        when:
+        registry.updateMappings([mapping('kept', properties(2, 0, 100))])
+
+        then:
+        registry.findBulkhead('kept') != null
+        registry.findBulkhead('removed') == null
+        meterRegistry.find('faraday.bulkhead.active').tag('mapping', 'removed').gauge() == null
+    }
+
+    private static BulkheadProperties properties(int maxConcurrent, int maxQueued, int maxWait) {
+        def properties = new BulkheadProperties()
+        properties.maxConcurrent = maxConcurrent
+        properties.maxQueued = maxQueued
+        properties.maxWait = maxWait
+        properties
+    }
+
+    private static MappingProperties mapping(String name, BulkheadProperties bulkhead) {
+        def mapping = new MappingProperties()
+        mapping.name = name
+        mapping.bulkhead = bulkhead
+        mapping
+    }
+}
@@ -0,0 +1,123 @@
+package xyz.staffjoy.faraday.spec
+
+import org.apache.http.conn.DnsResolver
+import spock.lang.Specification
+import spock.util.concurrent.PollingConditions
+import xyz.staffjoy.faraday.config.DnsProperties
+import xyz.staffjoy.faraday.core.dns.CachingDnsResolver
+
+class CachingDnsResolverSpec extends Specification {
+
+    private Map<String, List<InetAddress>> answers = [:]
+    private List<String> lookups = Collections.synchronizedList([])
+    private DnsResolver delegate = { String host ->
+        lookups << host
+        def addresses = answers[host]
+        if (addresses == null) {
+            throw new UnknownHostException(host)
+        }
+        addresses as InetAddress[]
+    } as DnsResolver
+    private CachingDnsResolver resolver
+    private PollingConditions conditions = new PollingConditions(timeout: 5)
+
+    void cleanup() {
+        resolver?.shutdown()
+    }
+
+    def "Should serve mapped destination hosts from cache"() {
+        given:
+        answers['service'] = [address('service', 1)]
+        resolver = new CachingDnsResolver(new DnsProperties(true, 60000, 300000), delegate)
+        resolver.updateHosts(['service'])
+        conditions.eventually { assert lookups.size() == 1 }
+
+        when:
+        def first = resolver.resolve('service')
+        def second = resolver.resolve('service')
+
+        then:
+        first == [address('service', 1)] as InetAddress[]
+        second == first
+        lookups == ['service']
+    }
+
+    def "Should resolve the host again when its TTL expires"() {
+        given:
+        answers['service'] = [address('service', 1)]
+        resolver = new CachingDnsResolver(new DnsProperties(true, 1000, 300000), delegate)
+        resolver.updateHosts(['service'])
+        conditions.eventually { assert resolver.resolve('service') == [address('service', 1)] as InetAddress[] }
+
+        when:
+        answers['service'] = [address('service', 2)]
+
+        then:
+        conditions.eventually { assert resolver.resolve('service') == [address('service', 2)] as InetAddress[] }
+    }
+
+    def "Should keep serving the last known addresses while refreshes fail"() {
+        given:
+        answers['service'] = [address('service', 1)]
+        resolver = new CachingDnsResolver(new DnsProperties(true, 1000, 300000), delegate)
+        resolver.updateHosts(['service'])
+        conditions.eventually { assert lookups.size() == 1 }
+
+        when:
+        answers.remove('service')
+
+        then:
+        conditions.eventually { assert lookups.size() >= 3 }
+        resolver.resolve('service') == [address('service', 1)] as InetAddress[]
+    }
+
+    def "Should not cache hosts that are not mapped destinations"() {
+        given:
+        answers['other'] = [address('other', 1)]
+        resolver = new CachingDnsResolver(new DnsProperties(true, 60000, 300000), delegate)
+        resolver.updateHosts(['service'])
+
+        when:
+        resolver.resolve('other')
+        resolver.resolve('other')
+
+        then:
+        lookups.count { it == 'other' } == 2
+    }
+
+    def "Should stop caching hosts removed from mappings"() {
+        given:
+        answers['service'] = [address('service', 1)]
+        resolver = new CachingDnsResolver(new DnsProperties(true, 60000, 300000), delegate)
+        resolver.updateHosts(['service'])
+        conditions.eventually { assert lookups.size() == 1 }
+
+        when:
+        resolver.updateHosts([])
+        resolver.resolve('service')
+        resolver.resolve('service')
+
+        then:
+        lookups == ['service', 'service', 'service']
+    }
+
+    def "Should rotate multiple addresses of a host"() {
+        given:
+        answers['service'] = [address('service', 1), address('service', 2)]
+        resolver = new CachingDnsResolver(new DnsProperties(true, 60000, 300000), delegate)
+        resolver.updateHosts(['service'])
+        conditions.eventually { assert lookups.size() == 1 }
+
+        when:
+        def first = resolver.resolve('service')
+        def second = resolver.resolve('service')
+
+        then:
+        first[0] != second[0]
+        (first as Set) == (second as Set)
+    }
+
+    private static InetAddress address(String host, int last) {
+        InetAddress.getByAddress(host, [10, 0, 0, last] as byte[])
+    }
+}
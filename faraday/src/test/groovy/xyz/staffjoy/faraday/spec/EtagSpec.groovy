@@ -0,0 +1,131 @@
+package xyz.staffjoy.faraday.spec
+
+import xyz.staffjoy.faraday.BasicSpec
+
+import static org.springframework.http.HttpMethod.GET
+import static org.springframework.http.HttpMethod.POST
+import static org.springframework.http.HttpStatus.NOT_FOUND
+import static org.springframework.http.HttpStatus.NOT_MODIFIED
+import static org.springframework.http.HttpStatus.OK
+import static xyz.staffjoy.faraday.assertions.Assertions.assertThat
+
+class EtagSpec extends BasicSpec {
+
+    def "Should add strong ETag to proxied HTTP response when destination response has none"() {
+        given:
+        stubDestinationResponse 'BEGIN:VCALENDAR'
+
+        when:
+        def first = sendRequest GET, 'ical.staffjoy-v2.local', '/1.ics'
+        def second = sendRequest GET, 'ical.staffjoy-v2.local', '/1.ics'
+
+        then:
+        assertThat(first)
+                .hasStatus(OK)
+                .hasBody('BEGIN:VCALENDAR')
+        first.headers.getETag() ==~ /"[0-9a-f]{32}"/
+        second.headers.getETag() == first.headers.getETag()
+    }
+
+    def "Should get different ETags for different destination response bodies"() {
+        given:
+        stubDestinationResponse 'BEGIN:VCALENDAR'
+        def first = sendRequest GET, 'ical.staffjoy-v2.local', '/1.ics'
+        stubDestinationResponse 'BEGIN:VCALENDAR\nEND:VCALENDAR'
+
+        when:
+        def second = sendRequest GET, 'ical.staffjoy-v2.local', '/1.ics'
+
+        then:
+        second.headers.getETag() != first.headers.getETag()
+    }
+
+    def "Should get empty 304 response when If-None-Match header matches '#ifNoneMatch'"() {
+        given:
+        stubDestinationResponse 'BEGIN:VCALENDAR'
+        def etag = sendRequest(GET, 'ical.staffjoy-v2.local', '/1.ics').headers.getETag()
+
+        when:
+        def response = sendRequest GET, 'ical.staffjoy-v2.local', '/1.ics', ['If-None-Match': ifNoneMatch.replace('ETAG', etag)]
+
+        then:
+        assertThat(response)
+                .hasStatus(NOT_MODIFIED)
+                .containsHeaders(['ETag': etag])
+                .hasNoBody()
+
+        where:
+        ifNoneMatch << ['ETAG', 'W/ETAG', '"other", ETAG', '*']
+    }
+
+    def "Should keep Set-Cookie header in 304 response"() {
+        given:
+        stubDestinationResponse(['ETag': '"upstream"', 'Set-Cookie': 'faraday-session=renewed'])
+
+        when:
+        def response = sendRequest GET, 'ical.staffjoy-v2.local', '/1.ics', ['If-None-Match': '"upstream"']
+
+        then:
+        assertThat(response)
+                .hasStatus(NOT_MODIFIED)
+                .containsHeaders(['ETag': '"upstream"', 'Set-Cookie': 'faraday-session=renewed'])
+                .hasNoBody()
+    }
+
+    def "Should get full response when If-None-Match header does not match"() {
+        given:
+        stubDestinationResponse 'BEGIN:VCALENDAR'
+
+        when:
+        def response = sendRequest GET, 'ical.staffjoy-v2.local', '/1.ics', ['If-None-Match': '"other"']
+
+        then:
+        assertThat(response)
+                .hasStatus(OK)
+                .hasBody('BEGIN:VCALENDAR')
+    }
+
+    def "Should preserve destination ETag"() {
+        given:
+        stubDestinationResponse(['ETag': '"upstream"'])
+
+        when:
+        def response = sendRequest GET, 'ical.staffjoy-v2.local', '/1.ics'
+
+        then:
+        assertThat(response)
+                .hasStatus(OK)
+                .containsHeaders(['ETag': '"upstream"'])
+    }
+
+    def "Should not add ETag to #method response with status #status"() {
+        given:
+        stubDestinationResponse status, 'body'
+
+        when:
+        def response = sendRequest method, 'ical.staffjoy-v2.local', '/1.ics'
+
+        then:
+        assertThat(response)
+                .hasStatus(status)
+                .notContainsHeaders(['ETag'])
+
+        where:
+        method | status
+        POST   | OK
+        GET    | NOT_FOUND
+    }
+
+    def "Should not add ETag on routes where it is not enabled"() {
+        given:
+        stubDestinationResponse 'Sample body'
+
+        when:
+        def response = sendRequest GET, 'www.staffjoy-v2.local', '/path/1'
+
+        then:
+        assertThat(response)
+                .hasStatus(OK)
+                .notContainsHeaders(['ETag'])
+    }
+}
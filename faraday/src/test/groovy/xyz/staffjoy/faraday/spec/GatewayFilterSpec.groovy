@@ -0,0 +1,81 @@
+package xyz.staffjoy.faraday.spec
+
+import org.springframework.mock.web.MockFilterChain
+import org.springframework.mock.web.MockHttpServletRequest
+import org.springframework.mock.web.MockHttpServletResponse
+import spock.lang.Specification
+import spock.lang.Unroll
+import xyz.staffjoy.common.env.EnvConfig
+import xyz.staffjoy.common.env.EnvConstant
+import xyz.staffjoy.faraday.core.filter.FaviconFilter
+import xyz.staffjoy.faraday.core.filter.GatewayFilter
+import xyz.staffjoy.faraday.core.filter.HealthCheckFilter
+import xyz.staffjoy.faraday.core.filter.NakedDomainFilter
+import xyz.staffjoy.faraday.core.filter.SecurityFilter
+
+import javax.servlet.Filter
+import javax.servlet.GenericServlet
+import javax.servlet.ServletRequest
+import javax.servlet.ServletResponse
+
+class GatewayFilterSpec extends Specification {
+
+    private static final byte[] FAVICON = [0, 0, 1, 0] as byte[]
+
+    @Unroll
+    def "Fused filter should behave like the separate filters for #method #host#uri in #env with headers #headers"() {
+        given:
+        def envConfig = EnvConfig.getEnvConfg(env)
+        def apexHost = host.replace('APEX', envConfig.externalApex)
+
+        when:
+        def separate = run(separateFilters(envConfig), method, apexHost, uri, headers)
+        def fused = run([new GatewayFilter(envConfig, FAVICON)], method, apexHost, uri, headers)
+
+        then:
+        fused.proxied == separate.proxied
+        fused.response.status == separate.response.status
+        fused.response.redirectedUrl == separate.response.redirectedUrl
+        fused.response.contentAsByteArray == separate.response.contentAsByteArray
+        headerMap(fused.response) == headerMap(separate.response)
+
+        where:
+        [env, method, host, uri, headers] << [
+                [EnvConstant.ENV_DEV, EnvConstant.ENV_PROD],
+                ['GET', 'POST', 'OPTIONS'],
+                ['app.APEX', 'APEX'],
+                ['/', '/health', '/favicon.ico', '/api/v2/companies'],
+                [[:], ['Origin': 'https://app.example.com'], ['X-Forwarded-Proto': 'https'],
+                 ['Origin': 'https://app.example.com', 'X-Forwarded-Proto': 'https']]
+        ].combinations()
+    }
+
+    private static List<Filter> separateFilters(EnvConfig envConfig) {
+        [new HealthCheckFilter(), new FaviconFilter(FAVICON), new SecurityFilter(envConfig), new NakedDomainFilter(envConfig)]
+    }
+
+    private static Map run(List<Filter> filters, String method, String host, String uri,
+                           Map<String, String> headers) {
+        def request = new MockHttpServletRequest(method, uri)
+        request.serverName = host
+        headers.each { name, value -> request.addHeader(name, value) }
+        def response = new MockHttpServletResponse()
+        def servlet = new ProxyServlet()
+        new MockFilterChain(servlet, filters as Filter[]).doFilter(request, response)
+        [proxied: servlet.called, response: response]
+    }
+
+    private static Map<String, List<String>> headerMap(MockHttpServletResponse response) {
+        response.headerNames.collectEntries { [(it): response.getHeaders(it)] }
+    }
+
+    // stands in for ReverseProxyFilter at the end of the chain
+    private static class ProxyServlet extends GenericServlet {
+        boolean called
+
+        @Override
+        void service(ServletRequest request, ServletResponse response) {
+            called = true
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package xyz.staffjoy.faraday.spec
+
+import org.apache.http.HttpHost
+import org.apache.http.conn.DnsResolver
+import org.apache.http.conn.routing.HttpRoute
+import spock.lang.Specification
+import spock.util.concurrent.PollingConditions
+import xyz.staffjoy.faraday.config.DnsProperties
+import xyz.staffjoy.faraday.config.MappingProperties
+import xyz.staffjoy.faraday.core.dns.CachingDnsResolver
+import xyz.staffjoy.faraday.core.http.HttpClientProvider
+
+class HttpClientProviderSpec extends Specification {
+
+    private CachingDnsResolver dnsResolver = new CachingDnsResolver(new DnsProperties(), { host -> [] as InetAddress[] } as DnsResolver)
+    private HttpClientProvider provider = new HttpClientProvider(dnsResolver)
+
+    void cleanup() {
+        provider.shutdown()
+        dnsResolver.shutdown()
+    }
+
+    def "Should keep clients of unchanged mappings and close replaced and removed ones"() {
+        given:
+        provider.updateHttpClients([mapping('www_route', 20000), mapping('ical_route', 1)])
+        def www = provider.getHttpClient('www_route')
+        def wwwPool = provider.getConnectionManager('www_route')
+        def icalPool = provider.getConnectionManager('ical_route')
+
+        when:
+        provider.updateHttpClients([mapping('www_route', 20000), mapping('ical_route', 1)])
+
+        then:
+        provider.getHttpClient('www_route').is(www)
+        provider.getConnectionManager('ical_route').is(icalPool)
+
+        when:
+        // ical timeout changed, www removed
+        provider.updateHttpClients([mapping('ical_route', 2)])
+
+        then:
+        provider.getHttpClient('www_route') == null
+        provider.getConnectionManager('www_route') == null
+        !provider.getConnectionManager('ical_route').is(icalPool)
+        new PollingConditions(timeout: 5).eventually { assert isShutdown(icalPool) }
+        // in-flight requests of the removed mapping get its read timeout to finish
+        !isShutdown(wwwPool)
+        !isShutdown(provider.getConnectionManager('ical_route'))
+    }
+
+    private static boolean isShutdown(pool) {
+        try {
+            pool.requestConnection(new HttpRoute(new HttpHost('localhost', 80)), null).cancel()
+            return false
+        } catch (IllegalStateException e) {
+            return true
+        }
+    }
+
+    private static MappingProperties mapping(String name, int read) {
+        def mapping = new MappingProperties()
+        mapping.name = name
+        mapping.destinations = ['http://localhost:8080']
+        mapping.timeout.connect = 1
+        mapping.timeout.read = read
+        mapping
+    }
+}
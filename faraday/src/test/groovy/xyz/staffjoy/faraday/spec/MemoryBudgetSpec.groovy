@@ -0,0 +1,119 @@
+package xyz.staffjoy.faraday.spec
+
+import org.apache.commons.io.input.CountingInputStream
+import spock.lang.Specification
+import xyz.staffjoy.faraday.config.FaradayProperties
+import xyz.staffjoy.faraday.core.memory.MemoryBudget
+import xyz.staffjoy.faraday.core.utils.BodyReader
+import xyz.staffjoy.faraday.exceptions.MemoryBudgetExceededException
+import xyz.staffjoy.faraday.exceptions.PayloadTooLargeException
+
+class MemoryBudgetSpec extends Specification {
+
+    private static final int MAX_BUFFERED_BYTES = 20000
+
+    private MemoryBudget memoryBudget = createMemoryBudget()
+
+    def "Should reserve an unknown length body while reading it"() {
+        given:
+        def lease = memoryBudget.lease()
+
+        when:
+        def body = BodyReader.readBody(new ByteArrayInputStream(new byte[10000]), 1000000, lease)
+
+        then:
+        body.length == 10000
+        memoryBudget.buffered == 10000
+
+        when:
+        lease.close()
+
+        then:
+        memoryBudget.buffered == 0
+    }
+
+    def "Should stop reading an unknown length body as soon as the budget is exhausted"() {
+        given:
+        def lease = memoryBudget.lease()
+        def stream = new CountingInputStream(new ByteArrayInputStream(new byte[1000000]))
+
+        when:
+        BodyReader.readBody(stream, 10000000, lease)
+
+        then:
+        thrown(MemoryBudgetExceededException)
+        // at most one chunk past the budget is read, nothing past it is buffered
+        stream.byteCount <= MAX_BUFFERED_BYTES + 8192
+        memoryBudget.buffered <= MAX_BUFFERED_BYTES
+        memoryBudget.rejectedExhausted == 1
+
+        when:
+        lease.close()
+
+        then:
+        memoryBudget.buffered == 0
+    }
+
+    def "Should stop reading an unknown length body larger than the limit"() {
+        given:
+        def lease = memoryBudget.lease()
+
+        when:
+        BodyReader.readBody(new ByteArrayInputStream(new byte[5000]), 4096, lease)
+
+        then:
+        thrown(PayloadTooLargeException)
+        memoryBudget.buffered <= 4096
+
+        cleanup:
+        lease.close()
+    }
+
+    def "Should keep the budget of a retained lease until its last holder closes it"() {
+        given:
+        def lease = memoryBudget.lease()
+        lease.reserve(1000)
+        lease.retain()
+
+        when: 'the batch request finishes while a timed-out sub-request still holds its body'
+        lease.close()
+
+        then:
+        memoryBudget.buffered == 1000
+        lease.reserve(500)
+        memoryBudget.buffered == 1500
+
+        when: 'the sub-request finishes'
+        lease.close()
+
+        then:
+        memoryBudget.buffered == 0
+        !lease.reserve(1)
+        memoryBudget.buffered == 0
+    }
+
+    def "Should release a lease only once when closed repeatedly"() {
+        given:
+        def lease = memoryBudget.lease()
+        lease.reserve(1000)
+
+        when:
+        lease.close()
+        lease.close()
+
+        then:
+        memoryBudget.buffered == 0
+
+        when:
+        lease.retain()
+
+        then:
+        thrown(IllegalStateException)
+    }
+
+    private static MemoryBudget createMemoryBudget() {
+        def properties = new FaradayProperties()
+        properties.memoryBudget.maxBufferedBytes = MAX_BUFFERED_BYTES
+        new MemoryBudget(properties, Optional.empty())
+    }
+}
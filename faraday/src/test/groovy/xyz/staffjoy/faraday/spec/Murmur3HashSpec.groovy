@@ -0,0 +1,59 @@
+package xyz.staffjoy.faraday.spec
+
+import spock.lang.Specification
+import spock.lang.Unroll
+import xyz.staffjoy.faraday.core.etag.Murmur3Hash128
+
+import java.nio.charset.StandardCharsets
+
+class Murmur3HashSpec extends Specification {
+
+    // reference values of MurmurHash3_x64_128, h1 followed by h2
+    @Unroll
+    def "Should hash '#input' with seed #seed to #expected"() {
+        given:
+        def bytes = input.getBytes(StandardCharsets.UTF_8)
+        def hash = new Murmur3Hash128(seed)
+
+        when:
+        hash.update(bytes, 0, bytes.length)
+
+        then:
+        hash.finishHex() == expected
+
+        where:
+        input                                         | seed | expected
+        ''                                            | 0    | '00000000000000000000000000000000'
+        'hell'                                        | 0    | '629942693e10f86792db0b82baeb5347'
+        'hello'                                       | 1    | 'a78ddff5adae8d10128900ef20900135'
+        'hello '                                      | 2    | '8a486b23f422e826f962a2c58947765f'
+        'hello w'                                     | 3    | '2ea59f466f6bed8cc610990acc428a17'
+        'hello wo'                                    | 4    | '79f6305a386c572c46305aed3483b94e'
+        'The quick brown fox jumps over the lazy dog' | 0    | 'e34bbc7bbc071b6c7a433ca9c49a9347'
+        'The quick brown fox jumps over the lazy cog' | 0    | '658ca970ff85269a43fee3eaa68e5c3e'
+    }
+
+    @Unroll
+    def "Should get the same hash when #length bytes are fed in chunks of #chunk"() {
+        given:
+        def bytes = (0..<length).collect { (byte) (it * 31 + 7) } as byte[]
+        def oneShot = new Murmur3Hash128()
+        oneShot.update(bytes, 0, bytes.length)
+        def incremental = new Murmur3Hash128()
+
+        when:
+        for (int offset = 0; offset < length; offset += chunk) {
+            if (chunk == 1) {
+                incremental.update(bytes[offset])
+            } else {
+                incremental.update(bytes, offset, Math.min(chunk, length - offset))
+            }
+        }
+
+        then:
+        incremental.finishHex() == oneShot.finishHex()
+
+        where:
+        [length, chunk] << [[15, 16, 17, 31, 32, 33, 100], [1, 3, 7, 8, 15, 16, 17]].combinations()
+    }
+}
@@ -0,0 +1,150 @@
+package xyz.staffjoy.faraday.spec
+
+import org.springframework.http.HttpHeaders
+import org.springframework.http.HttpMethod
+import spock.lang.Specification
+import spock.lang.Unroll
+import xyz.staffjoy.faraday.config.FaradayProperties
+import xyz.staffjoy.faraday.config.MappingProperties
+import xyz.staffjoy.faraday.config.PriorityProperties.ClassProperties
+import xyz.staffjoy.faraday.core.priority.FairAdmissionQueue
+import xyz.staffjoy.faraday.core.priority.PriorityClass
+import xyz.staffjoy.faraday.core.priority.RequestClassifier
+
+import java.util.concurrent.Executors
+import java.util.concurrent.LinkedBlockingQueue
+import java.util.concurrent.TimeUnit
+
+import static xyz.staffjoy.faraday.core.priority.PriorityClass.BACKGROUND
+import static xyz.staffjoy.faraday.core.priority.PriorityClass.INTERACTIVE
+import static xyz.staffjoy.faraday.core.priority.PriorityClass.NORMAL
+
+class PrioritySpec extends Specification {
+
+    private executor = Executors.newCachedThreadPool()
+
+    void cleanup() {
+        executor.shutdownNow()
+    }
+
+    @Unroll
+    def "Should classify #method to #route with headers #headers as #expected"() {
+        given:
+        def classifier = new RequestClassifier(new FaradayProperties().priority)
+        def httpHeaders = new HttpHeaders()
+        headers.each { name, value -> httpHeaders.add(name, value) }
+
+        expect:
+        classifier.classify(method, httpHeaders, mapping(route)) == expected
+
+        where:
+        method          | route         | headers                                        | expected
+        HttpMethod.GET  | 'www_route'   | [:]                                            | NORMAL
+        HttpMethod.HEAD | 'www_route'   | [:]                                            | NORMAL
+        HttpMethod.POST | 'www_route'   | [:]                                            | INTERACTIVE
+        HttpMethod.PUT  | 'www_route'   | [:]                                            | INTERACTIVE
+        HttpMethod.GET  | 'ical_route'  | [:]                                            | BACKGROUND
+        HttpMethod.POST | 'ical_route'  | [:]                                            | BACKGROUND
+        HttpMethod.GET  | 'www_route'   | ['User-Agent': 'Googlebot/2.1']                | BACKGROUND
+        HttpMethod.GET  | 'www_route'   | ['User-Agent': 'Mozilla/5.0']                  | NORMAL
+        // the header may only lower the priority
+        HttpMethod.POST | 'www_route'   | ['faraday-priority': 'background']             | BACKGROUND
+        HttpMethod.GET  | 'www_route'   | ['faraday-priority': 'interactive']            | NORMAL
+        HttpMethod.GET  | 'ical_route'  | ['faraday-priority': 'interactive']            | BACKGROUND
+        HttpMethod.GET  | 'www_route'   | ['faraday-priority': 'unknown']                | NORMAL
+    }
+
+    def "Should hand freed slots to the classes in proportion to their weights"() {
+        given:
+        def queue = new FairAdmissionQueue(properties(1), Optional.empty())
+        def holder = queue.acquire(NORMAL)
+        def granted = new LinkedBlockingQueue<List>()
+
+        when:
+        enqueue(queue, INTERACTIVE, 8, granted)
+        enqueue(queue, NORMAL, 4, granted)
+        enqueue(queue, BACKGROUND, 1, granted)
+        holder.close()
+        def order = []
+        13.times {
+            def next = granted.poll(5, TimeUnit.SECONDS)
+            assert next != null
+            order << next[0]
+            next[1].close()
+        }
+
+        then:
+        // strides 1/8, 1/4 and 1/1, ties go to the higher priority class
+        order.collect { it.key[0].toUpperCase() }.join() == 'INBIINIINIINI'
+        queue.getShed(INTERACTIVE) == 0
+        queue.getShed(NORMAL) == 0
+        queue.getShed(BACKGROUND) == 0
+    }
+
+    def "Should shed requests once the class queue is full"() {
+        given:
+        def faradayProperties = properties(1)
+        faradayProperties.priority.background = new ClassProperties(1, 0, 10000)
+        def queue = new FairAdmissionQueue(faradayProperties, Optional.empty())
+        queue.acquire(NORMAL)
+
+        expect:
+        queue.acquire(BACKGROUND) == null
+        queue.getShed(BACKGROUND) == 1
+    }
+
+    def "Should return slots taken before admission was disabled"() {
+        given:
+        def faradayProperties = properties(1)
+        faradayProperties.priority.normal = new ClassProperties(4, 10, 0)
+        def queue = new FairAdmissionQueue(faradayProperties, Optional.empty())
+
+        when:
+        def counted = queue.acquire(NORMAL)
+        faradayProperties.priority.enabled = false
+        def unlimited = queue.acquire(NORMAL)
+        counted.close()
+        unlimited.close()
+        faradayProperties.priority.enabled = true
+        def slot = queue.acquire(NORMAL)
+
+        then:
+        unlimited != null
+        slot != null
+        queue.acquire(NORMAL) == null
+
+        when:
+        slot.close()
+        slot.close()
+
+        then:
+        queue.acquire(NORMAL) != null
+        queue.acquire(NORMAL) == null
+    }
+
+    private void enqueue(FairAdmissionQueue queue, PriorityClass priorityClass, int count, LinkedBlockingQueue<List> granted) {
+        count.times {
+            int queued = queue.getQueued(priorityClass)
+            executor.submit({ granted.put([priorityClass, queue.acquire(priorityClass)]) } as Runnable)
+            // keep FIFO order inside the class deterministic
+            while (queue.getQueued(priorityClass) == queued) {
+                Thread.sleep(5)
+            }
+        }
+    }
+
+    private static FaradayProperties properties(int maxConcurrent) {
+        def faradayProperties = new FaradayProperties()
+        faradayProperties.priority.maxConcurrent = maxConcurrent
+        faradayProperties.priority.interactive = new ClassProperties(8, 100, 10000)
+        faradayProperties.priority.normal = new ClassProperties(4, 100, 10000)
+        faradayProperties.priority.background = new ClassProperties(1, 100, 10000)
+        faradayProperties
+    }
+
+    private static MappingProperties mapping(String name) {
+        def mapping = new MappingProperties()
+        mapping.name = name
+        mapping
+    }
+}
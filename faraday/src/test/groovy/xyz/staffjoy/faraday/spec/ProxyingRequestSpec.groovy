@@ -1,8 +1,10 @@
 package xyz.staffjoy.faraday.spec
 
 import spock.lang.Unroll
+import xyz.staffjoy.common.deadline.DeadlineContext
 import xyz.staffjoy.faraday.BasicSpec
 
+import static com.github.tomakehurst.wiremock.matching.RequestPatternBuilder.allRequests
 import static xyz.staffjoy.faraday.assertions.Assertions.assertThat
 import static org.springframework.http.HttpMethod.DELETE
 import static org.springframework.http.HttpMethod.GET
@@ -129,4 +131,16 @@ class ProxyingRequestSpec extends BasicSpec {
         assertThat(response)
                  .hasStatus(INTERNAL_SERVER_ERROR)
     }
+
+    def "Should pass the time left until the read timeout as the deadline"() {
+        when:
+        sendRequest GET, 'www.staffjoy-v2.local', '/path/1'
+
+        then:
+        def requests = [localhost8086, localhost8087].collectMany { it.findAll(allRequests()) }
+        requests.size() == 1
+        def remaining = requests[0].getHeader(DeadlineContext.DEADLINE_HEADER) as long
+        remaining > 0
+        remaining <= 500
+    }
 }
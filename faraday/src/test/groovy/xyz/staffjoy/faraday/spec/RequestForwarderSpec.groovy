@@ -0,0 +1,45 @@
+package xyz.staffjoy.faraday.spec
+
+import org.springframework.http.HttpHeaders
+import spock.lang.Specification
+import xyz.staffjoy.faraday.config.FaradayProperties
+import xyz.staffjoy.faraday.config.MappingProperties
+import xyz.staffjoy.faraday.core.accesslog.AccessLogEntry
+import xyz.staffjoy.faraday.core.http.RequestData
+import xyz.staffjoy.faraday.core.http.RequestForwarder
+import xyz.staffjoy.faraday.core.memory.MemoryBudget
+import xyz.staffjoy.faraday.exceptions.GatewayTimeoutException
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS
+import static org.springframework.http.HttpMethod.GET
+
+class RequestForwarderSpec extends Specification {
+
+    private FaradayProperties properties = new FaradayProperties()
+    private RequestForwarder forwarder = new RequestForwarder(null, properties, null, null, null, Optional.empty(),
+            null, null, null, null)
+
+    def "Should not forward a request whose deadline has passed"() {
+        given:
+        def data = new RequestData(GET, 'www.staffjoy-v2.local', '/', new HttpHeaders(), new byte[0], null)
+        data.deadlineNanos = System.nanoTime() - MILLISECONDS.toNanos(deadlineAgo)
+
+        when:
+        forwarder.forwardHttpRequest(data, 'trace', mapping(), new AccessLogEntry('trace', 'GET', 'www', '/', null, null),
+                new MemoryBudget(properties, Optional.empty()).lease())
+
+        then:
+        thrown(GatewayTimeoutException)
+
+        where:
+        deadlineAgo << [0, 1, 1000]
+    }
+
+    private static MappingProperties mapping() {
+        def mapping = new MappingProperties()
+        mapping.name = 'www_route'
+        mapping.host = 'www.staffjoy-v2.local'
+        mapping.destinations = ['localhost:8086']
+        mapping
+    }
+}
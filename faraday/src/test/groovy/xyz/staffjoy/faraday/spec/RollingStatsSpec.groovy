@@ -0,0 +1,98 @@
+package xyz.staffjoy.faraday.spec
+
+import spock.lang.Specification
+import spock.lang.Unroll
+import xyz.staffjoy.faraday.config.StatsProperties
+import xyz.staffjoy.faraday.core.stats.GatewayStats
+import xyz.staffjoy.faraday.core.stats.RollingStats
+import xyz.staffjoy.faraday.exceptions.FaradayException
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS
+
+class RollingStatsSpec extends Specification {
+
+    def "Should count requests only once their bucket is rotated in"() {
+        given:
+        def stats = new RollingStats(3)
+
+        when:
+        stats.onStart()
+        stats.onComplete(MILLISECONDS.toNanos(10), false)
+
+        then:
+        stats.snapshot(1).requestRate == 0.0
+
+        when:
+        stats.rotate()
+
+        then:
+        stats.snapshot(1).requestRate == 1.0
+        stats.snapshot(1).maxMs >= 9.9
+        stats.snapshot(1).inFlight == 0
+    }
+
+    def "Should drop the oldest bucket once the window has rotated past it"() {
+        given:
+        def stats = new RollingStats(3)
+        stats.onStart()
+        stats.onComplete(MILLISECONDS.toNanos(10), true)
+        stats.rotate()
+        stats.onStart()
+        stats.onComplete(MILLISECONDS.toNanos(20), false)
+        stats.rotate()
+
+        expect:
+        stats.snapshot(1).requestRate == 2.0
+        stats.snapshot(1).errorRate == 0.5
+
+        when:
+        stats.rotate()
+
+        then: 'both buckets are still within the window of three'
+        stats.snapshot(1).requestRate == 2.0
+
+        when:
+        stats.rotate()
+
+        then: 'the first bucket has been overwritten'
+        stats.snapshot(1).requestRate == 1.0
+        stats.snapshot(1).errorRate == 0.0
+        stats.snapshot(1).maxMs >= 19.9
+
+        when:
+        stats.rotate()
+
+        then:
+        stats.snapshot(1).requestRate == 0.0
+        stats.snapshot(1).maxMs == 0.0
+    }
+
+    def "Should keep counting in flight requests across rotations"() {
+        given:
+        def stats = new RollingStats(2)
+
+        when:
+        stats.onStart()
+        stats.onStart()
+        3.times { stats.rotate() }
+
+        then:
+        stats.snapshot(1).inFlight == 2
+    }
+
+    @Unroll
+    def "Should reject stats window #window with #buckets buckets"() {
+        when:
+        new GatewayStats(new StatsProperties(true, '/faraday/stats', window, buckets, []))
+
+        then:
+        thrown(FaradayException)
+
+        where:
+        window | buckets
+        60000  | 0
+        60000  | -1
+        5      | 6
+        0      | 1
+    }
+}
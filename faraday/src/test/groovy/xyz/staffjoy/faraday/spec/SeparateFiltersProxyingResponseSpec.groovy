@@ -0,0 +1,10 @@
+package xyz.staffjoy.faraday.spec
+
+import org.springframework.test.context.TestPropertySource
+
+/**
+ * Runs ProxyingResponseSpec with the four separate front filters instead of the fused GatewayFilter.
+ */
+@TestPropertySource(properties = 'faraday.enable-fused-filter-chain=false')
+class SeparateFiltersProxyingResponseSpec extends ProxyingResponseSpec {
+}
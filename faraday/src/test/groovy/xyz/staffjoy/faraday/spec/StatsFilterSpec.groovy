@@ -0,0 +1,100 @@
+package xyz.staffjoy.faraday.spec
+
+import com.fasterxml.jackson.databind.ObjectMapper
+import org.apache.http.conn.DnsResolver
+import org.springframework.mock.web.MockFilterChain
+import org.springframework.mock.web.MockHttpServletRequest
+import org.springframework.mock.web.MockHttpServletResponse
+import spock.lang.Specification
+import spock.lang.Unroll
+import xyz.staffjoy.faraday.config.DnsProperties
+import xyz.staffjoy.faraday.config.FaradayProperties
+import xyz.staffjoy.faraday.core.bulkhead.BulkheadRegistry
+import xyz.staffjoy.faraday.core.dns.CachingDnsResolver
+import xyz.staffjoy.faraday.core.filter.StatsFilter
+import xyz.staffjoy.faraday.core.http.HttpClientProvider
+import xyz.staffjoy.faraday.core.priority.FairAdmissionQueue
+import xyz.staffjoy.faraday.core.stats.GatewayStats
+
+import javax.servlet.GenericServlet
+import javax.servlet.ServletRequest
+import javax.servlet.ServletResponse
+
+class StatsFilterSpec extends Specification {
+
+    private FaradayProperties properties = new FaradayProperties()
+    private GatewayStats gatewayStats = new GatewayStats(properties.stats)
+    private CachingDnsResolver dnsResolver = new CachingDnsResolver(new DnsProperties(), { host -> [] as InetAddress[] } as DnsResolver)
+    private StatsFilter filter = new StatsFilter(properties.stats, gatewayStats, new HttpClientProvider(dnsResolver),
+            new BulkheadRegistry(properties, Optional.empty()), new FairAdmissionQueue(properties, Optional.empty()))
+
+    void cleanup() {
+        gatewayStats.shutdown()
+        dnsResolver.shutdown()
+    }
+
+    @Unroll
+    def "Should serve stats to internal address #remoteAddr"() {
+        given:
+        gatewayStats.route('www_route').onStart('localhost:8086')
+
+        when:
+        def result = run(remoteAddr, [:], '/faraday/stats')
+
+        then:
+        !result.servlet.called
+        result.response.status == 200
+        def stats = new ObjectMapper().readValue(result.response.contentAsByteArray, Map)
+        stats.routes.www_route.inFlight == 1
+        stats.routes.www_route.destinations['localhost:8086'].inFlight == 1
+
+        where:
+        remoteAddr << ['127.0.0.1', '10.1.2.3', '172.16.0.1', '172.31.255.255', '192.168.1.1', '::1']
+    }
+
+    @Unroll
+    def "Should pass stats request from #remoteAddr with headers #headers down the chain"() {
+        when:
+        def result = run(remoteAddr, headers, '/faraday/stats')
+
+        then:
+        result.servlet.called
+        result.response.contentAsByteArray.length == 0
+
+        where:
+        remoteAddr      | headers
+        '8.8.8.8'       | [:]
+        '172.32.0.1'    | [:]
+        '11.0.0.1'      | [:]
+        '2001:db8::1'   | [:]
+        '127.0.0.1'     | ['X-Forwarded-For': '127.0.0.1']
+        '10.0.0.1'      | ['X-Forwarded-For': '8.8.8.8']
+    }
+
+    def "Should pass other paths down the chain"() {
+        when:
+        def result = run('127.0.0.1', [:], '/faraday/stats/other')
+
+        then:
+        result.servlet.called
+    }
+
+    private Map run(String remoteAddr, Map<String, String> headers, String uri) {
+        def request = new MockHttpServletRequest('GET', uri)
+        request.remoteAddr = remoteAddr
+        headers.each { name, value -> request.addHeader(name, value) }
+        def response = new MockHttpServletResponse()
+        def servlet = new RecordingServlet()
+        new MockFilterChain(servlet, filter).doFilter(request, response)
+        [servlet: servlet, response: response]
+    }
+
+    private static class RecordingServlet extends GenericServlet {
+        boolean called
+
+        @Override
+        void service(ServletRequest request, ServletResponse response) {
+            called = true
+        }
+    }
+}
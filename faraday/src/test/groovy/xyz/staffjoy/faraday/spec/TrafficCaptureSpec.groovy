@@ -0,0 +1,144 @@
+package xyz.staffjoy.faraday.spec
+
+import com.github.tomakehurst.wiremock.WireMockServer
+import org.springframework.http.HttpHeaders
+import spock.lang.Specification
+import spock.util.concurrent.PollingConditions
+import xyz.staffjoy.common.auth.AuthConstant
+import xyz.staffjoy.common.auth.Sessions
+import xyz.staffjoy.common.crypto.Sign
+import xyz.staffjoy.faraday.benchmark.ReplayDriver
+import xyz.staffjoy.faraday.config.FaradayProperties
+import xyz.staffjoy.faraday.core.capture.CaptureRecord
+import xyz.staffjoy.faraday.core.capture.TrafficCapture
+import xyz.staffjoy.faraday.core.memory.MemoryBudget
+
+import java.nio.file.Files
+import java.nio.file.Path
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse
+import static com.github.tomakehurst.wiremock.client.WireMock.any
+import static com.github.tomakehurst.wiremock.client.WireMock.equalTo
+import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo
+import static com.github.tomakehurst.wiremock.client.WireMock.urlMatching
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options
+import static org.springframework.http.HttpMethod.GET
+import static org.springframework.http.HttpMethod.POST
+
+class TrafficCaptureSpec extends Specification {
+
+    private static final String SIGNING_SECRET = 'PRODUCTION_SECRET'
+    private static final String RESIGN_SECRET = 'TEST_SECRET'
+    private static final String HOST = 'company.staffjoy-v2.local'
+
+    private Path directory = Files.createTempDirectory('faraday-capture')
+    private FaradayProperties properties = captureProperties()
+    private MemoryBudget memoryBudget = new MemoryBudget(properties, Optional.empty())
+    private TrafficCapture trafficCapture
+    private WireMockServer target
+
+    void cleanup() {
+        trafficCapture?.shutdown()
+        target?.stop()
+        directory.toFile().deleteDir()
+    }
+
+    def "Should replay captured requests with redacted headers and re-signed session"() {
+        given:
+        trafficCapture = new TrafficCapture(properties, SIGNING_SECRET, memoryBudget, Optional.empty())
+        def session = Sign.generateSessionToken('U1', SIGNING_SECRET, false, Sessions.SHORT_SESSION)
+        def headers = new HttpHeaders()
+        headers.set(HttpHeaders.AUTHORIZATION, 'Bearer secret')
+        headers.set(HttpHeaders.COOKIE, "other=1; ${AuthConstant.COOKIE_NAME}=$session".toString())
+        headers.set('X-Custom', 'custom')
+
+        when:
+        trafficCapture.capture(POST, HOST, '/v1/company/create?x=1', headers, '{"name":"Staffjoy"}'.bytes)
+        trafficCapture.capture(GET, HOST, '/v1/company/list', new HttpHeaders(), new byte[0])
+        def records = readLog(2)
+
+        then:
+        records*.method == ['POST', 'GET']
+        records*.uri == ['/v1/company/create?x=1', '/v1/company/list']
+        records[0].offsetMicros == 0
+        def captured = headerMap(records[0])
+        captured['X-Custom'] == 'custom'
+        !captured.containsKey(HttpHeaders.AUTHORIZATION)
+        def cookie = captured[HttpHeaders.COOKIE]
+        cookie.startsWith(AuthConstant.COOKIE_NAME + '=')
+        Sign.verifySessionToken(cookie.substring(AuthConstant.COOKIE_NAME.length() + 1), RESIGN_SECRET)
+                .getClaim(Sign.CLAIM_USER_ID).asString() == 'U1'
+        new String(records[0].replayBody) == '{"name":"Staffjoy"}'
+        memoryBudget.buffered == 0
+
+        when:
+        target = new WireMockServer(options().dynamicPort())
+        target.start()
+        target.stubFor(any(urlMatching('.*')).willReturn(aResponse().withStatus(200)))
+        new ReplayDriver("http://localhost:${target.port()}".toString(), 100.0, 2).replay(records)
+
+        then:
+        target.verify(postRequestedFor(urlEqualTo('/v1/company/create?x=1'))
+                .withHeader('X-Custom', equalTo('custom'))
+                .withHeader(HttpHeaders.COOKIE, equalTo(cookie))
+                .withRequestBody(equalTo('{"name":"Staffjoy"}')))
+        target.findAll(postRequestedFor(urlEqualTo('/v1/company/create?x=1'))).every {
+            it.getHeader(HttpHeaders.AUTHORIZATION) == null
+        }
+        target.getAllServeEvents().size() == 2
+    }
+
+    def "Should not capture bodies of credential paths"() {
+        given:
+        trafficCapture = new TrafficCapture(properties, SIGNING_SECRET, memoryBudget, Optional.empty())
+        def password = '{"email":"a@b.c","password":"hunter2"}'
+
+        when:
+        trafficCapture.capture(POST, 'www.staffjoy-v2.local', '/login?return_to=/', new HttpHeaders(), password.bytes)
+        trafficCapture.capture(POST, 'account.staffjoy-v2.local', '/v1/account/update_password', new HttpHeaders(), password.bytes)
+        def records = readLog(2)
+
+        then:
+        records*.bodyLength == [password.length(), password.length()]
+        records.every { it.replayBody == new byte[password.length()] }
+        !directory.toFile().listFiles()[0].text.contains('hunter2')
+    }
+
+    def "Should drop captures when the memory budget is exhausted"() {
+        given:
+        properties.memoryBudget.maxBufferedBytes = 10
+        trafficCapture = new TrafficCapture(properties, SIGNING_SECRET, memoryBudget, Optional.empty())
+
+        when:
+        trafficCapture.capture(POST, HOST, '/v1/company/create', new HttpHeaders(), new byte[100])
+
+        then:
+        trafficCapture.dropped == 1
+        memoryBudget.buffered == 0
+    }
+
+    private List<CaptureRecord> readLog(int expected) {
+        List<CaptureRecord> records = null
+        new PollingConditions(timeout: 5).eventually {
+            def files = directory.toFile().listFiles()
+            assert files.length == 1
+            records = ReplayDriver.readLog(files[0].path)
+            assert records.size() == expected
+        }
+        records
+    }
+
+    private static Map<String, String> headerMap(CaptureRecord record) {
+        record.headers.collectEntries { [(it.key): it.value] }
+    }
+
+    private FaradayProperties captureProperties() {
+        def properties = new FaradayProperties()
+        properties.capture.enabled = true
+        properties.capture.sampleRate = 1.0
+        properties.capture.directory = directory.toString()
+        properties.capture.resignSecret = RESIGN_SECRET
+        properties
+    }
+}
@@ -0,0 +1,84 @@
+package xyz.staffjoy.faraday.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import xyz.staffjoy.common.env.EnvConfig;
+import xyz.staffjoy.common.env.EnvConstant;
+import xyz.staffjoy.faraday.core.filter.*;
+
+import javax.servlet.Filter;
+import javax.servlet.GenericServlet;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request overhead of the separate gateway filters versus the fused GatewayFilter,
+ * for a request that passes all checks and reaches the proxy.
+ *
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+ *   -Dexec.mainClass=xyz.staffjoy.faraday.benchmark.FilterChainBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FilterChainBenchmark {
+
+    private static final byte[] FAVICON = new byte[]{0, 0, 1, 0};
+
+    private Filter[] separateFilters;
+    private Filter[] fusedFilters;
+    private MockHttpServletRequest request;
+
+    @Setup
+    public void setup() {
+        EnvConfig envConfig = EnvConfig.getEnvConfg(EnvConstant.ENV_PROD);
+        separateFilters = new Filter[]{
+                new HealthCheckFilter(),
+                new FaviconFilter(FAVICON),
+                new SecurityFilter(envConfig),
+                new NakedDomainFilter(envConfig)
+        };
+        fusedFilters = new Filter[]{new GatewayFilter(envConfig, FAVICON)};
+
+        request = new MockHttpServletRequest("GET", "/api/v2/companies/123/teams");
+        request.setServerName("app." + envConfig.getExternalApex());
+        request.addHeader("Origin", "https://app." + envConfig.getExternalApex());
+        request.addHeader("X-Forwarded-Proto", "https");
+    }
+
+    @Benchmark
+    public MockHttpServletResponse separateFilters() throws Exception {
+        return run(separateFilters);
+    }
+
+    @Benchmark
+    public MockHttpServletResponse fusedFilter() throws Exception {
+        return run(fusedFilters);
+    }
+
+    private MockHttpServletResponse run(Filter[] filters) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        new MockFilterChain(new ProxyServlet(), filters).doFilter(request, response);
+        return response;
+    }
+
+    // stands in for ReverseProxyFilter at the end of the chain
+    private static class ProxyServlet extends GenericServlet {
+        @Override
+        public void service(ServletRequest request, ServletResponse response) {
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(FilterChainBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,157 @@
+package xyz.staffjoy.faraday.benchmark;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.RequestBuilder;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.util.EntityUtils;
+import xyz.staffjoy.faraday.core.capture.CaptureLog;
+import xyz.staffjoy.faraday.core.capture.CaptureRecord;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+import static java.lang.System.nanoTime;
+
+/**
+ * Replays a faraday capture log (see faraday.capture) against a target, open-loop:
+ * every request is sent at its captured offset divided by the speed factor, whether or not
+ * earlier requests have completed, and latency is measured from that intended send time,
+ * so a slow target shows up as latency instead of a lower request rate.
+ *
+ * The Host header of the captured request is kept, so pointing the target at a local
+ * faraday routes the replay to local services exactly like production traffic.
+ *
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+ *   -Dexec.mainClass=xyz.staffjoy.faraday.benchmark.ReplayDriver
+ *   -Dexec.args="capture/faraday-capture-20190101-120000.bin http://localhost:80 2.0 64"
+ */
+public class ReplayDriver {
+
+    private static final long HIGHEST_TRACKABLE_MICROS = 3_600_000_000L;
+    // headers recomputed by the client for the replayed request
+    private static final Set<String> SKIPPED_HEADERS = new HashSet<>(Arrays.asList(
+            "content-length", "transfer-encoding", "connection", "keep-alive", "expect"));
+
+    private final String target;
+    private final double speed;
+    private final CloseableHttpClient client;
+    private final ExecutorService executor;
+    private final Histogram total = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 2);
+    private final ConcurrentMap<String, Histogram> byHost = new ConcurrentHashMap<>();
+    // 1xx-5xx status classes, then transport errors
+    private final AtomicLongArray outcomes = new AtomicLongArray(6);
+
+    public ReplayDriver(String target, double speed, int threads) {
+        this.target = target.endsWith("/") ? target.substring(0, target.length() - 1) : target;
+        this.speed = speed;
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(threads);
+        connectionManager.setDefaultMaxPerRoute(threads);
+        this.client = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .disableRedirectHandling()
+                .disableCookieManagement()
+                .disableAutomaticRetries()
+                .build();
+        this.executor = Executors.newFixedThreadPool(threads);
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: ReplayDriver <capture-log> <target-url> [speed=1.0] [threads=64]");
+            System.exit(1);
+        }
+        double speed = args.length > 2 ? Double.parseDouble(args[2]) : 1.0;
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : 64;
+
+        List<CaptureRecord> records = readLog(args[0]);
+        System.out.printf("Replaying %d requests against %s at %.2fx%n", records.size(), args[1], speed);
+        ReplayDriver driver = new ReplayDriver(args[1], speed, threads);
+        long elapsedNanos = driver.replay(records);
+        driver.report(elapsedNanos);
+    }
+
+    static List<CaptureRecord> readLog(String path) throws IOException {
+        List<CaptureRecord> records = new ArrayList<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(path), 64 * 1024))) {
+            CaptureLog.readHeader(in);
+            CaptureRecord record;
+            while ((record = CaptureLog.read(in)) != null) {
+                records.add(record);
+            }
+        }
+        return records;
+    }
+
+    long replay(List<CaptureRecord> records) throws Exception {
+        long start = nanoTime();
+        for (CaptureRecord record : records) {
+            long intended = start + (long) (TimeUnit.MICROSECONDS.toNanos(record.getOffsetMicros()) / speed);
+            long wait;
+            while ((wait = intended - nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            executor.execute(() -> send(record, intended));
+        }
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.HOURS);
+        client.close();
+        return nanoTime() - start;
+    }
+
+    void send(CaptureRecord record, long intendedNanos) {
+        RequestBuilder builder = RequestBuilder.create(record.getMethod()).setUri(target + record.getUri());
+        record.getHeaders().forEach(header -> {
+            if (!SKIPPED_HEADERS.contains(header.getKey().toLowerCase())) {
+                builder.addHeader(header.getKey(), header.getValue());
+            }
+        });
+        if (record.getBodyLength() > 0) {
+            builder.setEntity(new ByteArrayEntity(record.getReplayBody()));
+        }
+        int outcome;
+        try {
+            HttpResponse response = client.execute(builder.build());
+            EntityUtils.consume(response.getEntity());
+            outcome = Math.min(Math.max(response.getStatusLine().getStatusCode() / 100, 1), 5) - 1;
+        } catch (IOException e) {
+            outcome = 5;
+        }
+        long micros = Math.min(TimeUnit.NANOSECONDS.toMicros(nanoTime() - intendedNanos), HIGHEST_TRACKABLE_MICROS);
+        total.recordValue(micros);
+        byHost.computeIfAbsent(record.getHost(), host -> new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 2))
+                .recordValue(micros);
+        outcomes.incrementAndGet(outcome);
+    }
+
+    void report(long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        System.out.printf("%nCompleted %d requests in %.1fs (%.1f req/s)%n",
+                total.getTotalCount(), seconds, total.getTotalCount() / seconds);
+        System.out.printf("1xx=%d 2xx=%d 3xx=%d 4xx=%d 5xx=%d errors=%d%n%n",
+                outcomes.get(0), outcomes.get(1), outcomes.get(2), outcomes.get(3), outcomes.get(4), outcomes.get(5));
+        System.out.printf("%-40s %8s %9s %9s %9s %9s %9s%n", "host", "count", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        new TreeMap<>(byHost).forEach(this::printRow);
+        printRow("total", total);
+    }
+
+    private void printRow(String name, Histogram histogram) {
+        System.out.printf("%-40s %8d %9.2f %9.2f %9.2f %9.2f %9.2f%n", name, histogram.getTotalCount(),
+                histogram.getValueAtPercentile(50) / 1000.0,
+                histogram.getValueAtPercentile(90) / 1000.0,
+                histogram.getValueAtPercentile(99) / 1000.0,
+                histogram.getValueAtPercentile(99.9) / 1000.0,
+                histogram.getMaxValue() / 1000.0);
+    }
+}